@@ -17,7 +17,11 @@
 
 package com.io7m.aradine.envelope.table1;
 
+import com.io7m.aradine.annotations.ARTimeFramesPerSecond;
+import com.io7m.aradine.annotations.ARTimeMilliseconds;
+
 import static com.io7m.aradine.envelope.table1.AREnvelopeInterpolation.CONSTANT_CURRENT;
+import static com.io7m.aradine.envelope.table1.AREnvelopeInterpolation.LINEAR;
 
 /**
  * A three-state envelope definition.
@@ -47,6 +51,46 @@ public record AREnvelopeADR(
     release.setFirst(0.0, CONSTANT_CURRENT);
   }
 
+  /**
+   * Create an envelope that holds a constant amplitude of 1.0 until it is
+   * released, and then falls linearly to 0.0 over the given time.
+   *
+   * @param sampleRate  The current sample rate
+   * @param releaseTime The release time
+   *
+   * @return An envelope
+   */
+
+  public static AREnvelopeADR createRelease(
+    final @ARTimeFramesPerSecond long sampleRate,
+    final @ARTimeMilliseconds double releaseTime)
+  {
+    final var envelope =
+      new AREnvelopeADR(
+        AREnvelopeTable.create(sampleRate),
+        AREnvelopeTable.create(sampleRate),
+        AREnvelopeTable.create(sampleRate)
+      );
+    envelope.setReleaseLinear(releaseTime);
+    return envelope;
+  }
+
+  /**
+   * Replace the release state with a linear fall from 1.0 to 0.0 over the
+   * given time. A release time of zero yields a release that is silent
+   * immediately.
+   *
+   * @param releaseTime The release time
+   */
+
+  public void setReleaseLinear(
+    final @ARTimeMilliseconds double releaseTime)
+  {
+    this.release.clear();
+    this.release.setFirst(1.0, LINEAR);
+    this.release.setPoint(releaseTime, 0.0, LINEAR);
+  }
+
   /**
    * Set the new sample rate.
    *
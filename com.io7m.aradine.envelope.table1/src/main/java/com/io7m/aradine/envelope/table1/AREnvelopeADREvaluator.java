@@ -68,6 +68,19 @@ public final class AREnvelopeADREvaluator
     return this.state;
   }
 
+  /**
+   * Return the evaluator to the start of the attack state, as if it had
+   * just been constructed.
+   */
+
+  public void reset()
+  {
+    this.state = STATE_ATTACK;
+    this.stateStarted = 0L;
+    this.ampMostRecent = 0.0;
+    this.releaseScale = 1.0;
+  }
+
   /**
    * Begin the release state of the envelope.
    *
@@ -0,0 +1,172 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.envelope.table1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+import com.io7m.aradine.annotations.ARTimeFrames;
+
+import java.util.Objects;
+
+/**
+ * <p>An ADR envelope evaluated at a control rate.</p>
+ *
+ * <p>Evaluating an envelope table involves a search of the table, and so
+ * evaluating an envelope on every frame of every voice is needlessly
+ * expensive. A ramp evaluates the underlying envelope once every
+ * {@code interval} frames and linearly interpolates between evaluations.
+ * Breakpoints in the envelope are therefore only honoured to within one
+ * interval, with the exception of the end of the release. The ramp tracks
+ * its own time, in frames since it was last reset, and so yields one
+ * amplitude per call to {@link #next()}.</p>
+ */
+
+public final class AREnvelopeADRRamp
+{
+  private final AREnvelopeADR envelope;
+  private final AREnvelopeADREvaluator evaluator;
+  private final int interval;
+  private @ARTimeFrames long time;
+  private @ARTimeFrames long releaseTime;
+  private @ARNormalizedUnsigned double current;
+  private double step;
+  private int remaining;
+
+  /**
+   * Construct a ramp.
+   *
+   * @param inEnvelope The underlying envelope
+   * @param inInterval The number of frames between evaluations of the
+   *                   underlying envelope
+   */
+
+  public AREnvelopeADRRamp(
+    final AREnvelopeADR inEnvelope,
+    final int inInterval)
+  {
+    this.envelope =
+      Objects.requireNonNull(inEnvelope, "inEnvelope");
+    this.evaluator =
+      new AREnvelopeADREvaluator(inEnvelope);
+    this.interval =
+      Math.max(1, inInterval);
+    this.reset();
+  }
+
+  /**
+   * Return the ramp to the start of the attack state.
+   */
+
+  public void reset()
+  {
+    this.evaluator.reset();
+    this.time = 0L;
+    this.releaseTime = -1L;
+    this.current = this.evaluator.evaluate(0L);
+    this.step = 0.0;
+    this.remaining = 0;
+  }
+
+  /**
+   * Begin the release state at the current time. The release is relative
+   * to the current amplitude. Releasing a ramp that is already releasing
+   * has no effect.
+   */
+
+  public void beginRelease()
+  {
+    if (this.releaseTime >= 0L) {
+      return;
+    }
+
+    this.evaluator.evaluate(this.time);
+    this.evaluator.beginRelease(this.time, true);
+    this.releaseTime = this.time;
+    this.current = this.evaluator.evaluate(this.time);
+    this.step = 0.0;
+    this.remaining = 0;
+  }
+
+  /**
+   * @return {@code true} if the ramp has been released
+   */
+
+  public boolean isReleasing()
+  {
+    return this.releaseTime >= 0L;
+  }
+
+  /**
+   * @return {@code true} if the ramp has been released and has reached the
+   * end of the release state
+   */
+
+  public boolean isFinished()
+  {
+    return this.releaseTime >= 0L
+      && this.time - this.releaseTime >= this.envelope.release().endFrames();
+  }
+
+  /**
+   * @return The current envelope state
+   */
+
+  public AREnvelopeADRState state()
+  {
+    return this.evaluator.state();
+  }
+
+  /**
+   * Evaluate the ramp at the current time, and advance the time by one
+   * frame.
+   *
+   * @return The amplitude
+   */
+
+  public @ARNormalizedUnsigned double next()
+  {
+    if (this.remaining == 0) {
+      final var frames = this.segmentFrames();
+      final var target =
+        this.evaluator.evaluate(this.time + (long) frames);
+      this.step = (target - this.current) / (double) frames;
+      this.remaining = frames;
+    }
+
+    final var amplitude = this.current;
+    this.current += this.step;
+    --this.remaining;
+    ++this.time;
+    return amplitude;
+  }
+
+  /**
+   * A segment never extends past the end of the release, so that the ramp
+   * reaches silence exactly when the release ends.
+   */
+
+  private int segmentFrames()
+  {
+    if (this.releaseTime >= 0L) {
+      final var left =
+        this.envelope.release().endFrames() - (this.time - this.releaseTime);
+      if (left > 0L && left < (long) this.interval) {
+        return (int) left;
+      }
+    }
+    return this.interval;
+  }
+}
@@ -258,6 +258,17 @@ public final class AREnvelopeTable
     );
   }
 
+  /**
+   * Remove every node other than the first.
+   */
+
+  public void clear()
+  {
+    final var first = this.points.firstEntry();
+    this.points.clear();
+    this.points.put(first.getKey(), first.getValue());
+  }
+
   /**
    * Set a point in the envelope.
    *
@@ -65,6 +65,25 @@ public final class ARBQ1BiquadBPFBWO8 implements ARBQ1BiquadType
     this.stage3.setCutoff(newCutoff);
   }
 
+  @Override
+  public void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    /*
+     * Each stage runs across the whole block before the next, so each
+     * stage keeps its own state in registers for the duration of the block.
+     */
+
+    this.stage0.processBlock(input, inputOffset, output, outputOffset, count);
+    this.stage1.processBlock(output, outputOffset, count);
+    this.stage2.processBlock(output, outputOffset, count);
+    this.stage3.processBlock(output, outputOffset, count);
+  }
+
   @Override
   public double processOneFrame(
     final double input)
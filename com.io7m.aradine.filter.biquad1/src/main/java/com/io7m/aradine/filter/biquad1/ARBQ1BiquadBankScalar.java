@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+
+/**
+ * A bank of biquad filters processed one channel at a time with scalar
+ * arithmetic.
+ */
+
+public final class ARBQ1BiquadBankScalar implements ARBQ1BiquadBankType
+{
+  private final ARBQ1BiquadBankState state;
+
+  /**
+   * Create a bank of filters.
+   *
+   * @param response The filter response
+   * @param channels The number of channels
+   * @param order    The filter order (must be even, and nonzero)
+   */
+
+  public ARBQ1BiquadBankScalar(
+    final ARBQ1BiquadResponse response,
+    final int channels,
+    final int order)
+  {
+    this.state = new ARBQ1BiquadBankState(response, channels, order, 1);
+  }
+
+  @Override
+  public int channels()
+  {
+    return this.state.channels();
+  }
+
+  @Override
+  public int order()
+  {
+    return this.state.order();
+  }
+
+  @Override
+  public ARBQ1BiquadResponse response()
+  {
+    return this.state.response();
+  }
+
+  @Override
+  public void setCutoff(
+    final int channel,
+    final @ARNormalizedUnsigned double newCutoff)
+  {
+    this.state.setCutoff(channel, newCutoff);
+  }
+
+  @Override
+  public void reset()
+  {
+    this.state.reset();
+  }
+
+  @Override
+  public void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int frames)
+  {
+    final var s = this.state;
+    s.checkBlock(input, inputOffset, output, outputOffset, frames);
+
+    final var channels = s.channels();
+    final var stride = s.stride();
+
+    for (int channel = 0; channel < channels; ++channel) {
+      for (int stage = 0; stage < s.stages(); ++stage) {
+        final var index = (stage * stride) + channel;
+        final var c0 = s.a0()[index];
+        final var c1 = s.a1()[index];
+        final var c2 = s.a2()[index];
+        final var d1 = s.b1()[index];
+        final var d2 = s.b2()[index];
+        var m0 = s.m0()[index];
+        var m1 = s.m1()[index];
+
+        /*
+         * The first stage reads the input; each later stage filters the
+         * output of the previous stage in place.
+         */
+
+        final var source = stage == 0 ? input : output;
+        final var sourceOffset = stage == 0 ? inputOffset : outputOffset;
+
+        for (int frame = 0; frame < frames; ++frame) {
+          final var offset = frame * channels;
+          final var x = source[sourceOffset + offset + channel];
+          final var out = (x * c0) + m0;
+          m0 = ((x * c1) + m1) - (d1 * out);
+          m1 = (x * c2) - (d2 * out);
+          output[outputOffset + offset + channel] = out;
+        }
+
+        s.m0()[index] = m0;
+        s.m1()[index] = m1;
+      }
+    }
+  }
+}
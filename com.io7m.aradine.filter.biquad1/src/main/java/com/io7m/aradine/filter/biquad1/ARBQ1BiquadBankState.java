@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>The coefficients and state of a bank of biquad filters, held in
+ * struct-of-arrays form.</p>
+ *
+ * <p>The value for channel {@code c} of stage {@code s} is held at index
+ * {@code (s * stride) + c} of each array. The stride is the number of
+ * channels rounded up to a multiple of a lane count, so that each stage can
+ * be read a whole vector at a time without bounds checks on the padding.</p>
+ */
+
+final class ARBQ1BiquadBankState
+{
+  private final ARBQ1BiquadResponse response;
+  private final int channels;
+  private final int order;
+  private final int stages;
+  private final int stride;
+  private final double[] qs;
+  private final double[] a0;
+  private final double[] a1;
+  private final double[] a2;
+  private final double[] b1;
+  private final double[] b2;
+  private final double[] m0;
+  private final double[] m1;
+
+  ARBQ1BiquadBankState(
+    final ARBQ1BiquadResponse inResponse,
+    final int inChannels,
+    final int inOrder,
+    final int lanes)
+  {
+    this.response =
+      Objects.requireNonNull(inResponse, "response");
+
+    if (inChannels <= 0) {
+      throw new IllegalArgumentException(
+        "Must use a positive number of channels.");
+    }
+
+    this.channels = inChannels;
+    this.order = inOrder;
+    this.qs = ARBQ1BiquadQs.butterworthStyleCascadedQValues(inOrder);
+    this.stages = this.qs.length;
+    this.stride = ((inChannels + lanes - 1) / lanes) * lanes;
+
+    final var size = this.stages * this.stride;
+    this.a0 = new double[size];
+    this.a1 = new double[size];
+    this.a2 = new double[size];
+    this.b1 = new double[size];
+    this.b2 = new double[size];
+    this.m0 = new double[size];
+    this.m1 = new double[size];
+
+    final var cutoff = cutoffDefault(inResponse);
+    for (int channel = 0; channel < inChannels; ++channel) {
+      this.setCutoff(channel, cutoff);
+    }
+  }
+
+  private static double cutoffDefault(
+    final ARBQ1BiquadResponse response)
+  {
+    return switch (response) {
+      case LOW_PASS -> 0.5;
+      case HIGH_PASS -> 0.0;
+      case BAND_PASS, BAND_REJECT -> 0.125;
+    };
+  }
+
+  ARBQ1BiquadResponse response()
+  {
+    return this.response;
+  }
+
+  int channels()
+  {
+    return this.channels;
+  }
+
+  int order()
+  {
+    return this.order;
+  }
+
+  int stages()
+  {
+    return this.stages;
+  }
+
+  int stride()
+  {
+    return this.stride;
+  }
+
+  double[] a0()
+  {
+    return this.a0;
+  }
+
+  double[] a1()
+  {
+    return this.a1;
+  }
+
+  double[] a2()
+  {
+    return this.a2;
+  }
+
+  double[] b1()
+  {
+    return this.b1;
+  }
+
+  double[] b2()
+  {
+    return this.b2;
+  }
+
+  double[] m0()
+  {
+    return this.m0;
+  }
+
+  double[] m1()
+  {
+    return this.m1;
+  }
+
+  void reset()
+  {
+    Arrays.fill(this.m0, 0.0);
+    Arrays.fill(this.m1, 0.0);
+  }
+
+  void checkBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int frames)
+  {
+    final var samples = Math.multiplyExact(frames, this.channels);
+    Objects.checkFromIndexSize(inputOffset, samples, input.length);
+    Objects.checkFromIndexSize(outputOffset, samples, output.length);
+  }
+
+  void setCutoff(
+    final int channel,
+    final double newCutoff)
+  {
+    Objects.checkIndex(channel, this.channels);
+
+    final var cutoff = Math.min(0.5, Math.max(0.0, newCutoff));
+    final var k = StrictMath.tan(StrictMath.PI * cutoff);
+
+    for (int stage = 0; stage < this.stages; ++stage) {
+      ARBQ1BiquadCoefficients.calculate(
+        this.response,
+        k,
+        this.qs[stage],
+        this.a0,
+        this.a1,
+        this.a2,
+        this.b1,
+        this.b2,
+        (stage * this.stride) + channel
+      );
+    }
+  }
+}
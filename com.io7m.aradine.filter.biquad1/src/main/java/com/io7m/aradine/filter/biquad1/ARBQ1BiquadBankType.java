@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+
+/**
+ * <p>A bank of identical biquad filters, one per channel, processing
+ * interleaved multi-channel frames.</p>
+ *
+ * <p>Each channel is a cascade of {@code order / 2} second-order stages whose
+ * Q values are chosen to give a Butterworth-like response, exactly as in
+ * {@link ARBQ1BiquadLPFBWO4} and {@link ARBQ1BiquadLPFBWO8}. Each channel of
+ * a bank produces the same output as the equivalent individual filter.</p>
+ *
+ * @see ARBQ1BiquadBanks
+ */
+
+public interface ARBQ1BiquadBankType
+{
+  /**
+   * @return The number of channels
+   */
+
+  int channels();
+
+  /**
+   * @return The order of the filter applied to each channel
+   */
+
+  int order();
+
+  /**
+   * @return The response of the filters
+   */
+
+  ARBQ1BiquadResponse response();
+
+  /**
+   * Specify a new frequency cutoff value for a channel.
+   *
+   * @param channel   The channel
+   * @param newCutoff The cutoff
+   */
+
+  void setCutoff(
+    int channel,
+    @ARNormalizedUnsigned double newCutoff);
+
+  /**
+   * Clear the state of every filter, as if no frames had been processed.
+   */
+
+  void reset();
+
+  /**
+   * Apply the filters to {@code frames} interleaved frames of {@code input}
+   * starting at {@code inputOffset}, writing the filtered frames to
+   * {@code output} starting at {@code outputOffset}. Each frame consists of
+   * {@link #channels()} consecutive samples. The input and output may be the
+   * same array, in which case the ranges must either be identical or not
+   * overlap.
+   *
+   * @param input        The input samples
+   * @param inputOffset  The index of the first input sample
+   * @param output       The output samples
+   * @param outputOffset The index of the first output sample
+   * @param frames       The number of frames
+   */
+
+  void processBlock(
+    double[] input,
+    int inputOffset,
+    double[] output,
+    int outputOffset,
+    int frames);
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>A bank of biquad filters that uses the (incubating) Vector API to
+ * process as many channels at once as there are vector lanes.</p>
+ *
+ * <p>The lanes are combined with separate multiplies and adds rather than
+ * fused multiply-adds, so that the results are bit-for-bit identical to
+ * those of {@link ARBQ1BiquadBankScalar}.</p>
+ */
+
+public final class ARBQ1BiquadBankVector implements ARBQ1BiquadBankType
+{
+  private static final VectorSpecies<Double> SPECIES =
+    DoubleVector.SPECIES_PREFERRED;
+
+  private final ARBQ1BiquadBankState state;
+
+  /**
+   * Create a bank of filters. Constructing an instance fails with a
+   * {@link LinkageError} if the {@code jdk.incubator.vector} module is not
+   * available.
+   *
+   * @param response The filter response
+   * @param channels The number of channels
+   * @param order    The filter order (must be even, and nonzero)
+   */
+
+  public ARBQ1BiquadBankVector(
+    final ARBQ1BiquadResponse response,
+    final int channels,
+    final int order)
+  {
+    this.state =
+      new ARBQ1BiquadBankState(response, channels, order, SPECIES.length());
+  }
+
+  @Override
+  public int channels()
+  {
+    return this.state.channels();
+  }
+
+  @Override
+  public int order()
+  {
+    return this.state.order();
+  }
+
+  @Override
+  public ARBQ1BiquadResponse response()
+  {
+    return this.state.response();
+  }
+
+  @Override
+  public void setCutoff(
+    final int channel,
+    final @ARNormalizedUnsigned double newCutoff)
+  {
+    this.state.setCutoff(channel, newCutoff);
+  }
+
+  @Override
+  public void reset()
+  {
+    this.state.reset();
+  }
+
+  @Override
+  public void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int frames)
+  {
+    final var s = this.state;
+    s.checkBlock(input, inputOffset, output, outputOffset, frames);
+
+    final var channels = s.channels();
+    final var step = SPECIES.length();
+
+    for (int channel = 0; channel < channels; channel += step) {
+      final var mask = SPECIES.indexInRange(channel, channels);
+      for (int stage = 0; stage < s.stages(); ++stage) {
+        if (stage == 0) {
+          this.processStage(
+            input, inputOffset, output, outputOffset, frames,
+            stage, channel, mask);
+        } else {
+          this.processStage(
+            output, outputOffset, output, outputOffset, frames,
+            stage, channel, mask);
+        }
+      }
+    }
+  }
+
+  private void processStage(
+    final double[] source,
+    final int sourceOffset,
+    final double[] output,
+    final int outputOffset,
+    final int frames,
+    final int stage,
+    final int channel,
+    final VectorMask<Double> mask)
+  {
+    final var s = this.state;
+    final var channels = s.channels();
+    final var index = (stage * s.stride()) + channel;
+
+    /*
+     * The coefficient and state arrays are padded to a whole number of
+     * vectors, so they can always be accessed without masks. The frames
+     * themselves are only masked if the last group of channels does not
+     * fill a whole vector.
+     */
+
+    final var c0 = DoubleVector.fromArray(SPECIES, s.a0(), index);
+    final var c1 = DoubleVector.fromArray(SPECIES, s.a1(), index);
+    final var c2 = DoubleVector.fromArray(SPECIES, s.a2(), index);
+    final var d1 = DoubleVector.fromArray(SPECIES, s.b1(), index);
+    final var d2 = DoubleVector.fromArray(SPECIES, s.b2(), index);
+    var m0 = DoubleVector.fromArray(SPECIES, s.m0(), index);
+    var m1 = DoubleVector.fromArray(SPECIES, s.m1(), index);
+
+    final var full = mask.allTrue();
+    for (int frame = 0; frame < frames; ++frame) {
+      final var offset = (frame * channels) + channel;
+      final var at = sourceOffset + offset;
+      final var x =
+        full
+          ? DoubleVector.fromArray(SPECIES, source, at)
+          : DoubleVector.fromArray(SPECIES, source, at, mask);
+
+      final var out = x.mul(c0).add(m0);
+      m0 = x.mul(c1).add(m1).sub(d1.mul(out));
+      m1 = x.mul(c2).sub(d2.mul(out));
+
+      if (full) {
+        out.intoArray(output, outputOffset + offset);
+      } else {
+        out.intoArray(output, outputOffset + offset, mask);
+      }
+    }
+
+    m0.intoArray(s.m0(), index);
+    m1.intoArray(s.m1(), index);
+  }
+}
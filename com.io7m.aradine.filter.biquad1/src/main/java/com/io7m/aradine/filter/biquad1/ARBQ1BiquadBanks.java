@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+/**
+ * Functions to create banks of biquad filters.
+ */
+
+public final class ARBQ1BiquadBanks
+{
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  private ARBQ1BiquadBanks()
+  {
+
+  }
+
+  /**
+   * Create a bank of filters using the fastest available implementation.
+   * The Vector API implementation is used if the {@code jdk.incubator.vector}
+   * module has been added to the boot layer (for example, with
+   * {@code --add-modules jdk.incubator.vector}), and the scalar
+   * implementation is used otherwise.
+   *
+   * @param response The filter response
+   * @param channels The number of channels
+   * @param order    The filter order (must be even, and nonzero)
+   *
+   * @return A bank of filters
+   */
+
+  public static ARBQ1BiquadBankType create(
+    final ARBQ1BiquadResponse response,
+    final int channels,
+    final int order)
+  {
+    if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+      try {
+        return new ARBQ1BiquadBankVector(response, channels, order);
+      } catch (final LinkageError e) {
+        // Fall through to the scalar implementation.
+      }
+    }
+    return new ARBQ1BiquadBankScalar(response, channels, order);
+  }
+}
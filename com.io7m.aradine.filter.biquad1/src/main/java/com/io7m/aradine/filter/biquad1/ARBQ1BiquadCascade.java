@@ -0,0 +1,319 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p>A cascade of any number of second-order sections in series.</p>
+ *
+ * <p>A cascade of the sections produced by
+ * {@link ARBQ1BiquadDesigns#butterworth(int)} produces exactly the same output
+ * as the hand-written Butterworth-style filters such as
+ * {@link ARBQ1BiquadLPFBWO4} and {@link ARBQ1BiquadLPFBWO8}, but at any even
+ * order.</p>
+ *
+ * <p>Scaling the frequency of each section is only a valid transformation
+ * of a low-pass design for the low-pass and high-pass responses. Band-pass
+ * and band-reject cascades therefore only accept sections with a frequency
+ * scale of exactly {@code 1.0}, such as those of the Butterworth and
+ * Linkwitz-Riley designs.</p>
+ *
+ * @see ARBQ1BiquadDesigns
+ */
+
+public final class ARBQ1BiquadCascade implements ARBQ1BiquadType
+{
+  private final ARBQ1BiquadResponse response;
+  private final int stages;
+  private final double[] qs;
+  private final double[] scales;
+  private final double[] a0;
+  private final double[] a1;
+  private final double[] a2;
+  private final double[] b1;
+  private final double[] b2;
+  private final double[] m0;
+  private final double[] m1;
+
+  /**
+   * Create a new filter.
+   *
+   * @param inResponse The filter response
+   * @param inSections The sections, in order of application
+   *
+   * @throws IllegalArgumentException If there are no sections, or if the
+   *                                  response is band-pass or band-reject
+   *                                  and a section is frequency-scaled
+   */
+
+  public ARBQ1BiquadCascade(
+    final ARBQ1BiquadResponse inResponse,
+    final List<ARBQ1BiquadSection> inSections)
+  {
+    this.response =
+      Objects.requireNonNull(inResponse, "response");
+    Objects.requireNonNull(inSections, "sections");
+
+    if (inSections.isEmpty()) {
+      throw new IllegalArgumentException(
+        "Must use at least one section.");
+    }
+
+    if (inResponse == ARBQ1BiquadResponse.BAND_PASS
+        || inResponse == ARBQ1BiquadResponse.BAND_REJECT) {
+      for (final var section : inSections) {
+        if (section.frequencyScale() != 1.0) {
+          throw new IllegalArgumentException(
+            "%s cascades require sections with a frequency scale of 1.0"
+              .formatted(inResponse)
+          );
+        }
+      }
+    }
+
+    this.stages = inSections.size();
+    this.qs = new double[this.stages];
+    this.scales = new double[this.stages];
+    for (int stage = 0; stage < this.stages; ++stage) {
+      final var section = inSections.get(stage);
+      this.qs[stage] = section.q();
+      this.scales[stage] = section.frequencyScale();
+    }
+
+    this.a0 = new double[this.stages];
+    this.a1 = new double[this.stages];
+    this.a2 = new double[this.stages];
+    this.b1 = new double[this.stages];
+    this.b2 = new double[this.stages];
+    this.m0 = new double[this.stages];
+    this.m1 = new double[this.stages];
+
+    this.setCutoff(
+      switch (inResponse) {
+        case LOW_PASS -> 0.5;
+        case HIGH_PASS -> 0.0;
+        case BAND_PASS, BAND_REJECT -> 0.125;
+      }
+    );
+  }
+
+  /**
+   * @return The response of the filter
+   */
+
+  public ARBQ1BiquadResponse response()
+  {
+    return this.response;
+  }
+
+  /**
+   * @return The order of the filter
+   */
+
+  public int order()
+  {
+    return this.stages * 2;
+  }
+
+  /**
+   * Clear the state of the filter, as if no frames had been processed.
+   */
+
+  public void reset()
+  {
+    Arrays.fill(this.m0, 0.0);
+    Arrays.fill(this.m1, 0.0);
+  }
+
+  @Override
+  public void setCutoff(
+    final @ARNormalizedUnsigned double newCutoff)
+  {
+    final var cutoff = Math.min(0.5, Math.max(0.0, newCutoff));
+    final var k = StrictMath.tan(StrictMath.PI * cutoff);
+
+    /*
+     * The natural frequencies of high-pass sections are the reciprocals of
+     * those of the low-pass prototype.
+     */
+
+    for (int stage = 0; stage < this.stages; ++stage) {
+      final var scale = this.scales[stage];
+      final var ks =
+        this.response == ARBQ1BiquadResponse.HIGH_PASS ? k / scale : k * scale;
+
+      ARBQ1BiquadCoefficients.calculate(
+        this.response,
+        ks,
+        this.qs[stage],
+        this.a0,
+        this.a1,
+        this.a2,
+        this.b1,
+        this.b2,
+        stage
+      );
+    }
+  }
+
+  @Override
+  public double processOneFrame(
+    final double input)
+  {
+    var x = input;
+    for (int stage = 0; stage < this.stages; ++stage) {
+      final var out = (x * this.a0[stage]) + this.m0[stage];
+      this.m0[stage] =
+        ((x * this.a1[stage]) + this.m1[stage]) - (this.b1[stage] * out);
+      this.m1[stage] =
+        (x * this.a2[stage]) - (this.b2[stage] * out);
+      x = out;
+    }
+    return x;
+  }
+
+  @Override
+  public void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.length);
+    Objects.checkFromIndexSize(outputOffset, count, output.length);
+
+    if (count == 0) {
+      return;
+    }
+
+    /*
+     * Stages are processed in pairs across the whole block. The first
+     * stage reads the input; later pairs filter the output in place.
+     */
+
+    var stage = 0;
+    var source = input;
+    var sourceOffset = inputOffset;
+    for (; stage + 1 < this.stages; stage += 2) {
+      this.processPair(
+        stage, source, sourceOffset, output, outputOffset, count);
+      source = output;
+      sourceOffset = outputOffset;
+    }
+    if (stage < this.stages) {
+      this.processSingle(
+        stage, source, sourceOffset, output, outputOffset, count);
+    }
+  }
+
+  private void processSingle(
+    final int stage,
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    final var c0 = this.a0[stage];
+    final var c1 = this.a1[stage];
+    final var c2 = this.a2[stage];
+    final var d1 = this.b1[stage];
+    final var d2 = this.b2[stage];
+    var s0 = this.m0[stage];
+    var s1 = this.m1[stage];
+
+    for (int index = 0; index < count; ++index) {
+      final var x = input[inputOffset + index];
+      final var out = (x * c0) + s0;
+      s0 = ((x * c1) + s1) - (d1 * out);
+      s1 = (x * c2) - (d2 * out);
+      output[outputOffset + index] = out;
+    }
+
+    this.m0[stage] = s0;
+    this.m1[stage] = s1;
+  }
+
+  /*
+   * Process two consecutive stages, skewed by one frame: each iteration
+   * runs the first stage on frame n and the second stage on frame n - 1.
+   * The two computations are independent of each other, so the processor
+   * can overlap them rather than waiting on the first stage's result. The
+   * arithmetic on each frame is exactly that of processOneFrame.
+   */
+
+  private void processPair(
+    final int stage,
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    final var p0 = this.a0[stage];
+    final var p1 = this.a1[stage];
+    final var p2 = this.a2[stage];
+    final var q1 = this.b1[stage];
+    final var q2 = this.b2[stage];
+    var ps0 = this.m0[stage];
+    var ps1 = this.m1[stage];
+
+    final var next = stage + 1;
+    final var r0 = this.a0[next];
+    final var r1 = this.a1[next];
+    final var r2 = this.a2[next];
+    final var t1 = this.b1[next];
+    final var t2 = this.b2[next];
+    var rs0 = this.m0[next];
+    var rs1 = this.m1[next];
+
+    final var x0 = input[inputOffset];
+    var pending = (x0 * p0) + ps0;
+    ps0 = ((x0 * p1) + ps1) - (q1 * pending);
+    ps1 = (x0 * p2) - (q2 * pending);
+
+    for (int index = 1; index < count; ++index) {
+      final var x = input[inputOffset + index];
+      final var first = (x * p0) + ps0;
+      final var second = (pending * r0) + rs0;
+
+      ps0 = ((x * p1) + ps1) - (q1 * first);
+      ps1 = (x * p2) - (q2 * first);
+      rs0 = ((pending * r1) + rs1) - (t1 * second);
+      rs1 = (pending * r2) - (t2 * second);
+
+      output[outputOffset + index - 1] = second;
+      pending = first;
+    }
+
+    final var last = (pending * r0) + rs0;
+    rs0 = ((pending * r1) + rs1) - (t1 * last);
+    rs1 = (pending * r2) - (t2 * last);
+    output[outputOffset + count - 1] = last;
+
+    this.m0[stage] = ps0;
+    this.m1[stage] = ps1;
+    this.m0[next] = rs0;
+    this.m1[next] = rs1;
+  }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>A dense table of the coefficients of a second-order section, sampled
+ * at evenly spaced cutoff frequencies over {@code [0, 0.5]}.</p>
+ *
+ * <p>Coefficients for arbitrary cutoffs are produced by linear
+ * interpolation between the two nearest entries, which is far cheaper than
+ * evaluating {@code tan} directly. At the sampled cutoffs, the coefficients
+ * are exactly those calculated by the individual order-2 filters. The
+ * region of stable coefficients is convex, so interpolating between two
+ * stable entries always yields a stable filter.</p>
+ *
+ * <p>Tables are immutable and are shared between all filters with the same
+ * response and Q value. The shared tables are only weakly referenced, so a
+ * table is discarded when no filter uses it, and hosts that create filters
+ * from a continuously variable Q do not accumulate tables.</p>
+ */
+
+public final class ARBQ1BiquadCoefficientTable
+{
+  /**
+   * The number of intervals between sampled cutoffs.
+   */
+
+  public static final int INTERVALS = 4096;
+
+  static final int STRIDE = 5;
+
+  private static final ConcurrentHashMap<Key, TableReference>
+    TABLES = new ConcurrentHashMap<>();
+  private static final ReferenceQueue<ARBQ1BiquadCoefficientTable>
+    TABLES_CLEARED = new ReferenceQueue<>();
+
+  private final ARBQ1BiquadResponse response;
+  private final double q;
+  private final double[] values;
+
+  private record Key(
+    ARBQ1BiquadResponse response,
+    double q)
+  {
+
+  }
+
+  private static final class TableReference
+    extends WeakReference<ARBQ1BiquadCoefficientTable>
+  {
+    private final Key key;
+
+    TableReference(
+      final Key inKey,
+      final ARBQ1BiquadCoefficientTable table)
+    {
+      super(table, TABLES_CLEARED);
+      this.key = inKey;
+    }
+  }
+
+  private ARBQ1BiquadCoefficientTable(
+    final ARBQ1BiquadResponse inResponse,
+    final double inQ)
+  {
+    this.response = inResponse;
+    this.q = inQ;
+    this.values = new double[(INTERVALS + 1) * STRIDE];
+
+    final var a0 = new double[1];
+    final var a1 = new double[1];
+    final var a2 = new double[1];
+    final var b1 = new double[1];
+    final var b2 = new double[1];
+
+    for (int index = 0; index <= INTERVALS; ++index) {
+      final var cutoff = (double) index / (double) (INTERVALS * 2);
+      final var k = StrictMath.tan(StrictMath.PI * cutoff);
+      ARBQ1BiquadCoefficients.calculate(
+        inResponse, k, inQ, a0, a1, a2, b1, b2, 0);
+
+      final var base = index * STRIDE;
+      this.values[base] = a0[0];
+      this.values[base + 1] = a1[0];
+      this.values[base + 2] = a2[0];
+      this.values[base + 3] = b1[0];
+      this.values[base + 4] = b2[0];
+    }
+  }
+
+  /**
+   * Retrieve the shared table for the given response and Q value, creating
+   * it if necessary. Creating a table allocates, and so this method should
+   * not be called on the audio thread.
+   *
+   * @param response The response
+   * @param q        The Q value (must be positive)
+   *
+   * @return The table
+   */
+
+  public static ARBQ1BiquadCoefficientTable of(
+    final ARBQ1BiquadResponse response,
+    final double q)
+  {
+    Objects.requireNonNull(response, "response");
+    if (!(q > 0.0)) {
+      throw new IllegalArgumentException(
+        "Q must be positive (received %f)".formatted(Double.valueOf(q)));
+    }
+
+    expungeCleared();
+
+    final var key = new Key(response, q);
+    while (true) {
+      final var existing = TABLES.get(key);
+      if (existing != null) {
+        final var table = existing.get();
+        if (table != null) {
+          return table;
+        }
+      }
+
+      final var table = new ARBQ1BiquadCoefficientTable(response, q);
+      final var reference = new TableReference(key, table);
+      final boolean stored;
+      if (existing == null) {
+        stored = TABLES.putIfAbsent(key, reference) == null;
+      } else {
+        stored = TABLES.replace(key, existing, reference);
+      }
+      if (stored) {
+        return table;
+      }
+    }
+  }
+
+  private static void expungeCleared()
+  {
+    while (true) {
+      final var cleared = (TableReference) TABLES_CLEARED.poll();
+      if (cleared == null) {
+        return;
+      }
+      TABLES.remove(cleared.key, cleared);
+    }
+  }
+
+  /**
+   * @return The response
+   */
+
+  public ARBQ1BiquadResponse response()
+  {
+    return this.response;
+  }
+
+  /**
+   * @return The Q value
+   */
+
+  public double q()
+  {
+    return this.q;
+  }
+
+  /**
+   * Interpolate the coefficients for the given cutoff, writing
+   * {@code a0, a1, a2, b1, b2} to {@code output[offset .. offset + 4]}.
+   *
+   * @param cutoff The cutoff, clamped to {@code [0, 0.5]}
+   * @param output The output array
+   * @param offset The offset of the first coefficient
+   */
+
+  public void coefficients(
+    final @ARNormalizedUnsigned double cutoff,
+    final double[] output,
+    final int offset)
+  {
+    Objects.checkFromIndexSize(offset, STRIDE, output.length);
+
+    final var position = position(cutoff);
+    final var interval = interval(position);
+    final var base = interval * STRIDE;
+    final var f = position - (double) interval;
+    final var v = this.values;
+    for (int index = 0; index < STRIDE; ++index) {
+      final var c0 = v[base + index];
+      final var c1 = v[base + STRIDE + index];
+      output[offset + index] = c0 + ((c1 - c0) * f);
+    }
+  }
+
+  static double position(
+    final double cutoff)
+  {
+    final var clamped = Math.min(0.5, Math.max(0.0, cutoff));
+    return clamped * (double) (INTERVALS * 2);
+  }
+
+  static int interval(
+    final double position)
+  {
+    return Math.min((int) position, INTERVALS - 1);
+  }
+
+  double[] values()
+  {
+    return this.values;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+/**
+ * <p>Functions to calculate the coefficients of second-order sections.</p>
+ *
+ * <p>The calculations are exactly those of the individual order-2 filters,
+ * so that banks, cascades and individual filters produce identical
+ * output.</p>
+ */
+
+final class ARBQ1BiquadCoefficients
+{
+  private ARBQ1BiquadCoefficients()
+  {
+
+  }
+
+  /**
+   * Calculate the coefficients of a section, writing them to {@code index}
+   * of each of the coefficient arrays.
+   *
+   * @param response The response
+   * @param k        The prewarped frequency {@code tan(pi * cutoff)}
+   * @param q        The Q value
+   * @param a0       The a0 coefficients
+   * @param a1       The a1 coefficients
+   * @param a2       The a2 coefficients
+   * @param b1       The b1 coefficients
+   * @param b2       The b2 coefficients
+   * @param index    The index at which to write coefficients
+   */
+
+  static void calculate(
+    final ARBQ1BiquadResponse response,
+    final double k,
+    final double q,
+    final double[] a0,
+    final double[] a1,
+    final double[] a2,
+    final double[] b1,
+    final double[] b2,
+    final int index)
+  {
+    final var ks = k * k;
+    final var norm = 1.0 / (1.0 + (k / q) + ks);
+
+    switch (response) {
+      case LOW_PASS -> {
+        a0[index] = ks * norm;
+        a1[index] = 2.0 * a0[index];
+        a2[index] = a0[index];
+        b1[index] = 2.0 * (ks - 1.0) * norm;
+      }
+      case HIGH_PASS -> {
+        a0[index] = norm;
+        a1[index] = -2.0 * a0[index];
+        a2[index] = a0[index];
+        b1[index] = 2.0 * (ks - 1.0) * norm;
+      }
+      case BAND_PASS -> {
+        a0[index] = k / q * norm;
+        a1[index] = 0.0;
+        a2[index] = -a0[index];
+        b1[index] = 2.0 * (ks - 1.0) * norm;
+      }
+      case BAND_REJECT -> {
+        a0[index] = (1.0 + ks) * norm;
+        a1[index] = 2.0 * (ks - 1.0) * norm;
+        a2[index] = a0[index];
+        b1[index] = a1[index];
+      }
+    }
+    b2[index] = ((1.0 - (k / q)) + ks) * norm;
+  }
+}
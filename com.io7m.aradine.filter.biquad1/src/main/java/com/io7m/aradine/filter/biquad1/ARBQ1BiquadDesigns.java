@@ -0,0 +1,145 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Functions to design cascades of second-order sections.
+ *
+ * @see ARBQ1BiquadCascade
+ */
+
+public final class ARBQ1BiquadDesigns
+{
+  private ARBQ1BiquadDesigns()
+  {
+
+  }
+
+  /**
+   * Design a Butterworth-style cascade. The sections are those used by
+   * {@link ARBQ1BiquadLPFBWO4} and {@link ARBQ1BiquadLPFBWO8}.
+   *
+   * @param order The filter order (must be even, and nonzero)
+   *
+   * @return The sections
+   *
+   * @see ARBQ1BiquadQs#butterworthStyleCascadedQValues(int)
+   */
+
+  public static List<ARBQ1BiquadSection> butterworth(
+    final int order)
+  {
+    final var qs = ARBQ1BiquadQs.butterworthStyleCascadedQValues(order);
+    final var sections = new ArrayList<ARBQ1BiquadSection>(qs.length);
+    for (final var q : qs) {
+      sections.add(new ARBQ1BiquadSection(q, 1.0));
+    }
+    return List.copyOf(sections);
+  }
+
+  /**
+   * Design a Linkwitz-Riley cascade: a Butterworth filter of half the order
+   * applied twice. The response is 6dB down at the cutoff, and the low-pass
+   * and high-pass filters of the same order and cutoff sum to a flat
+   * magnitude response.
+   *
+   * @param order The filter order (must be 2, or a positive multiple of 4)
+   *
+   * @return The sections
+   */
+
+  public static List<ARBQ1BiquadSection> linkwitzRiley(
+    final int order)
+  {
+    if (order == 2) {
+      return List.of(new ARBQ1BiquadSection(0.5, 1.0));
+    }
+
+    if ((order <= 0) || ((order % 4) != 0)) {
+      throw new IllegalArgumentException(
+        "Must use an order of 2, or a positive multiple of 4.");
+    }
+
+    final var half = butterworth(order / 2);
+    final var sections = new ArrayList<ARBQ1BiquadSection>(half.size() * 2);
+    sections.addAll(half);
+    sections.addAll(half);
+    return List.copyOf(sections);
+  }
+
+  /**
+   * Design a Chebyshev type I cascade. The sections each have unity gain at
+   * DC, so the magnitude of the low-pass response ripples between unity and
+   * {@code rippleDecibels} above unity in the passband, and returns to unity
+   * at the cutoff. The sections are frequency-scaled, and so can only be used
+   * with low-pass and high-pass responses.
+   *
+   * @param order          The filter order (must be even, and nonzero)
+   * @param rippleDecibels The passband ripple in decibels (must be positive)
+   *
+   * @return The sections
+   */
+
+  public static List<ARBQ1BiquadSection> chebyshev1(
+    final int order,
+    final double rippleDecibels)
+  {
+    if ((order <= 0) || ((order % 2) != 0)) {
+      throw new IllegalArgumentException(
+        "Must use a positive, even number of poles.");
+    }
+    if (!(rippleDecibels > 0.0)) {
+      throw new IllegalArgumentException(
+        "Passband ripple must be positive.");
+    }
+
+    final var epsilon =
+      StrictMath.sqrt(StrictMath.pow(10.0, rippleDecibels / 10.0) - 1.0);
+    final var v =
+      asinh(1.0 / epsilon) / (double) order;
+    final var sinhV =
+      StrictMath.sinh(v);
+    final var coshV =
+      StrictMath.cosh(v);
+
+    /*
+     * Each conjugate pair of poles of the analog prototype becomes one
+     * section, with natural frequency |p| and Q |p| / (2 * -Re(p)).
+     */
+
+    final var pairs = order / 2;
+    final var sections = new ArrayList<ARBQ1BiquadSection>(pairs);
+    for (int index = 0; index < pairs; ++index) {
+      final var theta =
+        (StrictMath.PI * (double) ((2 * index) + 1)) / (double) (2 * order);
+      final var re = sinhV * StrictMath.sin(theta);
+      final var im = coshV * StrictMath.cos(theta);
+      final var w0 = StrictMath.hypot(re, im);
+      sections.add(new ARBQ1BiquadSection(w0 / (2.0 * re), w0));
+    }
+    return List.copyOf(sections);
+  }
+
+  private static double asinh(
+    final double x)
+  {
+    return StrictMath.log(x + StrictMath.sqrt((x * x) + 1.0));
+  }
+}
@@ -18,6 +18,8 @@ package com.io7m.aradine.filter.biquad1;
 
 import com.io7m.aradine.annotations.ARNormalizedUnsigned;
 
+import java.util.Objects;
+
 /**
  * <p>A simple biquad low-pass filter of order 2 (Two zeroes, two poles).</p>
  *
@@ -75,6 +77,42 @@ public final class ARBQ1BiquadLPFO2 implements ARBQ1BiquadWithQType
     this.b2 = ((1.0 - (k / this.q)) + ks) * norm;
   }
 
+  @Override
+  public void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.length);
+    Objects.checkFromIndexSize(outputOffset, count, output.length);
+
+    /*
+     * The coefficients and state are held in locals for the duration of
+     * the block; the arithmetic is exactly that of processOneFrame.
+     */
+
+    final var c0 = this.a0;
+    final var c1 = this.a1;
+    final var c2 = this.a2;
+    final var d1 = this.b1;
+    final var d2 = this.b2;
+    var m0 = this.previous_m0;
+    var m1 = this.previous_m1;
+
+    for (int index = 0; index < count; ++index) {
+      final var x = input[inputOffset + index];
+      final var out = (x * c0) + m0;
+      m0 = ((x * c1) + m1) - (d1 * out);
+      m1 = (x * c2) - (d2 * out);
+      output[outputOffset + index] = out;
+    }
+
+    this.previous_m0 = m0;
+    this.previous_m1 = m1;
+  }
+
   @Override
   public double processOneFrame(
     final double input)
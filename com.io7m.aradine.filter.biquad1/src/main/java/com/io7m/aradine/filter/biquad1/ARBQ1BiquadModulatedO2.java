@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+import com.io7m.aradine.annotations.ARNormalizedUnsigned;
+
+import java.util.Objects;
+
+/**
+ * <p>A biquad filter of order 2 intended for cutoff modulation.</p>
+ *
+ * <p>Coefficients are taken from a shared {@link ARBQ1BiquadCoefficientTable}
+ * rather than being calculated directly, so changing the cutoff costs a
+ * handful of multiplications and can be done on every frame. At the cutoffs
+ * sampled by the table, the output is identical to that of the
+ * corresponding individual filter such as {@link ARBQ1BiquadLPFO2}.</p>
+ */
+
+public final class ARBQ1BiquadModulatedO2 implements ARBQ1BiquadModulatedType
+{
+  private static final int STRIDE = ARBQ1BiquadCoefficientTable.STRIDE;
+
+  private final ARBQ1BiquadCoefficientTable table;
+  private final double[] target;
+  private double a0;
+  private double a1;
+  private double a2;
+  private double b1;
+  private double b2;
+  private double cutoff;
+  private double previous_m0;
+  private double previous_m1;
+
+  /**
+   * Create a new filter with the default Q value {@code 0.70710678}.
+   *
+   * @param response The filter response
+   */
+
+  public ARBQ1BiquadModulatedO2(
+    final ARBQ1BiquadResponse response)
+  {
+    this(response, 0.70710678);
+  }
+
+  /**
+   * Create a new filter.
+   *
+   * @param response The filter response
+   * @param q        The Q value
+   */
+
+  public ARBQ1BiquadModulatedO2(
+    final ARBQ1BiquadResponse response,
+    final double q)
+  {
+    this.table = ARBQ1BiquadCoefficientTable.of(response, q);
+    this.target = new double[STRIDE];
+
+    this.setCutoff(
+      switch (response) {
+        case LOW_PASS -> 0.5;
+        case HIGH_PASS -> 0.0;
+        case BAND_PASS, BAND_REJECT -> 0.125;
+      }
+    );
+  }
+
+  /**
+   * @return The table from which coefficients are taken
+   */
+
+  public ARBQ1BiquadCoefficientTable table()
+  {
+    return this.table;
+  }
+
+  @Override
+  public double cutoff()
+  {
+    return this.cutoff;
+  }
+
+  @Override
+  public void setCutoff(
+    final @ARNormalizedUnsigned double newCutoff)
+  {
+    this.cutoff = Math.min(0.5, Math.max(0.0, newCutoff));
+    this.table.coefficients(this.cutoff, this.target, 0);
+    this.a0 = this.target[0];
+    this.a1 = this.target[1];
+    this.a2 = this.target[2];
+    this.b1 = this.target[3];
+    this.b2 = this.target[4];
+  }
+
+  @Override
+  public double processOneFrame(
+    final double input)
+  {
+    final var out = (input * this.a0) + this.previous_m0;
+    this.previous_m0 = ((input * this.a1) + this.previous_m1) - (this.b1 * out);
+    this.previous_m1 = (input * this.a2) - (this.b2 * out);
+    return out;
+  }
+
+  @Override
+  public void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.length);
+    Objects.checkFromIndexSize(outputOffset, count, output.length);
+
+    final var c0 = this.a0;
+    final var c1 = this.a1;
+    final var c2 = this.a2;
+    final var d1 = this.b1;
+    final var d2 = this.b2;
+    var m0 = this.previous_m0;
+    var m1 = this.previous_m1;
+
+    for (int index = 0; index < count; ++index) {
+      final var x = input[inputOffset + index];
+      final var out = (x * c0) + m0;
+      m0 = ((x * c1) + m1) - (d1 * out);
+      m1 = (x * c2) - (d2 * out);
+      output[outputOffset + index] = out;
+    }
+
+    this.previous_m0 = m0;
+    this.previous_m1 = m1;
+  }
+
+  @Override
+  public void processBlockModulated(
+    final double[] input,
+    final int inputOffset,
+    final double[] cutoffs,
+    final int cutoffsOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.length);
+    Objects.checkFromIndexSize(cutoffsOffset, count, cutoffs.length);
+    Objects.checkFromIndexSize(outputOffset, count, output.length);
+
+    if (count == 0) {
+      return;
+    }
+
+    final var v = this.table.values();
+    var c0 = this.a0;
+    var c1 = this.a1;
+    var c2 = this.a2;
+    var d1 = this.b1;
+    var d2 = this.b2;
+    var m0 = this.previous_m0;
+    var m1 = this.previous_m1;
+
+    for (int index = 0; index < count; ++index) {
+      final var position =
+        ARBQ1BiquadCoefficientTable.position(cutoffs[cutoffsOffset + index]);
+      final var interval =
+        ARBQ1BiquadCoefficientTable.interval(position);
+      final var f = position - (double) interval;
+      final var base = interval * STRIDE;
+
+      c0 = v[base] + ((v[base + STRIDE] - v[base]) * f);
+      c1 = v[base + 1] + ((v[base + STRIDE + 1] - v[base + 1]) * f);
+      c2 = v[base + 2] + ((v[base + STRIDE + 2] - v[base + 2]) * f);
+      d1 = v[base + 3] + ((v[base + STRIDE + 3] - v[base + 3]) * f);
+      d2 = v[base + 4] + ((v[base + STRIDE + 4] - v[base + 4]) * f);
+
+      final var x = input[inputOffset + index];
+      final var out = (x * c0) + m0;
+      m0 = ((x * c1) + m1) - (d1 * out);
+      m1 = (x * c2) - (d2 * out);
+      output[outputOffset + index] = out;
+    }
+
+    this.a0 = c0;
+    this.a1 = c1;
+    this.a2 = c2;
+    this.b1 = d1;
+    this.b2 = d2;
+    this.cutoff = Math.min(
+      0.5,
+      Math.max(0.0, cutoffs[(cutoffsOffset + count) - 1])
+    );
+    this.previous_m0 = m0;
+    this.previous_m1 = m1;
+  }
+
+  @Override
+  public void processBlockTowards(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count,
+    final double targetCutoff)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.length);
+    Objects.checkFromIndexSize(outputOffset, count, output.length);
+
+    if (count == 0) {
+      return;
+    }
+
+    final var t = this.target;
+    this.table.coefficients(targetCutoff, t, 0);
+
+    /*
+     * Each coefficient at frame n is start + (step * (n + 1)), so that the
+     * final frame of the block uses the target coefficients and a
+     * stationary cutoff leaves the coefficients exactly unchanged.
+     */
+
+    final var s0 = this.a0;
+    final var s1 = this.a1;
+    final var s2 = this.a2;
+    final var e1 = this.b1;
+    final var e2 = this.b2;
+    final var scale = 1.0 / (double) count;
+    final var step0 = (t[0] - s0) * scale;
+    final var step1 = (t[1] - s1) * scale;
+    final var step2 = (t[2] - s2) * scale;
+    final var step3 = (t[3] - e1) * scale;
+    final var step4 = (t[4] - e2) * scale;
+    var m0 = this.previous_m0;
+    var m1 = this.previous_m1;
+
+    for (int index = 0; index < count; ++index) {
+      final var n = (double) (index + 1);
+      final var c0 = s0 + (step0 * n);
+      final var c1 = s1 + (step1 * n);
+      final var c2 = s2 + (step2 * n);
+      final var d1 = e1 + (step3 * n);
+      final var d2 = e2 + (step4 * n);
+
+      final var x = input[inputOffset + index];
+      final var out = (x * c0) + m0;
+      m0 = ((x * c1) + m1) - (d1 * out);
+      m1 = (x * c2) - (d2 * out);
+      output[outputOffset + index] = out;
+    }
+
+    this.a0 = t[0];
+    this.a1 = t[1];
+    this.a2 = t[2];
+    this.b1 = t[3];
+    this.b2 = t[4];
+    this.cutoff = Math.min(0.5, Math.max(0.0, targetCutoff));
+    this.previous_m0 = m0;
+    this.previous_m1 = m1;
+  }
+}
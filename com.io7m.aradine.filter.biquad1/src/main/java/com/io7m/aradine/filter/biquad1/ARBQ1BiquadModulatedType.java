@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+/**
+ * <p>The type of biquad filters whose cutoff can be modulated cheaply at
+ * audio rate.</p>
+ *
+ * <p>As with {@link ARBQ1BiquadType#processBlock(double[], int, double[],
+ * int, int)}, the input and output ranges may be the same range of the same
+ * array.</p>
+ */
+
+public interface ARBQ1BiquadModulatedType extends ARBQ1BiquadType
+{
+  /**
+   * @return The current cutoff
+   */
+
+  double cutoff();
+
+  /**
+   * Process {@code count} frames, using a separate cutoff for each frame.
+   * The filter is left at the cutoff of the last frame.
+   *
+   * @param input         The input frames
+   * @param inputOffset   The offset of the first input frame
+   * @param cutoffs       The cutoff for each frame
+   * @param cutoffsOffset The offset of the first cutoff
+   * @param output        The output frames
+   * @param outputOffset  The offset of the first output frame
+   * @param count         The number of frames
+   */
+
+  void processBlockModulated(
+    double[] input,
+    int inputOffset,
+    double[] cutoffs,
+    int cutoffsOffset,
+    double[] output,
+    int outputOffset,
+    int count);
+
+  /**
+   * Process {@code count} frames, moving the filter coefficients linearly
+   * from those of the current cutoff to those of {@code targetCutoff} over
+   * the course of the block. This avoids the audible steps produced by
+   * changing the cutoff once per block. The filter is left at
+   * {@code targetCutoff}.
+   *
+   * @param input        The input frames
+   * @param inputOffset  The offset of the first input frame
+   * @param output       The output frames
+   * @param outputOffset The offset of the first output frame
+   * @param count        The number of frames
+   * @param targetCutoff The cutoff at the end of the block
+   */
+
+  void processBlockTowards(
+    double[] input,
+    int inputOffset,
+    double[] output,
+    int outputOffset,
+    int count,
+    double targetCutoff);
+}
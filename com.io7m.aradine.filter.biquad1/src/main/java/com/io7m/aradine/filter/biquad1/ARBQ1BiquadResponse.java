@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+/**
+ * The responses available to banks of biquad filters.
+ *
+ * @see ARBQ1BiquadBankType
+ */
+
+public enum ARBQ1BiquadResponse
+{
+  /**
+   * A low-pass response, as produced by {@link ARBQ1BiquadLPFO2}.
+   */
+
+  LOW_PASS,
+
+  /**
+   * A high-pass response, as produced by {@link ARBQ1BiquadHPFO2}.
+   */
+
+  HIGH_PASS,
+
+  /**
+   * A band-pass response, as produced by {@link ARBQ1BiquadBPFO2}.
+   */
+
+  BAND_PASS,
+
+  /**
+   * A band-reject response, as produced by {@link ARBQ1BiquadBRFO2}.
+   */
+
+  BAND_REJECT
+}
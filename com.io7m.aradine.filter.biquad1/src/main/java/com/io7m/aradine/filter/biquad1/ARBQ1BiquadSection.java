@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.filter.biquad1;
+
+/**
+ * <p>The design of a single second-order section of a cascade.</p>
+ *
+ * <p>The natural frequency of the section is the cutoff frequency of the
+ * cascade multiplied by {@code frequencyScale} (in the prewarped analog
+ * domain). Butterworth-style cascades place every section at the cutoff
+ * frequency, and so use a scale of {@code 1.0}.</p>
+ *
+ * @param q              The Q value of the section
+ * @param frequencyScale The natural frequency of the section relative to the
+ *                       cutoff frequency of the cascade
+ *
+ * @see ARBQ1BiquadDesigns
+ */
+
+public record ARBQ1BiquadSection(
+  double q,
+  double frequencyScale)
+{
+  /**
+   * The design of a single second-order section of a cascade.
+   *
+   * @param q              The Q value of the section
+   * @param frequencyScale The natural frequency of the section relative to
+   *                       the cutoff frequency of the cascade
+   */
+
+  public ARBQ1BiquadSection
+  {
+    if (!(q > 0.0) || !(frequencyScale > 0.0)) {
+      throw new IllegalArgumentException(
+        "Q values and frequency scales must be positive.");
+    }
+  }
+}
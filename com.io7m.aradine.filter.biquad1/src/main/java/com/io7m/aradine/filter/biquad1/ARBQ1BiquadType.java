@@ -19,6 +19,7 @@ package com.io7m.aradine.filter.biquad1;
 import com.io7m.aradine.annotations.ARNormalizedUnsigned;
 
 import java.nio.DoubleBuffer;
+import java.util.Objects;
 
 /**
  * The type of biquad filters.
@@ -52,6 +53,101 @@ public interface ARBQ1BiquadType
     output.put(frame, this.processOneFrame(input.get(frame)));
   }
 
+  /**
+   * Apply a filter to {@code count} frames of {@code input} starting at
+   * {@code inputOffset}, writing the filtered frames to {@code output}
+   * starting at {@code outputOffset}. The input and output may be the same
+   * array, in which case the ranges must either be identical or not overlap.
+   * The result is identical to calling {@link #processOneFrame(double)} for
+   * each frame in turn.
+   *
+   * @param input        The input frames
+   * @param inputOffset  The index of the first input frame
+   * @param output       The output frames
+   * @param outputOffset The index of the first output frame
+   * @param count        The number of frames
+   */
+
+  default void processBlock(
+    final double[] input,
+    final int inputOffset,
+    final double[] output,
+    final int outputOffset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.length);
+    Objects.checkFromIndexSize(outputOffset, count, output.length);
+
+    for (int index = 0; index < count; ++index) {
+      output[outputOffset + index] =
+        this.processOneFrame(input[inputOffset + index]);
+    }
+  }
+
+  /**
+   * Apply a filter in-place to {@code count} frames of {@code buffer}
+   * starting at {@code offset}.
+   *
+   * @param buffer The frames
+   * @param offset The index of the first frame
+   * @param count  The number of frames
+   *
+   * @see #processBlock(double[], int, double[], int, int)
+   */
+
+  default void processBlock(
+    final double[] buffer,
+    final int offset,
+    final int count)
+  {
+    this.processBlock(buffer, offset, buffer, offset, count);
+  }
+
+  /**
+   * Apply a filter to {@code count} frames of {@code input} starting at
+   * {@code inputOffset}, writing the filtered frames to {@code output}
+   * starting at {@code outputOffset}. The positions and limits of the
+   * buffers are ignored and not modified. If both buffers are backed by
+   * accessible arrays, the frames are processed directly in the arrays.
+   *
+   * @param input        The input frames
+   * @param inputOffset  The index of the first input frame
+   * @param output       The output frames
+   * @param outputOffset The index of the first output frame
+   * @param count        The number of frames
+   *
+   * @see #processBlock(double[], int, double[], int, int)
+   */
+
+  default void processBlock(
+    final DoubleBuffer input,
+    final int inputOffset,
+    final DoubleBuffer output,
+    final int outputOffset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(inputOffset, count, input.capacity());
+    Objects.checkFromIndexSize(outputOffset, count, output.capacity());
+
+    if (input.hasArray() && output.hasArray()) {
+      this.processBlock(
+        input.array(),
+        input.arrayOffset() + inputOffset,
+        output.array(),
+        output.arrayOffset() + outputOffset,
+        count
+      );
+      return;
+    }
+
+    for (int index = 0; index < count; ++index) {
+      output.put(
+        outputOffset + index,
+        this.processOneFrame(input.get(inputOffset + index))
+      );
+    }
+  }
+
   /**
    * Process a single input frame.
    *
@@ -23,6 +23,7 @@ module com.io7m.aradine.filter.biquad1
   requires static org.osgi.annotation.bundle;
   requires static org.osgi.annotation.versioning;
   requires static com.io7m.aradine.annotations;
+  requires static jdk.incubator.vector;
 
   exports com.io7m.aradine.filter.biquad1;
 }
@@ -0,0 +1,225 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.grain_sampler_m0.internal;
+
+import com.io7m.aradine.annotations.ARTimeFrames;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowShape;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowTables;
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
+
+/**
+ * <p>A single grain.</p>
+ *
+ * <p>Grains are owned by a {@link ARIGM0GrainPool} and are reused: a grain
+ * is (re)initialized each time the pool triggers it, and so triggering a
+ * grain never allocates. Window values are read from shared precomputed
+ * {@link ARIGM0WindowTables}.</p>
+ */
+
+public final class ARIGM0Grain
+{
+  private final EntrySource source;
+  private ARI1SampleMapEntryType sample;
+  private double velocity;
+  private @ARTimeFrames long sampleStartPosition;
+  private @ARTimeFrames long localLength;
+  private long localPhase;
+  private double localLengthInverse;
+  private ARIGM0WindowTables windowTables;
+  private ARIGM0WindowShape windowShape;
+  private boolean done;
+
+  ARIGM0Grain()
+  {
+    this.source = new EntrySource();
+    this.done = true;
+  }
+
+  /**
+   * (Re)start the grain.
+   *
+   * @param inSample              The sample
+   * @param inVelocity            The note velocity
+   * @param inSampleStartPosition The position within the sample at which the
+   *                              grain starts
+   * @param inGrainLength         The length of the grain
+   * @param inWindowTables        The window tables
+   * @param inWindowShape         The window shape
+   */
+
+  void start(
+    final ARI1SampleMapEntryType inSample,
+    final double inVelocity,
+    final @ARTimeFrames long inSampleStartPosition,
+    final @ARTimeFrames long inGrainLength,
+    final ARIGM0WindowTables inWindowTables,
+    final ARIGM0WindowShape inWindowShape)
+  {
+    this.sample = inSample;
+    this.source.entry = inSample;
+    this.velocity = inVelocity;
+    this.sampleStartPosition =
+      Math.max(0L, inSampleStartPosition);
+
+    final var clampedGrainLength =
+      Math.max(0L, inGrainLength);
+    final var sampleEnd =
+      this.sampleStartPosition + clampedGrainLength;
+
+    final var sampleMaxFrames = inSample.frames();
+    if (sampleEnd >= sampleMaxFrames) {
+      this.localLength = Math.max(
+        0L,
+        clampedGrainLength - (sampleEnd - sampleMaxFrames));
+    } else {
+      this.localLength = clampedGrainLength;
+    }
+
+    /*
+     * If this is the first grain, use the falling half of a Hann window to
+     * preserve the initial attack of the note.
+     */
+
+    this.windowTables = inWindowTables;
+    if (this.sampleStartPosition == 0L) {
+      this.windowShape = ARIGM0WindowShape.HALF_HANN;
+    } else {
+      this.windowShape = inWindowShape;
+    }
+
+    this.localPhase = 0L;
+    this.done = this.localLength == 0L;
+    if (!this.done) {
+      this.localLengthInverse = 1.0 / (double) this.localLength;
+    }
+  }
+
+  /**
+   * @return The window shape applied to the grain
+   */
+
+  public ARIGM0WindowShape windowShape()
+  {
+    return this.windowShape;
+  }
+
+  /**
+   * @return {@code true} if the grain has finished playing
+   */
+
+  public boolean isDone()
+  {
+    return this.done;
+  }
+
+  /**
+   * @return The position within the sample at which the grain started
+   */
+
+  @ARTimeFrames
+  public long sampleStartPosition()
+  {
+    return this.sampleStartPosition;
+  }
+
+  /**
+   * @return The length of the grain
+   */
+
+  @ARTimeFrames
+  public long length()
+  {
+    return this.localLength;
+  }
+
+  /**
+   * Evaluate the grain for a single frame, adding the windowed result to
+   * {@code frame}, and then advance the grain.
+   *
+   * @param increment     The 32.32 fixed-point amount by which to advance
+   * @param interpolation The interpolation used to read the sample
+   * @param scratch       A scratch frame at least as large as {@code frame}
+   * @param frame         The output frame
+   */
+
+  void evaluateAdd(
+    final long increment,
+    final ARRS1Interpolation interpolation,
+    final double[] scratch,
+    final double[] frame)
+  {
+    if (this.done) {
+      return;
+    }
+
+    final var localPosition =
+      ARRS1Phase.nearest(this.localPhase);
+
+    ARRS1Resampler.interpolateFrame(
+      interpolation,
+      this.source,
+      frame.length,
+      ARRS1Phase.ofFrame(this.sampleStartPosition) + this.localPhase,
+      scratch
+    );
+
+    final var window =
+      this.windowTables.lookup(
+        this.windowShape,
+        (double) localPosition * this.localLengthInverse
+      );
+
+    for (var index = 0; index < frame.length; ++index) {
+      frame[index] += scratch[index] * window;
+    }
+
+    final var newLocalPhase = this.localPhase + increment;
+    if (ARRS1Phase.nearest(newLocalPhase) >= this.localLength) {
+      this.done = true;
+    } else {
+      this.localPhase = newLocalPhase;
+    }
+  }
+
+  private static final class EntrySource implements ARRS1SourceType
+  {
+    private ARI1SampleMapEntryType entry;
+
+    EntrySource()
+    {
+
+    }
+
+    @Override
+    public long frames()
+    {
+      return this.entry.frames();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return this.entry.sample(channel, frameIndex);
+    }
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.grain_sampler_m0.internal;
+
+import com.io7m.aradine.annotations.ARTimeFrames;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowShape;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowTables;
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A fixed-size pool of grains.</p>
+ *
+ * <p>All grains are allocated when the pool is created. Active grains are
+ * kept packed at the start of an array, and finished grains are returned to
+ * a free list, so triggering, evaluating, and retiring grains never
+ * allocates regardless of the grain density. If every grain is active when
+ * a new grain is triggered, the new grain is dropped; the windows of the
+ * active grains are left intact so that dropping a grain never produces a
+ * discontinuity.</p>
+ */
+
+public final class ARIGM0GrainPool
+{
+  /**
+   * The default number of grains in a pool.
+   */
+
+  public static final int DEFAULT_CAPACITY = 64;
+
+  private final ARIGM0Grain[] active;
+  private final ARIGM0Grain[] free;
+  private final double[] scratch;
+  private ARIGM0WindowTables windowTables;
+  private ARIGM0WindowShape windowShape;
+  private ARRS1Interpolation interpolation;
+  private int activeCount;
+  private int freeCount;
+  private long dropped;
+
+  /**
+   * A fixed-size pool of grains.
+   *
+   * @param capacity The total number of grains
+   * @param channels The number of channels in an output frame
+   */
+
+  public ARIGM0GrainPool(
+    final int capacity,
+    final int channels)
+  {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+        "Capacity %d must be positive".formatted(Integer.valueOf(capacity))
+      );
+    }
+    if (channels < 1) {
+      throw new IllegalArgumentException(
+        "Channels %d must be positive".formatted(Integer.valueOf(channels))
+      );
+    }
+
+    this.active = new ARIGM0Grain[capacity];
+    this.free = new ARIGM0Grain[capacity];
+    for (int index = 0; index < capacity; ++index) {
+      this.free[index] = new ARIGM0Grain();
+    }
+    this.scratch = new double[channels];
+    this.windowTables =
+      ARIGM0WindowTables.create(ARIGM0WindowTables.RESOLUTION_DEFAULT);
+    this.windowShape = ARIGM0WindowShape.HANN;
+    this.interpolation = ARRS1Interpolation.HERMITE4;
+    this.freeCount = capacity;
+    this.activeCount = 0;
+  }
+
+  /**
+   * @return The total number of grains
+   */
+
+  public int capacity()
+  {
+    return this.active.length;
+  }
+
+  /**
+   * @return The window tables used by newly triggered grains
+   */
+
+  public ARIGM0WindowTables windowTables()
+  {
+    return this.windowTables;
+  }
+
+  /**
+   * Set the window tables used by newly triggered grains. Grains that are
+   * already playing continue to use the tables with which they started.
+   *
+   * @param newTables The window tables
+   */
+
+  public void setWindowTables(
+    final ARIGM0WindowTables newTables)
+  {
+    this.windowTables = Objects.requireNonNull(newTables, "newTables");
+  }
+
+  /**
+   * @return The window shape used by newly triggered grains
+   */
+
+  public ARIGM0WindowShape windowShape()
+  {
+    return this.windowShape;
+  }
+
+  /**
+   * Set the window shape used by newly triggered grains.
+   *
+   * @param newShape The window shape
+   */
+
+  public void setWindowShape(
+    final ARIGM0WindowShape newShape)
+  {
+    this.windowShape = Objects.requireNonNull(newShape, "newShape");
+  }
+
+  /**
+   * @return The interpolation used to read samples
+   */
+
+  public ARRS1Interpolation interpolation()
+  {
+    return this.interpolation;
+  }
+
+  /**
+   * Set the interpolation used to read samples at fractional positions.
+   * The interpolation applies to all grains, including those that are
+   * already playing.
+   *
+   * @param newInterpolation The interpolation
+   */
+
+  public void setInterpolation(
+    final ARRS1Interpolation newInterpolation)
+  {
+    this.interpolation =
+      Objects.requireNonNull(newInterpolation, "interpolation");
+  }
+
+  /**
+   * @return The number of active grains
+   */
+
+  public int activeCount()
+  {
+    return this.activeCount;
+  }
+
+  /**
+   * @return The number of grains dropped because the pool was full
+   */
+
+  public long dropped()
+  {
+    return this.dropped;
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The active grain at the given index
+   */
+
+  public ARIGM0Grain active(
+    final int index)
+  {
+    return this.active[index];
+  }
+
+  /**
+   * Trigger a new grain.
+   *
+   * @param sample              The sample
+   * @param velocity            The note velocity
+   * @param sampleStartPosition The position within the sample at which the
+   *                            grain starts
+   * @param grainLength         The length of the grain
+   *
+   * @return {@code false} if the pool was full and the grain was dropped
+   */
+
+  public boolean trigger(
+    final ARI1SampleMapEntryType sample,
+    final double velocity,
+    final @ARTimeFrames long sampleStartPosition,
+    final @ARTimeFrames long grainLength)
+  {
+    if (this.freeCount == 0) {
+      ++this.dropped;
+      return false;
+    }
+
+    final var grain = this.free[--this.freeCount];
+    this.free[this.freeCount] = null;
+    grain.start(
+      sample,
+      velocity,
+      sampleStartPosition,
+      grainLength,
+      this.windowTables,
+      this.windowShape
+    );
+    if (grain.isDone()) {
+      this.free[this.freeCount++] = grain;
+      return true;
+    }
+
+    this.active[this.activeCount++] = grain;
+    return true;
+  }
+
+  /**
+   * Evaluate every active grain for a single frame, summing the outputs of
+   * the grains into {@code frame}, and retire any grains that finish.
+   *
+   * @param increment The 32.32 fixed-point amount by which to advance each
+   *                  grain
+   * @param frame     The output frame
+   */
+
+  public void evaluate(
+    final long increment,
+    final double[] frame)
+  {
+    Arrays.fill(frame, 0.0);
+
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      final var grain = this.active[index];
+      grain.evaluateAdd(
+        increment, this.interpolation, this.scratch, frame);
+      if (grain.isDone()) {
+        this.retire(index);
+      }
+    }
+  }
+
+  /**
+   * Retire all active grains.
+   */
+
+  public void clear()
+  {
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      this.retire(index);
+    }
+  }
+
+  private void retire(
+    final int index)
+  {
+    final var grain = this.active[index];
+    final var last = --this.activeCount;
+    this.active[index] = this.active[last];
+    this.active[last] = null;
+    this.free[this.freeCount++] = grain;
+  }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
  *
  * Permission to use, copy, modify, and/or distribute this software for any
  * purpose with or without fee is hereby granted, provided that the above
@@ -17,227 +17,134 @@
 package com.io7m.aradine.instrument.grain_sampler_m0.internal;
 
 import com.io7m.aradine.annotations.ARTimeFrames;
-import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
 import com.io7m.aradine.instrument.spi1.ARI1RNGDeterministicType;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.resampler1.ARRS1Phase;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * The playback state of a sample.
+ * <p>The playback state of a sample.</p>
+ *
+ * <p>The state is allocated once and is restarted for each note with
+ * {@link #start(ARI1SampleMapEntryType, ARI1RNGDeterministicType, double,
+ * long)}. Grains are taken from a fixed-size {@link ARIGM0GrainPool}, and
+ * so evaluating the state never allocates.</p>
  */
 
 public final class ARIGM0SampleState
 {
+  private final ARIGM0GrainPool grains;
   private boolean done;
-  private double positionReal;
+  private long phase;
+  private long phaseIncrement;
   private double speed;
-  private final ARI1RNGDeterministicType sampleJitterRNG;
-  private final ARI1SampleMapEntryType sample;
-  private final ArrayList<Grain> grains;
-  private final double velocity;
-  private @ARTimeFrames final long grainLength;
+  private ARI1RNGDeterministicType sampleJitterRNG;
+  private ARI1SampleMapEntryType sample;
+  private double velocity;
+  private @ARTimeFrames long grainLength;
   private @ARTimeFrames int grainPositionJitter;
   private @ARTimeFrames long grainTimer;
   private @ARTimeFrames long grainTimerMax;
   private long position;
-  private int pitchBendRange;
-
-  private static double hannWindow(
-    final long length,
-    final long position)
-  {
-    final var lengthR =
-      (double) length;
-    final var positionR =
-      (double) position;
-
-    return 0.5 * (1.0 - StrictMath.cos((2.0 * StrictMath.PI * positionR) / lengthR));
-  }
-
-  private static double hannPositiveWindow(
-    final long length,
-    final long position)
-  {
-    final var lengthR =
-      (double) length;
-    final var positionR =
-      (double) position;
-
-    return StrictMath.cos((StrictMath.PI * positionR) / lengthR);
-  }
-
-  private final class Grain
-  {
-    private final long localLength;
-    private final long sampleStartPosition;
-    private long localPosition;
-    private double localPositionReal;
-    private boolean grainDone;
-
-    Grain(
-      final long inSampleStartPosition,
-      final long inGrainLength)
-    {
-      this.sampleStartPosition =
-        Math.max(0L, inSampleStartPosition);
-      final var clampedGrainLength =
-        Math.max(0L, inGrainLength);
-
-      final var sampleRef =
-        ARIGM0SampleState.this.sample;
-      final var sampleEnd =
-        this.sampleStartPosition + clampedGrainLength;
-
-      final var sampleMaxFrames = sampleRef.frames();
-      if (sampleEnd >= sampleMaxFrames) {
-        this.localLength = Math.max(
-          0L,
-          clampedGrainLength - (sampleEnd - sampleMaxFrames));
-      } else {
-        this.localLength = clampedGrainLength;
-      }
-
-      this.localPosition = 0L;
-      this.localPositionReal = 0.0;
-    }
-
-    public void evaluate(
-      final double pitchBend,
-      final double[] frame)
-    {
-      if (this.grainDone || this.localLength == 0L) {
-        Arrays.fill(frame, 0.0);
-        return;
-      }
-
-      final var samplePosition =
-        this.sampleStartPosition + this.localPosition;
-
-      final var sampleRef =
-        ARIGM0SampleState.this.sample;
-
-      sampleRef.evaluate(
-        samplePosition,
-        ARIGM0SampleState.this.velocity,
-        frame
-      );
-
-      /*
-       * If this is the first grain, use a positive Hann window to preserve
-       * the initial attack of the note.
-       */
-
-      if (this.sampleStartPosition == 0L) {
-        for (var index = 0; index < frame.length; ++index) {
-          frame[index] *= hannPositiveWindow(
-            this.localLength,
-            this.localPosition
-          );
-        }
-      } else {
-        for (var index = 0; index < frame.length; ++index) {
-          frame[index] *= hannWindow(
-            this.localLength,
-            this.localPosition
-          );
-        }
-      }
-
-      final var rateScale =
-        ARI1PitchBend.pitchBendToPlaybackRate(
-          pitchBend,
-          ARIGM0SampleState.this.pitchBendRange
-        );
-
-      final var newLocalPositionReal =
-        this.localPositionReal + (sampleRef.playbackRate() * rateScale);
-      final var newLocalPosition =
-        Math.round(newLocalPositionReal);
-
-      if (newLocalPosition >= this.localLength) {
-        this.grainDone = true;
-      } else {
-        this.localPositionReal = newLocalPositionReal;
-        this.localPosition = newLocalPosition;
-      }
-    }
-  }
-
-  /**
-   * @return The current maximum grain sample position jitter in frames
-   */
-
-  @ARTimeFrames
-  public int grainPositionJitter()
-  {
-    return this.grainPositionJitter;
-  }
+  private long grainIncrement;
+  private double grainIncrementRateScale;
 
   /**
-   * Set the maximum grain sample position jitter in frames.
+   * The playback state of a sample.
    *
-   * @param inJitter The frames
+   * @param grainCapacity The maximum number of simultaneously active grains
+   * @param channels      The number of channels in an output frame
    */
 
-  public void setGrainPositionJitter(
-    final @ARTimeFrames int inJitter)
+  public ARIGM0SampleState(
+    final int grainCapacity,
+    final int channels)
   {
-    this.grainPositionJitter = Math.max(0, inJitter);
+    this.grains = new ARIGM0GrainPool(grainCapacity, channels);
+    this.done = true;
+    this.speed = 1.0;
+    this.phaseIncrement = ARRS1Phase.ONE;
+    this.grainIncrementRateScale = Double.NaN;
   }
 
   /**
-   * The playback state of a sample.
+   * (Re)start playback of a sample. Any grains still playing from a
+   * previous note are discarded.
    *
-   * @param inSample The sample map entry
+   * @param inSample      The sample map entry
+   * @param inRandom      The RNG used to jitter grain positions
+   * @param inVelocity    The note velocity
+   * @param inGrainLength The grain length
    */
 
-  ARIGM0SampleState(
+  public void start(
     final ARI1SampleMapEntryType inSample,
     final ARI1RNGDeterministicType inRandom,
     final double inVelocity,
-    final long inGrainLength)
+    final @ARTimeFrames long inGrainLength)
   {
     this.sample =
       Objects.requireNonNull(inSample, "sample");
     this.sampleJitterRNG =
       Objects.requireNonNull(inRandom, "inRandom");
 
+    this.grains.clear();
+    this.done = false;
     this.velocity = inVelocity;
     this.grainLength = inGrainLength;
-    this.grains = new ArrayList<>(4);
-
     this.grainTimerMax = inGrainLength / 2L;
     this.grainTimer = 0L;
     this.grainPositionJitter = 0;
+    this.grainIncrementRateScale = Double.NaN;
 
-    this.speed = 1.0;
-    this.positionReal = 0.0;
+    this.setSpeed(1.0);
+    this.phase = 0L;
     this.position = 0L;
-    this.pitchBendRange = 24;
   }
 
   /**
-   * @return The current pitch bend range
+   * @return The grain pool
+   */
+
+  public ARIGM0GrainPool grains()
+  {
+    return this.grains;
+  }
+
+  /**
+   * @return The current maximum grain sample position jitter in frames
+   */
+
+  @ARTimeFrames
+  public int grainPositionJitter()
+  {
+    return this.grainPositionJitter;
+  }
+
+  /**
+   * Set the maximum grain sample position jitter in frames.
+   *
+   * @param inJitter The frames
    */
 
-  public int pitchBendRange()
+  public void setGrainPositionJitter(
+    final @ARTimeFrames int inJitter)
   {
-    return this.pitchBendRange;
+    this.grainPositionJitter = Math.max(0, inJitter);
   }
 
   /**
-   * Set the new pitch bend range.
+   * Set the length of grains triggered from now on.
    *
-   * @param newRange The new range
+   * @param newGrainLength The grain length
    */
 
-  public void setPitchBendRange(
-    final int newRange)
+  public void setGrainLength(
+    final @ARTimeFrames long newGrainLength)
   {
-    this.pitchBendRange = newRange;
+    this.grainLength = Math.max(0L, newGrainLength);
   }
 
   /**
@@ -250,6 +157,7 @@ public final class ARIGM0SampleState
     final double newSpeed)
   {
     this.speed = newSpeed;
+    this.phaseIncrement = ARRS1Phase.ofFrames(newSpeed);
   }
 
   /**
@@ -261,6 +169,16 @@ public final class ARIGM0SampleState
     return this.speed;
   }
 
+  /**
+   * @return The current playback position within the sample
+   */
+
+  @ARTimeFrames
+  public long position()
+  {
+    return this.position;
+  }
+
   private void setGrainTimerMax(
     final long timer)
   {
@@ -273,18 +191,33 @@ public final class ARIGM0SampleState
     this.grainTimer = Math.max(0L, newTime);
   }
 
+  private long grainIncrementFor(
+    final double rateScale)
+  {
+    if (rateScale != this.grainIncrementRateScale) {
+      this.grainIncrementRateScale = rateScale;
+      this.grainIncrement =
+        ARRS1Phase.ofFrames(this.sample.playbackRate() * rateScale);
+    }
+    return this.grainIncrement;
+  }
+
   /**
    * Evaluate the sample.
    *
-   * @param pitchBend The current pitch bend value
+   * @param rateScale The playback rate scale derived from the current pitch
+   *                  bend value
    * @param frame     The output frame
    */
 
   public void evaluate(
-    final double pitchBend,
+    final double rateScale,
     final double[] frame)
   {
-    Arrays.fill(frame, 0.0);
+    if (this.sample == null) {
+      Arrays.fill(frame, 0.0);
+      return;
+    }
 
     /*
      * The grain rate needs to be scaled along with the pitch bend. When
@@ -296,9 +229,6 @@ public final class ARIGM0SampleState
      * grains are completing.
      */
 
-    final var rateScale =
-      ARI1PitchBend.pitchBendToPlaybackRate(pitchBend, this.pitchBendRange);
-
     this.setGrainTimerMax((long) ((this.grainLength / 2.0) / rateScale));
 
     /*
@@ -327,10 +257,16 @@ public final class ARIGM0SampleState
         }
 
         /*
-         * Instantiate a new grain and restart the timer.
+         * Trigger a new grain and restart the timer. If the pool is
+         * exhausted, the grain is dropped.
          */
 
-        this.grains.add(new Grain(this.position + jitter, this.grainLength));
+        this.grains.trigger(
+          this.sample,
+          this.velocity,
+          this.position + jitter,
+          this.grainLength
+        );
         this.setGrainTimer(this.grainTimerMax);
       } else {
         this.setGrainTimer(this.grainTimer - 1L);
@@ -340,45 +276,24 @@ public final class ARIGM0SampleState
        * Increase the current sample playback position.
        */
 
-      final var newPositionReal =
-        this.positionReal + this.speed;
+      final var newPhase =
+        this.phase + this.phaseIncrement;
       final var newPosition =
-        Math.round(newPositionReal);
+        ARRS1Phase.nearest(newPhase);
 
       if (newPosition >= this.sample.frames()) {
         this.done = true;
       } else {
-        this.positionReal = newPositionReal;
+        this.phase = newPhase;
         this.position = newPosition;
       }
     }
 
     /*
-     * If there are no grains remaining to process, then give up here.
-     */
-
-    if (this.grains.isEmpty()) {
-      return;
-    }
-
-    /*
-     * Evaluate each active grain, summing the outputs of all active grains,
-     * and remove any grains that are "done".
+     * Evaluate each active grain, summing the outputs of all active grains.
+     * Grains that finish are returned to the pool.
      */
 
-    final var frameTmp = new double[frame.length];
-    final var iterator = this.grains.iterator();
-    while (iterator.hasNext()) {
-      final var grain = iterator.next();
-      if (grain.grainDone) {
-        iterator.remove();
-        continue;
-      }
-
-      grain.evaluate(pitchBend, frameTmp);
-      for (var index = 0; index < frame.length; ++index) {
-        frame[index] += frameTmp[index];
-      }
-    }
+    this.grains.evaluate(this.grainIncrementFor(rateScale), frame);
   }
 }
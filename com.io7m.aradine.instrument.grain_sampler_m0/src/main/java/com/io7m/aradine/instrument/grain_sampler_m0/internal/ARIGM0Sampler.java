@@ -16,6 +16,13 @@
 
 package com.io7m.aradine.instrument.grain_sampler_m0.internal;
 
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowShape;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowTables;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOff;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOn;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundHandleType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundReceiverType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind;
 import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationParameterChanged;
@@ -27,6 +34,9 @@ import com.io7m.aradine.instrument.spi1.ARI1EventNotePitchBend;
 import com.io7m.aradine.instrument.spi1.ARI1EventNoteType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentServicesType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
+import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1RNGDeterministicType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
 
 import java.util.Objects;
 
@@ -41,10 +51,17 @@ public final class ARIGM0Sampler
   private final Parameters parameters;
   private final Ports ports;
   private final double[] frame;
+  private final ARIGM0SampleState sampleState;
+  private final WindowTablesReceiver windowTablesReceiver;
+  private ARI1BackgroundHandleType windowTablesTask;
+  private int windowTablesRequested;
   private double pitchBend;
+  private int pitchBendRange;
+  private double pitchBendRate;
   private double velocity;
   private int notes;
   private ARIGM0SampleState samplePlaying;
+  private ARI1RNGDeterministicType sampleJitterRNG;
 
   /**
    * A monophonic sampler.
@@ -69,6 +86,26 @@ public final class ARIGM0Sampler
     this.notes = 0;
     this.frame = new double[2];
     this.velocity = 1.0;
+    this.sampleState =
+      new ARIGM0SampleState(ARIGM0GrainPool.DEFAULT_CAPACITY, 2);
+    this.sampleState.grains()
+      .setWindowShape(
+        ARIGM0WindowShape.ofParameter(this.parameters.grainWindow5.value(0))
+      );
+    this.sampleState.grains()
+      .setInterpolation(
+        ARRS1Interpolation.ofParameter(
+          this.parameters.interpolation6.value(0))
+      );
+
+    this.windowTablesReceiver =
+      new WindowTablesReceiver();
+    this.windowTablesRequested =
+      this.sampleState.grains().windowTables().resolution();
+
+    this.pitchBend = 0.0;
+    this.pitchBendRange = (int) this.parameters.pitchBendRange4.value(0);
+    this.updatePitchBendRate();
   }
 
   @Override
@@ -76,25 +113,52 @@ public final class ARIGM0Sampler
     final ARI1InstrumentServicesType context)
   {
     final var frames = context.statusCurrentBufferSize();
-    for (int frameIndex = 0; frameIndex < frames; ++frameIndex) {
+
+    /*
+     * The period is rendered a span at a time, where each span ends at the
+     * next frame that has events. Events still take effect at exactly the
+     * frame at which they are scheduled.
+     */
+
+    var frameIndex = 0;
+    while (frameIndex < frames) {
       this.processEventsForFrame(context, frameIndex);
+      final var spanEnd = this.eventsNext(frameIndex + 1, frames);
+      this.renderSpan(frameIndex, spanEnd);
+      frameIndex = spanEnd;
+    }
 
-      final var playing = this.samplePlaying;
-      if (playing != null) {
-        playing.evaluate(this.pitchBend, this.frame);
-      } else {
-        this.frame[0] = 0.0;
-        this.frame[1] = 0.0;
-      }
+    this.eventBuffer.eventsClear();
+  }
 
-      this.frame[0] = this.frame[0] * this.velocity;
-      this.frame[1] = this.frame[1] * this.velocity;
+  private void renderSpan(
+    final int frameStart,
+    final int frameEnd)
+  {
+    final var playing = this.samplePlaying;
+    if (playing == null) {
+      for (int frameIndex = frameStart; frameIndex < frameEnd; ++frameIndex) {
+        this.ports.outputL0.write(frameIndex, 0.0);
+        this.ports.outputR1.write(frameIndex, 0.0);
+      }
+      return;
+    }
 
-      this.ports.outputL0.write(frameIndex, this.frame[0]);
-      this.ports.outputR1.write(frameIndex, this.frame[1]);
+    for (int frameIndex = frameStart; frameIndex < frameEnd; ++frameIndex) {
+      playing.evaluate(this.pitchBendRate, this.frame);
+      this.ports.outputL0.write(frameIndex, this.frame[0] * this.velocity);
+      this.ports.outputR1.write(frameIndex, this.frame[1] * this.velocity);
     }
+  }
 
-    this.eventBuffer.eventsClear();
+  private int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    return Math.min(
+      this.eventBuffer.eventsNext(frameIndex, frameLimit),
+      this.ports.noteInput2.eventsNext(frameIndex, frameLimit)
+    );
   }
 
   private void processEventsForFrame(
@@ -117,11 +181,22 @@ public final class ARIGM0Sampler
     final ARI1EventNoteType event)
   {
     if (event instanceof ARI1EventNoteOn eventNoteOn) {
+      ARJ1EventNoteOn.record(
+        ARIGM0Sampler.class,
+        eventNoteOn.timeOffsetInFrames(),
+        eventNoteOn.note(),
+        eventNoteOn.velocity()
+      );
       this.processEventNoteOn(context, eventNoteOn);
       return;
     }
 
-    if (event instanceof ARI1EventNoteOff) {
+    if (event instanceof ARI1EventNoteOff eventNoteOff) {
+      ARJ1EventNoteOff.record(
+        ARIGM0Sampler.class,
+        eventNoteOff.timeOffsetInFrames(),
+        eventNoteOff.note()
+      );
       this.processEventNoteOff();
       return;
     }
@@ -163,12 +238,51 @@ public final class ARIGM0Sampler
       return;
     }
 
+    final var time = eventSet.timeOffsetInFrames();
+    if (Objects.equals(id, this.parameters.pitchBendRange4.id())) {
+      this.pitchBendRange =
+        (int) this.parameters.pitchBendRange4.value(time);
+      this.updatePitchBendRate();
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.grainWindow5.id())) {
+      this.sampleState.grains()
+        .setWindowShape(
+          ARIGM0WindowShape.ofParameter(
+            this.parameters.grainWindow5.value(time))
+        );
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.interpolation6.id())) {
+      this.sampleState.grains()
+        .setInterpolation(
+          ARRS1Interpolation.ofParameter(
+            this.parameters.interpolation6.value(time))
+        );
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.grainLength3.id())) {
+      final var grainLength =
+        context.timeMillisecondsToFrames(
+          this.parameters.grainLength3.value(time)
+        );
+      this.requestWindowTables(context, grainLength);
+
+      final var sample = this.samplePlaying;
+      if (sample != null) {
+        sample.setGrainLength(grainLength);
+      }
+      return;
+    }
+
     final var sample = this.samplePlaying;
     if (sample == null) {
       return;
     }
 
-    final var time = eventSet.timeOffsetInFrames();
     if (Objects.equals(id, this.parameters.speed1.id())) {
       sample.setSpeed(this.parameters.speed1.value(time));
       return;
@@ -183,17 +297,6 @@ public final class ARIGM0Sampler
       return;
     }
 
-    if (Objects.equals(id, this.parameters.grainLength3.id())) {
-      return;
-    }
-
-    if (Objects.equals(id, this.parameters.pitchBendRange4.id())) {
-      sample.setPitchBendRange(
-        (int) this.parameters.pitchBendRange4.value(time)
-      );
-      return;
-    }
-
     context.eventUnhandled(eventSet);
   }
 
@@ -201,6 +304,16 @@ public final class ARIGM0Sampler
     final ARI1EventNotePitchBend event)
   {
     this.pitchBend = event.pitch();
+    this.updatePitchBendRate();
+  }
+
+  private void updatePitchBendRate()
+  {
+    this.pitchBendRate =
+      ARI1PitchBend.pitchBendToPlaybackRate(
+        this.pitchBend,
+        this.pitchBendRange
+      );
   }
 
   private void processEventNoteOff()
@@ -234,26 +347,104 @@ public final class ARIGM0Sampler
       context.timeMillisecondsToFrames(
         this.parameters.grainPositionJitter2.value(time)
       );
-    final var pitchBendRange =
-      this.parameters.pitchBendRange4.value(time);
     final var speed =
       this.parameters.speed1.value(time);
 
-    this.samplePlaying =
-      new ARIGM0SampleState(
-        sampleMap.forNote(event.note()),
-        context.createDeterministicRNG(0x696F376D),
-        this.velocity,
-        grainLength
-      );
+    this.requestWindowTables(context, grainLength);
+
+    /*
+     * The RNG is created once and then reset for each note, so that each
+     * note sees the same jitter sequence without allocating.
+     */
+
+    if (this.sampleJitterRNG == null) {
+      this.sampleJitterRNG = context.createDeterministicRNG(0x696F376D);
+    } else {
+      this.sampleJitterRNG.reset();
+    }
+
+    this.samplePlaying = this.sampleState;
+    this.samplePlaying.start(
+      sampleMap.forNoteVelocity(event.note(), this.velocity),
+      this.sampleJitterRNG,
+      this.velocity,
+      grainLength
+    );
 
     this.samplePlaying.setSpeed(speed);
     this.samplePlaying.setGrainPositionJitter((int) grainPositionJitter);
-    this.samplePlaying.setPitchBendRange((int) pitchBendRange);
 
     ++this.notes;
   }
 
+  /**
+   * Rebuild the window tables in the background if the grain length no
+   * longer matches the resolution of the current (or pending) tables.
+   * Grains continue to use the existing tables until the new tables
+   * arrive; the tables are normalized, so only the precision of the lookup
+   * differs.
+   */
+
+  private void requestWindowTables(
+    final ARI1InstrumentServicesType context,
+    final long grainLength)
+  {
+    final var resolution =
+      ARIGM0WindowTables.resolutionFor(grainLength);
+
+    if (resolution == this.windowTablesRequested) {
+      return;
+    }
+
+    final var existing = this.windowTablesTask;
+    if (existing != null) {
+      existing.cancel();
+    }
+
+    this.windowTablesRequested = resolution;
+    this.windowTablesTask =
+      context.backgroundSubmit(
+        ARI1BackgroundWorkKind.BACKGROUND_COMPUTE,
+        () -> ARIGM0WindowTables.create(resolution),
+        this.windowTablesReceiver
+      );
+  }
+
+  private final class WindowTablesReceiver
+    implements ARI1BackgroundReceiverType<ARIGM0WindowTables>
+  {
+    WindowTablesReceiver()
+    {
+    }
+
+    @Override
+    public void onBackgroundSucceeded(
+      final ARIGM0WindowTables result)
+    {
+      final var sampler = ARIGM0Sampler.this;
+      if (result.resolution() == sampler.windowTablesRequested) {
+        sampler.sampleState.grains().setWindowTables(result);
+        sampler.windowTablesTask = null;
+      }
+    }
+
+    @Override
+    public void onBackgroundFailed(
+      final Exception exception)
+    {
+      /*
+       * The existing tables remain usable, so a failure to build new
+       * tables only costs lookup precision. Allow a later grain length
+       * change to request them again.
+       */
+
+      final var sampler = ARIGM0Sampler.this;
+      sampler.windowTablesRequested =
+        sampler.sampleState.grains().windowTables().resolution();
+      sampler.windowTablesTask = null;
+    }
+  }
+
   @Override
   public void receiveEvent(
     final ARI1InstrumentServicesType context,
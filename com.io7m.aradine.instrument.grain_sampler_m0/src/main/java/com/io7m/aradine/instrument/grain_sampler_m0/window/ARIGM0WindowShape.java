@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.grain_sampler_m0.window;
+
+/**
+ * The shape of the amplitude window applied to grains.
+ */
+
+public enum ARIGM0WindowShape
+{
+  /**
+   * A Hann window.
+   */
+
+  HANN,
+
+  /**
+   * The falling half of a Hann window. This starts at full amplitude, and
+   * is used for the first grain of a note to preserve the attack.
+   */
+
+  HALF_HANN,
+
+  /**
+   * A Tukey (tapered cosine) window with a taper covering half of the grain.
+   */
+
+  TUKEY,
+
+  /**
+   * A trapezoid window with linear ramps covering the first and last
+   * quarters of the grain.
+   */
+
+  TRAPEZOID,
+
+  /**
+   * A Gaussian window, offset and rescaled so that it reaches zero at both
+   * edges of the grain.
+   */
+
+  GAUSSIAN;
+
+  private static final ARIGM0WindowShape[] VALUES = values();
+
+  /**
+   * Determine the window shape from an integer parameter value. Values
+   * outside of the range of the enumeration are clamped.
+   *
+   * @param value The parameter value
+   *
+   * @return The window shape
+   */
+
+  public static ARIGM0WindowShape ofParameter(
+    final long value)
+  {
+    final var index =
+      (int) Math.max(0L, Math.min(value, (long) VALUES.length - 1L));
+    return VALUES[index];
+  }
+
+  /**
+   * Evaluate the window directly.
+   *
+   * @param t The position within the grain in the range {@code [0, 1]}
+   *
+   * @return The window amplitude
+   */
+
+  public double evaluate(
+    final double t)
+  {
+    return switch (this) {
+      case HANN -> 0.5 * (1.0 - StrictMath.cos(2.0 * StrictMath.PI * t));
+      case HALF_HANN -> 0.5 * (1.0 + StrictMath.cos(StrictMath.PI * t));
+      case TUKEY -> {
+        final var taper = 0.5;
+        final var edge = taper / 2.0;
+        if (t < edge) {
+          yield 0.5 * (1.0 - StrictMath.cos(
+            (2.0 * StrictMath.PI * t) / taper));
+        }
+        if (t > 1.0 - edge) {
+          yield 0.5 * (1.0 - StrictMath.cos(
+            (2.0 * StrictMath.PI * (1.0 - t)) / taper));
+        }
+        yield 1.0;
+      }
+      case TRAPEZOID -> {
+        final var ramp = 0.25;
+        final var rising = t / ramp;
+        final var falling = (1.0 - t) / ramp;
+        yield Math.max(0.0, Math.min(1.0, Math.min(rising, falling)));
+      }
+      case GAUSSIAN -> {
+        /*
+         * The Gaussian is truncated at the edges of the grain, where it is
+         * still well above zero. The edge value is subtracted, and the
+         * result rescaled, so that grains start and end without a step.
+         */
+
+        final var edge = gaussian(0.0);
+        yield Math.max(0.0, (gaussian(t) - edge) / (1.0 - edge));
+      }
+    };
+  }
+
+  private static double gaussian(
+    final double t)
+  {
+    final var sigma = 0.4;
+    final var x = (t - 0.5) / (sigma * 0.5);
+    return StrictMath.exp(-0.5 * x * x);
+  }
+}
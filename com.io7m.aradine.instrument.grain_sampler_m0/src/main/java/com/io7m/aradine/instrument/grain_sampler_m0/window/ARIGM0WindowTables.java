@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.grain_sampler_m0.window;
+
+/**
+ * <p>Precomputed tables of every {@link ARIGM0WindowShape}.</p>
+ *
+ * <p>Each table holds {@code resolution + 1} points covering the normalized
+ * grain position range {@code [0, 1]}. Building the tables is expensive and
+ * should be done in the background; looking up a window value is a table
+ * read and a linear interpolation. When the resolution matches the grain
+ * length, lookups at whole frame positions are exact.</p>
+ */
+
+public final class ARIGM0WindowTables
+{
+  /**
+   * The smallest permitted resolution.
+   */
+
+  public static final int RESOLUTION_MINIMUM = 16;
+
+  /**
+   * The largest permitted resolution.
+   */
+
+  public static final int RESOLUTION_MAXIMUM = 65536;
+
+  /**
+   * The resolution used before the grain length is known.
+   */
+
+  public static final int RESOLUTION_DEFAULT = 1024;
+
+  private final int resolution;
+  private final double[][] tables;
+
+  private ARIGM0WindowTables(
+    final int inResolution,
+    final double[][] inTables)
+  {
+    this.resolution = inResolution;
+    this.tables = inTables;
+  }
+
+  /**
+   * Clamp a grain length to a table resolution.
+   *
+   * @param grainLength The grain length in frames
+   *
+   * @return The resolution
+   */
+
+  public static int resolutionFor(
+    final long grainLength)
+  {
+    return (int) Math.max(
+      RESOLUTION_MINIMUM,
+      Math.min(grainLength, RESOLUTION_MAXIMUM)
+    );
+  }
+
+  /**
+   * Build window tables.
+   *
+   * @param resolution The number of intervals in each table
+   *
+   * @return The tables
+   *
+   * @see #resolutionFor(long)
+   */
+
+  public static ARIGM0WindowTables create(
+    final int resolution)
+  {
+    final var clamped = resolutionFor(resolution);
+    final var shapes = ARIGM0WindowShape.values();
+    final var tables = new double[shapes.length][];
+    for (final var shape : shapes) {
+      final var table = new double[clamped + 1];
+      for (int index = 0; index <= clamped; ++index) {
+        table[index] = shape.evaluate((double) index / (double) clamped);
+      }
+      tables[shape.ordinal()] = table;
+    }
+    return new ARIGM0WindowTables(clamped, tables);
+  }
+
+  /**
+   * @return The number of intervals in each table
+   */
+
+  public int resolution()
+  {
+    return this.resolution;
+  }
+
+  /**
+   * Look up a window value, interpolating linearly between table points.
+   *
+   * @param shape The window shape
+   * @param t     The position within the grain in the range {@code [0, 1]}
+   *
+   * @return The window amplitude
+   */
+
+  public double lookup(
+    final ARIGM0WindowShape shape,
+    final double t)
+  {
+    final var table = this.tables[shape.ordinal()];
+    final var x = t * (double) this.resolution;
+    if (x <= 0.0) {
+      return table[0];
+    }
+    if (x >= (double) this.resolution) {
+      return table[this.resolution];
+    }
+
+    final var index = (int) x;
+    final var fraction = x - (double) index;
+    final var y0 = table[index];
+    return y0 + (fraction * (table[index + 1] - y0));
+  }
+}
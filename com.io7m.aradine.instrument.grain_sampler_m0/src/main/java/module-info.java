@@ -28,10 +28,16 @@ module com.io7m.aradine.instrument.grain_sampler_m0
   requires static org.osgi.annotation.versioning;
   requires static org.osgi.service.component.annotations;
 
+  requires com.io7m.aradine.instrument.jfr1;
   requires com.io7m.aradine.instrument.spi1;
+  requires com.io7m.aradine.resampler1;
 
   provides ARI1InstrumentFactoryType
     with ARIGM0SamplerFactory;
 
   exports com.io7m.aradine.instrument.grain_sampler_m0;
+  exports com.io7m.aradine.instrument.grain_sampler_m0.window;
+
+  exports com.io7m.aradine.instrument.grain_sampler_m0.internal
+    to com.io7m.aradine.tests;
 }
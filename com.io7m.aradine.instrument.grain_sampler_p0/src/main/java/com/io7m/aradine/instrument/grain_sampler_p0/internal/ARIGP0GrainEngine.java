@@ -0,0 +1,883 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.grain_sampler_p0.internal;
+
+import com.io7m.aradine.annotations.ARTimeFrames;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowShape;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowTables;
+import com.io7m.aradine.instrument.spi1.ARI1RNGDeterministicType;
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerTaskType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A polyphonic granular engine.</p>
+ *
+ * <p>Voices occupy fixed slots, and every voice shares a single grain
+ * scheduler: all grains of all voices live in one packed set of parallel
+ * arrays with a fixed capacity. Each block is processed in three passes.
+ * First, the scheduler advances every voice through the block and triggers
+ * grains, recording the frame within the block at which each grain starts.
+ * Second, each grain is read from its sample for the whole block using
+ * {@link ARRS1Resampler}, windowed, and added at the velocity of the voice
+ * that owns it into an accumulator. Third, the accumulators are mixed
+ * into the output. The second pass can optionally be split across a
+ * {@link ARI1WorkerGang}: the active grains are divided into contiguous
+ * runs, one per worker, and each worker renders its run into its own
+ * accumulator, so even the grains of a single dense voice are spread
+ * between workers. The accumulators are summed into the output in worker
+ * order, so the result depends only on the grains and the number of workers
+ * used, never on thread timing.</p>
+ *
+ * <p>Nothing in this class allocates after construction.</p>
+ */
+
+public final class ARIGP0GrainEngine
+{
+  /**
+   * The maximum number of frames processed in one block.
+   */
+
+  public static final int BLOCK_SIZE = 256;
+
+  /**
+   * The default number of grains shared between all voices.
+   */
+
+  public static final int DEFAULT_GRAIN_CAPACITY = 512;
+
+  /**
+   * The number of active grains below which grains are always rendered on
+   * the calling thread.
+   */
+
+  public static final int PARALLEL_GRAIN_THRESHOLD = 64;
+
+  /**
+   * The largest number of workers, including the calling thread, between
+   * which grains are split. Per-worker accumulators are allocated for this
+   * many workers at construction.
+   */
+
+  public static final int WORKERS_MAXIMUM = 9;
+
+  private final ARI1RNGDeterministicType sampleJitterRNG;
+  private final ARI1WorkerTaskType renderTask;
+
+  private final boolean[] voiceActive;
+  private final boolean[] voiceDone;
+  private final ARI1SampleMapEntryType[] voiceSamples;
+  private final int[] voiceNotes;
+  private final long[] voiceSerials;
+  private final double[] voiceGains;
+  private final long[] voicePhases;
+  private final long[] voicePositions;
+  private final long[] voiceGrainTimers;
+  private final long[] voiceGrainIncrements;
+  private final int[] voiceGrainCounts;
+  private int voiceActiveCount;
+  private int voiceLimit;
+  private long serial;
+
+  private final int[] grainVoices;
+  private final long[] grainStarts;
+  private final long[] grainLengths;
+  private final double[] grainLengthInverses;
+  private final long[] grainPhases;
+  private final int[] grainDelays;
+  private final boolean[] grainDone;
+  private final ARIGM0WindowShape[] grainShapes;
+  private final ARIGM0WindowTables[] grainTables;
+  private int grainActiveCount;
+  private long grainsDropped;
+
+  private ARI1WorkerGang workers;
+  private final double[][] workerAccumulatorsL;
+  private final double[][] workerAccumulatorsR;
+  private final double[][] workerScratchL;
+  private final double[][] workerScratchR;
+  private final EntrySource[] workerSources;
+  private int blockFrames;
+  private double rateScale;
+  private double speed;
+  private long speedIncrement;
+  private @ARTimeFrames long grainLength;
+  private @ARTimeFrames int grainPositionJitter;
+  private ARIGM0WindowTables windowTables;
+  private ARIGM0WindowShape windowShape;
+  private ARRS1Interpolation interpolation;
+
+  /**
+   * A polyphonic granular engine.
+   *
+   * @param voiceCapacity The maximum number of voices
+   * @param grainCapacity The maximum number of grains shared by all voices
+   * @param inRandom      The RNG used to jitter grain positions
+   */
+
+  public ARIGP0GrainEngine(
+    final int voiceCapacity,
+    final int grainCapacity,
+    final ARI1RNGDeterministicType inRandom)
+  {
+    if (voiceCapacity < 1) {
+      throw new IllegalArgumentException(
+        "Voice capacity %d must be positive"
+          .formatted(Integer.valueOf(voiceCapacity))
+      );
+    }
+    if (grainCapacity < 1) {
+      throw new IllegalArgumentException(
+        "Grain capacity %d must be positive"
+          .formatted(Integer.valueOf(grainCapacity))
+      );
+    }
+
+    this.sampleJitterRNG =
+      Objects.requireNonNull(inRandom, "inRandom");
+    this.renderTask =
+      this::renderGrains;
+
+    this.voiceActive = new boolean[voiceCapacity];
+    this.voiceDone = new boolean[voiceCapacity];
+    this.voiceSamples = new ARI1SampleMapEntryType[voiceCapacity];
+    this.voiceNotes = new int[voiceCapacity];
+    this.voiceSerials = new long[voiceCapacity];
+    this.voiceGains = new double[voiceCapacity];
+    this.voicePhases = new long[voiceCapacity];
+    this.voicePositions = new long[voiceCapacity];
+    this.voiceGrainTimers = new long[voiceCapacity];
+    this.voiceGrainIncrements = new long[voiceCapacity];
+    this.voiceGrainCounts = new int[voiceCapacity];
+    this.voiceLimit = voiceCapacity;
+
+    this.grainVoices = new int[grainCapacity];
+    this.grainStarts = new long[grainCapacity];
+    this.grainLengths = new long[grainCapacity];
+    this.grainLengthInverses = new double[grainCapacity];
+    this.grainPhases = new long[grainCapacity];
+    this.grainDelays = new int[grainCapacity];
+    this.grainDone = new boolean[grainCapacity];
+    this.grainShapes = new ARIGM0WindowShape[grainCapacity];
+    this.grainTables = new ARIGM0WindowTables[grainCapacity];
+
+    this.workerAccumulatorsL = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerAccumulatorsR = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerScratchL = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerScratchR = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerSources = new EntrySource[WORKERS_MAXIMUM];
+    for (int worker = 0; worker < WORKERS_MAXIMUM; ++worker) {
+      this.workerSources[worker] = new EntrySource();
+    }
+
+    this.rateScale = 1.0;
+    this.speed = 1.0;
+    this.speedIncrement = ARRS1Phase.ONE;
+    this.windowTables =
+      ARIGM0WindowTables.create(ARIGM0WindowTables.RESOLUTION_DEFAULT);
+    this.windowShape = ARIGM0WindowShape.HANN;
+    this.interpolation = ARRS1Interpolation.HERMITE4;
+  }
+
+  /**
+   * @return The maximum number of voices
+   */
+
+  public int voiceCapacity()
+  {
+    return this.voiceActive.length;
+  }
+
+  /**
+   * @return The maximum number of grains shared by all voices
+   */
+
+  public int grainCapacity()
+  {
+    return this.grainVoices.length;
+  }
+
+  /**
+   * @return The maximum number of voices that may be active at once
+   */
+
+  public int limit()
+  {
+    return this.voiceLimit;
+  }
+
+  /**
+   * Set the maximum number of voices that may be active at once. If more
+   * voices than the new limit are active, the oldest voices are stopped.
+   *
+   * @param newLimit The new limit
+   */
+
+  public void setLimit(
+    final int newLimit)
+  {
+    this.voiceLimit =
+      Math.min(Math.max(1, newLimit), this.voiceActive.length);
+    while (this.voiceActiveCount > this.voiceLimit) {
+      this.stopVoice(this.findOldest());
+    }
+  }
+
+  /**
+   * @return The number of active voices
+   */
+
+  public int activeVoiceCount()
+  {
+    return this.voiceActiveCount;
+  }
+
+  /**
+   * @return The number of active grains
+   */
+
+  public int activeGrainCount()
+  {
+    return this.grainActiveCount;
+  }
+
+  /**
+   * @return The number of grains dropped because every grain was active
+   */
+
+  public long droppedGrainCount()
+  {
+    return this.grainsDropped;
+  }
+
+  /**
+   * Set the worker gang used to render dense grain clouds.
+   *
+   * @param newWorkers The workers, or {@code null} to render every grain on
+   *                   the calling thread
+   */
+
+  public void setWorkers(
+    final ARI1WorkerGang newWorkers)
+  {
+    this.workers = newWorkers;
+  }
+
+  /**
+   * @return The current worker gang, if any
+   */
+
+  public ARI1WorkerGang workers()
+  {
+    return this.workers;
+  }
+
+  /**
+   * Set the playback speed of every voice.
+   *
+   * @param newSpeed The speed
+   */
+
+  public void setSpeed(
+    final double newSpeed)
+  {
+    this.speed = newSpeed;
+    this.speedIncrement = ARRS1Phase.ofFrames(newSpeed);
+  }
+
+  /**
+   * @return The playback speed of every voice
+   */
+
+  public double speed()
+  {
+    return this.speed;
+  }
+
+  /**
+   * Set the length of grains triggered from now on.
+   *
+   * @param newGrainLength The grain length
+   */
+
+  public void setGrainLength(
+    final @ARTimeFrames long newGrainLength)
+  {
+    this.grainLength = Math.max(0L, newGrainLength);
+  }
+
+  /**
+   * Set the maximum grain sample position jitter.
+   *
+   * @param newJitter The jitter
+   */
+
+  public void setGrainPositionJitter(
+    final @ARTimeFrames int newJitter)
+  {
+    this.grainPositionJitter = Math.max(0, newJitter);
+  }
+
+  /**
+   * @return The window tables used by newly triggered grains
+   */
+
+  public ARIGM0WindowTables windowTables()
+  {
+    return this.windowTables;
+  }
+
+  /**
+   * Set the window tables used by newly triggered grains. Grains that are
+   * already playing continue to use the tables with which they started.
+   *
+   * @param newTables The window tables
+   */
+
+  public void setWindowTables(
+    final ARIGM0WindowTables newTables)
+  {
+    this.windowTables = Objects.requireNonNull(newTables, "newTables");
+  }
+
+  /**
+   * Set the window shape used by newly triggered grains (other than the
+   * first grain of each note).
+   *
+   * @param newShape The window shape
+   */
+
+  public void setWindowShape(
+    final ARIGM0WindowShape newShape)
+  {
+    this.windowShape = Objects.requireNonNull(newShape, "newShape");
+  }
+
+  /**
+   * Set the interpolation used to read samples at fractional positions.
+   * The interpolation applies to all grains, including those that are
+   * already playing.
+   *
+   * @param newInterpolation The interpolation
+   */
+
+  public void setInterpolation(
+    final ARRS1Interpolation newInterpolation)
+  {
+    this.interpolation =
+      Objects.requireNonNull(newInterpolation, "interpolation");
+  }
+
+  /**
+   * @return The interpolation used to read samples
+   */
+
+  public ARRS1Interpolation interpolation()
+  {
+    return this.interpolation;
+  }
+
+  /**
+   * Set the playback rate scale derived from the current pitch bend value.
+   *
+   * @param newRateScale The rate scale
+   */
+
+  public void setRateScale(
+    final double newRateScale)
+  {
+    if (newRateScale == this.rateScale) {
+      return;
+    }
+
+    this.rateScale = newRateScale;
+    for (int voice = 0; voice < this.voiceActive.length; ++voice) {
+      if (this.voiceActive[voice]) {
+        this.voiceGrainIncrements[voice] =
+          ARRS1Phase.ofFrames(
+            this.voiceSamples[voice].playbackRate() * newRateScale);
+      }
+    }
+  }
+
+  /**
+   * Start a voice. If the voice limit has been reached, the oldest voice is
+   * stopped.
+   *
+   * @param note     The note
+   * @param sample   The sample
+   * @param velocity The note velocity
+   */
+
+  public void start(
+    final int note,
+    final ARI1SampleMapEntryType sample,
+    final double velocity)
+  {
+    Objects.requireNonNull(sample, "sample");
+
+    if (this.voiceActiveCount >= this.voiceLimit) {
+      this.stopVoice(this.findOldest());
+    }
+
+    var voice = 0;
+    while (this.voiceActive[voice]) {
+      ++voice;
+    }
+
+    this.voiceActive[voice] = true;
+    this.voiceDone[voice] = false;
+    this.voiceSamples[voice] = sample;
+    this.voiceNotes[voice] = note;
+    this.voiceSerials[voice] = ++this.serial;
+    this.voiceGains[voice] = velocity;
+    this.voicePhases[voice] = 0L;
+    this.voicePositions[voice] = 0L;
+    this.voiceGrainTimers[voice] = 0L;
+    this.voiceGrainCounts[voice] = 0;
+    this.voiceGrainIncrements[voice] =
+      ARRS1Phase.ofFrames(sample.playbackRate() * this.rateScale);
+    ++this.voiceActiveCount;
+  }
+
+  /**
+   * Stop all voices playing the given note.
+   *
+   * @param note The note
+   */
+
+  public void stopNote(
+    final int note)
+  {
+    for (int voice = 0; voice < this.voiceActive.length; ++voice) {
+      if (this.voiceActive[voice] && this.voiceNotes[voice] == note) {
+        this.stopVoice(voice);
+      }
+    }
+  }
+
+  private void stopVoice(
+    final int voice)
+  {
+    for (int grain = this.grainActiveCount - 1; grain >= 0; --grain) {
+      if (this.grainVoices[grain] == voice) {
+        this.retireGrain(grain);
+      }
+    }
+
+    this.voiceActive[voice] = false;
+    this.voiceSamples[voice] = null;
+    --this.voiceActiveCount;
+  }
+
+  private int findOldest()
+  {
+    var oldest = -1;
+    for (int voice = 0; voice < this.voiceActive.length; ++voice) {
+      if (!this.voiceActive[voice]) {
+        continue;
+      }
+      if (oldest == -1
+        || this.voiceSerials[voice] < this.voiceSerials[oldest]) {
+        oldest = voice;
+      }
+    }
+    return oldest;
+  }
+
+  /**
+   * Render all voices, adding the results to the given output buffers.
+   *
+   * @param outputL The left output
+   * @param outputR The right output
+   * @param offset  The offset of the first frame within the output
+   * @param count   The number of frames
+   */
+
+  public void render(
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count)
+  {
+    var done = 0;
+    while (done < count) {
+      final var frames = Math.min(BLOCK_SIZE, count - done);
+      this.renderBlock(outputL, outputR, offset + done, frames);
+      done += frames;
+    }
+  }
+
+  private void renderBlock(
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int frames)
+  {
+    if (this.voiceActiveCount == 0) {
+      return;
+    }
+
+    this.scheduleBlock(frames);
+
+    this.blockFrames = frames;
+    final var used = this.workersFor();
+    if (used > 1) {
+      this.workers.execute(this.renderTask, used);
+    } else {
+      this.renderGrains(0, 1);
+    }
+
+    for (int grain = this.grainActiveCount - 1; grain >= 0; --grain) {
+      if (this.grainDone[grain]) {
+        this.retireGrain(grain);
+      }
+    }
+
+    this.mixBlock(outputL, outputR, offset, frames, used);
+  }
+
+  /**
+   * Determine the number of workers that would be used to render the
+   * currently active grains.
+   *
+   * @return The number of workers, including the calling thread
+   */
+
+  public int workersFor()
+  {
+    final var gang = this.workers;
+    if (gang == null || this.grainActiveCount < PARALLEL_GRAIN_THRESHOLD) {
+      return 1;
+    }
+    return Math.min(
+      Math.min(gang.workers(), WORKERS_MAXIMUM),
+      this.grainActiveCount
+    );
+  }
+
+  /**
+   * Advance every voice through the block, triggering grains as the grain
+   * timers expire. The logic matches the monophonic grain sampler exactly,
+   * except that each grain records the frame within the block at which it
+   * starts.
+   */
+
+  private void scheduleBlock(
+    final int frames)
+  {
+    /*
+     * The grain rate is scaled along with the pitch bend so that the rate
+     * of generation is kept consistent with the rate that grains are
+     * completing.
+     */
+
+    final var timerMax =
+      Math.max(0L, (long) ((this.grainLength / 2.0) / this.rateScale));
+
+    for (int voice = 0; voice < this.voiceActive.length; ++voice) {
+      if (!this.voiceActive[voice] || this.voiceDone[voice]) {
+        continue;
+      }
+
+      final var sampleFrames = this.voiceSamples[voice].frames();
+      var phase = this.voicePhases[voice];
+      var position = this.voicePositions[voice];
+      var timer = this.voiceGrainTimers[voice];
+
+      for (int frame = 0; frame < frames; ++frame) {
+        if (timer == 0L) {
+
+          /*
+           * Jitter is not applied to the very first grain of a note, so
+           * that the attack of percussive samples is preserved.
+           */
+
+          final long jitter;
+          if (position > 0L) {
+            final var r = (this.sampleJitterRNG.random() * 2.0) - 1.0;
+            jitter = (long) (r * (double) this.grainPositionJitter);
+          } else {
+            jitter = 0L;
+          }
+
+          this.trigger(voice, position + jitter, frame);
+          timer = timerMax;
+        } else {
+          timer = Math.max(0L, timer - 1L);
+        }
+
+        final var newPhase = phase + this.speedIncrement;
+        final var newPosition = ARRS1Phase.nearest(newPhase);
+        if (newPosition >= sampleFrames) {
+          this.voiceDone[voice] = true;
+          break;
+        }
+        phase = newPhase;
+        position = newPosition;
+      }
+
+      this.voicePhases[voice] = phase;
+      this.voicePositions[voice] = position;
+      this.voiceGrainTimers[voice] = timer;
+    }
+  }
+
+  private void trigger(
+    final int voice,
+    final @ARTimeFrames long sampleStartPosition,
+    final int delay)
+  {
+    if (this.grainActiveCount == this.grainVoices.length) {
+      ++this.grainsDropped;
+      return;
+    }
+
+    final var start =
+      Math.max(0L, sampleStartPosition);
+    final var sampleEnd =
+      start + this.grainLength;
+    final var sampleMaxFrames =
+      this.voiceSamples[voice].frames();
+
+    final long length;
+    if (sampleEnd >= sampleMaxFrames) {
+      length = Math.max(
+        0L,
+        this.grainLength - (sampleEnd - sampleMaxFrames));
+    } else {
+      length = this.grainLength;
+    }
+
+    if (length == 0L) {
+      return;
+    }
+
+    final var grain = this.grainActiveCount++;
+    this.grainVoices[grain] = voice;
+    this.grainStarts[grain] = start;
+    this.grainLengths[grain] = length;
+    this.grainLengthInverses[grain] = 1.0 / (double) length;
+    this.grainPhases[grain] = 0L;
+    this.grainDelays[grain] = delay;
+    this.grainDone[grain] = false;
+    this.grainTables[grain] = this.windowTables;
+
+    /*
+     * The first grain of a note uses the falling half of a Hann window to
+     * preserve the initial attack of the note.
+     */
+
+    if (start == 0L) {
+      this.grainShapes[grain] = ARIGM0WindowShape.HALF_HANN;
+    } else {
+      this.grainShapes[grain] = this.windowShape;
+    }
+
+    ++this.voiceGrainCounts[voice];
+  }
+
+  private void retireGrain(
+    final int grain)
+  {
+    --this.voiceGrainCounts[this.grainVoices[grain]];
+
+    final var last = --this.grainActiveCount;
+    this.grainVoices[grain] = this.grainVoices[last];
+    this.grainStarts[grain] = this.grainStarts[last];
+    this.grainLengths[grain] = this.grainLengths[last];
+    this.grainLengthInverses[grain] = this.grainLengthInverses[last];
+    this.grainPhases[grain] = this.grainPhases[last];
+    this.grainDelays[grain] = this.grainDelays[last];
+    this.grainDone[grain] = this.grainDone[last];
+    this.grainShapes[grain] = this.grainShapes[last];
+    this.grainTables[grain] = this.grainTables[last];
+    this.grainTables[last] = null;
+  }
+
+  /**
+   * Render the grains belonging to the given worker. The active grains are
+   * divided into contiguous runs, one per worker, and each worker renders
+   * into its own accumulator.
+   */
+
+  private void renderGrains(
+    final int worker,
+    final int workers)
+  {
+    final var frames = this.blockFrames;
+    final var accumulatorL = this.workerAccumulatorsL[worker];
+    final var accumulatorR = this.workerAccumulatorsR[worker];
+    final var scratchL = this.workerScratchL[worker];
+    final var scratchR = this.workerScratchR[worker];
+    final var source = this.workerSources[worker];
+    final var active = this.grainActiveCount;
+    final var start = (worker * active) / workers;
+    final var end = ((worker + 1) * active) / workers;
+    for (int grain = start; grain < end; ++grain) {
+      this.renderGrain(
+        grain,
+        frames,
+        source,
+        scratchL,
+        scratchR,
+        accumulatorL,
+        accumulatorR
+      );
+    }
+  }
+
+  /*
+   * The grain is first read from the sample for the rest of the block into
+   * the scratch buffers, and then windowed into the accumulators. The last
+   * block of a grain may read a few frames past the end of the grain; those
+   * frames are never windowed.
+   */
+
+  private void renderGrain(
+    final int grain,
+    final int frames,
+    final EntrySource source,
+    final double[] scratchL,
+    final double[] scratchR,
+    final double[] accumulatorL,
+    final double[] accumulatorR)
+  {
+    final var voice = this.grainVoices[grain];
+    final var sample = this.voiceSamples[voice];
+    final var stereo = sample.channels() >= 2;
+    final var gain = this.voiceGains[voice];
+    final var increment = this.voiceGrainIncrements[voice];
+    final var tables = this.grainTables[grain];
+    final var shape = this.grainShapes[grain];
+    final var length = this.grainLengths[grain];
+    final var lengthInverse = this.grainLengthInverses[grain];
+    final var delay = this.grainDelays[grain];
+
+    var phase = this.grainPhases[grain];
+    final var samplePhase =
+      ARRS1Phase.ofFrame(this.grainStarts[grain]) + phase;
+
+    source.entry = sample;
+    ARRS1Resampler.render(
+      this.interpolation,
+      source,
+      0,
+      samplePhase,
+      increment,
+      scratchL,
+      delay,
+      frames - delay
+    );
+    if (stereo) {
+      ARRS1Resampler.render(
+        this.interpolation,
+        source,
+        1,
+        samplePhase,
+        increment,
+        scratchR,
+        delay,
+        frames - delay
+      );
+    }
+    source.entry = null;
+
+    for (int frame = delay; frame < frames; ++frame) {
+      final var position = ARRS1Phase.nearest(phase);
+      final var window =
+        tables.lookup(shape, (double) position * lengthInverse) * gain;
+
+      accumulatorL[frame] += scratchL[frame] * window;
+      if (stereo) {
+        accumulatorR[frame] += scratchR[frame] * window;
+      }
+
+      phase += increment;
+      if (ARRS1Phase.nearest(phase) >= length) {
+        this.grainDone[grain] = true;
+        break;
+      }
+    }
+
+    this.grainPhases[grain] = phase;
+    this.grainDelays[grain] = 0;
+  }
+
+  private void mixBlock(
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int frames,
+    final int used)
+  {
+    for (int worker = 0; worker < used; ++worker) {
+      final var accumulatorL = this.workerAccumulatorsL[worker];
+      final var accumulatorR = this.workerAccumulatorsR[worker];
+      for (int frame = 0; frame < frames; ++frame) {
+        outputL[offset + frame] += accumulatorL[frame];
+        outputR[offset + frame] += accumulatorR[frame];
+      }
+      Arrays.fill(accumulatorL, 0, frames, 0.0);
+      Arrays.fill(accumulatorR, 0, frames, 0.0);
+    }
+
+    /*
+     * A voice that has reached the end of its sample and has no grains
+     * left can never produce sound again, so its slot is released.
+     */
+
+    for (int voice = 0; voice < this.voiceActive.length; ++voice) {
+      if (this.voiceActive[voice]
+        && this.voiceDone[voice]
+        && this.voiceGrainCounts[voice] == 0) {
+        this.stopVoice(voice);
+      }
+    }
+  }
+
+  private static final class EntrySource implements ARRS1SourceType
+  {
+    private ARI1SampleMapEntryType entry;
+
+    EntrySource()
+    {
+
+    }
+
+    @Override
+    public long frames()
+    {
+      return this.entry.frames();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return this.entry.sample(channel, frameIndex);
+    }
+  }
+}
@@ -0,0 +1,513 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.grain_sampler_p0.internal;
+
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowShape;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowTables;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOff;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOn;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundHandleType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundReceiverType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind;
+import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationParameterChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationSampleRateChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteOff;
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteOn;
+import com.io7m.aradine.instrument.spi1.ARI1EventNotePitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentServicesType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
+import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A polyphonic grain sampler.
+ */
+
+public final class ARIGP0Sampler
+  implements ARI1InstrumentType
+{
+  private final ARIGP0GrainEngine voices;
+  private final Parameters parameters;
+  private final Ports ports;
+  private final ARI1EventBufferType<ARI1EventConfigurationType> eventBuffer;
+  private final WindowTablesReceiver windowTablesReceiver;
+  private final WorkersReceiver workersReceiver;
+  private ARI1BackgroundHandleType windowTablesTask;
+  private int windowTablesRequested;
+  private int workersRequested;
+  private double[] mixL;
+  private double[] mixR;
+  private double pitchBend;
+  private int pitchBendRange;
+
+  /**
+   * A polyphonic grain sampler.
+   *
+   * @param services      The instrument services
+   * @param inEventBuffer The event buffer
+   * @param inParameters  The parameters
+   * @param inPorts       The ports
+   */
+
+  public ARIGP0Sampler(
+    final ARI1InstrumentServicesType services,
+    final ARI1EventBufferType<ARI1EventConfigurationType> inEventBuffer,
+    final Parameters inParameters,
+    final Ports inPorts)
+  {
+    this.eventBuffer =
+      Objects.requireNonNull(inEventBuffer, "eventBuffer");
+    this.parameters =
+      Objects.requireNonNull(inParameters, "inParameters");
+    this.ports =
+      Objects.requireNonNull(inPorts, "inPorts");
+
+    this.voices =
+      new ARIGP0GrainEngine(
+        (int) this.parameters.maxPolyphony1.valueMaximum(),
+        ARIGP0GrainEngine.DEFAULT_GRAIN_CAPACITY,
+        services.createDeterministicRNG(0x696F376D)
+      );
+    this.voices.setLimit(
+      (int) this.parameters.maxPolyphony1.value(0));
+    this.voices.setSpeed(
+      this.parameters.speed2.value(0));
+    this.voices.setWindowShape(
+      ARIGM0WindowShape.ofParameter(this.parameters.grainWindow5.value(0)));
+    this.voices.setInterpolation(
+      ARRS1Interpolation.ofParameter(this.parameters.interpolation8.value(0)));
+    this.updateGrainTimes(services, 0);
+
+    this.windowTablesReceiver =
+      new WindowTablesReceiver();
+    this.windowTablesRequested =
+      this.voices.windowTables().resolution();
+    this.workersReceiver =
+      new WorkersReceiver();
+    this.workersRequested = 0;
+
+    this.pitchBend = 0.0;
+    this.pitchBendRange = (int) this.parameters.pitchBendRange6.value(0);
+    this.updatePitchBendRate();
+
+    /*
+     * The mix buffers are sized for the current buffer size here, and are
+     * only replaced when a buffer size change makes them too small.
+     */
+
+    this.mixL = new double[services.statusCurrentBufferSize()];
+    this.mixR = new double[services.statusCurrentBufferSize()];
+
+    this.requestWorkers(
+      services, (int) this.parameters.renderThreads7.value(0));
+  }
+
+  @Override
+  public void process(
+    final ARI1InstrumentServicesType context)
+  {
+    final var frames = context.statusCurrentBufferSize();
+
+    /*
+     * Voices are rendered a span at a time, where each span ends at the
+     * next frame that has events. Events therefore still take effect at
+     * exactly the frame at which they are scheduled.
+     */
+
+    var spanStart = 0;
+    for (int frameIndex = 0; frameIndex < frames; ++frameIndex) {
+      final var events =
+        this.eventBuffer.eventsTake(frameIndex);
+      final var noteEvents =
+        this.ports.noteInput2.eventsTake(frameIndex);
+
+      if (events.isEmpty() && noteEvents.isEmpty()) {
+        continue;
+      }
+
+      this.voices.render(
+        this.mixL, this.mixR, spanStart, frameIndex - spanStart);
+      spanStart = frameIndex;
+
+      for (final var event : events) {
+        this.processEventConfigurationForFrame(context, event);
+      }
+      for (final var event : noteEvents) {
+        this.processEventNoteForFrame(context, event);
+      }
+    }
+
+    this.voices.render(this.mixL, this.mixR, spanStart, frames - spanStart);
+
+    for (int frameIndex = 0; frameIndex < frames; ++frameIndex) {
+      this.ports.outputL0.write(frameIndex, this.mixL[frameIndex]);
+      this.ports.outputR1.write(frameIndex, this.mixR[frameIndex]);
+    }
+
+    /*
+     * The mix buffers are cleared once they have been written, so that they
+     * are already clear at the start of the next period and whenever a
+     * buffer size change replaces them.
+     */
+
+    Arrays.fill(this.mixL, 0, frames, 0.0);
+    Arrays.fill(this.mixR, 0, frames, 0.0);
+    this.eventBuffer.eventsClear();
+  }
+
+  private void processEventNoteForFrame(
+    final ARI1InstrumentServicesType context,
+    final ARI1EventNoteType event)
+  {
+    if (event instanceof ARI1EventNoteOn eventNoteOn) {
+      ARJ1EventNoteOn.record(
+        ARIGP0Sampler.class,
+        eventNoteOn.timeOffsetInFrames(),
+        eventNoteOn.note(),
+        eventNoteOn.velocity()
+      );
+      this.processEventNoteOn(context, eventNoteOn);
+      return;
+    }
+
+    if (event instanceof ARI1EventNoteOff eventNoteOff) {
+      ARJ1EventNoteOff.record(
+        ARIGP0Sampler.class,
+        eventNoteOff.timeOffsetInFrames(),
+        eventNoteOff.note()
+      );
+      this.voices.stopNote(eventNoteOff.note());
+      return;
+    }
+
+    if (event instanceof ARI1EventNotePitchBend eventPitchBend) {
+      this.pitchBend = eventPitchBend.pitch();
+      this.updatePitchBendRate();
+      return;
+    }
+
+    context.eventUnhandled(event);
+  }
+
+  private void processEventConfigurationForFrame(
+    final ARI1InstrumentServicesType context,
+    final ARI1EventConfigurationType event)
+  {
+    if (event instanceof ARI1EventConfigurationBufferSizeChanged) {
+      this.processEventBufferSizeChanged(context);
+      return;
+    }
+
+    if (event instanceof ARI1EventConfigurationSampleRateChanged eventRate) {
+      this.updateGrainTimes(context, eventRate.timeOffsetInFrames());
+      return;
+    }
+
+    if (event instanceof ARI1EventConfigurationParameterChanged eventSet) {
+      this.processEventParameterChanged(context, eventSet);
+      return;
+    }
+
+    context.eventUnhandled(event);
+  }
+
+  /*
+   * A buffer size change always arrives at frame 0, before anything in the
+   * period has been rendered into the mix buffers, and so the buffers can
+   * simply be replaced.
+   */
+
+  private void processEventBufferSizeChanged(
+    final ARI1InstrumentServicesType context)
+  {
+    final var frames = context.statusCurrentBufferSize();
+    if (this.mixL.length < frames) {
+      this.mixL = new double[frames];
+      this.mixR = new double[frames];
+    }
+  }
+
+  private void processEventParameterChanged(
+    final ARI1InstrumentServicesType context,
+    final ARI1EventConfigurationParameterChanged event)
+  {
+    final var id = event.parameter();
+    final var time = event.timeOffsetInFrames();
+    if (Objects.equals(id, this.parameters.samples0.id())) {
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.maxPolyphony1.id())) {
+      this.voices.setLimit((int) this.parameters.maxPolyphony1.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.speed2.id())) {
+      this.voices.setSpeed(this.parameters.speed2.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.grainPositionJitter3.id())) {
+      this.updateGrainTimes(context, time);
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.grainLength4.id())) {
+      this.updateGrainTimes(context, time);
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.grainWindow5.id())) {
+      this.voices.setWindowShape(
+        ARIGM0WindowShape.ofParameter(
+          this.parameters.grainWindow5.value(time)));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.interpolation8.id())) {
+      this.voices.setInterpolation(
+        ARRS1Interpolation.ofParameter(
+          this.parameters.interpolation8.value(time)));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.pitchBendRange6.id())) {
+      this.pitchBendRange =
+        (int) this.parameters.pitchBendRange6.value(time);
+      this.updatePitchBendRate();
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.renderThreads7.id())) {
+      this.requestWorkers(
+        context, (int) this.parameters.renderThreads7.value(time));
+      return;
+    }
+
+    context.eventUnhandled(event);
+  }
+
+  private void updatePitchBendRate()
+  {
+    this.voices.setRateScale(
+      ARI1PitchBend.pitchBendToPlaybackRate(
+        this.pitchBend,
+        this.pitchBendRange
+      )
+    );
+  }
+
+  private void updateGrainTimes(
+    final ARI1InstrumentServicesType context,
+    final int time)
+  {
+    final var grainLength =
+      context.timeMillisecondsToFrames(
+        this.parameters.grainLength4.value(time)
+      );
+    final var grainPositionJitter =
+      context.timeMillisecondsToFrames(
+        this.parameters.grainPositionJitter3.value(time)
+      );
+
+    this.voices.setGrainLength(grainLength);
+    this.voices.setGrainPositionJitter((int) grainPositionJitter);
+    this.requestWindowTables(context, grainLength);
+  }
+
+  private void processEventNoteOn(
+    final ARI1InstrumentServicesType context,
+    final ARI1EventNoteOn event)
+  {
+    final var sampleMap =
+      context.sampleMapGet(
+        this.parameters.samples0.value(event.timeOffsetInFrames()));
+
+    final var noteIndex = event.note();
+    this.voices.start(
+      noteIndex,
+      sampleMap.forNoteVelocity(noteIndex, event.velocity()),
+      event.velocity()
+    );
+  }
+
+  /**
+   * Rebuild the window tables in the background if the grain length no
+   * longer matches the resolution of the current (or pending) tables.
+   */
+
+  private void requestWindowTables(
+    final ARI1InstrumentServicesType context,
+    final long grainLength)
+  {
+    final var resolution =
+      ARIGM0WindowTables.resolutionFor(grainLength);
+
+    if (resolution == this.windowTablesRequested) {
+      return;
+    }
+
+    final var existing = this.windowTablesTask;
+    if (existing != null) {
+      existing.cancel();
+    }
+
+    this.windowTablesRequested = resolution;
+    this.windowTablesTask =
+      context.backgroundSubmit(
+        ARI1BackgroundWorkKind.BACKGROUND_COMPUTE,
+        () -> ARIGM0WindowTables.create(resolution),
+        this.windowTablesReceiver
+      );
+  }
+
+  /**
+   * Start (or stop) worker threads. Threads are created in the background
+   * so that the audio thread never waits for thread creation. Work that
+   * creates threads is never cancelled, because a cancelled gang could
+   * never be closed; stale gangs are closed on arrival instead.
+   */
+
+  private void requestWorkers(
+    final ARI1InstrumentServicesType context,
+    final int threads)
+  {
+    final var clamped =
+      Math.min(Math.max(0, threads), ARIGP0GrainEngine.WORKERS_MAXIMUM - 1);
+    if (clamped == this.workersRequested) {
+      return;
+    }
+
+    this.workersRequested = clamped;
+    if (clamped == 0) {
+      this.replaceWorkers(null);
+      return;
+    }
+
+    context.backgroundSubmit(
+      ARI1BackgroundWorkKind.BACKGROUND_COMPUTE,
+      () -> new ARI1WorkerGang(
+        "com.io7m.aradine.instrument.grain_sampler_p0", clamped),
+      this.workersReceiver
+    );
+  }
+
+  private void replaceWorkers(
+    final ARI1WorkerGang newWorkers)
+  {
+    final var existing = this.voices.workers();
+    this.voices.setWorkers(newWorkers);
+    if (existing != null) {
+      existing.close();
+    }
+  }
+
+  private final class WindowTablesReceiver
+    implements ARI1BackgroundReceiverType<ARIGM0WindowTables>
+  {
+    WindowTablesReceiver()
+    {
+    }
+
+    @Override
+    public void onBackgroundSucceeded(
+      final ARIGM0WindowTables result)
+    {
+      final var sampler = ARIGP0Sampler.this;
+      if (result.resolution() == sampler.windowTablesRequested) {
+        sampler.voices.setWindowTables(result);
+        sampler.windowTablesTask = null;
+      }
+    }
+
+    @Override
+    public void onBackgroundFailed(
+      final Exception exception)
+    {
+      /*
+       * The existing tables remain usable, so a failure to build new
+       * tables only costs lookup precision.
+       */
+
+      final var sampler = ARIGP0Sampler.this;
+      sampler.windowTablesRequested =
+        sampler.voices.windowTables().resolution();
+      sampler.windowTablesTask = null;
+    }
+  }
+
+  private final class WorkersReceiver
+    implements ARI1BackgroundReceiverType<ARI1WorkerGang>
+  {
+    WorkersReceiver()
+    {
+    }
+
+    @Override
+    public void onBackgroundSucceeded(
+      final ARI1WorkerGang result)
+    {
+      final var sampler = ARIGP0Sampler.this;
+      if (result.threadCount() == sampler.workersRequested) {
+        sampler.replaceWorkers(result);
+      } else {
+        result.close();
+      }
+    }
+
+    @Override
+    public void onBackgroundFailed(
+      final Exception exception)
+    {
+      /*
+       * Grains are still rendered on the audio thread without workers.
+       */
+
+      ARIGP0Sampler.this.workersRequested = 0;
+      ARIGP0Sampler.this.replaceWorkers(null);
+    }
+  }
+
+  @Override
+  public void receiveEvent(
+    final ARI1InstrumentServicesType context,
+    final ARI1EventConfigurationType event)
+  {
+    this.eventBuffer.eventAdd(event);
+  }
+
+  /**
+   * Stop any worker threads. A gang that is still being created in the
+   * background is closed on arrival, because it can no longer match the
+   * requested number of threads.
+   */
+
+  @Override
+  public void close()
+  {
+    this.workersRequested = 0;
+    this.replaceWorkers(null);
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+import com.io7m.aradine.instrument.grain_sampler_p0.ARIGP0SamplerFactory;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentFactoryType;
+
+/**
+ * Modular programmable synthesis (Polyphonic grain sampler)
+ */
+
+module com.io7m.aradine.instrument.grain_sampler_p0
+{
+  requires static com.io7m.aradine.annotations;
+  requires static org.osgi.annotation.bundle;
+  requires static org.osgi.annotation.versioning;
+  requires static org.osgi.service.component.annotations;
+
+  requires com.io7m.aradine.instrument.grain_sampler_m0;
+  requires com.io7m.aradine.instrument.jfr1;
+  requires com.io7m.aradine.instrument.spi1;
+  requires com.io7m.aradine.resampler1;
+
+  provides ARI1InstrumentFactoryType
+    with ARIGP0SamplerFactory;
+
+  exports com.io7m.aradine.instrument.grain_sampler_p0;
+
+  exports com.io7m.aradine.instrument.grain_sampler_p0.internal
+    to com.io7m.aradine.tests;
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An event buffer received events at more distinct times than it has
+ * preallocated storage for, and was forced to allocate on the audio thread.
+ */
+
+@Name("com.io7m.aradine.EventBufferGrowth")
+@Label("Event Buffer Growth")
+@Category({"Aradine", "Host"})
+@Description("An event buffer grew beyond its preallocated storage.")
+public final class ARJ1EventBufferGrowth extends jdk.jfr.Event
+{
+  @Label("Capacity")
+  @Description("The capacity of the buffer before it grew.")
+  int capacity;
+
+  @Label("New Capacity")
+  @Description("The capacity of the buffer after it grew.")
+  int capacityNew;
+
+  private ARJ1EventBufferGrowth()
+  {
+
+  }
+
+  /**
+   * Record the growth of an event buffer.
+   *
+   * @param capacity    The capacity of the buffer before it grew
+   * @param capacityNew The capacity of the buffer after it grew
+   */
+
+  public static void record(
+    final int capacity,
+    final int capacityNew)
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventBufferGrowth();
+      if (event.shouldCommit()) {
+        event.capacity = capacity;
+        event.capacityNew = capacityNew;
+        event.commit();
+      }
+    }
+  }
+}
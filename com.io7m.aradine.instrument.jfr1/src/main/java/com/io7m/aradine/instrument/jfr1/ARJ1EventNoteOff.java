@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A note-off event was handled by an instrument.
+ */
+
+@Name("com.io7m.aradine.NoteOff")
+@Label("Note Off")
+@Category({"Aradine", "Instrument"})
+@Description("A note-off event was handled by an instrument.")
+@StackTrace(false)
+public final class ARJ1EventNoteOff extends jdk.jfr.Event
+{
+  @Label("Instrument")
+  @Description("The instrument implementation.")
+  Class<?> instrument;
+
+  @Label("Note")
+  int note;
+
+  @Label("Time Offset")
+  @Description("The offset in frames of the event within the period.")
+  int timeOffset;
+
+  private ARJ1EventNoteOff()
+  {
+
+  }
+
+  /**
+   * Record a note-off event.
+   *
+   * @param instrument The instrument implementation
+   * @param timeOffset The offset in frames within the period
+   * @param note       The note
+   */
+
+  public static void record(
+    final Class<?> instrument,
+    final int timeOffset,
+    final int note)
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventNoteOff();
+      if (event.shouldCommit()) {
+        event.instrument = instrument;
+        event.timeOffset = timeOffset;
+        event.note = note;
+        event.commit();
+      }
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The value of a parameter was changed.
+ */
+
+@Name("com.io7m.aradine.ParameterChange")
+@Label("Parameter Change")
+@Category({"Aradine", "Host"})
+@Description("The value of a parameter was changed.")
+@StackTrace(false)
+public final class ARJ1EventParameterChange extends jdk.jfr.Event
+{
+  @Label("Parameter")
+  @Description("The numeric parameter ID.")
+  int parameter;
+
+  @Label("Time Offset")
+  @Description("The offset in frames of the change within the period.")
+  int timeOffset;
+
+  @Label("Value")
+  @Description("The new value, for numeric parameters.")
+  double value;
+
+  @Label("Value Text")
+  @Description("The new value, for non-numeric parameters.")
+  String valueText;
+
+  private ARJ1EventParameterChange()
+  {
+
+  }
+
+  /**
+   * Record a change to a numeric parameter.
+   *
+   * @param parameter  The parameter ID
+   * @param timeOffset The offset in frames within the period
+   * @param value      The new value
+   */
+
+  public static void record(
+    final int parameter,
+    final int timeOffset,
+    final double value)
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventParameterChange();
+      if (event.shouldCommit()) {
+        event.parameter = parameter;
+        event.timeOffset = timeOffset;
+        event.value = value;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Record a change to a non-numeric parameter.
+   *
+   * @param parameter  The parameter ID
+   * @param timeOffset The offset in frames within the period
+   * @param value      The new value
+   */
+
+  public static void record(
+    final int parameter,
+    final int timeOffset,
+    final Object value)
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventParameterChange();
+      if (event.shouldCommit()) {
+        event.parameter = parameter;
+        event.timeOffset = timeOffset;
+        event.value = Double.NaN;
+        event.valueText = String.valueOf(value);
+        event.commit();
+      }
+    }
+  }
+}
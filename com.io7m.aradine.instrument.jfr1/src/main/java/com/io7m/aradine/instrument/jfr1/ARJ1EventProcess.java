@@ -0,0 +1,87 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A single call to the {@code process} method of an instrument instance.
+ */
+
+@Name("com.io7m.aradine.Process")
+@Label("Process")
+@Category({"Aradine", "Host"})
+@Description("A single processing period of an instrument instance.")
+@StackTrace(false)
+public final class ARJ1EventProcess extends jdk.jfr.Event
+{
+  @Label("Instance")
+  @Description("The name of the instrument instance.")
+  String instance;
+
+  @Label("Frames")
+  @Description("The number of frames processed.")
+  int frames;
+
+  private ARJ1EventProcess()
+  {
+
+  }
+
+  /**
+   * Start timing a processing period.
+   *
+   * @return The event, or {@code null} if events are disabled
+   */
+
+  public static ARJ1EventProcess start()
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventProcess();
+      event.begin();
+      return event;
+    }
+    return null;
+  }
+
+  /**
+   * Finish timing a processing period.
+   *
+   * @param event    The event returned by {@link #start()}
+   * @param instance The instance name
+   * @param frames   The number of frames processed
+   */
+
+  public static void finish(
+    final ARJ1EventProcess event,
+    final String instance,
+    final int frames)
+  {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.instance = instance;
+        event.frames = frames;
+        event.commit();
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A sample buffer was converted to a different sample rate, or failed to
+ * be converted.
+ */
+
+@Name("com.io7m.aradine.RateConversion")
+@Label("Rate Conversion")
+@Category({"Aradine", "Samples"})
+@Description("A sample buffer was converted to a different sample rate.")
+public final class ARJ1EventRateConversion extends jdk.jfr.Event
+{
+  @Label("Source")
+  @Description("The source of the sample buffer.")
+  String source;
+
+  @Label("Rate From")
+  @Description("The original sample rate.")
+  int rateFrom;
+
+  @Label("Rate To")
+  @Description("The target sample rate.")
+  int rateTo;
+
+  @Label("Frames")
+  @Description("The number of frames in the original sample buffer.")
+  long frames;
+
+  @Label("Succeeded")
+  @Description("Whether the conversion succeeded.")
+  boolean succeeded;
+
+  @Label("Failure")
+  @Description("The exception that caused the conversion to fail, if any.")
+  String failure;
+
+  private ARJ1EventRateConversion()
+  {
+
+  }
+
+  /**
+   * Start timing a rate conversion.
+   *
+   * @return The event, or {@code null} if events are disabled
+   */
+
+  public static ARJ1EventRateConversion start()
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventRateConversion();
+      event.begin();
+      return event;
+    }
+    return null;
+  }
+
+  /**
+   * Finish timing a rate conversion. This should be called from a
+   * {@code finally} block so that failed conversions are also recorded.
+   *
+   * @param event    The event returned by {@link #start()}
+   * @param source   The source of the sample buffer
+   * @param rateFrom The original sample rate
+   * @param rateTo   The target sample rate
+   * @param frames   The number of frames in the original buffer
+   * @param failure  The exception that caused the conversion to fail, or
+   *                 {@code null} if the conversion succeeded
+   */
+
+  public static void finish(
+    final ARJ1EventRateConversion event,
+    final String source,
+    final int rateFrom,
+    final int rateTo,
+    final long frames,
+    final Throwable failure)
+  {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.source = source;
+        event.rateFrom = rateFrom;
+        event.rateTo = rateTo;
+        event.frames = frames;
+        event.succeeded = failure == null;
+        event.failure = failure == null ? null : failure.toString();
+        event.commit();
+      }
+    }
+  }
+}
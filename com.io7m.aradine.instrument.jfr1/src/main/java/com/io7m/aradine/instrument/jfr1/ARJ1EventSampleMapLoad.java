@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A sample map was loaded, or failed to load.
+ */
+
+@Name("com.io7m.aradine.SampleMapLoad")
+@Label("Sample Map Load")
+@Category({"Aradine", "Samples"})
+@Description("A sample map was loaded, or failed to load.")
+public final class ARJ1EventSampleMapLoad extends jdk.jfr.Event
+{
+  @Label("Source")
+  @Description("The source of the sample map.")
+  String source;
+
+  @Label("Files")
+  @Description("The number of sample files loaded.")
+  int files;
+
+  @Label("Frames")
+  @Description("The total number of frames loaded.")
+  long frames;
+
+  @Label("Succeeded")
+  @Description("Whether the sample map was loaded successfully.")
+  boolean succeeded;
+
+  @Label("Failure")
+  @Description("The exception that caused the load to fail, if any.")
+  String failure;
+
+  private ARJ1EventSampleMapLoad()
+  {
+
+  }
+
+  /**
+   * Start timing a sample map load.
+   *
+   * @return The event, or {@code null} if events are disabled
+   */
+
+  public static ARJ1EventSampleMapLoad start()
+  {
+    if (ARJ1Events.ENABLED) {
+      final var event = new ARJ1EventSampleMapLoad();
+      event.begin();
+      return event;
+    }
+    return null;
+  }
+
+  /**
+   * Finish timing a sample map load. This should be called from a
+   * {@code finally} block so that failed loads are also recorded.
+   *
+   * @param event   The event returned by {@link #start()}
+   * @param source  The source of the sample map
+   * @param files   The number of sample files loaded
+   * @param frames  The total number of frames loaded
+   * @param failure The exception that caused the load to fail, or
+   *                {@code null} if the load succeeded
+   */
+
+  public static void finish(
+    final ARJ1EventSampleMapLoad event,
+    final String source,
+    final int files,
+    final long frames,
+    final Throwable failure)
+  {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.source = source;
+        event.files = files;
+        event.frames = frames;
+        event.succeeded = failure == null;
+        event.failure = failure == null ? null : failure.toString();
+        event.commit();
+      }
+    }
+  }
+}
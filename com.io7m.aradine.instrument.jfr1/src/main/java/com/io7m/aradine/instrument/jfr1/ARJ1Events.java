@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.jfr1;
+
+/**
+ * <p>The global switch for the aradine JFR events.</p>
+ *
+ * <p>Events are only ever constructed if the system property
+ * {@value #ENABLED_PROPERTY} is set to {@code true} when this class is
+ * initialized. Because {@link #ENABLED} is a {@code static final} constant,
+ * the JIT compiler removes the instrumentation entirely when it is
+ * disabled. When enabled, the individual events can additionally be switched
+ * on and off using the usual JFR settings.</p>
+ */
+
+public final class ARJ1Events
+{
+  /**
+   * The name of the system property that enables JFR events.
+   */
+
+  public static final String ENABLED_PROPERTY =
+    "com.io7m.aradine.jfr.enabled";
+
+  /**
+   * {@code true} if JFR events are enabled.
+   */
+
+  public static final boolean ENABLED =
+    Boolean.getBoolean(ENABLED_PROPERTY);
+
+  private ARJ1Events()
+  {
+
+  }
+}
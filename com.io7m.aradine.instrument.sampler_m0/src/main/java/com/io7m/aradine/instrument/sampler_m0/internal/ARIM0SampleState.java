@@ -16,8 +16,11 @@
 
 package com.io7m.aradine.instrument.sampler_m0.internal;
 
-import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -29,37 +32,65 @@ import java.util.Objects;
 public final class ARIM0SampleState
 {
   private final ARI1SampleMapEntryType sample;
-  private final double velocity;
+  private final EntrySource source;
+  private ARRS1Interpolation interpolation;
   private boolean done;
-  private double positionReal;
-  private long position;
+  private long phase;
+  private long increment;
+  private double incrementRateScale;
 
   /**
    * The playback state of a sample.
    *
-   * @param inSample The sample map entry
+   * @param inSample        The sample map entry
+   * @param inInterpolation The interpolation used to read the sample
    */
 
   ARIM0SampleState(
     final ARI1SampleMapEntryType inSample,
-    final double inVelocity)
+    final ARRS1Interpolation inInterpolation)
   {
     this.sample = Objects.requireNonNull(inSample, "sample");
-    this.position = 0;
-    this.positionReal = 0.0;
-    this.velocity = inVelocity;
+    this.source = new EntrySource(inSample);
+    this.interpolation =
+      Objects.requireNonNull(inInterpolation, "interpolation");
+    this.phase = 0L;
+    this.incrementRateScale = Double.NaN;
     this.done = false;
   }
 
+  /**
+   * Set the interpolation used to read the sample at fractional positions.
+   *
+   * @param newInterpolation The interpolation
+   */
+
+  public void setInterpolation(
+    final ARRS1Interpolation newInterpolation)
+  {
+    this.interpolation =
+      Objects.requireNonNull(newInterpolation, "interpolation");
+  }
+
+  /**
+   * @return {@code true} if playback has reached the end of the sample
+   */
+
+  public boolean isDone()
+  {
+    return this.done;
+  }
+
   /**
    * Evaluate the sample.
    *
-   * @param pitchBend The current pitch bend value
+   * @param rateScale The playback rate scale derived from the current pitch
+   *                  bend value
    * @param frame     The output frame
    */
 
   public void evaluate(
-    final double pitchBend,
+    final double rateScale,
     final double[] frame)
   {
     if (this.done) {
@@ -67,21 +98,119 @@ public final class ARIM0SampleState
       return;
     }
 
-    this.sample.evaluate(this.position, this.velocity, frame);
+    ARRS1Resampler.interpolateFrame(
+      this.interpolation, this.source, frame.length, this.phase, frame);
 
-    final double rateScale =
-      ARI1PitchBend.pitchBendToPlaybackRate(pitchBend, 24);
+    this.phase += this.incrementFor(rateScale);
+    if (ARRS1Phase.nearest(this.phase) >= this.sample.frames()) {
+      this.done = true;
+    }
+  }
 
-    final var newPositionReal =
-      this.positionReal + (this.sample.playbackRate() * rateScale);
-    final var newPosition =
-      Math.round(newPositionReal);
+  /**
+   * Render up to {@code count} frames of the sample into the given buffers,
+   * starting at index {@code offset}. The sample is read at a constant rate
+   * for the whole span, and rendering stops early at the end of the sample.
+   *
+   * @param rateScale The playback rate scale derived from the current pitch
+   *                  bend value
+   * @param outputL   The left output buffer
+   * @param outputR   The right output buffer
+   * @param offset    The index of the first frame of the span
+   * @param count     The number of frames in the span
+   *
+   * @return The number of frames rendered
+   */
 
-    if (newPosition >= this.sample.frames()) {
+  public int render(
+    final double rateScale,
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count)
+  {
+    if (this.done) {
+      return 0;
+    }
+
+    /*
+     * The sample ends at the first phase whose nearest frame lies beyond
+     * the end of the sample, so the number of frames remaining is the
+     * number of increments needed to reach that phase.
+     */
+
+    final var delta = this.incrementFor(rateScale);
+    final var end =
+      ARRS1Phase.ofFrame(this.sample.frames()) - (ARRS1Phase.ONE >> 1);
+
+    final long remaining;
+    if (delta > 0L) {
+      remaining = Math.max(1L, ((end - this.phase) + delta - 1L) / delta);
+    } else {
+      remaining = Long.MAX_VALUE;
+    }
+
+    final var frames = (int) Math.min((long) count, remaining);
+    ARRS1Resampler.render(
+      this.interpolation,
+      this.source,
+      0,
+      this.phase,
+      delta,
+      outputL,
+      offset,
+      frames
+    );
+    this.phase = ARRS1Resampler.render(
+      this.interpolation,
+      this.source,
+      1,
+      this.phase,
+      delta,
+      outputR,
+      offset,
+      frames
+    );
+
+    if ((long) frames == remaining) {
       this.done = true;
     }
+    return frames;
+  }
+
+  private long incrementFor(
+    final double rateScale)
+  {
+    if (rateScale != this.incrementRateScale) {
+      this.increment =
+        ARRS1Phase.ofFrames(this.sample.playbackRate() * rateScale);
+      this.incrementRateScale = rateScale;
+    }
+    return this.increment;
+  }
+
+  private static final class EntrySource implements ARRS1SourceType
+  {
+    private final ARI1SampleMapEntryType entry;
+
+    EntrySource(
+      final ARI1SampleMapEntryType inEntry)
+    {
+      this.entry = inEntry;
+    }
 
-    this.positionReal = newPositionReal;
-    this.position = newPosition;
+    @Override
+    public long frames()
+    {
+      return this.entry.frames();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return this.entry.sample(channel, frameIndex);
+    }
   }
 }
@@ -16,6 +16,10 @@
 
 package com.io7m.aradine.instrument.sampler_m0.internal;
 
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.envelope.table1.AREnvelopeADRRamp;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOff;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOn;
 import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationSampleRateChanged;
@@ -27,23 +31,38 @@ import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
 import com.io7m.aradine.instrument.spi1.ARI1EventNoteType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentServicesType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
+import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1SilenceGate;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
- * A monophonic sampler.
+ * A monophonic sampler. Released notes fade out over a release envelope,
+ * and notes that fall silent are stopped early.
  */
 
 public final class ARIM0Sampler
   implements ARI1InstrumentType
 {
+  private static final int PITCH_BEND_RANGE = 24;
+  private static final int ENVELOPE_INTERVAL = 32;
+  private static final int BLOCK_SIZE = ARI1SilenceGate.WINDOW_DEFAULT;
+
   private final ARI1EventBufferType<ARI1EventConfigurationType> eventBuffer;
   private final Parameters parameters;
   private final Ports ports;
-  private final double[] frame;
-  private double pitchBend;
+  private final double[] blockL;
+  private final double[] blockR;
+  private final AREnvelopeADR envelope;
+  private final AREnvelopeADRRamp envelopeRamp;
+  private final ARI1SilenceGate silenceGate;
+  private long sampleRate;
+  private double pitchBendRate;
   private double velocity;
   private int notes;
+  private ARRS1Interpolation interpolation;
   private ARIM0SampleState samplePlaying;
 
   /**
@@ -67,8 +86,22 @@ public final class ARIM0Sampler
       Objects.requireNonNull(inPorts, "inPorts");
 
     this.notes = 0;
-    this.frame = new double[2];
+    this.blockL = new double[BLOCK_SIZE];
+    this.blockR = new double[BLOCK_SIZE];
+    this.pitchBendRate = 1.0;
     this.velocity = 1.0;
+
+    this.sampleRate = 48000L;
+    this.envelope =
+      AREnvelopeADR.createRelease(
+        this.sampleRate, this.parameters.release1.value(0));
+    this.envelopeRamp =
+      new AREnvelopeADRRamp(this.envelope, ENVELOPE_INTERVAL);
+    this.silenceGate =
+      new ARI1SilenceGate();
+    this.updateSilence(0);
+    this.interpolation =
+      ARRS1Interpolation.ofParameter(this.parameters.interpolation4.value(0));
   }
 
   @Override
@@ -76,25 +109,87 @@ public final class ARIM0Sampler
     final ARI1InstrumentServicesType context)
   {
     final var frames = context.statusCurrentBufferSize();
-    for (int frameIndex = 0; frameIndex < frames; ++frameIndex) {
+    this.updateSampleRate(context.statusCurrentSampleRate());
+
+    /*
+     * The period is rendered a span at a time, where each span ends at the
+     * next frame that has events. Events still take effect at exactly the
+     * frame at which they are scheduled.
+     */
+
+    var frameIndex = 0;
+    while (frameIndex < frames) {
       this.processEventsForFrame(context, frameIndex);
+      final var spanEnd = this.eventsNext(frameIndex + 1, frames);
+      this.renderSpan(frameIndex, spanEnd);
+      frameIndex = spanEnd;
+    }
 
-      final var playing = this.samplePlaying;
-      if (playing != null) {
-        playing.evaluate(this.pitchBend, this.frame);
-      } else {
-        this.frame[0] = 0.0;
-        this.frame[1] = 0.0;
+    this.eventBuffer.eventsClear();
+  }
+
+  private void renderSpan(
+    final int frameStart,
+    final int frameEnd)
+  {
+    var frameIndex = frameStart;
+    while (frameIndex < frameEnd && this.samplePlaying != null) {
+      final var count = Math.min(frameEnd - frameIndex, BLOCK_SIZE);
+      this.renderBlock(this.samplePlaying, frameIndex, count);
+      frameIndex += count;
+    }
+
+    /*
+     * The rest of the span is silent; there is no need to consult the
+     * envelope or the silence gate.
+     */
+
+    for (; frameIndex < frameEnd; ++frameIndex) {
+      this.ports.outputL0.write(frameIndex, 0.0);
+      this.ports.outputR1.write(frameIndex, 0.0);
+    }
+  }
+
+  private void renderBlock(
+    final ARIM0SampleState playing,
+    final int frameIndex,
+    final int count)
+  {
+    final var rendered =
+      playing.render(this.pitchBendRate, this.blockL, this.blockR, 0, count);
+    Arrays.fill(this.blockL, rendered, count, 0.0);
+    Arrays.fill(this.blockR, rendered, count, 0.0);
+
+    var peak = 0.0;
+    final var releasing = this.envelopeRamp.isReleasing();
+    for (int index = 0; index < count; ++index) {
+      var amplitude = this.velocity;
+      if (releasing) {
+        amplitude *= this.envelopeRamp.next();
       }
 
-      this.frame[0] = this.frame[0] * this.velocity;
-      this.frame[1] = this.frame[1] * this.velocity;
+      final var sampleL = this.blockL[index] * amplitude;
+      final var sampleR = this.blockR[index] * amplitude;
+      peak = Math.max(peak, Math.max(Math.abs(sampleL), Math.abs(sampleR)));
+      this.ports.outputL0.write(frameIndex + index, sampleL);
+      this.ports.outputR1.write(frameIndex + index, sampleR);
+    }
 
-      this.ports.outputL0.write(frameIndex, this.frame[0]);
-      this.ports.outputR1.write(frameIndex, this.frame[1]);
+    final var silent =
+      this.silenceGate.observeBlock(peak, count);
+    if (playing.isDone() || silent || this.envelopeRamp.isFinished()) {
+      this.samplePlaying = null;
     }
+  }
 
-    this.eventBuffer.eventsClear();
+  private int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    return Math.min(
+      this.eventBuffer.eventsNext(frameIndex, frameLimit),
+      this.ports.noteInput2.eventsNext(frameIndex, frameLimit)
+    );
   }
 
   private void processEventsForFrame(
@@ -117,11 +212,22 @@ public final class ARIM0Sampler
     final ARI1EventNoteType event)
   {
     if (event instanceof ARI1EventNoteOn eventNoteOn) {
+      ARJ1EventNoteOn.record(
+        ARIM0Sampler.class,
+        eventNoteOn.timeOffsetInFrames(),
+        eventNoteOn.note(),
+        eventNoteOn.velocity()
+      );
       this.processEventNoteOn(context, eventNoteOn);
       return;
     }
 
-    if (event instanceof ARI1EventNoteOff) {
+    if (event instanceof ARI1EventNoteOff eventNoteOff) {
+      ARJ1EventNoteOff.record(
+        ARIM0Sampler.class,
+        eventNoteOff.timeOffsetInFrames(),
+        eventNoteOff.note()
+      );
       this.processEventNoteOff();
       return;
     }
@@ -159,24 +265,75 @@ public final class ARIM0Sampler
     final ARI1EventConfigurationParameterChanged eventSet)
   {
     final var id = eventSet.parameter();
+    final var time = eventSet.timeOffsetInFrames();
     if (Objects.equals(id, this.parameters.samples0.id())) {
       return;
     }
 
+    if (Objects.equals(id, this.parameters.release1.id())) {
+      this.envelope.setReleaseLinear(this.parameters.release1.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.silenceThreshold2.id())
+      || Objects.equals(id, this.parameters.silenceHold3.id())) {
+      this.updateSilence(time);
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.interpolation4.id())) {
+      this.interpolation =
+        ARRS1Interpolation.ofParameter(
+          this.parameters.interpolation4.value(time));
+      if (this.samplePlaying != null) {
+        this.samplePlaying.setInterpolation(this.interpolation);
+      }
+      return;
+    }
+
     context.eventUnhandled(eventSet);
   }
 
+  private void updateSampleRate(
+    final long newSampleRate)
+  {
+    if (newSampleRate != this.sampleRate) {
+      this.sampleRate = newSampleRate;
+      this.envelope.setSampleRate(newSampleRate);
+      this.updateSilence(0);
+    }
+  }
+
+  private void updateSilence(
+    final int time)
+  {
+    final var threshold =
+      ARI1SilenceGate.decibelsToAmplitude(
+        this.parameters.silenceThreshold2.value(time));
+    final var holdFrames =
+      Math.round(
+        (this.parameters.silenceHold3.value(time) / 1000.0)
+          * (double) this.sampleRate);
+
+    this.silenceGate.configure(threshold, holdFrames);
+  }
+
   private void processEventPitchBend(
     final ARI1EventNotePitchBend event)
   {
-    this.pitchBend = event.pitch();
+    this.pitchBendRate =
+      ARI1PitchBend.pitchBendToPlaybackRate(event.pitch(), PITCH_BEND_RANGE);
   }
 
   private void processEventNoteOff()
   {
     this.notes = Math.max(0, this.notes - 1);
     if (this.notes == 0) {
-      this.samplePlaying = null;
+      if (this.envelope.release().endFrames() == 0L) {
+        this.samplePlaying = null;
+      } else {
+        this.envelopeRamp.beginRelease();
+      }
     }
   }
 
@@ -192,7 +349,12 @@ public final class ARIM0Sampler
     this.velocity =
       event.velocity();
     this.samplePlaying =
-      new ARIM0SampleState(sampleMap.forNote(event.note()), this.velocity);
+      new ARIM0SampleState(
+        sampleMap.forNoteVelocity(event.note(), this.velocity),
+        this.interpolation
+      );
+    this.envelopeRamp.reset();
+    this.silenceGate.reset();
 
     ++this.notes;
   }
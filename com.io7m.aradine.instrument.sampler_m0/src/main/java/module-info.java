@@ -27,7 +27,10 @@ module com.io7m.aradine.instrument.sampler_m0
   requires static org.osgi.annotation.versioning;
   requires static org.osgi.service.component.annotations;
 
+  requires com.io7m.aradine.envelope.table1;
+  requires com.io7m.aradine.instrument.jfr1;
   requires com.io7m.aradine.instrument.spi1;
+  requires com.io7m.aradine.resampler1;
 
   provides ARI1InstrumentFactoryType
     with ARIM0SamplerFactory;
@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.sampler_p0.internal;
+
+/**
+ * A function that accumulates scaled blocks of samples.
+ */
+
+public interface ARIP0MixerType
+{
+  /**
+   * Add {@code count} elements of {@code source}, starting at index 0 and
+   * multiplied by {@code gain}, to {@code target} starting at
+   * {@code targetOffset}.
+   *
+   * @param source       The source samples
+   * @param gain         The gain
+   * @param target       The target accumulator
+   * @param targetOffset The offset of the first target element
+   * @param count        The number of elements
+   */
+
+  void mix(
+    double[] source,
+    double gain,
+    double[] target,
+    int targetOffset,
+    int count);
+}
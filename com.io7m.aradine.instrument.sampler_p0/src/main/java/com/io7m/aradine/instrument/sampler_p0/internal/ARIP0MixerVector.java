@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.sampler_p0.internal;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * <p>A mixer that uses the (incubating) Vector API.</p>
+ *
+ * <p>The lanes are combined with a separate multiply and add rather than a
+ * fused multiply-add, so that the results are bit-for-bit identical to those
+ * of {@link ARIP0MixerScalar}.</p>
+ */
+
+public final class ARIP0MixerVector implements ARIP0MixerType
+{
+  private static final VectorSpecies<Double> SPECIES =
+    DoubleVector.SPECIES_PREFERRED;
+
+  /**
+   * A mixer that uses the (incubating) Vector API. Constructing an instance
+   * fails with a {@link LinkageError} if the {@code jdk.incubator.vector}
+   * module is not available.
+   */
+
+  public ARIP0MixerVector()
+  {
+
+  }
+
+  @Override
+  public void mix(
+    final double[] source,
+    final double gain,
+    final double[] target,
+    final int targetOffset,
+    final int count)
+  {
+    final var gains = DoubleVector.broadcast(SPECIES, gain);
+    final var bound = SPECIES.loopBound(count);
+    final var step = SPECIES.length();
+
+    var index = 0;
+    for (; index < bound; index += step) {
+      final var at = targetOffset + index;
+      final var s = DoubleVector.fromArray(SPECIES, source, index);
+      final var t = DoubleVector.fromArray(SPECIES, target, at);
+      t.add(s.mul(gains)).intoArray(target, at);
+    }
+    for (; index < count; ++index) {
+      target[targetOffset + index] += source[index] * gain;
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.sampler_p0.internal;
+
+/**
+ * Functions to select a mixer implementation.
+ */
+
+public final class ARIP0Mixers
+{
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  private ARIP0Mixers()
+  {
+
+  }
+
+  /**
+   * Create the fastest available mixer. The Vector API mixer is used if the
+   * {@code jdk.incubator.vector} module has been added to the boot layer
+   * (for example, with {@code --add-modules jdk.incubator.vector}), and the
+   * scalar mixer is used otherwise.
+   *
+   * @return A mixer
+   */
+
+  public static ARIP0MixerType create()
+  {
+    if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+      try {
+        return new ARIP0MixerVector();
+      } catch (final LinkageError e) {
+        // Fall through to the scalar mixer.
+      }
+    }
+    return new ARIP0MixerScalar();
+  }
+}
@@ -16,6 +16,10 @@
 
 package com.io7m.aradine.instrument.sampler_p0.internal;
 
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOff;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOn;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundReceiverType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind;
 import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationParameterChanged;
@@ -27,8 +31,13 @@ import com.io7m.aradine.instrument.spi1.ARI1EventNotePitchBend;
 import com.io7m.aradine.instrument.spi1.ARI1EventNoteType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentServicesType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
-import com.io7m.aradine.instrument.spi1.ARI1IntMapMutableType;
+import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1SilenceGate;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceStealing;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -38,13 +47,17 @@ import java.util.Objects;
 public final class ARIP0Sampler
   implements ARI1InstrumentType
 {
-  private final ARI1IntMapMutableType<ARIP0SampleState> samplesPlaying;
+  private static final int PITCH_BEND_RANGE = 24;
+
+  private final ARIP0VoiceEngine voices;
   private final Parameters parameters;
   private final Ports ports;
-  private final double[] frameSum;
-  private double pitchBend;
   private final ARI1EventBufferType<ARI1EventConfigurationType> eventBuffer;
-  private final double[] frame;
+  private final WorkersReceiver workersReceiver;
+  private int workersRequested;
+  private double[] mixL;
+  private double[] mixR;
+  private ARI1VoiceStealing voiceStealing;
 
   /**
    * A polyphonic sampler.
@@ -68,11 +81,33 @@ public final class ARIP0Sampler
     this.ports =
       Objects.requireNonNull(inPorts, "inPorts");
 
-    this.samplesPlaying =
-      services.createIntMap(128);
+    this.voices =
+      new ARIP0VoiceEngine(
+        (int) this.parameters.maxPolyphony1.valueMaximum(),
+        ARIP0Mixers.create()
+      );
+    this.voices.setLimit(
+      (int) this.parameters.maxPolyphony1.value(0));
+    this.voiceStealing =
+      ARI1VoiceStealing.ofParameter(this.parameters.voiceStealing2.value(0));
+    this.voices.setInterpolation(
+      ARRS1Interpolation.ofParameter(this.parameters.interpolation3.value(0)));
+    this.voices.setSampleRate(services.statusCurrentSampleRate());
+    this.voices.setRelease(this.parameters.release5.value(0));
+    this.updateSilence(0);
+
+    /*
+     * The mix buffers are sized for the current buffer size here, and are
+     * only replaced when a buffer size change makes them too small.
+     */
+
+    this.mixL = new double[services.statusCurrentBufferSize()];
+    this.mixR = new double[services.statusCurrentBufferSize()];
 
-    this.frame = new double[2];
-    this.frameSum = new double[2];
+    this.workersReceiver = new WorkersReceiver();
+    this.workersRequested = 0;
+    this.requestWorkers(
+      services, (int) this.parameters.renderThreads4.value(0));
   }
 
   @Override
@@ -80,45 +115,86 @@ public final class ARIP0Sampler
     final ARI1InstrumentServicesType context)
   {
     final var frames = context.statusCurrentBufferSize();
-    for (int frameIndex = 0; frameIndex < frames; ++frameIndex) {
-      final var events = this.eventBuffer.eventsTake(frameIndex);
-      for (final var event : events) {
-        this.processEventConfigurationForFrame(context, event);
-      }
-
-      final var noteEvents = this.ports.noteInput2.eventsTake(frameIndex);
-      for (final var event : noteEvents) {
-        this.processEventNoteForFrame(context, event);
-      }
+    this.voices.setSampleRate(context.statusCurrentSampleRate());
 
-      this.frame[0] = 0.0;
-      this.frame[1] = 0.0;
-      this.frameSum[0] = 0.0;
-      this.frameSum[1] = 0.0;
+    /*
+     * Voices are rendered a span at a time, where each span ends at the
+     * next frame that has events. Events therefore still take effect at
+     * exactly the frame at which they are scheduled, and frames without
+     * events cost nothing beyond rendering.
+     */
 
-      for (final var playing : this.samplesPlaying.values()) {
-        playing.evaluate(this.pitchBend, this.frame);
-        this.frameSum[0] += this.frame[0] * playing.velocity();
-        this.frameSum[1] += this.frame[1] * playing.velocity();
-      }
+    var frameIndex = 0;
+    while (frameIndex < frames) {
+      this.processEventsForFrame(context, frameIndex);
+      final var spanEnd = this.eventsNext(frameIndex + 1, frames);
+      this.voices.render(
+        this.mixL, this.mixR, frameIndex, spanEnd - frameIndex);
+      frameIndex = spanEnd;
+    }
 
-      this.ports.outputL0.write(frameIndex, this.frameSum[0]);
-      this.ports.outputR1.write(frameIndex, this.frameSum[1]);
+    for (int index = 0; index < frames; ++index) {
+      this.ports.outputL0.write(index, this.mixL[index]);
+      this.ports.outputR1.write(index, this.mixR[index]);
     }
 
+    /*
+     * The mix buffers are cleared once they have been written rather than
+     * at the start of the next period, so that they are always clear when
+     * a buffer size change replaces them.
+     */
+
+    Arrays.fill(this.mixL, 0, frames, 0.0);
+    Arrays.fill(this.mixR, 0, frames, 0.0);
     this.eventBuffer.eventsClear();
   }
 
+  private int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    return Math.min(
+      this.eventBuffer.eventsNext(frameIndex, frameLimit),
+      this.ports.noteInput2.eventsNext(frameIndex, frameLimit)
+    );
+  }
+
+  private void processEventsForFrame(
+    final ARI1InstrumentServicesType context,
+    final int frameIndex)
+  {
+    final var events = this.eventBuffer.eventsTake(frameIndex);
+    for (final var event : events) {
+      this.processEventConfigurationForFrame(context, event);
+    }
+
+    final var noteEvents = this.ports.noteInput2.eventsTake(frameIndex);
+    for (final var event : noteEvents) {
+      this.processEventNoteForFrame(context, event);
+    }
+  }
+
   private void processEventNoteForFrame(
     final ARI1InstrumentServicesType context,
     final ARI1EventNoteType event)
   {
     if (event instanceof ARI1EventNoteOn eventNoteOn) {
+      ARJ1EventNoteOn.record(
+        ARIP0Sampler.class,
+        eventNoteOn.timeOffsetInFrames(),
+        eventNoteOn.note(),
+        eventNoteOn.velocity()
+      );
       this.processEventNoteOn(context, eventNoteOn);
       return;
     }
 
     if (event instanceof ARI1EventNoteOff eventNoteOff) {
+      ARJ1EventNoteOff.record(
+        ARIP0Sampler.class,
+        eventNoteOff.timeOffsetInFrames(),
+        eventNoteOff.note()
+      );
       this.processEventNoteOff(eventNoteOff);
       return;
     }
@@ -136,6 +212,7 @@ public final class ARIP0Sampler
     final ARI1EventConfigurationType event)
   {
     if (event instanceof ARI1EventConfigurationBufferSizeChanged) {
+      this.processEventBufferSizeChanged(context);
       return;
     }
 
@@ -151,28 +228,92 @@ public final class ARIP0Sampler
     context.eventUnhandled(event);
   }
 
+  /*
+   * A buffer size change always arrives at frame 0, before anything in the
+   * period has been rendered into the mix buffers, and so the buffers can
+   * simply be replaced.
+   */
+
+  private void processEventBufferSizeChanged(
+    final ARI1InstrumentServicesType context)
+  {
+    final var frames = context.statusCurrentBufferSize();
+    if (this.mixL.length < frames) {
+      this.mixL = new double[frames];
+      this.mixR = new double[frames];
+    }
+  }
+
   private void processEventParameterChanged(
     final ARI1InstrumentServicesType context,
     final ARI1EventConfigurationParameterChanged event)
   {
     final var id = event.parameter();
+    final var time = event.timeOffsetInFrames();
     if (Objects.equals(id, this.parameters.samples0.id())) {
       return;
     }
 
+    if (Objects.equals(id, this.parameters.maxPolyphony1.id())) {
+      this.voices.setLimit((int) this.parameters.maxPolyphony1.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.voiceStealing2.id())) {
+      this.voiceStealing =
+        ARI1VoiceStealing.ofParameter(
+          this.parameters.voiceStealing2.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.interpolation3.id())) {
+      this.voices.setInterpolation(
+        ARRS1Interpolation.ofParameter(
+          this.parameters.interpolation3.value(time)));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.renderThreads4.id())) {
+      this.requestWorkers(
+        context, (int) this.parameters.renderThreads4.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.release5.id())) {
+      this.voices.setRelease(this.parameters.release5.value(time));
+      return;
+    }
+
+    if (Objects.equals(id, this.parameters.silenceThreshold6.id())
+      || Objects.equals(id, this.parameters.silenceHold7.id())) {
+      this.updateSilence(time);
+      return;
+    }
+
     context.eventUnhandled(event);
   }
 
+  private void updateSilence(
+    final int time)
+  {
+    this.voices.setSilence(
+      ARI1SilenceGate.decibelsToAmplitude(
+        this.parameters.silenceThreshold6.value(time)),
+      this.parameters.silenceHold7.value(time)
+    );
+  }
+
   private void processEventPitchBend(
     final ARI1EventNotePitchBend event)
   {
-    this.pitchBend = event.pitch();
+    this.voices.setRateScale(
+      ARI1PitchBend.pitchBendToPlaybackRate(event.pitch(), PITCH_BEND_RANGE));
   }
 
   private void processEventNoteOff(
     final ARI1EventNoteOff event)
   {
-    this.samplesPlaying.remove(event.note());
+    this.voices.releaseNote(event.note());
   }
 
   private void processEventNoteOn(
@@ -184,14 +325,85 @@ public final class ARIP0Sampler
         this.parameters.samples0.value(event.timeOffsetInFrames()));
 
     final var noteIndex = event.note();
-    this.samplesPlaying.put(
+    this.voices.start(
       noteIndex,
-      new ARIP0SampleState(
-        sampleMap.forNote(noteIndex),
-        event.velocity(),
-        () -> this.samplesPlaying.remove(noteIndex))
+      this.voiceStealing,
+      sampleMap.forNoteVelocity(noteIndex, event.velocity()),
+      event.velocity()
+    );
+  }
+
+  /**
+   * Start (or stop) worker threads. Threads are created in the background
+   * so that the audio thread never waits for thread creation. Work that
+   * creates threads is never cancelled, because a cancelled gang could
+   * never be closed; stale gangs are closed on arrival instead.
+   */
+
+  private void requestWorkers(
+    final ARI1InstrumentServicesType context,
+    final int threads)
+  {
+    final var clamped =
+      Math.min(Math.max(0, threads), ARIP0VoiceEngine.WORKERS_MAXIMUM - 1);
+    if (clamped == this.workersRequested) {
+      return;
+    }
+
+    this.workersRequested = clamped;
+    if (clamped == 0) {
+      this.replaceWorkers(null);
+      return;
+    }
+
+    context.backgroundSubmit(
+      ARI1BackgroundWorkKind.BACKGROUND_COMPUTE,
+      () -> new ARI1WorkerGang(
+        "com.io7m.aradine.instrument.sampler_p0", clamped),
+      this.workersReceiver
     );
-    return;
+  }
+
+  private void replaceWorkers(
+    final ARI1WorkerGang newWorkers)
+  {
+    final var existing = this.voices.workers();
+    this.voices.setWorkers(newWorkers);
+    if (existing != null) {
+      existing.close();
+    }
+  }
+
+  private final class WorkersReceiver
+    implements ARI1BackgroundReceiverType<ARI1WorkerGang>
+  {
+    WorkersReceiver()
+    {
+    }
+
+    @Override
+    public void onBackgroundSucceeded(
+      final ARI1WorkerGang result)
+    {
+      final var sampler = ARIP0Sampler.this;
+      if (result.threadCount() == sampler.workersRequested) {
+        sampler.replaceWorkers(result);
+      } else {
+        result.close();
+      }
+    }
+
+    @Override
+    public void onBackgroundFailed(
+      final Exception exception)
+    {
+      /*
+       * Voices are still rendered on the audio thread without workers.
+       */
+
+      ARIP0Sampler.this.workersRequested = 0;
+      ARIP0Sampler.this.replaceWorkers(null);
+    }
   }
 
   @Override
@@ -201,4 +413,17 @@ public final class ARIP0Sampler
   {
     this.eventBuffer.eventAdd(event);
   }
+
+  /**
+   * Stop any worker threads. A gang that is still being created in the
+   * background is closed on arrival, because it can no longer match the
+   * requested number of threads.
+   */
+
+  @Override
+  public void close()
+  {
+    this.workersRequested = 0;
+    this.replaceWorkers(null);
+  }
 }
@@ -0,0 +1,896 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.sampler_p0.internal;
+
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.envelope.table1.AREnvelopeADRRamp;
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.instrument.spi1.ARI1SilenceGate;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceSetType;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceStealing;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerTaskType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * <p>A fixed-size, block-oriented voice engine.</p>
+ *
+ * <p>The state of every voice is held in parallel primitive arrays
+ * (structure-of-arrays) rather than in one object per voice. Active voices
+ * are kept packed at the start of the arrays, so rendering walks contiguous
+ * memory and costs nothing for unused voices. Each voice is resampled a
+ * block at a time into a scratch buffer, and the scratch buffer is then
+ * mixed into the output using a {@link ARIP0MixerType}, which may use the
+ * Vector API. Starting, stopping, stealing, and rendering voices never
+ * allocates.</p>
+ *
+ * <p>Voices that play a sample more than an octave above its own pitch
+ * read from the sample's mipmaps, if it has any: a voice advancing by
+ * {@code 2^n} frames or less per output frame reads from level {@code n}
+ * at {@code 2^-n} times the rate, so that the interpolator never skips
+ * over source frames and does not alias.</p>
+ *
+ * <p>If a {@link ARI1WorkerGang} is attached, blocks that are expensive
+ * enough are split between the workers: the active voices are divided into
+ * contiguous runs, one per worker, and each worker renders its run into its
+ * own accumulator. The accumulators are then summed into the output in
+ * worker order, so the result depends only on the voices and the number of
+ * workers used, never on thread timing. The cost of a block is estimated as
+ * the number of interpolation taps it reads, and a block is only split
+ * between as many workers as can each be given at least
+ * {@link #PARALLEL_COST_PER_WORKER} taps of work.</p>
+ *
+ * <p>Voices that are released fade out over a release envelope, and are
+ * stopped when the envelope ends. Each voice also tracks the peak level of
+ * each block it renders, which is used as its loudness when the quietest
+ * voice is stolen. Once a voice has reached the silence threshold, it is
+ * stopped as soon as it stays below the threshold for longer than the hold
+ * time, whether or not its note is still held and even if its release
+ * envelope has not ended. A sample that starts with silence is therefore
+ * not stopped before it has been heard, and quiet gaps shorter than the
+ * hold time do not stop a voice.</p>
+ */
+
+public final class ARIP0VoiceEngine implements ARI1VoiceSetType
+{
+  /**
+   * The largest number of frames rendered for a voice in one pass.
+   */
+
+  public static final int BLOCK_SIZE = 256;
+
+  /**
+   * The smallest estimated cost, in interpolation taps, that justifies
+   * handing work to a worker. Dispatching to and waiting for a worker costs
+   * on the order of a few microseconds, and so each worker must be given
+   * considerably more than that much work for a split to be worthwhile.
+   */
+
+  public static final long PARALLEL_COST_PER_WORKER = 32768L;
+
+  /**
+   * The largest number of workers, including the calling thread, between
+   * which a block is split. Per-worker buffers are allocated for this many
+   * workers at construction, so that attaching workers never allocates.
+   */
+
+  public static final int WORKERS_MAXIMUM = 9;
+
+  /**
+   * The number of frames between evaluations of the release envelope.
+   */
+
+  public static final int ENVELOPE_INTERVAL = 32;
+
+  private final ARIP0MixerType mixer;
+  private final ARI1SampleMapEntryType[] samples;
+  private final EntrySource[] sources;
+  private final long[] phases;
+  private final long[] phaseEnds;
+  private final long[] increments;
+  private final int[] levels;
+  private final double[] rates;
+  private final double[] gains;
+  private final double[] peaks;
+  private final int[] channels;
+  private final int[] notes;
+  private final long[] serials;
+  private final double[] scratchL;
+  private final double[] scratchR;
+  private final boolean[] finished;
+  private final AREnvelopeADR envelope;
+  private final AREnvelopeADRRamp[] envelopes;
+  private final ARI1SilenceGate[] gates;
+  private final ParallelTask parallelTask;
+  private final double[][] workerScratchL;
+  private final double[][] workerScratchR;
+  private final double[][] workerOutputL;
+  private final double[][] workerOutputR;
+  private ARI1WorkerGang workers;
+  private ARRS1Interpolation interpolation;
+  private double rateScale;
+  private double silenceThreshold;
+  private double silenceHold;
+  private long sampleRate;
+  private int activeCount;
+  private int limit;
+  private long serial;
+
+  /**
+   * A fixed-size, block-oriented voice engine.
+   *
+   * @param capacity The total number of voices
+   * @param inMixer  The mixer
+   */
+
+  public ARIP0VoiceEngine(
+    final int capacity,
+    final ARIP0MixerType inMixer)
+  {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+        "Capacity %d must be positive".formatted(Integer.valueOf(capacity))
+      );
+    }
+
+    this.mixer = Objects.requireNonNull(inMixer, "mixer");
+    this.samples = new ARI1SampleMapEntryType[capacity];
+    this.sources = new EntrySource[capacity];
+    for (int index = 0; index < capacity; ++index) {
+      this.sources[index] = new EntrySource();
+    }
+    this.phases = new long[capacity];
+    this.phaseEnds = new long[capacity];
+    this.increments = new long[capacity];
+    this.levels = new int[capacity];
+    this.rates = new double[capacity];
+    this.gains = new double[capacity];
+    this.peaks = new double[capacity];
+    this.channels = new int[capacity];
+    this.notes = new int[capacity];
+    this.serials = new long[capacity];
+    this.scratchL = new double[BLOCK_SIZE];
+    this.scratchR = new double[BLOCK_SIZE];
+    this.finished = new boolean[capacity];
+    this.sampleRate = 48000L;
+    this.silenceThreshold = 0.0;
+    this.silenceHold = 0.0;
+    this.envelope = AREnvelopeADR.createRelease(this.sampleRate, 0.0);
+    this.envelopes = new AREnvelopeADRRamp[capacity];
+    this.gates = new ARI1SilenceGate[capacity];
+    for (int index = 0; index < capacity; ++index) {
+      this.envelopes[index] =
+        new AREnvelopeADRRamp(this.envelope, ENVELOPE_INTERVAL);
+      this.gates[index] = new ARI1SilenceGate();
+    }
+    this.parallelTask = new ParallelTask();
+    this.workerScratchL = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerScratchR = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerOutputL = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.workerOutputR = new double[WORKERS_MAXIMUM][BLOCK_SIZE];
+    this.interpolation = ARRS1Interpolation.HERMITE4;
+    this.rateScale = 1.0;
+    this.activeCount = 0;
+    this.limit = capacity;
+  }
+
+  /**
+   * @return The total number of voices
+   */
+
+  public int capacity()
+  {
+    return this.phases.length;
+  }
+
+  @Override
+  public int limit()
+  {
+    return this.limit;
+  }
+
+  /**
+   * Set the maximum number of voices that may be active at once. If more
+   * voices than the new limit are active, the oldest voices are stopped.
+   *
+   * @param newLimit The new limit
+   */
+
+  public void setLimit(
+    final int newLimit)
+  {
+    this.limit = Math.min(Math.max(1, newLimit), this.phases.length);
+    while (this.activeCount > this.limit) {
+      this.stop(ARI1VoiceStealing.findOldest(this));
+    }
+  }
+
+  /**
+   * Attach (or detach) worker threads. This never allocates. No more than
+   * {@link #WORKERS_MAXIMUM} workers are ever used, even if the gang has more
+   * threads.
+   *
+   * @param newWorkers The workers, or {@code null} to render every voice on
+   *                   the calling thread
+   */
+
+  public void setWorkers(
+    final ARI1WorkerGang newWorkers)
+  {
+    this.workers = newWorkers;
+  }
+
+  /**
+   * @return The attached workers, if any
+   */
+
+  public ARI1WorkerGang workers()
+  {
+    return this.workers;
+  }
+
+  /**
+   * Estimate the cost of rendering a block of the currently active voices.
+   *
+   * @param frames The number of frames in the block
+   *
+   * @return The estimated cost in interpolation taps
+   */
+
+  public long estimateCost(
+    final int frames)
+  {
+    var channelsTotal = 0L;
+    for (int index = 0; index < this.activeCount; ++index) {
+      channelsTotal += this.channels[index];
+    }
+    return channelsTotal
+      * (long) tapsOf(this.interpolation)
+      * (long) frames;
+  }
+
+  /**
+   * Determine the number of workers that would be used to render a block of
+   * the currently active voices.
+   *
+   * @param frames The number of frames in the block
+   *
+   * @return The number of workers, including the calling thread
+   */
+
+  public int workersFor(
+    final int frames)
+  {
+    final var gang = this.workers;
+    if (gang == null) {
+      return 1;
+    }
+
+    final var byCost = this.estimateCost(frames) / PARALLEL_COST_PER_WORKER;
+    final var byVoices = (long) this.activeCount;
+    final var available = (long) Math.min(gang.workers(), WORKERS_MAXIMUM);
+    return (int) Math.max(1L, Math.min(byCost, Math.min(byVoices, available)));
+  }
+
+  private static int tapsOf(
+    final ARRS1Interpolation interpolation)
+  {
+    return switch (interpolation) {
+      case NEAREST -> 1;
+      case LINEAR -> 2;
+      case HERMITE4 -> 4;
+      case SINC -> 16;
+    };
+  }
+
+  /**
+   * Set the sample rate, used to convert times to frames.
+   *
+   * @param newSampleRate The sample rate
+   */
+
+  public void setSampleRate(
+    final long newSampleRate)
+  {
+    if (newSampleRate == this.sampleRate) {
+      return;
+    }
+    this.sampleRate = newSampleRate;
+    this.envelope.setSampleRate(newSampleRate);
+    this.configureGates();
+  }
+
+  /**
+   * Set the time over which released voices fade out. A time of zero stops
+   * released voices immediately.
+   *
+   * @param milliseconds The release time in milliseconds
+   */
+
+  public void setRelease(
+    final double milliseconds)
+  {
+    this.envelope.setReleaseLinear(milliseconds);
+  }
+
+  /**
+   * Set the silence threshold and hold time. A threshold of zero disables
+   * the early stopping of silent voices.
+   *
+   * @param threshold    The linear amplitude below which voices are silent
+   * @param milliseconds The hold time in milliseconds
+   */
+
+  public void setSilence(
+    final double threshold,
+    final double milliseconds)
+  {
+    this.silenceThreshold = threshold;
+    this.silenceHold = milliseconds;
+    this.configureGates();
+  }
+
+  private void configureGates()
+  {
+    final var holdFrames =
+      Math.round((this.silenceHold / 1000.0) * (double) this.sampleRate);
+    for (final var gate : this.gates) {
+      gate.configure(this.silenceThreshold, holdFrames);
+    }
+  }
+
+  /**
+   * Set the interpolation used by all voices.
+   *
+   * @param newInterpolation The interpolation
+   */
+
+  public void setInterpolation(
+    final ARRS1Interpolation newInterpolation)
+  {
+    this.interpolation =
+      Objects.requireNonNull(newInterpolation, "interpolation");
+  }
+
+  /**
+   * Set the playback rate scale (typically derived from the current pitch
+   * bend) applied to all voices. The phase increment of every active voice
+   * is recalculated here, rather than on every block.
+   *
+   * @param newRateScale The rate scale
+   */
+
+  public void setRateScale(
+    final double newRateScale)
+  {
+    this.rateScale = newRateScale;
+    for (int index = 0; index < this.activeCount; ++index) {
+      this.setIncrement(
+        index, ARRS1Phase.ofFrames(this.rates[index] * newRateScale));
+    }
+  }
+
+  private void setIncrement(
+    final int index,
+    final long increment)
+  {
+    final var level =
+      Math.min(
+        ARRS1Phase.octaves(increment),
+        this.samples[index].mipmapLevels() - 1
+      );
+
+    this.increments[index] = increment;
+    this.levels[index] = level;
+    this.sources[index].level = level;
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The mipmap level read by the active voice at the given index
+   */
+
+  public int level(
+    final int index)
+  {
+    return this.levels[index];
+  }
+
+  @Override
+  public int activeCount()
+  {
+    return this.activeCount;
+  }
+
+  @Override
+  public int note(
+    final int index)
+  {
+    return this.notes[index];
+  }
+
+  @Override
+  public long serial(
+    final int index)
+  {
+    return this.serials[index];
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The gain of the active voice at the given index
+   */
+
+  public double gain(
+    final int index)
+  {
+    return this.gains[index];
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The loudness of the active voice at the given index, which is
+   * the peak level of the last block it rendered multiplied by its gain, or
+   * just its gain if it has not yet rendered a block
+   */
+
+  @Override
+  public double loudness(
+    final int index)
+  {
+    return this.peaks[index] * this.gains[index];
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return {@code true} if the active voice at the given index has been
+   * released
+   */
+
+  public boolean isReleasing(
+    final int index)
+  {
+    return this.envelopes[index].isReleasing();
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The 32.32 fixed-point playback phase of the active voice at the
+   * given index
+   */
+
+  public long phase(
+    final int index)
+  {
+    return this.phases[index];
+  }
+
+  /**
+   * Start playing a sample for the given note, stealing a voice if
+   * necessary.
+   *
+   * @param note     The note
+   * @param stealing The voice stealing policy
+   * @param sample   The sample map entry
+   * @param velocity The velocity
+   *
+   * @return The index of the started voice
+   */
+
+  public int start(
+    final int note,
+    final ARI1VoiceStealing stealing,
+    final ARI1SampleMapEntryType sample,
+    final double velocity)
+  {
+    Objects.requireNonNull(sample, "sample");
+
+    final var index = stealing.select(this, note);
+    if (index == this.activeCount) {
+      ++this.activeCount;
+    }
+
+    this.samples[index] = sample;
+    this.sources[index].entry = sample;
+    this.rates[index] = sample.playbackRate();
+    this.setIncrement(
+      index, ARRS1Phase.ofFrames(sample.playbackRate() * this.rateScale));
+    this.phases[index] = 0L;
+    this.phaseEnds[index] = ARRS1Phase.ofFrame(sample.frames());
+    this.channels[index] = Math.min(2, sample.channels());
+    this.gains[index] = velocity;
+    this.peaks[index] = 1.0;
+    this.notes[index] = note;
+    this.serials[index] = ++this.serial;
+    this.envelopes[index].reset();
+    this.gates[index].reset();
+    return index;
+  }
+
+  /**
+   * Release all voices playing the given note. Released voices fade out
+   * over the release envelope and are then stopped.
+   *
+   * @param note The note
+   */
+
+  public void releaseNote(
+    final int note)
+  {
+    final var immediate = this.envelope.release().endFrames() == 0L;
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      if (this.notes[index] == note) {
+        if (immediate) {
+          this.stop(index);
+        } else {
+          this.envelopes[index].beginRelease();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stop all voices playing the given note immediately.
+   *
+   * @param note The note
+   */
+
+  public void stopNote(
+    final int note)
+  {
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      if (this.notes[index] == note) {
+        this.stop(index);
+      }
+    }
+  }
+
+  /**
+   * Stop the active voice at the given index. The last active voice is
+   * moved into the vacated index.
+   *
+   * @param index The index in the range {@code [0, activeCount())}
+   */
+
+  public void stop(
+    final int index)
+  {
+    final var last = --this.activeCount;
+    this.samples[index] = this.samples[last];
+    this.sources[index].entry = this.samples[last];
+    this.phases[index] = this.phases[last];
+    this.phaseEnds[index] = this.phaseEnds[last];
+    this.increments[index] = this.increments[last];
+    this.levels[index] = this.levels[last];
+    this.sources[index].level = this.levels[last];
+    this.rates[index] = this.rates[last];
+    this.gains[index] = this.gains[last];
+    this.peaks[index] = this.peaks[last];
+    this.channels[index] = this.channels[last];
+    this.notes[index] = this.notes[last];
+    this.serials[index] = this.serials[last];
+
+    /*
+     * The envelopes and gates hold per-voice state, and so are swapped
+     * rather than copied; the stopped voice's objects are reset when the
+     * slot is next started.
+     */
+
+    final var envelopeStopped = this.envelopes[index];
+    this.envelopes[index] = this.envelopes[last];
+    this.envelopes[last] = envelopeStopped;
+    final var gateStopped = this.gates[index];
+    this.gates[index] = this.gates[last];
+    this.gates[last] = gateStopped;
+
+    this.samples[last] = null;
+    this.sources[last].entry = null;
+  }
+
+  /**
+   * Render all active voices, adding their output to the given
+   * accumulators. Voices that reach the end of their samples, the end of
+   * their release envelopes, or that have fallen silent, are stopped.
+   *
+   * @param outputL The left accumulator
+   * @param outputR The right accumulator
+   * @param offset  The offset of the first frame in the accumulators
+   * @param count   The number of frames
+   */
+
+  public void render(
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(offset, count, outputL.length);
+    Objects.checkFromIndexSize(offset, count, outputR.length);
+
+    var done = 0;
+    while (done < count) {
+      final var block = Math.min(BLOCK_SIZE, count - done);
+      this.renderBlock(outputL, outputR, offset + done, block);
+      done += block;
+    }
+  }
+
+  private void renderBlock(
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count)
+  {
+    final var used = this.workersFor(count);
+    if (used > 1) {
+      this.renderBlockParallel(outputL, outputR, offset, count, used);
+      return;
+    }
+
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      final var done =
+        this.renderVoice(
+          index,
+          this.scratchL,
+          this.scratchR,
+          outputL,
+          outputR,
+          offset,
+          count
+        );
+      if (done) {
+        this.stop(index);
+      }
+    }
+  }
+
+  private void renderBlockParallel(
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count,
+    final int used)
+  {
+    this.parallelTask.count = count;
+    this.workers.execute(this.parallelTask, used);
+
+    for (int worker = 0; worker < used; ++worker) {
+      final var workerL = this.workerOutputL[worker];
+      final var workerR = this.workerOutputR[worker];
+      for (int frame = 0; frame < count; ++frame) {
+        outputL[offset + frame] += workerL[frame];
+        outputR[offset + frame] += workerR[frame];
+      }
+    }
+
+    /*
+     * Voices are only stopped once every worker has finished, because
+     * stopping a voice moves another voice into its slot. Walking downwards
+     * means that any voice moved into a vacated slot has already been
+     * checked.
+     */
+
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      if (this.finished[index]) {
+        this.finished[index] = false;
+        this.stop(index);
+      }
+    }
+  }
+
+  private void renderWorker(
+    final int worker,
+    final int count,
+    final int used)
+  {
+    final var outputL = this.workerOutputL[worker];
+    final var outputR = this.workerOutputR[worker];
+    Arrays.fill(outputL, 0, count, 0.0);
+    Arrays.fill(outputR, 0, count, 0.0);
+
+    final var active = this.activeCount;
+    final var start = (worker * active) / used;
+    final var end = ((worker + 1) * active) / used;
+    for (int index = start; index < end; ++index) {
+      this.finished[index] =
+        this.renderVoice(
+          index,
+          this.workerScratchL[worker],
+          this.workerScratchR[worker],
+          outputL,
+          outputR,
+          0,
+          count
+        );
+    }
+  }
+
+  /**
+   * Render a single voice, adding it to the given outputs and advancing its
+   * phase. The voice is not stopped here.
+   *
+   * @return {@code true} if the voice has reached the end of its sample or
+   * release envelope, or has fallen silent
+   */
+
+  private boolean renderVoice(
+    final int index,
+    final double[] scratchL,
+    final double[] scratchR,
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count)
+  {
+    final var interp = this.interpolation;
+    final var source = this.sources[index];
+    final var phase = this.phases[index];
+    final var increment = this.increments[index];
+    final var gain = this.gains[index];
+
+    /*
+     * Phases are always held in frames of the sample itself; a voice
+     * reading mipmap level n scales its phase and increment down by 2^n
+     * for the duration of the block. Shifting 32.32 fixed-point values is
+     * exact apart from the lowest n bits of the fraction.
+     */
+
+    final var level = this.levels[index];
+    final var levelPhase = phase >> level;
+    final var levelIncrement = increment >> level;
+    final var phaseNext = phase + (increment * (long) count);
+
+    final var stereo = this.channels[index] > 1;
+    ARRS1Resampler.render(
+      interp,
+      source,
+      0,
+      levelPhase,
+      levelIncrement,
+      scratchL,
+      0,
+      count
+    );
+    if (stereo) {
+      ARRS1Resampler.render(
+        interp,
+        source,
+        1,
+        levelPhase,
+        levelIncrement,
+        scratchR,
+        0,
+        count
+      );
+    }
+
+    final var ramp = this.envelopes[index];
+    if (ramp.isReleasing()) {
+      applyEnvelope(ramp, scratchL, scratchR, stereo, count);
+    }
+
+    var peak = peakOf(scratchL, count);
+    if (stereo) {
+      peak = Math.max(peak, peakOf(scratchR, count));
+    }
+    this.peaks[index] = peak;
+
+    var silent = false;
+    if (this.silenceThreshold > 0.0) {
+      silent = this.gates[index].observeBlock(peak * gain, count);
+    }
+
+    this.mixer.mix(scratchL, gain, outputL, offset, count);
+    if (stereo) {
+      this.mixer.mix(scratchR, gain, outputR, offset, count);
+    }
+
+    if (phaseNext >= this.phaseEnds[index] || silent || ramp.isFinished()) {
+      return true;
+    }
+    this.phases[index] = phaseNext;
+    return false;
+  }
+
+  private static void applyEnvelope(
+    final AREnvelopeADRRamp ramp,
+    final double[] scratchL,
+    final double[] scratchR,
+    final boolean stereo,
+    final int count)
+  {
+    if (stereo) {
+      for (int frame = 0; frame < count; ++frame) {
+        final var amplitude = ramp.next();
+        scratchL[frame] *= amplitude;
+        scratchR[frame] *= amplitude;
+      }
+    } else {
+      for (int frame = 0; frame < count; ++frame) {
+        scratchL[frame] *= ramp.next();
+      }
+    }
+  }
+
+  private static double peakOf(
+    final double[] scratch,
+    final int count)
+  {
+    var peak = 0.0;
+    for (int frame = 0; frame < count; ++frame) {
+      peak = Math.max(peak, Math.abs(scratch[frame]));
+    }
+    return peak;
+  }
+
+  private final class ParallelTask implements ARI1WorkerTaskType
+  {
+    private int count;
+
+    ParallelTask()
+    {
+
+    }
+
+    @Override
+    public void execute(
+      final int worker,
+      final int workerCount)
+    {
+      ARIP0VoiceEngine.this.renderWorker(worker, this.count, workerCount);
+    }
+  }
+
+  private static final class EntrySource implements ARRS1SourceType
+  {
+    private ARI1SampleMapEntryType entry;
+    private int level;
+
+    EntrySource()
+    {
+
+    }
+
+    @Override
+    public long frames()
+    {
+      return this.entry.frames() >> this.level;
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (this.level == 0) {
+        return this.entry.sample(channel, frameIndex);
+      }
+      return this.entry.sampleAtLevel(this.level, channel, frameIndex);
+    }
+  }
+}
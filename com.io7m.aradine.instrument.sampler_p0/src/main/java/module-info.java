@@ -26,11 +26,18 @@ module com.io7m.aradine.instrument.sampler_p0
   requires static org.osgi.annotation.bundle;
   requires static org.osgi.annotation.versioning;
   requires static org.osgi.service.component.annotations;
+  requires static jdk.incubator.vector;
 
+  requires com.io7m.aradine.envelope.table1;
+  requires com.io7m.aradine.instrument.jfr1;
   requires com.io7m.aradine.instrument.spi1;
+  requires com.io7m.aradine.resampler1;
 
   provides ARI1InstrumentFactoryType
     with ARIP0SamplerFactory;
 
   exports com.io7m.aradine.instrument.sampler_p0;
+
+  exports com.io7m.aradine.instrument.sampler_p0.internal
+    to com.io7m.aradine.tests;
 }
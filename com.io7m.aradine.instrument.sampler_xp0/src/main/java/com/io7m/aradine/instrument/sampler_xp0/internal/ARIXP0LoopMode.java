@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.sampler_xp0.internal;
+
+/**
+ * The manner in which the looped region of a sample is played.
+ */
+
+public enum ARIXP0LoopMode
+{
+  /**
+   * Play the loop forwards and then backwards, repeatedly.
+   */
+
+  PING_PONG,
+
+  /**
+   * Play the loop forwards, jumping back to the loop point at the end of the
+   * sample. The end of the loop is crossfaded with the frames preceding the
+   * loop point so that the jump is inaudible.
+   */
+
+  FORWARD_CROSSFADE;
+
+  private static final ARIXP0LoopMode[] VALUES = values();
+
+  /**
+   * Determine the loop mode for the given parameter value.
+   *
+   * @param value The parameter value
+   *
+   * @return The loop mode
+   */
+
+  public static ARIXP0LoopMode ofParameter(
+    final long value)
+  {
+    final var index = (int) Math.min(Math.max(0L, value), VALUES.length - 1);
+    return VALUES[index];
+  }
+}
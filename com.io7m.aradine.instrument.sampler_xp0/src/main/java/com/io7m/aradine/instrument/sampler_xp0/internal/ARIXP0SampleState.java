@@ -16,67 +16,195 @@
 
 package com.io7m.aradine.instrument.sampler_xp0.internal;
 
-import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.envelope.table1.AREnvelopeADRRamp;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.instrument.spi1.ARI1SilenceGate;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
 
 import java.util.Objects;
 
 /**
- * The playback state of a sample.
+ * The playback state of a sample. Instances are reused by a voice pool, and
+ * are (re)initialized with {@link #start(ARI1SampleMapEntryType, double)}.
+ * Samples played more than an octave above their own pitch are read from
+ * the sample's mipmaps, if it has any. Released voices fade out over a
+ * release envelope. Once a voice has reached the silence threshold, it is
+ * considered finished when its output stays below the threshold for the
+ * hold time, whether or not it has been released. The looped region of the
+ * sample is played according to an {@link ARIXP0LoopMode}.
  */
 
 public final class ARIXP0SampleState
 {
-  private final ARI1SampleMapEntryType sample;
-  private final double velocity;
-  private final double frameLast;
+  private static final int ENVELOPE_INTERVAL = 32;
+  private static final int BLOCK_SIZE = 128;
+
+  private final EntrySource source;
+  private final AREnvelopeADR envelope;
+  private final AREnvelopeADRRamp envelopeRamp;
+  private final ARI1SilenceGate silenceGate;
+  private final double[] blockL;
+  private final double[] blockR;
+  private final double[] fadeL;
+  private final double[] fadeR;
+  private boolean silent;
+  private double peakLast;
+  private ARI1SampleMapEntryType sample;
+  private ARRS1Interpolation interpolation;
+  private double velocity;
+  private long phaseLast;
   private double loopPoint;
+  private double loopCrossfade;
+  private ARIXP0LoopMode loopMode;
   private State state;
-  private double frameLoop;
-  private double positionReal;
-  private long position;
-  private int pitchBendRange;
+  private long phaseLoop;
+  private long phaseFade;
+  private long phase;
+  private long increment;
+  private double incrementRateScale;
+  private int note;
+  private long serial;
+
+  /**
+   * The playback state of a sample. The state must be started with
+   * {@link #start(ARI1SampleMapEntryType, double)} before being evaluated.
+   *
+   * @param inEnvelope The release envelope, shared between voices
+   */
+
+  ARIXP0SampleState(
+    final AREnvelopeADR inEnvelope)
+  {
+    this.envelope = Objects.requireNonNull(inEnvelope, "envelope");
+    this.envelopeRamp = new AREnvelopeADRRamp(inEnvelope, ENVELOPE_INTERVAL);
+    this.silenceGate = new ARI1SilenceGate();
+    this.silent = false;
+    this.blockL = new double[BLOCK_SIZE];
+    this.blockR = new double[BLOCK_SIZE];
+    this.fadeL = new double[BLOCK_SIZE];
+    this.fadeR = new double[BLOCK_SIZE];
+    this.source = new EntrySource();
+    this.interpolation = ARRS1Interpolation.HERMITE4;
+    this.note = -1;
+    this.state = State.PRE_LOOP;
+    this.loopPoint = 0.9;
+    this.loopCrossfade = 0.1;
+    this.loopMode = ARIXP0LoopMode.PING_PONG;
+  }
+
+  /**
+   * The playback state of a sample. The voice stops immediately when
+   * released.
+   *
+   * @param inSample   The sample map entry
+   * @param inVelocity The velocity
+   */
+
+  public ARIXP0SampleState(
+    final ARI1SampleMapEntryType inSample,
+    final double inVelocity)
+  {
+    this(inSample, inVelocity, AREnvelopeADR.createRelease(48000L, 0.0));
+  }
 
   /**
    * The playback state of a sample.
    *
    * @param inSample   The sample map entry
    * @param inVelocity The velocity
+   * @param inEnvelope The release envelope
    */
 
   public ARIXP0SampleState(
+    final ARI1SampleMapEntryType inSample,
+    final double inVelocity,
+    final AREnvelopeADR inEnvelope)
+  {
+    this(inEnvelope);
+    this.start(inSample, inVelocity);
+  }
+
+  /**
+   * Start playing the given sample from the beginning. The loop point is
+   * retained.
+   *
+   * @param inSample   The sample map entry
+   * @param inVelocity The velocity
+   */
+
+  public void start(
     final ARI1SampleMapEntryType inSample,
     final double inVelocity)
   {
     this.sample = Objects.requireNonNull(inSample, "sample");
-    this.position = 0L;
-    this.positionReal = 0.0;
+    this.source.entry = inSample;
+    this.phase = 0L;
+    this.incrementRateScale = Double.NaN;
     this.velocity = inVelocity;
-    this.frameLast = (double) this.sample.frames() - 1.0;
+    this.phaseLast =
+      ARRS1Phase.ofFrame(Math.max(0L, this.sample.frames() - 1L));
     this.state = State.PRE_LOOP;
-    this.setPitchBendRange(24);
-    this.setLoopPoint(0.9);
+    this.setLoopPoint(this.loopPoint);
+    this.envelopeRamp.reset();
+    this.silenceGate.reset();
+    this.silent = false;
+    this.peakLast = 1.0;
   }
 
   /**
-   * Set the pitch bend range.
+   * Configure the silence gate of the voice.
    *
-   * @param newSemitones The semitones range
+   * @param threshold  The linear amplitude below which the voice is silent
+   * @param holdFrames The number of frames for which the voice must be
+   *                   silent before it is finished
    */
 
-  public void setPitchBendRange(
-    final int newSemitones)
+  public void setSilence(
+    final double threshold,
+    final long holdFrames)
   {
-    this.pitchBendRange = Math.min(Math.max(1, newSemitones), 120);
+    this.silenceGate.configure(threshold, holdFrames);
   }
 
   /**
-   * @return The current pitch bend range
+   * Release the voice. The voice fades out over the release envelope, or
+   * finishes immediately if the release envelope is empty.
    */
 
-  public int pitchBendRange()
+  public void release()
   {
-    return this.pitchBendRange;
+    this.envelopeRamp.beginRelease();
+  }
+
+  /**
+   * @return {@code true} if the voice has been released
+   */
+
+  public boolean isReleasing()
+  {
+    return this.envelopeRamp.isReleasing();
+  }
+
+  /**
+   * @return {@code true} if the voice has reached the end of its release
+   * envelope, or has fallen silent
+   */
+
+  public boolean isFinished()
+  {
+    return this.silent || this.envelopeRamp.isFinished();
+  }
+
+  void setAllocation(
+    final int inNote,
+    final long inSerial)
+  {
+    this.note = inNote;
+    this.serial = inSerial;
   }
 
   /**
@@ -89,56 +217,380 @@ public final class ARIXP0SampleState
     final double newLoopPoint)
   {
     this.loopPoint = Math.max(Math.min(1.0, newLoopPoint), 0.0);
-    this.frameLoop = this.frameLast * this.loopPoint;
+    this.phaseLoop =
+      ARRS1Phase.ofFrames(ARRS1Phase.toFrames(this.phaseLast) * this.loopPoint);
+
+    /*
+     * The crossfade reads the frames that precede the loop point, so it
+     * can be no longer than the part of the sample before the loop.
+     */
+
+    final var length = this.phaseLast - this.phaseLoop;
+    final var fade =
+      Math.min((long) ((double) length * this.loopCrossfade), this.phaseLoop);
+    this.phaseFade = this.phaseLast - Math.max(0L, fade);
+  }
+
+  /**
+   * Set the loop mode.
+   *
+   * @param newLoopMode The loop mode
+   */
+
+  public void setLoopMode(
+    final ARIXP0LoopMode newLoopMode)
+  {
+    this.loopMode = Objects.requireNonNull(newLoopMode, "loopMode");
+    if (newLoopMode == ARIXP0LoopMode.FORWARD_CROSSFADE
+      && this.state == State.LOOP_BACKWARD) {
+      this.state = State.LOOP_FORWARD;
+    }
+  }
+
+  /**
+   * Set the length of the crossfade used by
+   * {@link ARIXP0LoopMode#FORWARD_CROSSFADE}.
+   *
+   * @param newCrossfade The crossfade length as a fraction of the loop length
+   */
+
+  public void setLoopCrossfade(
+    final double newCrossfade)
+  {
+    this.loopCrossfade = Math.max(Math.min(1.0, newCrossfade), 0.0);
+    this.setLoopPoint(this.loopPoint);
+  }
+
+  /**
+   * Set the interpolation used to read the sample at fractional positions.
+   *
+   * @param newInterpolation The interpolation
+   */
+
+  public void setInterpolation(
+    final ARRS1Interpolation newInterpolation)
+  {
+    this.interpolation =
+      Objects.requireNonNull(newInterpolation, "interpolation");
   }
 
   /**
    * Evaluate the sample.
    *
-   * @param pitchBend The current pitch bend value
+   * @param rateScale The playback rate scale derived from the current pitch
+   *                  bend value
    * @param frame     The output frame
    */
 
   public void evaluate(
-    final double pitchBend,
+    final double rateScale,
     final double[] frame)
   {
-    this.sample.evaluate(this.position, this.velocity, frame);
+    final var delta = this.incrementFor(rateScale);
+    this.renderFrames(delta, 1);
+    frame[0] = this.blockL[0];
+    frame[1] = this.blockR[0];
+
+    var peak = 0.0;
+    if (this.envelopeRamp.isReleasing()) {
+      final var amplitude = this.envelopeRamp.next();
+      for (int channel = 0; channel < frame.length; ++channel) {
+        frame[channel] *= amplitude;
+        peak = Math.max(peak, Math.abs(frame[channel]));
+      }
+    } else {
+      for (int channel = 0; channel < frame.length; ++channel) {
+        peak = Math.max(peak, Math.abs(frame[channel]));
+      }
+    }
+    this.peakLast = peak;
+    this.silent = this.silenceGate.observe(peak * this.velocity);
+  }
 
-    final double rateScale =
-      ARI1PitchBend.pitchBendToPlaybackRate(pitchBend, this.pitchBendRange());
+  /**
+   * Render a span of frames, mixing the velocity-scaled output of the voice
+   * into the given buffers. The span is rendered in blocks, and rendering
+   * stops at the end of the block in which the voice finishes.
+   *
+   * @param rateScale The playback rate scale derived from the current pitch
+   *                  bend value
+   * @param outputL   The left output buffer
+   * @param outputR   The right output buffer
+   * @param offset    The index of the first frame of the span
+   * @param count     The number of frames in the span
+   *
+   * @return The number of frames rendered
+   */
+
+  public int render(
+    final double rateScale,
+    final double[] outputL,
+    final double[] outputR,
+    final int offset,
+    final int count)
+  {
+    final var delta = this.incrementFor(rateScale);
 
-    final var delta =
-      this.sample.playbackRate() * rateScale;
+    var done = 0;
+    while (done < count) {
+      final var frames = Math.min(count - done, BLOCK_SIZE);
+      this.renderFrames(delta, frames);
 
-    this.positionReal =
-      switch (this.state) {
-        case PRE_LOOP -> {
-          final double x = this.positionReal + delta;
-          if (x >= this.frameLoop) {
-            this.state = State.LOOP_FORWARD;
-          }
-          yield x;
+      if (this.envelopeRamp.isReleasing()) {
+        for (int index = 0; index < frames; ++index) {
+          final var amplitude = this.envelopeRamp.next();
+          this.blockL[index] *= amplitude;
+          this.blockR[index] *= amplitude;
         }
-        case LOOP_FORWARD -> {
-          final double x = this.positionReal + delta;
-          if (x > this.frameLast) {
-            this.state = State.LOOP_BACKWARD;
-            yield this.frameLast;
-          }
-          yield x;
+      }
+
+      var peak = 0.0;
+      for (int index = 0; index < frames; ++index) {
+        peak = Math.max(peak, Math.abs(this.blockL[index]));
+        peak = Math.max(peak, Math.abs(this.blockR[index]));
+      }
+      this.peakLast = peak;
+      this.silent =
+        this.silenceGate.observeBlock(peak * this.velocity, frames);
+
+      final var base = offset + done;
+      for (int index = 0; index < frames; ++index) {
+        outputL[base + index] += this.blockL[index] * this.velocity;
+        outputR[base + index] += this.blockR[index] * this.velocity;
+      }
+
+      done += frames;
+      if (this.isFinished()) {
+        return done;
+      }
+    }
+    return count;
+  }
+
+  /*
+   * Render the given number of unscaled frames into the block buffers. The
+   * frames are rendered in segments that each end at the next transition of
+   * the loop state, so the state is examined once per segment rather than
+   * once per frame, and each segment is rendered by the resampler's block
+   * loops.
+   *
+   * The loop arithmetic is performed on fixed-point phases, so the loop
+   * bounds are hit exactly and playback never drifts however many times
+   * the loop is traversed.
+   */
+
+  private void renderFrames(
+    final long delta,
+    final int count)
+  {
+    var offset = 0;
+    while (offset < count) {
+      if (this.state == State.LOOP_FORWARD
+        && this.loopMode == ARIXP0LoopMode.FORWARD_CROSSFADE) {
+        this.wrapPhase();
+      }
+
+      final var segment = this.segmentFrames(delta);
+      final var frames = (int) Math.min(segment, (long) (count - offset));
+      this.renderSegment(delta, offset, frames, frames == segment);
+      offset += frames;
+    }
+  }
+
+  private long segmentFrames(
+    final long delta)
+  {
+    if (delta <= 0L) {
+      return Long.MAX_VALUE;
+    }
+
+    return switch (this.state) {
+      case PRE_LOOP ->
+        Math.max(1L, framesUntil(this.phaseLoop - this.phase, delta));
+      case LOOP_FORWARD -> {
+        if (this.loopMode == ARIXP0LoopMode.FORWARD_CROSSFADE) {
+          yield this.segmentFramesCrossfade(delta);
+        }
+        yield Math.max(1L, ((this.phaseLast - this.phase) / delta) + 1L);
+      }
+      case LOOP_BACKWARD ->
+        Math.max(1L, ((this.phase - this.phaseLoop) / delta) + 1L);
+    };
+  }
+
+  private long segmentFramesCrossfade(
+    final long delta)
+  {
+    if (this.phaseLast - this.phaseLoop <= 0L) {
+      return Long.MAX_VALUE;
+    }
+    if (this.phase < this.phaseFade) {
+      return framesUntil(this.phaseFade - this.phase, delta);
+    }
+    return framesUntil(this.phaseLast - this.phase, delta);
+  }
+
+  private static long framesUntil(
+    final long distance,
+    final long delta)
+  {
+    if (distance <= 0L) {
+      return 0L;
+    }
+    return (distance + delta - 1L) / delta;
+  }
+
+  private void renderSegment(
+    final long delta,
+    final int offset,
+    final int frames,
+    final boolean complete)
+  {
+    switch (this.state) {
+      case PRE_LOOP -> {
+        this.resample(
+          this.blockL, this.blockR, this.phase, delta, offset, frames);
+        this.phase += delta * (long) frames;
+        if (complete) {
+          this.state = State.LOOP_FORWARD;
         }
-        case LOOP_BACKWARD -> {
-          final double x = this.positionReal - delta;
-          if (x < this.frameLoop) {
-            this.state = State.LOOP_FORWARD;
-            yield this.frameLoop;
-          }
-          yield x;
+      }
+      case LOOP_FORWARD -> {
+        if (this.loopMode == ARIXP0LoopMode.FORWARD_CROSSFADE) {
+          this.renderSegmentCrossfade(delta, offset, frames);
+          return;
         }
-      };
+        this.resample(
+          this.blockL, this.blockR, this.phase, delta, offset, frames);
+        if (complete) {
+          this.phase = this.phaseLast;
+          this.state = State.LOOP_BACKWARD;
+        } else {
+          this.phase += delta * (long) frames;
+        }
+      }
+      case LOOP_BACKWARD -> {
+        this.resample(
+          this.blockL, this.blockR, this.phase, -delta, offset, frames);
+        if (complete) {
+          this.phase = this.phaseLoop;
+          this.state = State.LOOP_FORWARD;
+        } else {
+          this.phase -= delta * (long) frames;
+        }
+      }
+    }
+  }
+
+  private void renderSegmentCrossfade(
+    final long delta,
+    final int offset,
+    final int frames)
+  {
+    final var length = this.phaseLast - this.phaseLoop;
+    if (length <= 0L) {
+      this.phase = this.phaseLast;
+      this.resample(
+        this.blockL, this.blockR, this.phase, 0L, offset, frames);
+      return;
+    }
+
+    this.resample(
+      this.blockL, this.blockR, this.phase, delta, offset, frames);
+
+    /*
+     * Segments never straddle the start of the crossfade, so a segment
+     * that starts inside the crossfade lies entirely within it. The frames
+     * that precede the loop point are faded in linearly, reaching full
+     * strength exactly where playback jumps back to the loop point.
+     */
+
+    if (this.phase >= this.phaseFade) {
+      this.resample(
+        this.fadeL, this.fadeR, this.phase - length, delta, offset, frames);
+
+      final var fadeLength = (double) (this.phaseLast - this.phaseFade);
+      final var t0 = (double) (this.phase - this.phaseFade) / fadeLength;
+      final var dt = (double) delta / fadeLength;
+      final var end = offset + frames;
+      for (int index = offset; index < end; ++index) {
+        final var t = t0 + ((double) (index - offset) * dt);
+        final var l = this.blockL[index];
+        final var r = this.blockR[index];
+        this.blockL[index] = l + (t * (this.fadeL[index] - l));
+        this.blockR[index] = r + (t * (this.fadeR[index] - r));
+      }
+    }
+
+    this.phase += delta * (long) frames;
+    this.wrapPhase();
+  }
+
+  private void wrapPhase()
+  {
+    final var length = this.phaseLast - this.phaseLoop;
+    if (length > 0L && this.phase >= this.phaseLast) {
+      this.phase = this.phaseLoop + ((this.phase - this.phaseLoop) % length);
+    }
+  }
 
-    this.position = Math.round(this.positionReal);
+  /*
+   * Phases are always held in frames of the sample itself; reading mipmap
+   * level n scales the phase and increment down by 2^n for the duration of
+   * the segment.
+   */
+
+  private void resample(
+    final double[] outputL,
+    final double[] outputR,
+    final long phaseStart,
+    final long phaseIncrement,
+    final int offset,
+    final int frames)
+  {
+    final var level = this.source.level;
+    final var levelPhase = phaseStart >> level;
+    final var levelIncrement = phaseIncrement >> level;
+
+    ARRS1Resampler.render(
+      this.interpolation,
+      this.source,
+      0,
+      levelPhase,
+      levelIncrement,
+      outputL,
+      offset,
+      frames
+    );
+    ARRS1Resampler.render(
+      this.interpolation,
+      this.source,
+      1,
+      levelPhase,
+      levelIncrement,
+      outputR,
+      offset,
+      frames
+    );
+  }
+
+  private long incrementFor(
+    final double rateScale)
+  {
+    if (rateScale != this.incrementRateScale) {
+      this.increment =
+        ARRS1Phase.ofFrames(this.sample.playbackRate() * rateScale);
+      this.incrementRateScale = rateScale;
+      this.source.level =
+        Math.max(
+          0,
+          Math.min(
+            ARRS1Phase.octaves(this.increment),
+            this.sample.mipmapLevels() - 1
+          )
+        );
+    }
+    return this.increment;
   }
 
   /**
@@ -151,21 +603,61 @@ public final class ARIXP0SampleState
   }
 
   /**
-   * @return The most recent playback position
+   * @return The current loudness of the voice, used when choosing a voice
+   * to steal: the peak level of the last block the voice rendered
+   * multiplied by its velocity, or just its velocity if it has not yet
+   * rendered anything
+   */
+
+  public double loudness()
+  {
+    return this.peakLast * this.velocity;
+  }
+
+  /**
+   * @return The note to which the voice is allocated
+   */
+
+  public int note()
+  {
+    return this.note;
+  }
+
+  /**
+   * @return The allocation serial number; voices with lower numbers were
+   * started earlier
+   */
+
+  public long serial()
+  {
+    return this.serial;
+  }
+
+  /**
+   * @return The frame nearest to the current playback position
    */
 
   public long position()
   {
-    return this.position;
+    return ARRS1Phase.nearest(this.phase);
   }
 
   /**
-   * @return The most recent playback position
+   * @return The current playback position in frames
    */
 
   public double positionReal()
   {
-    return this.positionReal;
+    return ARRS1Phase.toFrames(this.phase);
+  }
+
+  /**
+   * @return The current playback position as a 32.32 fixed-point phase
+   */
+
+  public long phase()
+  {
+    return this.phase;
   }
 
   private enum State
@@ -174,4 +666,32 @@ public final class ARIXP0SampleState
     LOOP_FORWARD,
     LOOP_BACKWARD
   }
+
+  private static final class EntrySource implements ARRS1SourceType
+  {
+    private ARI1SampleMapEntryType entry;
+    private int level;
+
+    EntrySource()
+    {
+
+    }
+
+    @Override
+    public long frames()
+    {
+      return this.entry.frames() >> this.level;
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (this.level == 0) {
+        return this.entry.sample(channel, frameIndex);
+      }
+      return this.entry.sampleAtLevel(this.level, channel, frameIndex);
+    }
+  }
 }
@@ -16,6 +16,9 @@
 
 package com.io7m.aradine.instrument.sampler_xp0.internal;
 
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOff;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOn;
 import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
 import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationParameterChanged;
@@ -25,11 +28,14 @@ import com.io7m.aradine.instrument.spi1.ARI1EventNoteOff;
 import com.io7m.aradine.instrument.spi1.ARI1EventNoteOn;
 import com.io7m.aradine.instrument.spi1.ARI1EventNotePitchBend;
 import com.io7m.aradine.instrument.spi1.ARI1EventNoteType;
-import com.io7m.aradine.instrument.spi1.ARI1InstrumentServiceImplementationObjectsType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentServicesType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
-import com.io7m.aradine.instrument.spi1.ARI1IntMapMutableType;
+import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1SilenceGate;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceStealing;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
 
+import java.util.Arrays;
 import java.util.Objects;
 
 /**
@@ -39,25 +45,32 @@ import java.util.Objects;
 public final class ARIXP0Sampler
   implements ARI1InstrumentType
 {
-  private final ARI1IntMapMutableType<ARIXP0SampleState> samplesPlaying;
+  private final ARIXP0VoicePool voices;
+  private final AREnvelopeADR envelope;
   private final Parameters parameters;
   private final Ports ports;
-  private final double[] frameSum;
   private final ARI1EventBufferType<ARI1EventConfigurationType> eventBuffer;
-  private final double[] frame;
+  private double[] mixL;
+  private double[] mixR;
   private double pitchBend;
+  private int pitchBendRange;
+  private double pitchBendRate;
+  private ARI1VoiceStealing voiceStealing;
+  private ARRS1Interpolation interpolation;
+  private ARIXP0LoopMode loopMode;
+  private long sampleRate;
 
   /**
    * A polyphonic sampler.
    *
-   * @param inObjects     A supplier of objects
+   * @param services      The instrument services
    * @param inEventBuffer The event buffer
    * @param inParameters  The parameters
    * @param inPorts       The ports
    */
 
   public ARIXP0Sampler(
-    final ARI1InstrumentServiceImplementationObjectsType inObjects,
+    final ARI1InstrumentServicesType services,
     final ARI1EventBufferType<ARI1EventConfigurationType> inEventBuffer,
     final Parameters inParameters,
     final Ports inPorts)
@@ -69,11 +82,36 @@ public final class ARIXP0Sampler
     this.ports =
       Objects.requireNonNull(inPorts, "ports");
 
-    this.samplesPlaying =
-      inObjects.createIntMap(128);
-
-    this.frame = new double[2];
-    this.frameSum = new double[2];
+    this.sampleRate = 48000L;
+    this.envelope =
+      AREnvelopeADR.createRelease(
+        this.sampleRate, this.parameters.release6.value(0));
+    this.voices =
+      new ARIXP0VoicePool(
+        (int) this.parameters.maxPolyphony3.valueMaximum(),
+        this.envelope
+      );
+    this.voices.setLimit(
+      (int) this.parameters.maxPolyphony3.value(0));
+    this.voiceStealing =
+      ARI1VoiceStealing.ofParameter(this.parameters.voiceStealing4.value(0));
+    this.interpolation =
+      ARRS1Interpolation.ofParameter(this.parameters.interpolation5.value(0));
+    this.loopMode =
+      ARIXP0LoopMode.ofParameter(this.parameters.loopMode9.value(0));
+
+    /*
+     * The mix buffers are sized for the current buffer size here, and are
+     * only replaced when a buffer size change makes them too small.
+     */
+
+    this.mixL = new double[services.statusCurrentBufferSize()];
+    this.mixR = new double[services.statusCurrentBufferSize()];
+
+    this.pitchBend = 0.0;
+    this.pitchBendRange = (int) this.parameters.pitchBendRange2.value(0);
+    this.updatePitchBendRate();
+    this.updateSilence(0);
   }
 
   @Override
@@ -81,34 +119,74 @@ public final class ARIXP0Sampler
     final ARI1InstrumentServicesType context)
   {
     final var frames = context.statusCurrentBufferSize();
-    for (int frameIndex = 0; frameIndex < frames; ++frameIndex) {
+    this.updateSampleRate(context.statusCurrentSampleRate());
+
+    /*
+     * Voices are rendered a span at a time, where each span ends at the
+     * next frame that has events. Events therefore still take effect at
+     * exactly the frame at which they are scheduled.
+     */
+
+    var frameIndex = 0;
+    while (frameIndex < frames) {
+      this.processEventsForFrame(context, frameIndex);
+      final var spanEnd = this.eventsNext(frameIndex + 1, frames);
+      this.renderSpan(frameIndex, spanEnd - frameIndex);
+      frameIndex = spanEnd;
+    }
 
-      final var events = this.eventBuffer.eventsTake(frameIndex);
-      for (final var event : events) {
-        this.processEventConfigurationForFrame(context, event);
-      }
+    for (int index = 0; index < frames; ++index) {
+      this.ports.outputL0.write(index, this.mixL[index]);
+      this.ports.outputR1.write(index, this.mixR[index]);
+    }
 
-      final var noteEvents = this.ports.noteInput2.eventsTake(frameIndex);
-      for (final var event : noteEvents) {
-        this.processEventNoteForFrame(context, event);
-      }
+    /*
+     * The mix buffers are cleared once they have been written rather than
+     * at the start of the next period, so that they are always clear when
+     * a buffer size change replaces them.
+     */
 
-      this.frame[0] = 0.0;
-      this.frame[1] = 0.0;
-      this.frameSum[0] = 0.0;
-      this.frameSum[1] = 0.0;
+    Arrays.fill(this.mixL, 0, frames, 0.0);
+    Arrays.fill(this.mixR, 0, frames, 0.0);
+    this.eventBuffer.eventsClear();
+  }
 
-      for (final var playing : this.samplesPlaying.values()) {
-        playing.evaluate(this.pitchBend, this.frame);
-        this.frameSum[0] += this.frame[0] * playing.velocity();
-        this.frameSum[1] += this.frame[1] * playing.velocity();
+  private void renderSpan(
+    final int offset,
+    final int count)
+  {
+    for (int index = this.voices.activeCount() - 1; index >= 0; --index) {
+      final var playing = this.voices.active(index);
+      playing.render(this.pitchBendRate, this.mixL, this.mixR, offset, count);
+      if (playing.isFinished()) {
+        this.voices.stop(index);
       }
+    }
+  }
+
+  private int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    return Math.min(
+      this.eventBuffer.eventsNext(frameIndex, frameLimit),
+      this.ports.noteInput2.eventsNext(frameIndex, frameLimit)
+    );
+  }
 
-      this.ports.outputL0.write(frameIndex, this.frameSum[0]);
-      this.ports.outputR1.write(frameIndex, this.frameSum[1]);
+  private void processEventsForFrame(
+    final ARI1InstrumentServicesType context,
+    final int frameIndex)
+  {
+    final var events = this.eventBuffer.eventsTake(frameIndex);
+    for (final var event : events) {
+      this.processEventConfigurationForFrame(context, event);
     }
 
-    this.eventBuffer.eventsClear();
+    final var noteEvents = this.ports.noteInput2.eventsTake(frameIndex);
+    for (final var event : noteEvents) {
+      this.processEventNoteForFrame(context, event);
+    }
   }
 
   private void processEventNoteForFrame(
@@ -116,11 +194,22 @@ public final class ARIXP0Sampler
     final ARI1EventNoteType event)
   {
     if (event instanceof ARI1EventNoteOn eventNoteOn) {
+      ARJ1EventNoteOn.record(
+        ARIXP0Sampler.class,
+        eventNoteOn.timeOffsetInFrames(),
+        eventNoteOn.note(),
+        eventNoteOn.velocity()
+      );
       this.processEventNoteOn(context, eventNoteOn);
       return;
     }
 
     if (event instanceof ARI1EventNoteOff eventNoteOff) {
+      ARJ1EventNoteOff.record(
+        ARIXP0Sampler.class,
+        eventNoteOff.timeOffsetInFrames(),
+        eventNoteOff.note()
+      );
       this.processEventNoteOff(eventNoteOff);
       return;
     }
@@ -138,6 +227,7 @@ public final class ARIXP0Sampler
     final ARI1EventConfigurationType event)
   {
     if (event instanceof ARI1EventConfigurationBufferSizeChanged) {
+      this.processEventBufferSizeChanged(context);
       return;
     }
 
@@ -153,6 +243,22 @@ public final class ARIXP0Sampler
     context.eventUnhandled(event);
   }
 
+  /*
+   * A buffer size change always arrives at frame 0, before anything in the
+   * period has been rendered into the mix buffers, and so the buffers can
+   * simply be replaced.
+   */
+
+  private void processEventBufferSizeChanged(
+    final ARI1InstrumentServicesType context)
+  {
+    final var frames = context.statusCurrentBufferSize();
+    if (this.mixL.length < frames) {
+      this.mixL = new double[frames];
+      this.mixR = new double[frames];
+    }
+  }
+
   private void processEventParameterChanged(
     final ARI1InstrumentServicesType context,
     final ARI1EventConfigurationParameterChanged event)
@@ -164,8 +270,8 @@ public final class ARIXP0Sampler
 
     final var loopPointId = this.parameters.loopPoint1.id();
     if (Objects.equals(id, loopPointId)) {
-      for (final var playing : this.samplesPlaying.values()) {
-        playing.setLoopPoint(
+      for (int index = 0; index < this.voices.activeCount(); ++index) {
+        this.voices.active(index).setLoopPoint(
           this.parameters.loopPoint1.value(time)
         );
       }
@@ -174,11 +280,9 @@ public final class ARIXP0Sampler
 
     final var pitchBendId = this.parameters.pitchBendRange2.id();
     if (Objects.equals(id, pitchBendId)) {
-      for (final var playing : this.samplesPlaying.values()) {
-        playing.setPitchBendRange(
-          (int) this.parameters.pitchBendRange2.value(time)
-        );
-      }
+      this.pitchBendRange =
+        (int) this.parameters.pitchBendRange2.value(time);
+      this.updatePitchBendRate();
       return;
     }
 
@@ -187,19 +291,116 @@ public final class ARIXP0Sampler
       return;
     }
 
+    final var maxPolyphonyId = this.parameters.maxPolyphony3.id();
+    if (Objects.equals(id, maxPolyphonyId)) {
+      this.voices.setLimit(
+        (int) this.parameters.maxPolyphony3.value(time)
+      );
+      return;
+    }
+
+    final var voiceStealingId = this.parameters.voiceStealing4.id();
+    if (Objects.equals(id, voiceStealingId)) {
+      this.voiceStealing =
+        ARI1VoiceStealing.ofParameter(
+          this.parameters.voiceStealing4.value(time)
+        );
+      return;
+    }
+
+    final var interpolationId = this.parameters.interpolation5.id();
+    if (Objects.equals(id, interpolationId)) {
+      this.interpolation =
+        ARRS1Interpolation.ofParameter(
+          this.parameters.interpolation5.value(time)
+        );
+      for (int index = 0; index < this.voices.activeCount(); ++index) {
+        this.voices.active(index).setInterpolation(this.interpolation);
+      }
+      return;
+    }
+
+    final var loopModeId = this.parameters.loopMode9.id();
+    if (Objects.equals(id, loopModeId)) {
+      this.loopMode =
+        ARIXP0LoopMode.ofParameter(this.parameters.loopMode9.value(time));
+      for (int index = 0; index < this.voices.activeCount(); ++index) {
+        this.voices.active(index).setLoopMode(this.loopMode);
+      }
+      return;
+    }
+
+    final var loopCrossfadeId = this.parameters.loopCrossfade10.id();
+    if (Objects.equals(id, loopCrossfadeId)) {
+      for (int index = 0; index < this.voices.activeCount(); ++index) {
+        this.voices.active(index).setLoopCrossfade(
+          this.parameters.loopCrossfade10.value(time)
+        );
+      }
+      return;
+    }
+
+    final var releaseId = this.parameters.release6.id();
+    if (Objects.equals(id, releaseId)) {
+      this.envelope.setReleaseLinear(this.parameters.release6.value(time));
+      return;
+    }
+
+    final var silenceThresholdId = this.parameters.silenceThreshold7.id();
+    final var silenceHoldId = this.parameters.silenceHold8.id();
+    if (Objects.equals(id, silenceThresholdId)
+      || Objects.equals(id, silenceHoldId)) {
+      this.updateSilence(time);
+      return;
+    }
+
     context.eventUnhandled(event);
   }
 
+  private void updateSampleRate(
+    final long newSampleRate)
+  {
+    if (newSampleRate != this.sampleRate) {
+      this.sampleRate = newSampleRate;
+      this.envelope.setSampleRate(newSampleRate);
+      this.updateSilence(0);
+    }
+  }
+
+  private void updateSilence(
+    final int time)
+  {
+    final var threshold =
+      ARI1SilenceGate.decibelsToAmplitude(
+        this.parameters.silenceThreshold7.value(time));
+    final var holdFrames =
+      Math.round(
+        (this.parameters.silenceHold8.value(time) / 1000.0)
+          * (double) this.sampleRate);
+
+    this.voices.setSilence(threshold, holdFrames);
+  }
+
   private void processEventPitchBend(
     final ARI1EventNotePitchBend eventPitchBend)
   {
     this.pitchBend = eventPitchBend.pitch();
+    this.updatePitchBendRate();
+  }
+
+  private void updatePitchBendRate()
+  {
+    this.pitchBendRate =
+      ARI1PitchBend.pitchBendToPlaybackRate(
+        this.pitchBend,
+        this.pitchBendRange
+      );
   }
 
   private void processEventNoteOff(
     final ARI1EventNoteOff eventNoteOff)
   {
-    this.samplesPlaying.remove(eventNoteOff.note());
+    this.voices.releaseNote(eventNoteOff.note());
   }
 
   private void processEventNoteOn(
@@ -210,13 +411,18 @@ public final class ARIXP0Sampler
       context.sampleMapGet(
         this.parameters.samples0.value(eventNoteOn.timeOffsetInFrames()));
 
+    final var time = eventNoteOn.timeOffsetInFrames();
     final var noteIndex = eventNoteOn.note();
-    this.samplesPlaying.put(
-      noteIndex,
-      new ARIXP0SampleState(
-        sampleMap.forNote(noteIndex),
-        eventNoteOn.velocity()
-      )
+    final var voice =
+      this.voices.voiceForNote(noteIndex, this.voiceStealing);
+
+    voice.setLoopCrossfade(this.parameters.loopCrossfade10.value(time));
+    voice.setLoopPoint(this.parameters.loopPoint1.value(time));
+    voice.setLoopMode(this.loopMode);
+    voice.setInterpolation(this.interpolation);
+    voice.start(
+      sampleMap.forNoteVelocity(noteIndex, eventNoteOn.velocity()),
+      eventNoteOn.velocity()
     );
   }
 
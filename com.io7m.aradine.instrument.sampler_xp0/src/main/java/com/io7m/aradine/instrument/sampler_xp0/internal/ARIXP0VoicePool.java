@@ -0,0 +1,261 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.sampler_xp0.internal;
+
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceSetType;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceStealing;
+
+import java.util.Objects;
+
+/**
+ * <p>A fixed-size pool of voices.</p>
+ *
+ * <p>All voices are allocated when the pool is created. Active voices are
+ * kept packed at the start of an array so that iterating over them costs
+ * nothing for unused voices, and starting, stopping, and stealing voices
+ * never allocates. Voices are chosen according to a shared
+ * {@link ARI1VoiceStealing} policy.</p>
+ */
+
+public final class ARIXP0VoicePool implements ARI1VoiceSetType
+{
+  private final ARIXP0SampleState[] active;
+  private final ARIXP0SampleState[] free;
+  private final AREnvelopeADR envelope;
+  private int activeCount;
+  private int freeCount;
+  private int limit;
+  private long serial;
+
+  /**
+   * A fixed-size pool of voices. Released voices stop immediately.
+   *
+   * @param capacity The total number of voices
+   */
+
+  public ARIXP0VoicePool(
+    final int capacity)
+  {
+    this(capacity, AREnvelopeADR.createRelease(48000L, 0.0));
+  }
+
+  /**
+   * A fixed-size pool of voices.
+   *
+   * @param capacity   The total number of voices
+   * @param inEnvelope The release envelope shared by all voices
+   */
+
+  public ARIXP0VoicePool(
+    final int capacity,
+    final AREnvelopeADR inEnvelope)
+  {
+    this.envelope = Objects.requireNonNull(inEnvelope, "envelope");
+
+    if (capacity < 1) {
+      throw new IllegalArgumentException(
+        "Capacity %d must be positive".formatted(Integer.valueOf(capacity))
+      );
+    }
+
+    this.active = new ARIXP0SampleState[capacity];
+    this.free = new ARIXP0SampleState[capacity];
+    for (int index = 0; index < capacity; ++index) {
+      this.free[index] = new ARIXP0SampleState(inEnvelope);
+    }
+    this.freeCount = capacity;
+    this.activeCount = 0;
+    this.limit = capacity;
+  }
+
+  /**
+   * @return The total number of voices
+   */
+
+  public int capacity()
+  {
+    return this.active.length;
+  }
+
+  @Override
+  public int limit()
+  {
+    return this.limit;
+  }
+
+  /**
+   * Set the maximum number of voices that may be active at once. If more
+   * voices than the new limit are active, the oldest voices are stopped.
+   *
+   * @param newLimit The new limit
+   */
+
+  public void setLimit(
+    final int newLimit)
+  {
+    this.limit = Math.min(Math.max(1, newLimit), this.active.length);
+    while (this.activeCount > this.limit) {
+      this.stop(ARI1VoiceStealing.findOldest(this));
+    }
+  }
+
+  @Override
+  public int activeCount()
+  {
+    return this.activeCount;
+  }
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The active voice at the given index
+   */
+
+  public ARIXP0SampleState active(
+    final int index)
+  {
+    return this.active[index];
+  }
+
+  @Override
+  public int note(
+    final int index)
+  {
+    return this.active[index].note();
+  }
+
+  @Override
+  public long serial(
+    final int index)
+  {
+    return this.active[index].serial();
+  }
+
+  @Override
+  public double loudness(
+    final int index)
+  {
+    return this.active[index].loudness();
+  }
+
+  /**
+   * Obtain a voice for the given note, stealing a voice if necessary. The
+   * returned voice is active, and must be (re)started by the caller.
+   *
+   * @param note     The note
+   * @param stealing The voice stealing policy
+   *
+   * @return A voice
+   */
+
+  public ARIXP0SampleState voiceForNote(
+    final int note,
+    final ARI1VoiceStealing stealing)
+  {
+    final ARIXP0SampleState voice;
+    final var index = stealing.select(this, note);
+    if (index == this.activeCount) {
+      voice = this.free[--this.freeCount];
+      this.free[this.freeCount] = null;
+      this.active[this.activeCount++] = voice;
+    } else {
+      voice = this.active[index];
+    }
+
+    voice.setAllocation(note, ++this.serial);
+    return voice;
+  }
+
+  /**
+   * Configure the silence gates of all voices, active or not.
+   *
+   * @param threshold  The linear amplitude below which voices are silent
+   * @param holdFrames The number of frames for which voices must be silent
+   *                   before they are finished
+   */
+
+  public void setSilence(
+    final double threshold,
+    final long holdFrames)
+  {
+    for (int index = 0; index < this.activeCount; ++index) {
+      this.active[index].setSilence(threshold, holdFrames);
+    }
+    for (int index = 0; index < this.freeCount; ++index) {
+      this.free[index].setSilence(threshold, holdFrames);
+    }
+  }
+
+  /**
+   * Release all voices playing the given note. If the release envelope is
+   * empty, the voices are stopped immediately.
+   *
+   * @param note The note
+   */
+
+  public void releaseNote(
+    final int note)
+  {
+    final var immediate = this.envelope.release().endFrames() == 0L;
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      final var voice = this.active[index];
+      if (voice.note() == note) {
+        if (immediate) {
+          this.stop(index);
+        } else {
+          voice.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stop all voices playing the given note.
+   *
+   * @param note The note
+   */
+
+  public void stopNote(
+    final int note)
+  {
+    for (int index = this.activeCount - 1; index >= 0; --index) {
+      if (this.active[index].note() == note) {
+        this.stop(index);
+      }
+    }
+  }
+
+  /**
+   * Stop the active voice at the given index. The last active voice is
+   * moved into the vacated index, so callers iterating over active voices
+   * should iterate in reverse order if they intend to stop voices during
+   * iteration.
+   *
+   * @param index The index in the range {@code [0, activeCount())}
+   */
+
+  public void stop(
+    final int index)
+  {
+    final var voice = this.active[index];
+    final var last = --this.activeCount;
+    this.active[index] = this.active[last];
+    this.active[last] = null;
+    this.free[this.freeCount++] = voice;
+  }
+}
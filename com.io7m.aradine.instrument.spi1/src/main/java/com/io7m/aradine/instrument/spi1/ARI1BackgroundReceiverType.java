@@ -0,0 +1,44 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+/**
+ * A receiver of the result of background work. The methods of the receiver
+ * are called on the audio thread at the start of a processing period, before
+ * the instrument processes the period, and must therefore not block.
+ *
+ * @param <T> The type of results
+ */
+
+public interface ARI1BackgroundReceiverType<T>
+{
+  /**
+   * The work completed successfully.
+   *
+   * @param result The result
+   */
+
+  void onBackgroundSucceeded(T result);
+
+  /**
+   * The work failed.
+   *
+   * @param exception The exception raised by the work
+   */
+
+  void onBackgroundFailed(Exception exception);
+}
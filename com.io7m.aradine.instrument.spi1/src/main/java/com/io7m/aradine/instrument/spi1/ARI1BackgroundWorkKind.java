@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+/**
+ * The kind of background work, used by hosts to choose where the work
+ * is executed.
+ */
+
+public enum ARI1BackgroundWorkKind
+{
+  /**
+   * The work spends most of its time waiting for I/O (such as loading
+   * samples from disk). Hosts may execute any number of such tasks
+   * concurrently.
+   */
+
+  BACKGROUND_IO,
+
+  /**
+   * The work spends most of its time computing (such as analysis or
+   * precomputing tables). Hosts execute such tasks on a bounded number of
+   * threads so that they do not compete with the audio thread for every
+   * available processor.
+   */
+
+  BACKGROUND_COMPUTE
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+
+/**
+ * <p>Methods to execute slow work (such as loading, analysis, or precomputing
+ * tables) away from the audio thread.</p>
+ *
+ * <p>Work is executed on threads managed by the host. When the work
+ * completes, the result is placed into a mailbox belonging to the instrument
+ * instance, and the host delivers the contents of the mailbox to the
+ * respective receivers at the start of the next processing period. Receivers
+ * are therefore always called on the audio thread, and instruments do not
+ * need to synchronize access to their own state.</p>
+ *
+ * <p>The default implementation executes the work immediately on the calling
+ * thread and delivers the result before returning. This preserves the
+ * guarantee that receivers are called on the audio thread, but blocks the
+ * caller for the duration of the work; hosts are expected to override it.</p>
+ */
+
+public interface ARI1InstrumentServiceBackgroundType
+{
+  /**
+   * Submit work for execution in the background. Submission allocates a
+   * small amount of memory, and so is intended to be used when responding to
+   * events such as parameter changes, and not on every frame.
+   *
+   * @param kind     The kind of work
+   * @param task     The work
+   * @param receiver The receiver of the result
+   * @param <T>      The type of results
+   *
+   * @return A handle to the submitted work
+   */
+
+  default <T> ARI1BackgroundHandleType backgroundSubmit(
+    final ARI1BackgroundWorkKind kind,
+    final Callable<T> task,
+    final ARI1BackgroundReceiverType<T> receiver)
+  {
+    Objects.requireNonNull(kind, "kind");
+    Objects.requireNonNull(task, "task");
+    Objects.requireNonNull(receiver, "receiver");
+
+    final T result;
+    try {
+      result = task.call();
+    } catch (final Exception e) {
+      receiver.onBackgroundFailed(e);
+      return ARI1BackgroundHandleCompleted.COMPLETED;
+    }
+    receiver.onBackgroundSucceeded(result);
+    return ARI1BackgroundHandleCompleted.COMPLETED;
+  }
+}
@@ -27,7 +27,8 @@ public interface ARI1InstrumentServicesType
   ARI1InstrumentServiceDeclarationsType,
   ARI1InstrumentServiceSamplesType,
   ARI1InstrumentServiceImplementationObjectsType,
-  ARI1InstrumentServiceTimeType
+  ARI1InstrumentServiceTimeType,
+  ARI1InstrumentServiceBackgroundType
 {
 
 }
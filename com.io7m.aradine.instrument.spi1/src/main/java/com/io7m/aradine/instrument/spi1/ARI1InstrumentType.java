@@ -19,11 +19,13 @@ package com.io7m.aradine.instrument.spi1;
 import org.osgi.annotation.versioning.ProviderType;
 
 /**
- * The interface implemented by instruments.
+ * The interface implemented by instruments. Hosts close an instrument when
+ * the instrument is discarded, so that instruments can release resources
+ * such as threads.
  */
 
 @ProviderType
-public interface ARI1InstrumentType
+public interface ARI1InstrumentType extends ARI1CloseableType
 {
   /**
    * Execute audio processing for one processing period.
@@ -45,4 +47,20 @@ public interface ARI1InstrumentType
   void receiveEvent(
     ARI1InstrumentServicesType context,
     ARI1EventConfigurationType event);
+
+  /**
+   * Close the instrument, releasing any resources (such as threads) that it
+   * holds. Hosts call this exactly once, after the final processing period
+   * has completed; no further methods are called on the instrument
+   * afterwards. The default implementation does nothing.
+   *
+   * @throws ARI1ClosingException On errors
+   */
+
+  @Override
+  default void close()
+    throws ARI1ClosingException
+  {
+
+  }
 }
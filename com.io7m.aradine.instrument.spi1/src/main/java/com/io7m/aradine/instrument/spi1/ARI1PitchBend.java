@@ -26,11 +26,24 @@ import com.io7m.aradine.annotations.ARNormalizedUnsigned;
 
 public final class ARI1PitchBend
 {
+  private static final int EXP2_TABLE_SIZE = 1024;
+  private static final double[] EXP2_TABLE = makeExp2Table();
+
   private ARI1PitchBend()
   {
 
   }
 
+  private static double[] makeExp2Table()
+  {
+    final var table = new double[EXP2_TABLE_SIZE + 1];
+    for (int index = 0; index <= EXP2_TABLE_SIZE; ++index) {
+      table[index] =
+        StrictMath.pow(2.0, (double) index / (double) EXP2_TABLE_SIZE);
+    }
+    return table;
+  }
+
   /**
    * Convert a signed pitch bend value to a playback rate value.
    *
@@ -49,4 +62,57 @@ public final class ARI1PitchBend
     }
     return StrictMath.pow(2.0, (semitones * bend) / 12.0);
   }
+
+  /**
+   * Convert a signed pitch bend value to a playback rate value using a
+   * table-driven approximation of {@code 2^x}. The relative error is less
+   * than {@code 1e-7}. This is intended for cases where the pitch bend value
+   * changes on every frame (such as smoothed pitch bends); where the pitch
+   * bend only changes on pitch bend events, callers should compute the rate
+   * once per event with {@link #pitchBendToPlaybackRate(double, int)}.
+   *
+   * @param bend      The signed pitch bend value
+   * @param semitones The semitone range
+   *
+   * @return The playback value
+   */
+
+  public static @ARNormalizedUnsigned double pitchBendToPlaybackRateFast(
+    final @ARNormalizedSigned double bend,
+    final int semitones)
+  {
+    if (bend == 0.0) {
+      return 1.0;
+    }
+    return exp2Fast((semitones * bend) / 12.0);
+  }
+
+  /**
+   * Compute an approximation of {@code 2^x} by linear interpolation in a
+   * table covering a single octave. The relative error is less than
+   * {@code 1e-7}. Exponents are clamped to the range {@code [-1022, 1023]}.
+   *
+   * @param x The exponent
+   *
+   * @return {@code 2^x}
+   */
+
+  public static double exp2Fast(
+    final double x)
+  {
+    final var clamped =
+      Math.min(Math.max(x, -1022.0), 1023.0);
+    final var octave =
+      Math.floor(clamped);
+    final var position =
+      (clamped - octave) * (double) EXP2_TABLE_SIZE;
+    final var index =
+      Math.min((int) position, EXP2_TABLE_SIZE - 1);
+    final var fraction =
+      position - (double) index;
+
+    final var x0 = EXP2_TABLE[index];
+    final var x1 = EXP2_TABLE[index + 1];
+    return Math.scalb(x0 + ((x1 - x0) * fraction), (int) octave);
+  }
 }
@@ -35,4 +35,29 @@ public non-sealed interface ARI1PortInputNoteType
    */
 
   List<? extends ARI1EventNoteType> eventsTake(int frameIndex);
+
+  /**
+   * Find the earliest frame index in the range {@code [frameIndex,
+   * frameLimit)} that has events. Instruments use this to split each
+   * processing period at event boundaries, so that the frames between
+   * events can be rendered in blocks while events still take effect at
+   * exactly the frames at which they are scheduled.
+   *
+   * <p>The default implementation conservatively reports {@code frameIndex},
+   * so instruments that split periods at event boundaries fall back to
+   * processing one frame at a time.
+   *
+   * @param frameIndex The first frame index to consider
+   * @param frameLimit The frame index at which to stop searching
+   *
+   * @return The earliest frame index that has events, or {@code frameLimit}
+   * if no frame in the range has events
+   */
+
+  default int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    return Math.min(frameIndex, frameLimit);
+  }
 }
@@ -56,4 +56,62 @@ public interface ARI1SampleMapEntryType
     double velocity,
     double[] output
   );
+
+  /**
+   * Retrieve a single sample of channel {@code channel} at frame index
+   * {@code frameIndex}. Implementations return {@code 0.0} for frame indices
+   * outside of the range {@code [0, frames())} and for channels outside of
+   * the range {@code [0, channels())}, and must not allocate. This is the
+   * accessor used by interpolating readers, which typically read several
+   * neighbouring frames per output sample.
+   *
+   * @param channel    The channel
+   * @param frameIndex The frame index
+   *
+   * @return The sample value
+   */
+
+  double sample(
+    int channel,
+    long frameIndex
+  );
+
+  /**
+   * Entries may hold mipmaps: copies of the sample that have been low-pass
+   * filtered and decimated by successive powers of two. Level {@code 0} is
+   * the sample itself. Voices playing the sample far above its own pitch
+   * may read from a higher level (at a proportionally lower rate) so that a
+   * short interpolation kernel does not alias.
+   *
+   * @return The number of mipmap levels, always at least {@code 1}
+   */
+
+  default int mipmapLevels()
+  {
+    return 1;
+  }
+
+  /**
+   * Retrieve a single sample of channel {@code channel} at frame index
+   * {@code frameIndex} of mipmap level {@code level}. Frame {@code i} of
+   * level {@code n} corresponds to frame {@code i * 2^n} of the sample.
+   * The same rules as {@link #sample(int, long)} apply to out-of-range
+   * channels and frame indices. The default implementation simply reads
+   * every {@code 2^n}th frame of the sample, without filtering.
+   *
+   * @param level      The mipmap level in the range
+   *                   {@code [0, mipmapLevels())}
+   * @param channel    The channel
+   * @param frameIndex The frame index within the level
+   *
+   * @return The sample value
+   */
+
+  default double sampleAtLevel(
+    final int level,
+    final int channel,
+    final long frameIndex)
+  {
+    return this.sample(channel, frameIndex << level);
+  }
 }
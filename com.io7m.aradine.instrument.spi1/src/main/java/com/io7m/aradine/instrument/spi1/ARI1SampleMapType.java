@@ -32,4 +32,25 @@ public interface ARI1SampleMapType
    */
 
   ARI1SampleMapEntryType forNote(int note);
+
+  /**
+   * Find the sample mapped to the given note and velocity. Maps that
+   * contain velocity layers select the layer for the given velocity, and
+   * maps that contain round-robin alternatives return the next alternative
+   * on each call. This method is intended to be called once per note-on
+   * event, and must not allocate. Implementations may return an empty
+   * sample if no sample is mapped to the given note.
+   *
+   * @param note     The note
+   * @param velocity The note velocity in the range {@code [0, 1]}
+   *
+   * @return The sample for the given note and velocity
+   */
+
+  default ARI1SampleMapEntryType forNoteVelocity(
+    final int note,
+    final double velocity)
+  {
+    return this.forNote(note);
+  }
 }
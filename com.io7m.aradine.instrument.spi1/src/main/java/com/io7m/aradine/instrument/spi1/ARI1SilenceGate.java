@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+/**
+ * <p>Tracks the peak output level of a voice in order to decide when the
+ * voice has become inaudible.</p>
+ *
+ * <p>Peaks are measured over consecutive windows of frames. A gate arms
+ * itself the first time a window's peak reaches the silence threshold, and
+ * counts no silence before then, so a sample with a silent start is never
+ * retired before it has been heard. Once armed, a window whose peak is below
+ * the threshold counts towards the hold time, and any window at or above the
+ * threshold resets it. Once the voice has been below the threshold for at
+ * least the hold time, the voice is considered silent and may be retired,
+ * whether or not its note is still held. A threshold of zero disables the
+ * gate entirely.</p>
+ *
+ * <p>The hold time prevents voices being retired during a brief quiet gap
+ * in a sample. Gates never allocate.</p>
+ */
+
+public final class ARI1SilenceGate
+{
+  /**
+   * The default number of frames in a window when observing frames one at
+   * a time.
+   */
+
+  public static final int WINDOW_DEFAULT = 64;
+
+  private final int window;
+  private double threshold;
+  private long holdFrames;
+  private double peak;
+  private double windowPeak;
+  private int windowFrames;
+  private long silentFrames;
+  private boolean armed;
+
+  /**
+   * Construct a gate that is initially disabled.
+   */
+
+  public ARI1SilenceGate()
+  {
+    this(WINDOW_DEFAULT);
+  }
+
+  /**
+   * Construct a gate that is initially disabled.
+   *
+   * @param inWindow The number of frames in a window when observing frames
+   *                 one at a time
+   */
+
+  public ARI1SilenceGate(
+    final int inWindow)
+  {
+    this.window = Math.max(1, inWindow);
+    this.threshold = 0.0;
+    this.holdFrames = 0L;
+    this.reset();
+  }
+
+  /**
+   * Convert a level in decibels relative to full scale to a linear
+   * amplitude.
+   *
+   * @param decibels The level in decibels
+   *
+   * @return The amplitude
+   */
+
+  public static double decibelsToAmplitude(
+    final double decibels)
+  {
+    return StrictMath.pow(10.0, decibels / 20.0);
+  }
+
+  /**
+   * Configure the gate. The current state of the gate is retained.
+   *
+   * @param newThreshold  The linear amplitude below which the voice is
+   *                      considered silent
+   * @param newHoldFrames The number of frames for which the voice must be
+   *                      below the threshold
+   */
+
+  public void configure(
+    final double newThreshold,
+    final long newHoldFrames)
+  {
+    this.threshold = Math.max(0.0, newThreshold);
+    this.holdFrames = Math.max(0L, newHoldFrames);
+  }
+
+  /**
+   * Reset and disarm the gate, typically because the voice has been
+   * (re)started.
+   */
+
+  public void reset()
+  {
+    this.peak = 0.0;
+    this.windowPeak = 0.0;
+    this.windowFrames = 0;
+    this.silentFrames = 0L;
+    this.armed = false;
+  }
+
+  /**
+   * @return {@code true} if the voice has reached the threshold since the
+   * gate was last reset
+   */
+
+  public boolean isArmed()
+  {
+    return this.armed;
+  }
+
+  /**
+   * Observe a single output frame of the voice.
+   *
+   * @param amplitude The amplitude of the frame
+   *
+   * @return {@code true} if the voice is now silent
+   */
+
+  public boolean observe(
+    final double amplitude)
+  {
+    this.windowPeak = Math.max(this.windowPeak, Math.abs(amplitude));
+    if (++this.windowFrames < this.window) {
+      return false;
+    }
+
+    final var blockPeak = this.windowPeak;
+    final var frames = this.windowFrames;
+    this.windowPeak = 0.0;
+    this.windowFrames = 0;
+    return this.observeBlock(blockPeak, frames);
+  }
+
+  /**
+   * Observe a block of output frames of the voice.
+   *
+   * @param blockPeak The largest absolute amplitude in the block
+   * @param frames    The number of frames in the block
+   *
+   * @return {@code true} if the voice is now silent
+   */
+
+  public boolean observeBlock(
+    final double blockPeak,
+    final int frames)
+  {
+    this.peak = blockPeak;
+    if (!this.armed) {
+      this.armed = blockPeak >= this.threshold;
+      return false;
+    }
+    if (blockPeak < this.threshold) {
+      this.silentFrames += frames;
+    } else {
+      this.silentFrames = 0L;
+    }
+    return this.isSilent();
+  }
+
+  /**
+   * @return The peak amplitude of the most recently completed window
+   */
+
+  public double peak()
+  {
+    return this.peak;
+  }
+
+  /**
+   * @return {@code true} if the gate is armed and the voice has been below
+   * the threshold for at least the hold time
+   */
+
+  public boolean isSilent()
+  {
+    return this.armed
+           && this.silentFrames > 0L
+           && this.silentFrames >= this.holdFrames;
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+/**
+ * A set of voices, as seen by a {@link ARI1VoiceStealing} policy. Active
+ * voices occupy the indices {@code [0, activeCount())}.
+ */
+
+public interface ARI1VoiceSetType
+{
+  /**
+   * @return The number of active voices
+   */
+
+  int activeCount();
+
+  /**
+   * @return The maximum number of voices that may be active at once
+   */
+
+  int limit();
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The note played by the active voice at the given index
+   */
+
+  int note(int index);
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The allocation serial number of the active voice at the given
+   * index; voices with lower numbers were started earlier
+   */
+
+  long serial(int index);
+
+  /**
+   * @param index The index in the range {@code [0, activeCount())}
+   *
+   * @return The loudness of the active voice at the given index
+   */
+
+  double loudness(int index);
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+/**
+ * A policy used to choose a voice when a note is started.
+ */
+
+public enum ARI1VoiceStealing
+{
+  /**
+   * When all voices are in use, steal the voice that was started first.
+   */
+
+  STEAL_OLDEST,
+
+  /**
+   * When all voices are in use, steal the quietest voice. Ties are broken
+   * by stealing the voice that was started first.
+   */
+
+  STEAL_QUIETEST,
+
+  /**
+   * Retrigger the voice already playing the same note, if any. Otherwise,
+   * behave as {@link #STEAL_OLDEST}.
+   */
+
+  STEAL_SAME_NOTE;
+
+  private static final ARI1VoiceStealing[] VALUES = values();
+
+  /**
+   * Determine the policy for the given parameter value.
+   *
+   * @param value The parameter value
+   *
+   * @return The policy
+   */
+
+  public static ARI1VoiceStealing ofParameter(
+    final long value)
+  {
+    final var index = (int) Math.min(Math.max(0L, value), VALUES.length - 1);
+    return VALUES[index];
+  }
+
+  /**
+   * Choose the voice that will play the given note. If the result is
+   * {@code voices.activeCount()}, a new voice should be activated at that
+   * index. Otherwise, the result is the index of the active voice that
+   * should be retriggered or stolen. This never allocates.
+   *
+   * @param voices The voices
+   * @param note   The note
+   *
+   * @return The index of the chosen voice
+   */
+
+  public int select(
+    final ARI1VoiceSetType voices,
+    final int note)
+  {
+    final var active = voices.activeCount();
+    if (this == STEAL_SAME_NOTE) {
+      for (int index = 0; index < active; ++index) {
+        if (voices.note(index) == note) {
+          return index;
+        }
+      }
+    }
+
+    if (active < voices.limit()) {
+      return active;
+    }
+    if (this == STEAL_QUIETEST) {
+      return findQuietest(voices);
+    }
+    return findOldest(voices);
+  }
+
+  /**
+   * @param voices The voices
+   *
+   * @return The index of the active voice that was started first
+   */
+
+  public static int findOldest(
+    final ARI1VoiceSetType voices)
+  {
+    var oldest = 0;
+    for (int index = 1; index < voices.activeCount(); ++index) {
+      if (voices.serial(index) < voices.serial(oldest)) {
+        oldest = index;
+      }
+    }
+    return oldest;
+  }
+
+  private static int findQuietest(
+    final ARI1VoiceSetType voices)
+  {
+    var quietest = 0;
+    for (int index = 1; index < voices.activeCount(); ++index) {
+      final var loudness = voices.loudness(index);
+      final var currentLoudness = voices.loudness(quietest);
+      if (loudness < currentLoudness
+        || (loudness == currentLoudness
+        && voices.serial(index) < voices.serial(quietest))) {
+        quietest = index;
+      }
+    }
+    return quietest;
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.instrument.spi1;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A fixed gang of worker threads that execute a task in parallel with the
+ * audio thread.</p>
+ *
+ * <p>The gang is created away from the audio thread. Dispatching a task
+ * from the audio thread never allocates: the task is published by writing a
+ * new generation number into the dispatch slot of each worker that the task
+ * needs, those workers are woken with {@link LockSupport#unpark(Thread)},
+ * and the audio thread executes its own share of the task before spinning
+ * until those workers have finished. Workers that the task does not need
+ * never see the task, and are left parked. Workers spin briefly before
+ * parking so that consecutive blocks do not pay the full cost of waking a
+ * thread.</p>
+ *
+ * <p>If a task fails on a worker thread, the worker records the failure and
+ * still reports completion, and the failure is rethrown on the calling
+ * thread once every worker has finished with the task.</p>
+ *
+ * <p>Gangs own threads, and so must be closed when they are no longer
+ * needed.</p>
+ */
+
+public final class ARI1WorkerGang implements ARI1CloseableType
+{
+  private static final int SPIN_LIMIT = 10_000;
+
+  private final Thread[] threads;
+  private final AtomicInteger remaining;
+  private final AtomicIntegerArray dispatched;
+  private final AtomicReference<Throwable> failure;
+  private ARI1WorkerTaskType task;
+  private int taskWorkers;
+  private int generation;
+  private volatile boolean closed;
+
+  /**
+   * Create a gang of worker threads.
+   *
+   * @param name        The name prefix of the threads
+   * @param threadCount The number of threads in addition to the audio thread
+   */
+
+  public ARI1WorkerGang(
+    final String name,
+    final int threadCount)
+  {
+    Objects.requireNonNull(name, "name");
+
+    if (threadCount < 1) {
+      throw new IllegalArgumentException(
+        "Thread count %d must be positive"
+          .formatted(Integer.valueOf(threadCount))
+      );
+    }
+
+    this.remaining = new AtomicInteger(0);
+    this.dispatched = new AtomicIntegerArray(threadCount);
+    this.failure = new AtomicReference<>();
+    this.threads = new Thread[threadCount];
+    for (int index = 0; index < threadCount; ++index) {
+      final var worker = index + 1;
+      final var thread = new Thread(() -> this.run(worker));
+      thread.setName(
+        "%s.worker-%d".formatted(name, Integer.valueOf(worker))
+      );
+      thread.setDaemon(true);
+      this.threads[index] = thread;
+    }
+    for (final var thread : this.threads) {
+      thread.start();
+    }
+  }
+
+  /**
+   * @return The number of threads in addition to the audio thread
+   */
+
+  public int threadCount()
+  {
+    return this.threads.length;
+  }
+
+  /**
+   * @return The total number of workers, including the calling thread
+   */
+
+  public int workers()
+  {
+    return this.threads.length + 1;
+  }
+
+  /**
+   * Execute a task on every worker, including the calling thread (which is
+   * always worker {@code 0}), and wait for all workers to finish.
+   *
+   * @param newTask The task
+   *
+   * @see #execute(ARI1WorkerTaskType, int)
+   */
+
+  public void execute(
+    final ARI1WorkerTaskType newTask)
+  {
+    this.execute(newTask, this.workers());
+  }
+
+  /**
+   * Execute a task on the first {@code count} workers, including the calling
+   * thread (which is always worker {@code 0}), and wait for those workers to
+   * finish. Only the threads that the task needs are woken. The count is
+   * clamped to {@code [1, workers()]}. If the task fails on any worker,
+   * the failure is rethrown once every worker has finished. A failure on
+   * the calling thread takes precedence over a failure on another worker,
+   * which is then added to it as a suppressed exception.
+   *
+   * @param newTask The task
+   * @param count   The number of workers, including the calling thread
+   */
+
+  public void execute(
+    final ARI1WorkerTaskType newTask,
+    final int count)
+  {
+    Objects.requireNonNull(newTask, "newTask");
+
+    final var used = Math.max(1, Math.min(count, this.workers()));
+    if (this.closed || used == 1) {
+      newTask.execute(0, 1);
+      return;
+    }
+
+    /*
+     * The task is published by the volatile writes to the dispatch slots,
+     * and cannot be replaced until every worker given the task has
+     * finished with it.
+     */
+
+    this.task = newTask;
+    this.taskWorkers = used;
+    this.generation = this.generation + 1;
+    this.remaining.set(used - 1);
+
+    for (int index = 0; index < used - 1; ++index) {
+      this.dispatched.set(index, this.generation);
+      LockSupport.unpark(this.threads[index]);
+    }
+
+    /*
+     * The workers must be waited for even if the calling thread's share of
+     * the task fails, or the next task could be published while workers
+     * were still executing this one.
+     */
+
+    RuntimeException failed = null;
+    try {
+      newTask.execute(0, used);
+    } catch (final RuntimeException e) {
+      failed = e;
+    }
+
+    while (this.remaining.get() != 0) {
+      Thread.onSpinWait();
+    }
+
+    final var failedWorker = this.failure.getAndSet(null);
+    if (failed != null) {
+      if (failedWorker != null) {
+        failed.addSuppressed(failedWorker);
+      }
+      throw failed;
+    }
+    if (failedWorker instanceof final RuntimeException e) {
+      throw e;
+    }
+    if (failedWorker instanceof final Error e) {
+      throw e;
+    }
+  }
+
+  private void run(
+    final int worker)
+  {
+    /*
+     * No task can have been dispatched before the gang was constructed, so
+     * the first generation to act on is the one following zero.
+     */
+
+    var seen = 0;
+    var spins = 0;
+
+    final var slot = worker - 1;
+    while (!this.closed) {
+      final var current = this.dispatched.get(slot);
+      if (current == seen) {
+        if (spins < SPIN_LIMIT) {
+          ++spins;
+          Thread.onSpinWait();
+        } else {
+          LockSupport.park(this);
+        }
+        continue;
+      }
+
+      seen = current;
+      spins = 0;
+      try {
+        this.task.execute(worker, this.taskWorkers);
+      } catch (final RuntimeException | Error e) {
+        /*
+         * A worker must always report completion, or the audio thread
+         * would wait forever. The failure is instead recorded, and is
+         * rethrown on the audio thread. Only the first failure of each
+         * task is kept.
+         */
+
+        this.failure.compareAndSet(null, e);
+      } finally {
+        this.remaining.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Stop the worker threads. This must be called from the thread that calls
+   * {@link #execute(ARI1WorkerTaskType)}, and never during execution.
+   */
+
+  @Override
+  public void close()
+  {
+    this.closed = true;
+    for (final var thread : this.threads) {
+      LockSupport.unpark(thread);
+    }
+  }
+}
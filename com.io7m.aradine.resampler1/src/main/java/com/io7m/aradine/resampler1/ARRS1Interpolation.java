@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.resampler1;
+
+/**
+ * The interpolation used to read sample data at fractional positions.
+ */
+
+public enum ARRS1Interpolation
+{
+  /**
+   * No interpolation: the nearest frame is used.
+   */
+
+  NEAREST,
+
+  /**
+   * Linear interpolation between the two nearest frames.
+   */
+
+  LINEAR,
+
+  /**
+   * Cubic (Catmull-Rom) Hermite interpolation over the four nearest frames.
+   */
+
+  HERMITE4,
+
+  /**
+   * Windowed-sinc interpolation using a precomputed polyphase table.
+   *
+   * @see ARRS1SincTable
+   */
+
+  SINC;
+
+  private static final ARRS1Interpolation[] VALUES = values();
+
+  /**
+   * Determine the interpolation from an integer parameter value. Values
+   * outside of the range of the enumeration are clamped.
+   *
+   * @param value The parameter value
+   *
+   * @return The interpolation
+   */
+
+  public static ARRS1Interpolation ofParameter(
+    final long value)
+  {
+    final var index =
+      (int) Math.max(0L, Math.min(value, (long) VALUES.length - 1L));
+    return VALUES[index];
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.resampler1;
+
+/**
+ * <p>Functions over 32.32 fixed-point phase values.</p>
+ *
+ * <p>A phase is a {@code long} in which the upper 32 bits hold a (signed)
+ * frame index and the lower 32 bits hold the fractional position between
+ * that frame and the next. Phases can be advanced by integer addition, so
+ * they do not accumulate rounding error however long a sample plays, and
+ * both the frame index and the fraction can be extracted without any
+ * floating-point rounding.</p>
+ */
+
+public final class ARRS1Phase
+{
+  /**
+   * The number of fractional bits in a phase.
+   */
+
+  public static final int FRACTION_BITS = 32;
+
+  /**
+   * The phase value of exactly one frame.
+   */
+
+  public static final long ONE = 1L << FRACTION_BITS;
+
+  private static final long FRACTION_MASK = ONE - 1L;
+  private static final double FRACTION_SCALE = 1.0 / (double) ONE;
+
+  private ARRS1Phase()
+  {
+
+  }
+
+  /**
+   * Convert a frame index to a phase.
+   *
+   * @param frame The frame index
+   *
+   * @return The phase
+   */
+
+  public static long ofFrame(
+    final long frame)
+  {
+    return frame << FRACTION_BITS;
+  }
+
+  /**
+   * Convert a position (or increment) in frames to the nearest phase.
+   *
+   * @param frames The position in frames
+   *
+   * @return The phase
+   */
+
+  public static long ofFrames(
+    final double frames)
+  {
+    return Math.round(frames * (double) ONE);
+  }
+
+  /**
+   * @param phase The phase
+   *
+   * @return The index of the frame at or preceding the phase
+   */
+
+  public static long index(
+    final long phase)
+  {
+    return phase >> FRACTION_BITS;
+  }
+
+  /**
+   * @param phase The phase
+   *
+   * @return The fractional part of the phase in the range {@code [0, 1)}
+   */
+
+  public static double fraction(
+    final long phase)
+  {
+    return (double) (phase & FRACTION_MASK) * FRACTION_SCALE;
+  }
+
+  /**
+   * @param phase The phase
+   *
+   * @return The index of the frame nearest to the phase
+   */
+
+  public static long nearest(
+    final long phase)
+  {
+    return (phase + (ONE >> 1)) >> FRACTION_BITS;
+  }
+
+  /**
+   * @param phase The phase
+   *
+   * @return The phase as a position in frames
+   */
+
+  public static double toFrames(
+    final long phase)
+  {
+    return (double) phase * FRACTION_SCALE;
+  }
+
+  /**
+   * Determine the number of whole octaves by which a phase increment exceeds
+   * one frame per sample: the largest {@code n >= 0} such that
+   * {@code ONE << n <= increment}. This is the mipmap level at which an
+   * increment of less than two frames per sample is obtained. Rounding down
+   * means that level 0 (and therefore the full bandwidth of a sample) is used
+   * for any increment below two frames per sample, and that small changes of
+   * pitch around the original pitch never change the level.
+   *
+   * @param increment The phase increment
+   *
+   * @return The number of octaves
+   */
+
+  public static int octaves(
+    final long increment)
+  {
+    if (increment < (ONE << 1)) {
+      return 0;
+    }
+    return (63 - Long.numberOfLeadingZeros(increment)) - FRACTION_BITS;
+  }
+}
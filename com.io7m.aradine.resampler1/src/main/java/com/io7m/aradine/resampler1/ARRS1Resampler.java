@@ -0,0 +1,442 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.resampler1;
+
+import java.util.Objects;
+
+/**
+ * <p>Interpolation kernels for reading sample data at fractional
+ * positions.</p>
+ *
+ * <p>Positions are given either as a frame index and a fraction in
+ * {@code [0, 1)}, as a 32.32 fixed-point phase (see {@link ARRS1Phase}), or
+ * as a real number of frames. None of the functions in this class allocate.
+ * The block functions select a kernel once per block and then run a tight
+ * loop over the output, and so should be preferred over repeated calls to
+ * the single-position functions wherever a voice can be rendered a block at
+ * a time.</p>
+ */
+
+public final class ARRS1Resampler
+{
+  private ARRS1Resampler()
+  {
+
+  }
+
+  /**
+   * Read the sample nearest to the given position.
+   *
+   * @param source   The source
+   * @param channel  The channel
+   * @param index    The index of the frame at or preceding the position
+   * @param fraction The fractional position in {@code [0, 1)}
+   *
+   * @return The sample value
+   */
+
+  public static double nearest(
+    final ARRS1SourceType source,
+    final int channel,
+    final long index,
+    final double fraction)
+  {
+    return source.sample(channel, fraction >= 0.5 ? index + 1L : index);
+  }
+
+  /**
+   * Read a sample at the given position using linear interpolation.
+   *
+   * @param source   The source
+   * @param channel  The channel
+   * @param index    The index of the frame at or preceding the position
+   * @param fraction The fractional position in {@code [0, 1)}
+   *
+   * @return The sample value
+   */
+
+  public static double linear(
+    final ARRS1SourceType source,
+    final int channel,
+    final long index,
+    final double fraction)
+  {
+    final var x0 = source.sample(channel, index);
+    final var x1 = source.sample(channel, index + 1L);
+    return x0 + (fraction * (x1 - x0));
+  }
+
+  /**
+   * Read a sample at the given position using four-point, third-order
+   * (Catmull-Rom) Hermite interpolation.
+   *
+   * @param source   The source
+   * @param channel  The channel
+   * @param index    The index of the frame at or preceding the position
+   * @param fraction The fractional position in {@code [0, 1)}
+   *
+   * @return The sample value
+   */
+
+  public static double hermite4(
+    final ARRS1SourceType source,
+    final int channel,
+    final long index,
+    final double fraction)
+  {
+    return hermite4Of(
+      source.sample(channel, index - 1L),
+      source.sample(channel, index),
+      source.sample(channel, index + 1L),
+      source.sample(channel, index + 2L),
+      fraction
+    );
+  }
+
+  private static double hermite4Of(
+    final double xm1,
+    final double x0,
+    final double x1,
+    final double x2,
+    final double f)
+  {
+    final var c1 = 0.5 * (x1 - xm1);
+    final var c2 = ((xm1 - (2.5 * x0)) + (2.0 * x1)) - (0.5 * x2);
+    final var c3 = (0.5 * (x2 - xm1)) + (1.5 * (x0 - x1));
+    return (((((c3 * f) + c2) * f) + c1) * f) + x0;
+  }
+
+  /**
+   * Read a sample at the given position using windowed-sinc interpolation.
+   *
+   * @param table    The polyphase table
+   * @param source   The source
+   * @param channel  The channel
+   * @param index    The index of the frame at or preceding the position
+   * @param fraction The fractional position in {@code [0, 1)}
+   *
+   * @return The sample value
+   */
+
+  public static double sinc(
+    final ARRS1SincTable table,
+    final ARRS1SourceType source,
+    final int channel,
+    final long index,
+    final double fraction)
+  {
+    return sincOf(
+      table.coefficients(),
+      table.deltas(),
+      table.taps(),
+      table.phases(),
+      source,
+      channel,
+      index - (long) table.halfWidth() + 1L,
+      fraction
+    );
+  }
+
+  private static double sincOf(
+    final double[] coefficients,
+    final double[] deltas,
+    final int taps,
+    final int phases,
+    final ARRS1SourceType source,
+    final int channel,
+    final long start,
+    final double f)
+  {
+    final var scaled = f * (double) phases;
+    final var phase = Math.min((int) scaled, phases - 1);
+    final var phaseF = scaled - (double) phase;
+    final var base = phase * taps;
+
+    var sum = 0.0;
+    for (int tap = 0; tap < taps; ++tap) {
+      final var c = coefficients[base + tap] + (phaseF * deltas[base + tap]);
+      sum += c * source.sample(channel, start + (long) tap);
+    }
+    return sum;
+  }
+
+  /**
+   * Read a sample at the given position using the given interpolation. The
+   * {@link ARRS1SincTable#standard()} table is used for
+   * {@link ARRS1Interpolation#SINC}.
+   *
+   * @param interpolation The interpolation
+   * @param source        The source
+   * @param channel       The channel
+   * @param index         The index of the frame at or preceding the position
+   * @param fraction      The fractional position in {@code [0, 1)}
+   *
+   * @return The sample value
+   */
+
+  public static double interpolate(
+    final ARRS1Interpolation interpolation,
+    final ARRS1SourceType source,
+    final int channel,
+    final long index,
+    final double fraction)
+  {
+    return switch (interpolation) {
+      case NEAREST -> nearest(source, channel, index, fraction);
+      case LINEAR -> linear(source, channel, index, fraction);
+      case HERMITE4 -> hermite4(source, channel, index, fraction);
+      case SINC -> sinc(
+        ARRS1SincTable.standard(), source, channel, index, fraction);
+    };
+  }
+
+  /**
+   * Read a sample at the given position using the given interpolation.
+   *
+   * @param interpolation The interpolation
+   * @param source        The source
+   * @param channel       The channel
+   * @param position      The position in frames
+   *
+   * @return The sample value
+   *
+   * @see #interpolate(ARRS1Interpolation, ARRS1SourceType, int, long, double)
+   */
+
+  public static double interpolate(
+    final ARRS1Interpolation interpolation,
+    final ARRS1SourceType source,
+    final int channel,
+    final double position)
+  {
+    final var index = (long) Math.floor(position);
+    return interpolate(
+      interpolation,
+      source,
+      channel,
+      index,
+      position - (double) index
+    );
+  }
+
+  /**
+   * Read a frame at the given fixed-point phase using the given
+   * interpolation. The first {@code channels} elements of {@code output} are
+   * written.
+   *
+   * @param interpolation The interpolation
+   * @param source        The source
+   * @param channels      The number of channels
+   * @param phase         The 32.32 fixed-point phase
+   * @param output        The output frame
+   */
+
+  public static void interpolateFrame(
+    final ARRS1Interpolation interpolation,
+    final ARRS1SourceType source,
+    final int channels,
+    final long phase,
+    final double[] output)
+  {
+    final var index = ARRS1Phase.index(phase);
+    final var fraction = ARRS1Phase.fraction(phase);
+    for (int channel = 0; channel < channels; ++channel) {
+      output[channel] =
+        interpolate(interpolation, source, channel, index, fraction);
+    }
+  }
+
+  /**
+   * Render {@code count} samples of a single channel into {@code output},
+   * starting at the fixed-point phase {@code phase} and advancing by the
+   * fixed-point phase {@code increment} for each output sample. The
+   * {@link ARRS1SincTable#standard()} table is used for
+   * {@link ARRS1Interpolation#SINC}. If the phase lies exactly on a frame and
+   * the increment is exactly one frame, every output sample lies exactly on a
+   * source frame, and the samples are copied without interpolation
+   * regardless of {@code interpolation}.
+   *
+   * @param interpolation The interpolation
+   * @param source        The source
+   * @param channel       The channel
+   * @param phase         The starting 32.32 fixed-point phase
+   * @param increment     The 32.32 fixed-point phase increment
+   * @param output        The output
+   * @param offset        The offset of the first output sample
+   * @param count         The number of output samples
+   *
+   * @return The phase following the last rendered sample
+   */
+
+  public static long render(
+    final ARRS1Interpolation interpolation,
+    final ARRS1SourceType source,
+    final int channel,
+    final long phase,
+    final long increment,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(offset, count, output.length);
+
+    if (increment == ARRS1Phase.ONE && ARRS1Phase.fraction(phase) == 0.0) {
+      return renderCopy(source, channel, phase, output, offset, count);
+    }
+
+    return switch (interpolation) {
+      case NEAREST -> renderNearest(
+        source, channel, phase, increment, output, offset, count);
+      case LINEAR -> renderLinear(
+        source, channel, phase, increment, output, offset, count);
+      case HERMITE4 -> renderHermite4(
+        source, channel, phase, increment, output, offset, count);
+      case SINC -> renderSinc(
+        ARRS1SincTable.standard(),
+        source, channel, phase, increment, output, offset, count);
+    };
+  }
+
+  private static long renderCopy(
+    final ARRS1SourceType source,
+    final int channel,
+    final long phase,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    final var start = ARRS1Phase.index(phase);
+    for (int index = 0; index < count; ++index) {
+      output[offset + index] = source.sample(channel, start + (long) index);
+    }
+    return phase + ((long) count * ARRS1Phase.ONE);
+  }
+
+  private static long renderNearest(
+    final ARRS1SourceType source,
+    final int channel,
+    final long phase,
+    final long increment,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    var p = phase;
+    for (int index = 0; index < count; ++index) {
+      output[offset + index] = source.sample(channel, ARRS1Phase.nearest(p));
+      p += increment;
+    }
+    return p;
+  }
+
+  private static long renderLinear(
+    final ARRS1SourceType source,
+    final int channel,
+    final long phase,
+    final long increment,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    var p = phase;
+    for (int index = 0; index < count; ++index) {
+      final var i = ARRS1Phase.index(p);
+      final var f = ARRS1Phase.fraction(p);
+      final var x0 = source.sample(channel, i);
+      final var x1 = source.sample(channel, i + 1L);
+      output[offset + index] = x0 + (f * (x1 - x0));
+      p += increment;
+    }
+    return p;
+  }
+
+  private static long renderHermite4(
+    final ARRS1SourceType source,
+    final int channel,
+    final long phase,
+    final long increment,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    var p = phase;
+    for (int index = 0; index < count; ++index) {
+      final var i = ARRS1Phase.index(p);
+      output[offset + index] = hermite4Of(
+        source.sample(channel, i - 1L),
+        source.sample(channel, i),
+        source.sample(channel, i + 1L),
+        source.sample(channel, i + 2L),
+        ARRS1Phase.fraction(p)
+      );
+      p += increment;
+    }
+    return p;
+  }
+
+  /**
+   * Render a block using windowed-sinc interpolation with an explicit table.
+   *
+   * @param table     The polyphase table
+   * @param source    The source
+   * @param channel   The channel
+   * @param phase     The starting 32.32 fixed-point phase
+   * @param increment The 32.32 fixed-point phase increment
+   * @param output    The output
+   * @param offset    The offset of the first output sample
+   * @param count     The number of output samples
+   *
+   * @return The phase following the last rendered sample
+   *
+   * @see #render(ARRS1Interpolation, ARRS1SourceType, int, long, long, double[], int, int)
+   */
+
+  public static long renderSinc(
+    final ARRS1SincTable table,
+    final ARRS1SourceType source,
+    final int channel,
+    final long phase,
+    final long increment,
+    final double[] output,
+    final int offset,
+    final int count)
+  {
+    Objects.checkFromIndexSize(offset, count, output.length);
+
+    final var coefficients = table.coefficients();
+    final var deltas = table.deltas();
+    final var taps = table.taps();
+    final var phases = table.phases();
+    final var back = (long) table.halfWidth() - 1L;
+
+    var p = phase;
+    for (int index = 0; index < count; ++index) {
+      output[offset + index] = sincOf(
+        coefficients,
+        deltas,
+        taps,
+        phases,
+        source,
+        channel,
+        ARRS1Phase.index(p) - back,
+        ARRS1Phase.fraction(p)
+      );
+      p += increment;
+    }
+    return p;
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.resampler1;
+
+/**
+ * <p>A precomputed polyphase table of Kaiser-windowed sinc coefficients.</p>
+ *
+ * <p>The table holds one row of {@link #taps()} coefficients for each of
+ * {@link #phases()} + 1 evenly spaced fractional positions in {@code [0, 1]}.
+ * Coefficients for positions between two rows are obtained by linear
+ * interpolation, for which the table also stores the difference between each
+ * row and the next. Each row is normalized to unity gain at DC. Tables are
+ * immutable and may be shared freely between threads.</p>
+ */
+
+public final class ARRS1SincTable
+{
+  private static final ARRS1SincTable STANDARD =
+    new ARRS1SincTable(8, 256, 0.95, 8.0);
+
+  private final int halfWidth;
+  private final int taps;
+  private final int phases;
+  private final double[] coefficients;
+  private final double[] deltas;
+
+  /**
+   * Create a new table.
+   *
+   * @param inHalfWidth The number of taps on each side of the interpolated
+   *                    position
+   * @param inPhases    The number of fractional positions
+   * @param cutoff      The cutoff as a fraction of the Nyquist frequency in
+   *                    the range {@code (0, 1]}
+   * @param beta        The Kaiser window shape parameter
+   */
+
+  public ARRS1SincTable(
+    final int inHalfWidth,
+    final int inPhases,
+    final double cutoff,
+    final double beta)
+  {
+    if (inHalfWidth < 1) {
+      throw new IllegalArgumentException("Half width must be positive.");
+    }
+    if (inPhases < 1) {
+      throw new IllegalArgumentException("Phase count must be positive.");
+    }
+    if (!(cutoff > 0.0 && cutoff <= 1.0)) {
+      throw new IllegalArgumentException("Cutoff must be in the range (0, 1].");
+    }
+
+    this.halfWidth = inHalfWidth;
+    this.taps = inHalfWidth * 2;
+    this.phases = inPhases;
+    this.coefficients = new double[(inPhases + 1) * this.taps];
+    this.deltas = new double[(inPhases + 1) * this.taps];
+
+    final var i0Beta = besselI0(beta);
+    for (int phase = 0; phase <= inPhases; ++phase) {
+      final var fraction = (double) phase / (double) inPhases;
+      final var base = phase * this.taps;
+
+      var sum = 0.0;
+      for (int tap = 0; tap < this.taps; ++tap) {
+        final var x = (double) (tap - inHalfWidth + 1) - fraction;
+        final var w = x / (double) inHalfWidth;
+        final double window;
+        if (Math.abs(w) >= 1.0) {
+          window = 0.0;
+        } else {
+          window = besselI0(beta * Math.sqrt(1.0 - (w * w))) / i0Beta;
+        }
+        final var c = cutoff * sinc(cutoff * x) * window;
+        this.coefficients[base + tap] = c;
+        sum += c;
+      }
+
+      for (int tap = 0; tap < this.taps; ++tap) {
+        this.coefficients[base + tap] /= sum;
+      }
+    }
+
+    for (int phase = 0; phase < inPhases; ++phase) {
+      final var base = phase * this.taps;
+      for (int tap = 0; tap < this.taps; ++tap) {
+        this.deltas[base + tap] =
+          this.coefficients[base + this.taps + tap]
+            - this.coefficients[base + tap];
+      }
+    }
+  }
+
+  /**
+   * The standard table: 16 taps, 256 phases, a cutoff at 95% of the Nyquist
+   * frequency, and a Kaiser window with a shape parameter of 8.0.
+   *
+   * @return The standard table
+   */
+
+  public static ARRS1SincTable standard()
+  {
+    return STANDARD;
+  }
+
+  private static double sinc(
+    final double x)
+  {
+    if (x == 0.0) {
+      return 1.0;
+    }
+    final var px = Math.PI * x;
+    return StrictMath.sin(px) / px;
+  }
+
+  private static double besselI0(
+    final double x)
+  {
+    final var h = x * 0.5;
+    var sum = 1.0;
+    var term = 1.0;
+    for (int k = 1; k < 64; ++k) {
+      final var r = h / (double) k;
+      term *= r * r;
+      sum += term;
+      if (term < sum * 1.0e-17) {
+        break;
+      }
+    }
+    return sum;
+  }
+
+  /**
+   * @return The number of taps on each side of the interpolated position
+   */
+
+  public int halfWidth()
+  {
+    return this.halfWidth;
+  }
+
+  /**
+   * @return The number of taps in each row
+   */
+
+  public int taps()
+  {
+    return this.taps;
+  }
+
+  /**
+   * @return The number of fractional positions
+   */
+
+  public int phases()
+  {
+    return this.phases;
+  }
+
+  /**
+   * Retrieve a coefficient from the table. Tap {@code 0} applies to the
+   * frame {@code halfWidth() - 1} frames before the frame at or preceding
+   * the interpolated position.
+   *
+   * @param phase The phase in the range {@code [0, phases()]}
+   * @param tap   The tap in the range {@code [0, taps())}
+   *
+   * @return The coefficient
+   */
+
+  public double coefficient(
+    final int phase,
+    final int tap)
+  {
+    return this.coefficients[(phase * this.taps) + tap];
+  }
+
+  double[] coefficients()
+  {
+    return this.coefficients;
+  }
+
+  double[] deltas()
+  {
+    return this.deltas;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.resampler1;
+
+/**
+ * A source of sample data that can be read by a resampler.
+ */
+
+public interface ARRS1SourceType
+{
+  /**
+   * @return The length of the source in frames
+   */
+
+  long frames();
+
+  /**
+   * Retrieve a single sample from the source. Implementations must return
+   * {@code 0.0} for any frame index outside of the range
+   * {@code [0, frames())}, and must not allocate.
+   *
+   * @param channel    The channel
+   * @param frameIndex The frame index
+   *
+   * @return The sample value
+   */
+
+  double sample(
+    int channel,
+    long frameIndex);
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * The callbacks an audio driver invokes on the host.
+ */
+
+public interface ARI1AudioDriverCallbacksType
+{
+  /**
+   * The buffer size changed.
+   *
+   * @param bufferSize The new buffer size
+   */
+
+  void onBufferSizeChanged(int bufferSize);
+
+  /**
+   * The sample rate changed.
+   *
+   * @param sampleRate The new sample rate
+   */
+
+  void onSampleRateChanged(int sampleRate);
+
+  /**
+   * The driver failed to deliver a period on time.
+   */
+
+  void onXrun();
+
+  /**
+   * Process a single period. This is called on the driver's audio thread.
+   *
+   * @param period The period
+   *
+   * @return {@code false} if the driver should stop
+   */
+
+  boolean onProcess(ARI1AudioDriverPeriod period);
+}
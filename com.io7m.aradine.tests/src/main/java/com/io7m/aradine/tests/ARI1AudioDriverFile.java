@@ -0,0 +1,276 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * <p>An audio driver that renders a fixed number of frames into a 32-bit
+ * floating point WAV file as fast as possible, with no regard for wall-clock
+ * time. This is useful for deterministic rendering and for measuring raw
+ * throughput without any sound hardware.</p>
+ */
+
+public final class ARI1AudioDriverFile implements ARI1AudioDriverType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1AudioDriverFile.class);
+
+  private static final int HEADER_SIZE = 58;
+
+  private final String name;
+  private final Path file;
+  private final int bufferSize;
+  private final int sampleRate;
+  private final long frames;
+  private final ARI1AudioDriverMIDISourceType midiSource;
+  private final ARI1AudioDriverPeriod period;
+  private final ByteBuffer interleaved;
+  private final CountDownLatch finished;
+  private volatile boolean running;
+  private Thread thread;
+
+  private ARI1AudioDriverFile(
+    final String inName,
+    final Path inFile,
+    final int inBufferSize,
+    final int inSampleRate,
+    final int inOutputChannels,
+    final long inFrames,
+    final ARI1AudioDriverMIDISourceType inMidiSource)
+  {
+    this.name =
+      Objects.requireNonNull(inName, "name");
+    this.file =
+      Objects.requireNonNull(inFile, "file");
+    this.midiSource =
+      Objects.requireNonNull(inMidiSource, "midiSource");
+    this.bufferSize =
+      inBufferSize;
+    this.sampleRate =
+      inSampleRate;
+    this.frames =
+      inFrames;
+    this.period =
+      new ARI1AudioDriverPeriod(inOutputChannels, 1024);
+    this.period.allocateOutputs(inBufferSize);
+    this.interleaved =
+      ByteBuffer.allocateDirect(inBufferSize * inOutputChannels * Float.BYTES)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    this.finished =
+      new CountDownLatch(1);
+  }
+
+  /**
+   * Create a file-backed driver.
+   *
+   * @param name           The driver name
+   * @param file           The output file
+   * @param bufferSize     The buffer size
+   * @param sampleRate     The sample rate
+   * @param outputChannels The number of output channels
+   * @param frames         The number of frames to render
+   * @param midiSource     The source of MIDI input
+   *
+   * @return A driver
+   */
+
+  public static ARI1AudioDriverFile create(
+    final String name,
+    final Path file,
+    final int bufferSize,
+    final int sampleRate,
+    final int outputChannels,
+    final long frames,
+    final ARI1AudioDriverMIDISourceType midiSource)
+  {
+    if (bufferSize <= 0 || sampleRate <= 0 || outputChannels <= 0) {
+      throw new IllegalArgumentException(
+        "Buffer size, sample rate, and channel count must be positive");
+    }
+    return new ARI1AudioDriverFile(
+      name,
+      file,
+      bufferSize,
+      sampleRate,
+      outputChannels,
+      frames,
+      midiSource
+    );
+  }
+
+  @Override
+  public String name()
+  {
+    return this.name;
+  }
+
+  @Override
+  public int bufferSize()
+  {
+    return this.bufferSize;
+  }
+
+  @Override
+  public int sampleRate()
+  {
+    return this.sampleRate;
+  }
+
+  @Override
+  public void start(
+    final ARI1AudioDriverCallbacksType callbacks)
+  {
+    Objects.requireNonNull(callbacks, "callbacks");
+
+    if (this.thread != null) {
+      throw new IllegalStateException("Driver is already started");
+    }
+
+    this.running = true;
+    this.thread = new Thread(() -> this.run(callbacks));
+    this.thread.setName(
+      "com.io7m.aradine.driver.file[%s]".formatted(this.name));
+    this.thread.start();
+  }
+
+  /**
+   * Wait for rendering to complete.
+   *
+   * @param time The maximum time to wait
+   * @param unit The time unit
+   *
+   * @return {@code true} if rendering completed
+   *
+   * @throws InterruptedException If interrupted
+   */
+
+  public boolean awaitCompletion(
+    final long time,
+    final TimeUnit unit)
+    throws InterruptedException
+  {
+    return this.finished.await(time, unit);
+  }
+
+  private void run(
+    final ARI1AudioDriverCallbacksType callbacks)
+  {
+    final var channels = this.period.outputChannels();
+
+    try (var channel = FileChannel.open(
+      this.file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+      channel.write(ByteBuffer.allocate(HEADER_SIZE));
+
+      var written = 0L;
+      var periodIndex = 0L;
+      while (this.running && written < this.frames) {
+        final var count =
+          (int) Math.min(this.bufferSize, this.frames - written);
+
+        this.period.begin(periodIndex, count);
+        this.midiSource.generate(periodIndex, count, this.period.midiInput());
+        if (!callbacks.onProcess(this.period)) {
+          break;
+        }
+
+        this.interleaved.clear();
+        for (int frame = 0; frame < count; ++frame) {
+          for (int ch = 0; ch < channels; ++ch) {
+            this.interleaved.putFloat(this.period.output(ch).get(frame));
+          }
+        }
+        this.interleaved.flip();
+        while (this.interleaved.hasRemaining()) {
+          channel.write(this.interleaved);
+        }
+
+        written += count;
+        ++periodIndex;
+      }
+
+      channel.write(header(channels, this.sampleRate, written), 0L);
+    } catch (final IOException e) {
+      LOG.error("unable to write {}: ", this.file, e);
+    } finally {
+      this.running = false;
+      this.finished.countDown();
+    }
+  }
+
+  private static ByteBuffer header(
+    final int channels,
+    final int sampleRate,
+    final long frames)
+  {
+    final var blockAlign = channels * Float.BYTES;
+    final var dataSize = frames * blockAlign;
+
+    final var header =
+      ByteBuffer.allocate(HEADER_SIZE)
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    header.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+    header.putInt((int) (dataSize + HEADER_SIZE - 8));
+    header.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+
+    header.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+    header.putInt(18);
+    header.putShort((short) 3);
+    header.putShort((short) channels);
+    header.putInt(sampleRate);
+    header.putInt(sampleRate * blockAlign);
+    header.putShort((short) blockAlign);
+    header.putShort((short) 32);
+    header.putShort((short) 0);
+
+    header.put("fact".getBytes(StandardCharsets.US_ASCII));
+    header.putInt(4);
+    header.putInt((int) frames);
+
+    header.put("data".getBytes(StandardCharsets.US_ASCII));
+    header.putInt((int) dataSize);
+    header.flip();
+    return header;
+  }
+
+  @Override
+  public void close()
+    throws InterruptedException
+  {
+    this.running = false;
+    final var t = this.thread;
+    if (t != null) {
+      t.join();
+    }
+  }
+}
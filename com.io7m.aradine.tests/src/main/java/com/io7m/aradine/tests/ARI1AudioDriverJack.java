@@ -0,0 +1,249 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.jaudiolibs.jnajack.Jack;
+import org.jaudiolibs.jnajack.JackClient;
+import org.jaudiolibs.jnajack.JackException;
+import org.jaudiolibs.jnajack.JackMidi;
+import org.jaudiolibs.jnajack.JackPort;
+import org.jaudiolibs.jnajack.JackStatus;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+
+import static org.jaudiolibs.jnajack.JackOptions.JackNoStartServer;
+import static org.jaudiolibs.jnajack.JackPortFlags.JackPortIsInput;
+import static org.jaudiolibs.jnajack.JackPortFlags.JackPortIsOutput;
+import static org.jaudiolibs.jnajack.JackPortFlags.JackPortIsPhysical;
+import static org.jaudiolibs.jnajack.JackPortType.AUDIO;
+import static org.jaudiolibs.jnajack.JackPortType.MIDI;
+
+/**
+ * An audio driver backed by a running JACK server.
+ */
+
+public final class ARI1AudioDriverJack implements ARI1AudioDriverType
+{
+  private final Jack jack;
+  private final JackClient client;
+  private final String name;
+  private final List<JackPort> outputs;
+  private final List<JackPort> midiInputs;
+  private final ARI1AudioDriverPeriod period;
+  private final JackMidi.Event event;
+  private final byte[] eventData;
+  private long periodIndex;
+
+  private ARI1AudioDriverJack(
+    final Jack inJack,
+    final JackClient inClient,
+    final String inName,
+    final List<JackPort> inOutputs,
+    final List<JackPort> inMidiInputs)
+  {
+    this.jack =
+      Objects.requireNonNull(inJack, "jack");
+    this.client =
+      Objects.requireNonNull(inClient, "client");
+    this.name =
+      Objects.requireNonNull(inName, "name");
+    this.outputs =
+      Objects.requireNonNull(inOutputs, "outputs");
+    this.midiInputs =
+      Objects.requireNonNull(inMidiInputs, "midiInputs");
+    this.period =
+      new ARI1AudioDriverPeriod(inOutputs.size(), inMidiInputs.size(), 1024);
+    this.event =
+      new JackMidi.Event();
+    this.eventData =
+      new byte[ARI1AudioDriverMIDIBuffer.MESSAGE_SIZE_MAXIMUM];
+  }
+
+  /**
+   * Open a JACK client with a stereo output and a MIDI input.
+   *
+   * @param name The client name
+   *
+   * @return A driver
+   *
+   * @throws JackException On errors
+   */
+
+  public static ARI1AudioDriverJack open(
+    final String name)
+    throws JackException
+  {
+    return open(name, 1);
+  }
+
+  /**
+   * Open a JACK client with a stereo output and the given number of MIDI
+   * inputs.
+   *
+   * @param name      The client name
+   * @param midiPorts The number of MIDI input ports
+   *
+   * @return A driver
+   *
+   * @throws JackException On errors
+   */
+
+  public static ARI1AudioDriverJack open(
+    final String name,
+    final int midiPorts)
+    throws JackException
+  {
+    final var jack =
+      Jack.getInstance();
+
+    final var status =
+      EnumSet.noneOf(JackStatus.class);
+
+    final var client =
+      jack.openClient(name, EnumSet.of(JackNoStartServer), status);
+
+    final var outL =
+      client.registerPort("outL", AUDIO, JackPortIsOutput);
+    final var outR =
+      client.registerPort("outR", AUDIO, JackPortIsOutput);
+
+    client.registerPort("inL", AUDIO, JackPortIsInput);
+    client.registerPort("inR", AUDIO, JackPortIsInput);
+
+    final var midiInputs = new ArrayList<JackPort>(midiPorts);
+    if (midiPorts == 1) {
+      midiInputs.add(client.registerPort("inM", MIDI, JackPortIsInput));
+    } else {
+      for (int port = 0; port < midiPorts; ++port) {
+        midiInputs.add(
+          client.registerPort("inM" + port, MIDI, JackPortIsInput));
+      }
+    }
+
+    return new ARI1AudioDriverJack(
+      jack,
+      client,
+      name,
+      List.of(outL, outR),
+      List.copyOf(midiInputs)
+    );
+  }
+
+  @Override
+  public String name()
+  {
+    return this.name;
+  }
+
+  @Override
+  public int bufferSize()
+  {
+    try {
+      return this.client.getBufferSize();
+    } catch (final JackException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public int sampleRate()
+  {
+    try {
+      return this.client.getSampleRate();
+    } catch (final JackException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public void start(
+    final ARI1AudioDriverCallbacksType callbacks)
+    throws JackException
+  {
+    Objects.requireNonNull(callbacks, "callbacks");
+
+    this.client.setBuffersizeCallback((c, size) -> {
+      callbacks.onBufferSizeChanged(size);
+    });
+    this.client.setSampleRateCallback((c, rate) -> {
+      callbacks.onSampleRateChanged(rate);
+    });
+    this.client.setXrunCallback(c -> callbacks.onXrun());
+
+    this.client.setProcessCallback((c, nframes) -> {
+      this.period.begin(this.periodIndex++, nframes);
+      for (int index = 0; index < this.outputs.size(); ++index) {
+        this.period.setOutput(index, this.outputs.get(index).getFloatBuffer());
+      }
+
+      try {
+        for (int port = 0; port < this.midiInputs.size(); ++port) {
+          final var midi = this.period.midiInput(port);
+          final var input = this.midiInputs.get(port);
+          final var eventCount = JackMidi.getEventCount(input);
+          for (var index = 0; index < eventCount; ++index) {
+            JackMidi.eventGet(this.event, input, index);
+            final var size = this.event.size();
+            if (size > this.eventData.length) {
+              continue;
+            }
+            this.event.read(this.eventData);
+            midi.add(this.event.time(), this.eventData, 0, size);
+          }
+        }
+      } catch (final JackException e) {
+        throw new RuntimeException(e);
+      }
+
+      return callbacks.onProcess(this.period);
+    });
+
+    this.autoconnect();
+    this.client.activate();
+  }
+
+  private void autoconnect()
+    throws JackException
+  {
+    final var physical =
+      this.jack.getPorts(
+        this.client,
+        null,
+        AUDIO,
+        EnumSet.of(JackPortIsInput, JackPortIsPhysical)
+      );
+
+    final var count = Math.min(this.outputs.size(), physical.length);
+    for (var index = 0; index < count; index++) {
+      this.jack.connect(
+        this.client,
+        this.outputs.get(index).getName(),
+        physical[index]
+      );
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    this.client.deactivate();
+    this.client.close();
+  }
+}
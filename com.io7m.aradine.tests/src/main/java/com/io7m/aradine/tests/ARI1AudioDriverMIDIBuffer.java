@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * A preallocated buffer of raw MIDI messages for a single period. Nothing
+ * in this class allocates after construction.
+ */
+
+public final class ARI1AudioDriverMIDIBuffer
+{
+  /**
+   * The maximum size of a single message. Longer messages (such as
+   * system exclusive messages) are dropped.
+   */
+
+  public static final int MESSAGE_SIZE_MAXIMUM = 16;
+
+  private final int[] times;
+  private final int[] sizes;
+  private final byte[] data;
+  private int count;
+  private int dropped;
+
+  public ARI1AudioDriverMIDIBuffer(
+    final int capacity)
+  {
+    this.times = new int[capacity];
+    this.sizes = new int[capacity];
+    this.data = new byte[capacity * MESSAGE_SIZE_MAXIMUM];
+    this.count = 0;
+  }
+
+  /**
+   * Remove all messages.
+   */
+
+  public void clear()
+  {
+    this.count = 0;
+  }
+
+  /**
+   * Add a message.
+   *
+   * @param time   The offset in frames within the period
+   * @param source The message data
+   * @param offset The offset of the message within {@code source}
+   * @param size   The message size
+   *
+   * @return {@code false} if the message was dropped
+   */
+
+  public boolean add(
+    final int time,
+    final byte[] source,
+    final int offset,
+    final int size)
+  {
+    if (this.count == this.times.length || size > MESSAGE_SIZE_MAXIMUM) {
+      ++this.dropped;
+      return false;
+    }
+
+    final var index = this.count;
+    this.times[index] = time;
+    this.sizes[index] = size;
+    System.arraycopy(
+      source, offset, this.data, index * MESSAGE_SIZE_MAXIMUM, size);
+    ++this.count;
+    return true;
+  }
+
+  /**
+   * Add a three-byte message.
+   *
+   * @param time   The offset in frames within the period
+   * @param status The status byte
+   * @param data0  The first data byte
+   * @param data1  The second data byte
+   *
+   * @return {@code false} if the message was dropped
+   */
+
+  public boolean add3(
+    final int time,
+    final int status,
+    final int data0,
+    final int data1)
+  {
+    if (this.count == this.times.length) {
+      ++this.dropped;
+      return false;
+    }
+
+    final var index = this.count;
+    final var base = index * MESSAGE_SIZE_MAXIMUM;
+    this.times[index] = time;
+    this.sizes[index] = 3;
+    this.data[base] = (byte) status;
+    this.data[base + 1] = (byte) data0;
+    this.data[base + 2] = (byte) data1;
+    ++this.count;
+    return true;
+  }
+
+  /**
+   * @return The number of messages
+   */
+
+  public int count()
+  {
+    return this.count;
+  }
+
+  /**
+   * @return The total number of messages dropped due to lack of space
+   */
+
+  public int dropped()
+  {
+    return this.dropped;
+  }
+
+  /**
+   * @param index The message index
+   *
+   * @return The offset in frames of the message within the period
+   */
+
+  public int time(
+    final int index)
+  {
+    return this.times[index];
+  }
+
+  /**
+   * Copy a message into {@code output}.
+   *
+   * @param index  The message index
+   * @param output The output array, at least {@link #MESSAGE_SIZE_MAXIMUM}
+   *               bytes long
+   *
+   * @return The size of the message
+   */
+
+  public int read(
+    final int index,
+    final byte[] output)
+  {
+    final var size = this.sizes[index];
+    System.arraycopy(
+      this.data, index * MESSAGE_SIZE_MAXIMUM, output, 0, size);
+    return size;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * A source of MIDI input for drivers that have no MIDI hardware.
+ */
+
+public interface ARI1AudioDriverMIDISourceType
+{
+  /**
+   * Generate the MIDI events for the given period.
+   *
+   * @param period The index of the period
+   * @param frames The number of frames in the period
+   * @param output The output buffer
+   */
+
+  void generate(
+    long period,
+    int frames,
+    ARI1AudioDriverMIDIBuffer output);
+
+  /**
+   * @return A source that generates nothing
+   */
+
+  static ARI1AudioDriverMIDISourceType silent()
+  {
+    return (period, frames, output) -> {
+
+    };
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Objects;
+
+/**
+ * The buffers for a single processing period. A driver owns exactly one
+ * period and reuses it for every callback.
+ */
+
+public final class ARI1AudioDriverPeriod
+{
+  private final ARI1AudioDriverMIDIBuffer[] midiInputs;
+  private final FloatBuffer[] outputs;
+  private int frames;
+  private long index;
+
+  public ARI1AudioDriverPeriod(
+    final int outputChannels,
+    final int midiCapacity)
+  {
+    this(outputChannels, 1, midiCapacity);
+  }
+
+  public ARI1AudioDriverPeriod(
+    final int outputChannels,
+    final int midiPorts,
+    final int midiCapacity)
+  {
+    this.midiInputs = new ARI1AudioDriverMIDIBuffer[midiPorts];
+    for (int port = 0; port < midiPorts; ++port) {
+      this.midiInputs[port] = new ARI1AudioDriverMIDIBuffer(midiCapacity);
+    }
+    this.outputs = new FloatBuffer[outputChannels];
+  }
+
+  /**
+   * Allocate buffers for all outputs. This is used by drivers that
+   * do not receive buffers from elsewhere.
+   *
+   * @param bufferSize The buffer size
+   */
+
+  public void allocateOutputs(
+    final int bufferSize)
+  {
+    for (int channel = 0; channel < this.outputs.length; ++channel) {
+      this.outputs[channel] =
+        ByteBuffer.allocateDirect(bufferSize * Float.BYTES)
+          .order(ByteOrder.nativeOrder())
+          .asFloatBuffer();
+    }
+  }
+
+  /**
+   * @return The number of frames in the period
+   */
+
+  public int frames()
+  {
+    return this.frames;
+  }
+
+  /**
+   * @return The index of the period since the driver was started
+   */
+
+  public long index()
+  {
+    return this.index;
+  }
+
+  /**
+   * @return The MIDI input of the first MIDI port for the period
+   */
+
+  public ARI1AudioDriverMIDIBuffer midiInput()
+  {
+    return this.midiInputs[0];
+  }
+
+  /**
+   * @param port The MIDI port
+   *
+   * @return The MIDI input of the given MIDI port for the period
+   */
+
+  public ARI1AudioDriverMIDIBuffer midiInput(
+    final int port)
+  {
+    return this.midiInputs[port];
+  }
+
+  /**
+   * @return The number of MIDI input ports
+   */
+
+  public int midiInputPorts()
+  {
+    return this.midiInputs.length;
+  }
+
+  /**
+   * @return The number of output channels
+   */
+
+  public int outputChannels()
+  {
+    return this.outputs.length;
+  }
+
+  /**
+   * @param channel The output channel
+   *
+   * @return The output buffer for the channel
+   */
+
+  public FloatBuffer output(
+    final int channel)
+  {
+    return this.outputs[channel];
+  }
+
+  void setOutput(
+    final int channel,
+    final FloatBuffer buffer)
+  {
+    this.outputs[channel] = Objects.requireNonNull(buffer, "buffer");
+  }
+
+  void begin(
+    final long newIndex,
+    final int newFrames)
+  {
+    this.index = newIndex;
+    this.frames = newFrames;
+    for (final var midi : this.midiInputs) {
+      midi.clear();
+    }
+  }
+}
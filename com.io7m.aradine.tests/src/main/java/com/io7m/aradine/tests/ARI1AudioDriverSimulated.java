@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A simulated audio driver that requires no sound hardware. A dedicated
+ * thread invokes the process callback on a precise wall-clock schedule: the
+ * deadline of period {@code n} is exactly {@code n * bufferSize / sampleRate}
+ * seconds after the driver was started, so the schedule does not drift.</p>
+ *
+ * <p>The thread parks until shortly before each deadline and then spins,
+ * and records how late it actually woke up (the scheduling jitter). If the
+ * callback takes so long that one or more deadlines have already passed
+ * when it returns, the missed periods are dropped and an xrun is reported,
+ * as a real driver would.</p>
+ */
+
+public final class ARI1AudioDriverSimulated implements ARI1AudioDriverType
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1AudioDriverSimulated.class);
+
+  /**
+   * The thread stops parking and starts spinning this long before each
+   * deadline.
+   */
+
+  private static final long SPIN_NANOSECONDS = 200_000L;
+
+  private final String name;
+  private final int bufferSize;
+  private final int sampleRate;
+  private final ARI1AudioDriverMIDISourceType midiSource;
+  private final ARI1AudioDriverPeriod period;
+  private final ARI1HostLatencyHistogram jitter;
+  private final AtomicLong periodsMissed;
+  private volatile boolean running;
+  private Thread thread;
+
+  private ARI1AudioDriverSimulated(
+    final String inName,
+    final int inBufferSize,
+    final int inSampleRate,
+    final int inOutputChannels,
+    final ARI1AudioDriverMIDISourceType inMidiSource)
+  {
+    this.name =
+      Objects.requireNonNull(inName, "name");
+    this.midiSource =
+      Objects.requireNonNull(inMidiSource, "midiSource");
+    this.bufferSize =
+      inBufferSize;
+    this.sampleRate =
+      inSampleRate;
+    this.period =
+      new ARI1AudioDriverPeriod(inOutputChannels, 1024);
+    this.period.allocateOutputs(inBufferSize);
+    this.jitter =
+      new ARI1HostLatencyHistogram();
+    this.periodsMissed =
+      new AtomicLong(0L);
+  }
+
+  /**
+   * Create a simulated driver.
+   *
+   * @param name           The driver name
+   * @param bufferSize     The buffer size
+   * @param sampleRate     The sample rate
+   * @param outputChannels The number of output channels
+   * @param midiSource     The source of MIDI input
+   *
+   * @return A driver
+   */
+
+  public static ARI1AudioDriverSimulated create(
+    final String name,
+    final int bufferSize,
+    final int sampleRate,
+    final int outputChannels,
+    final ARI1AudioDriverMIDISourceType midiSource)
+  {
+    if (bufferSize <= 0 || sampleRate <= 0) {
+      throw new IllegalArgumentException(
+        "Buffer size and sample rate must be positive");
+    }
+    return new ARI1AudioDriverSimulated(
+      name,
+      bufferSize,
+      sampleRate,
+      outputChannels,
+      midiSource
+    );
+  }
+
+  /**
+   * Calculate the offset of the start of the given period relative to the
+   * start of the first period.
+   *
+   * @param period     The period index
+   * @param bufferSize The buffer size
+   * @param sampleRate The sample rate
+   *
+   * @return The offset in nanoseconds
+   */
+
+  static long periodOffsetNanoseconds(
+    final long period,
+    final int bufferSize,
+    final int sampleRate)
+  {
+    final var frames = period * (long) bufferSize;
+    final var seconds = frames / sampleRate;
+    final var remainder = frames % sampleRate;
+    return (seconds * 1_000_000_000L)
+           + ((remainder * 1_000_000_000L) / sampleRate);
+  }
+
+  /**
+   * @return The distribution of the lateness of each wakeup, in nanoseconds
+   */
+
+  public ARI1HostLatencyHistogram jitter()
+  {
+    return this.jitter;
+  }
+
+  /**
+   * @return The number of periods dropped because the callback overran
+   */
+
+  public long periodsMissed()
+  {
+    return this.periodsMissed.getAcquire();
+  }
+
+  @Override
+  public String name()
+  {
+    return this.name;
+  }
+
+  @Override
+  public int bufferSize()
+  {
+    return this.bufferSize;
+  }
+
+  @Override
+  public int sampleRate()
+  {
+    return this.sampleRate;
+  }
+
+  @Override
+  public void start(
+    final ARI1AudioDriverCallbacksType callbacks)
+  {
+    Objects.requireNonNull(callbacks, "callbacks");
+
+    if (this.thread != null) {
+      throw new IllegalStateException("Driver is already started");
+    }
+
+    this.running = true;
+    this.thread = new Thread(() -> this.run(callbacks));
+    this.thread.setName(
+      "com.io7m.aradine.driver.simulated[%s]".formatted(this.name));
+    this.thread.setPriority(Thread.MAX_PRIORITY);
+    this.thread.start();
+  }
+
+  private void run(
+    final ARI1AudioDriverCallbacksType callbacks)
+  {
+    final var timeStart = System.nanoTime();
+    var periodIndex = 0L;
+
+    try {
+      while (this.running) {
+        final var deadline =
+          timeStart + periodOffsetNanoseconds(
+            periodIndex, this.bufferSize, this.sampleRate);
+
+        waitUntil(deadline);
+        this.jitter.record(System.nanoTime() - deadline);
+
+        this.period.begin(periodIndex, this.bufferSize);
+        this.midiSource.generate(
+          periodIndex,
+          this.bufferSize,
+          this.period.midiInput()
+        );
+
+        if (!callbacks.onProcess(this.period)) {
+          break;
+        }
+
+        /*
+         * If the next deadline has already passed, then the callback
+         * overran and the output was late. Drop every further period whose
+         * deadline has also passed, as a real driver would.
+         */
+
+        final var timeNow = System.nanoTime();
+        var next = periodIndex + 1L;
+        if (timeNow > timeStart + periodOffsetNanoseconds(
+          next, this.bufferSize, this.sampleRate)) {
+          while (timeNow > timeStart + periodOffsetNanoseconds(
+            next + 1L, this.bufferSize, this.sampleRate)) {
+            ++next;
+          }
+
+          final var missed = next - (periodIndex + 1L);
+          this.periodsMissed.setRelease(this.periodsMissed.getPlain() + missed);
+          callbacks.onXrun();
+        }
+        periodIndex = next;
+      }
+    } catch (final Throwable e) {
+      LOG.error("driver thread failed: ", e);
+    } finally {
+      this.running = false;
+    }
+  }
+
+  private static void waitUntil(
+    final long deadline)
+  {
+    while (true) {
+      final var remaining = deadline - System.nanoTime();
+      if (remaining <= 0L) {
+        return;
+      }
+      if (remaining > SPIN_NANOSECONDS) {
+        LockSupport.parkNanos(remaining - SPIN_NANOSECONDS);
+      } else {
+        Thread.onSpinWait();
+      }
+    }
+  }
+
+  /**
+   * @return {@code true} if the driver thread is running
+   */
+
+  public boolean isRunning()
+  {
+    return this.running;
+  }
+
+  @Override
+  public void close()
+    throws InterruptedException
+  {
+    this.running = false;
+    final var t = this.thread;
+    if (t != null) {
+      t.join();
+    }
+  }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1AudioDriverTest
+{
+  private Path directory;
+
+  private static final class Counting
+    implements ARI1AudioDriverCallbacksType
+  {
+    private final AtomicLong periods = new AtomicLong();
+    private final AtomicLong notes = new AtomicLong();
+    private final AtomicInteger xruns = new AtomicInteger();
+    private final long limit;
+    private final long sleepEvery;
+
+    Counting(
+      final long inLimit,
+      final long inSleepEvery)
+    {
+      this.limit = inLimit;
+      this.sleepEvery = inSleepEvery;
+    }
+
+    @Override
+    public void onBufferSizeChanged(
+      final int bufferSize)
+    {
+
+    }
+
+    @Override
+    public void onSampleRateChanged(
+      final int sampleRate)
+    {
+
+    }
+
+    @Override
+    public void onXrun()
+    {
+      this.xruns.incrementAndGet();
+    }
+
+    @Override
+    public boolean onProcess(
+      final ARI1AudioDriverPeriod period)
+    {
+      this.notes.addAndGet(period.midiInput().count());
+      for (int index = 0; index < period.frames(); ++index) {
+        period.output(0).put(index, 0.5f);
+        period.output(1).put(index, -0.5f);
+      }
+
+      final var count = this.periods.incrementAndGet();
+      if (this.sleepEvery > 0L && count % this.sleepEvery == 0L) {
+        try {
+          Thread.sleep(30L);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      return count < this.limit;
+    }
+  }
+
+  @BeforeEach
+  public void setup()
+    throws IOException
+  {
+    this.directory = ARTestDirectories.createTempDirectory();
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws IOException
+  {
+    ARTestDirectories.deleteDirectory(this.directory);
+  }
+
+  @Test
+  public void testPeriodOffsets()
+  {
+    assertEquals(
+      0L,
+      ARI1AudioDriverSimulated.periodOffsetNanoseconds(0L, 480, 48000));
+    assertEquals(
+      10_000_000L,
+      ARI1AudioDriverSimulated.periodOffsetNanoseconds(1L, 480, 48000));
+    assertEquals(
+      3600_000_000_000L,
+      ARI1AudioDriverSimulated.periodOffsetNanoseconds(
+        (3600L * 44100L) / 441L, 441, 44100));
+  }
+
+  @Test
+  public void testMIDIBuffer()
+  {
+    final var buffer = new ARI1AudioDriverMIDIBuffer(2);
+    assertTrue(buffer.add3(3, 0x90, 60, 100));
+    assertTrue(buffer.add(5, new byte[]{(byte) 0x80, 60, 0}, 0, 3));
+    assertTrue(!buffer.add3(7, 0x90, 61, 100));
+    assertEquals(2, buffer.count());
+    assertEquals(1, buffer.dropped());
+
+    final var data = new byte[ARI1AudioDriverMIDIBuffer.MESSAGE_SIZE_MAXIMUM];
+    assertEquals(3, buffer.read(1, data));
+    assertEquals(5, buffer.time(1));
+    assertEquals((byte) 0x80, data[0]);
+
+    buffer.clear();
+    assertEquals(0, buffer.count());
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  public void testSimulated()
+    throws Exception
+  {
+    final var callbacks = new Counting(50L, 0L);
+    final var driver =
+      ARI1AudioDriverSimulated.create(
+        "test",
+        480,
+        48000,
+        2,
+        (period, frames, midi) -> midi.add3(0, 0x90, 60, 100)
+      );
+
+    final var timeThen = System.nanoTime();
+    driver.start(callbacks);
+    while (driver.isRunning()) {
+      Thread.sleep(10L);
+    }
+    driver.close();
+    final var elapsed = System.nanoTime() - timeThen;
+
+    /*
+     * 50 periods of 10ms each must take at least 490ms of wall-clock time.
+     */
+
+    assertEquals(50L, callbacks.periods.get());
+    assertEquals(50L, callbacks.notes.get());
+    assertTrue(elapsed >= 490_000_000L, "Elapsed " + elapsed);
+    assertEquals(50L, driver.jitter().count());
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  public void testSimulatedOverrun()
+    throws Exception
+  {
+    final var callbacks = new Counting(20L, 5L);
+    final var driver =
+      ARI1AudioDriverSimulated.create(
+        "test",
+        480,
+        48000,
+        2,
+        ARI1AudioDriverMIDISourceType.silent()
+      );
+
+    driver.start(callbacks);
+    while (driver.isRunning()) {
+      Thread.sleep(10L);
+    }
+    driver.close();
+
+    assertTrue(callbacks.xruns.get() >= 3, "Xruns " + callbacks.xruns);
+    assertTrue(driver.periodsMissed() >= 3L);
+  }
+
+  @Test
+  @Timeout(value = 10L, unit = TimeUnit.SECONDS)
+  public void testFile()
+    throws Exception
+  {
+    final var file =
+      this.directory.resolve("out.wav");
+    final var callbacks =
+      new Counting(Long.MAX_VALUE, 0L);
+    final var driver =
+      ARI1AudioDriverFile.create(
+        "test",
+        file,
+        256,
+        48000,
+        2,
+        1000L,
+        ARI1AudioDriverMIDISourceType.silent()
+      );
+
+    driver.start(callbacks);
+    assertTrue(driver.awaitCompletion(5L, TimeUnit.SECONDS));
+    driver.close();
+
+    assertEquals(4L, callbacks.periods.get());
+
+    final var bytes =
+      ByteBuffer.wrap(Files.readAllBytes(file))
+        .order(ByteOrder.LITTLE_ENDIAN);
+
+    assertEquals(58 + (1000 * 2 * 4), bytes.capacity());
+    assertEquals(bytes.capacity() - 8, bytes.getInt(4));
+    assertEquals(3, bytes.getShort(20));
+    assertEquals(2, bytes.getShort(22));
+    assertEquals(48000, bytes.getInt(24));
+    assertEquals(1000, bytes.getInt(46));
+    assertEquals(1000 * 2 * 4, bytes.getInt(54));
+    assertEquals(0.5f, bytes.getFloat(58));
+    assertEquals(-0.5f, bytes.getFloat(62));
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * An audio driver: something that calls the host once per period and
+ * supplies the host with MIDI input and audio output buffers.
+ */
+
+public interface ARI1AudioDriverType extends AutoCloseable
+{
+  /**
+   * @return The driver name
+   */
+
+  String name();
+
+  /**
+   * @return The current buffer size in frames
+   */
+
+  int bufferSize();
+
+  /**
+   * @return The current sample rate in frames per second
+   */
+
+  int sampleRate();
+
+  /**
+   * Start the driver. The given callbacks are invoked until the driver
+   * is closed.
+   *
+   * @param callbacks The callbacks
+   *
+   * @throws Exception On errors
+   */
+
+  void start(ARI1AudioDriverCallbacksType callbacks)
+    throws Exception;
+
+  @Override
+  void close()
+    throws Exception;
+}
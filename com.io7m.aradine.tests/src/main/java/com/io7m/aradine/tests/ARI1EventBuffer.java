@@ -16,27 +16,42 @@
 
 package com.io7m.aradine.tests;
 
+import com.io7m.aradine.instrument.jfr1.ARJ1EventBufferGrowth;
 import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
 import com.io7m.aradine.instrument.spi1.ARI1EventType;
 import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
 public final class ARI1EventBuffer<T extends ARI1EventType>
   implements ARI1EventBufferType<T>
 {
+  private static final int DEFAULT_CAPACITY = 1024;
+
   private final Int2ObjectOpenHashMap<LinkedList<T>> events;
+  private int[] times;
+  private int timesCount;
 
   public ARI1EventBuffer()
   {
-    this.events = new Int2ObjectOpenHashMap<>(1024);
+    this(DEFAULT_CAPACITY);
+  }
+
+  public ARI1EventBuffer(
+    final int inCapacity)
+  {
+    this.events = new Int2ObjectOpenHashMap<>(inCapacity);
+    this.times = new int[inCapacity];
+    this.timesCount = 0;
   }
 
   @Override
   public void eventsClear()
   {
     this.events.clear();
+    this.timesCount = 0;
   }
 
   @Override
@@ -47,6 +62,7 @@ public final class ARI1EventBuffer<T extends ARI1EventType>
     var byArrival = this.events.get(time);
     if (byArrival == null) {
       byArrival = new LinkedList<>();
+      this.timeInsert(time);
     }
     byArrival.add(event);
     this.events.put(time, byArrival);
@@ -60,6 +76,65 @@ public final class ARI1EventBuffer<T extends ARI1EventType>
     if (byArrival == null) {
       return List.of();
     }
+    this.timeRemove(time);
     return byArrival;
   }
+
+  @Override
+  public int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    var index =
+      Arrays.binarySearch(this.times, 0, this.timesCount, frameIndex);
+    if (index < 0) {
+      index = -(index + 1);
+    }
+    if (index == this.timesCount) {
+      return frameLimit;
+    }
+    return Math.min(this.times[index], frameLimit);
+  }
+
+  /*
+   * The distinct times of pending events are kept in a sorted array so that
+   * the next time with events can be found without allocating. The array and
+   * the map are both sized for the same number of distinct times, so the
+   * array growing is exactly the point at which the buffer stops being
+   * preallocated.
+   */
+
+  private void timeInsert(
+    final int time)
+  {
+    var index =
+      Arrays.binarySearch(this.times, 0, this.timesCount, time);
+    if (index >= 0) {
+      return;
+    }
+    index = -(index + 1);
+
+    if (this.timesCount == this.times.length) {
+      final var capacityNew = Math.max(1, this.times.length * 2);
+      ARJ1EventBufferGrowth.record(this.times.length, capacityNew);
+      this.times = Arrays.copyOf(this.times, capacityNew);
+    }
+    System.arraycopy(
+      this.times, index, this.times, index + 1, this.timesCount - index);
+    this.times[index] = time;
+    ++this.timesCount;
+  }
+
+  private void timeRemove(
+    final int time)
+  {
+    final var index =
+      Arrays.binarySearch(this.times, 0, this.timesCount, time);
+    if (index < 0) {
+      return;
+    }
+    System.arraycopy(
+      this.times, index + 1, this.times, index, this.timesCount - index - 1);
+    --this.timesCount;
+  }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>The executors used to run instrument background work. I/O-bound work
+ * runs on virtual threads, and compute-bound work runs on a bounded pool of
+ * platform threads with a bounded queue.</p>
+ *
+ * <p>A single instance may be shared between any number of instrument
+ * instances.</p>
+ */
+
+public final class ARI1HostBackground implements AutoCloseable
+{
+  /**
+   * The maximum number of compute tasks that may be queued.
+   */
+
+  public static final int COMPUTE_QUEUE_CAPACITY = 256;
+
+  private final ExecutorService io;
+  private final ThreadPoolExecutor compute;
+
+  private ARI1HostBackground(
+    final ExecutorService inIo,
+    final ThreadPoolExecutor inCompute)
+  {
+    this.io =
+      Objects.requireNonNull(inIo, "io");
+    this.compute =
+      Objects.requireNonNull(inCompute, "compute");
+  }
+
+  /**
+   * Create background executors. The compute pool leaves one processor free
+   * for the audio thread.
+   *
+   * @return The executors
+   */
+
+  public static ARI1HostBackground create()
+  {
+    return create(
+      Math.max(1, Runtime.getRuntime().availableProcessors() - 1)
+    );
+  }
+
+  /**
+   * Create background executors.
+   *
+   * @param computeThreads The number of compute threads
+   *
+   * @return The executors
+   */
+
+  public static ARI1HostBackground create(
+    final int computeThreads)
+  {
+    if (computeThreads < 1) {
+      throw new IllegalArgumentException(
+        "Compute thread count %d must be positive"
+          .formatted(Integer.valueOf(computeThreads))
+      );
+    }
+
+    final var io =
+      Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual()
+          .name("com.io7m.aradine.background.io-", 0L)
+          .factory()
+      );
+
+    final var computeIds = new AtomicInteger(0);
+    final var compute =
+      new ThreadPoolExecutor(
+        computeThreads,
+        computeThreads,
+        30L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(COMPUTE_QUEUE_CAPACITY),
+        r -> {
+          final var thread = new Thread(r);
+          thread.setName(
+            "com.io7m.aradine.background.compute-%d"
+              .formatted(Integer.valueOf(computeIds.getAndIncrement()))
+          );
+          thread.setDaemon(true);
+          thread.setPriority(Thread.MIN_PRIORITY);
+          return thread;
+        }
+      );
+    compute.allowCoreThreadTimeOut(true);
+
+    return new ARI1HostBackground(io, compute);
+  }
+
+  /**
+   * Submit a task for execution.
+   *
+   * @param kind The kind of work
+   * @param task The task
+   * @param <T>  The type of results
+   *
+   * @return The future representing the task
+   *
+   * @throws java.util.concurrent.RejectedExecutionException If the task
+   *                                                         cannot be accepted
+   */
+
+  public <T> Future<T> submit(
+    final ARI1BackgroundWorkKind kind,
+    final Callable<T> task)
+  {
+    Objects.requireNonNull(kind, "kind");
+    Objects.requireNonNull(task, "task");
+
+    return switch (kind) {
+      case BACKGROUND_IO -> this.io.submit(task);
+      case BACKGROUND_COMPUTE -> this.compute.submit(task);
+    };
+  }
+
+  @Override
+  public void close()
+  {
+    this.io.shutdownNow();
+    this.compute.shutdownNow();
+  }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundHandleType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundReceiverType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * <p>The background work mailbox of a single instrument instance.</p>
+ *
+ * <p>Tasks run on the executors of an {@link ARI1HostBackground}. Completed
+ * results are placed into a lock-free queue, and are handed to their
+ * receivers when the host calls {@link #deliver()} on the audio thread at
+ * the start of a period.</p>
+ *
+ * <p>Results that are never delivered, because their tasks were cancelled
+ * or because the mailbox was closed, are closed if they are
+ * {@link AutoCloseable}; results may own resources such as threads.</p>
+ */
+
+public final class ARI1HostBackgroundMailbox implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1HostBackgroundMailbox.class);
+
+  private final ARI1HostBackground background;
+  private final ConcurrentLinkedQueue<Completion<?>> completed;
+  private final Set<Handle<?>> pending;
+  private volatile boolean closed;
+
+  /**
+   * Create a mailbox.
+   *
+   * @param inBackground The executors used to run tasks
+   */
+
+  public ARI1HostBackgroundMailbox(
+    final ARI1HostBackground inBackground)
+  {
+    this.background =
+      Objects.requireNonNull(inBackground, "background");
+    this.completed =
+      new ConcurrentLinkedQueue<>();
+    this.pending =
+      ConcurrentHashMap.newKeySet();
+  }
+
+  private record Completion<T>(
+    Handle<T> handle,
+    T result,
+    Exception exception)
+  {
+    void deliver()
+    {
+      if (this.exception != null) {
+        this.handle.receiver.onBackgroundFailed(this.exception);
+      } else {
+        this.handle.receiver.onBackgroundSucceeded(this.result);
+      }
+    }
+  }
+
+  private final class Handle<T> implements ARI1BackgroundHandleType
+  {
+    private final ARI1BackgroundReceiverType<T> receiver;
+    private volatile Future<?> future;
+    private volatile boolean cancelled;
+    private volatile boolean delivered;
+
+    Handle(
+      final ARI1BackgroundReceiverType<T> inReceiver)
+    {
+      this.receiver = inReceiver;
+    }
+
+    @Override
+    public void cancel()
+    {
+      this.cancelled = true;
+      ARI1HostBackgroundMailbox.this.pending.remove(this);
+      final var f = this.future;
+      if (f != null) {
+        f.cancel(true);
+      }
+    }
+
+    @Override
+    public boolean isCompleted()
+    {
+      return this.cancelled || this.delivered;
+    }
+  }
+
+  /**
+   * Submit a task. If the task cannot be accepted by the executors, the
+   * failure is delivered to the receiver like any other failure.
+   *
+   * @param kind     The kind of work
+   * @param task     The task
+   * @param receiver The receiver
+   * @param <T>      The type of results
+   *
+   * @return A handle to the task
+   */
+
+  public <T> ARI1BackgroundHandleType submit(
+    final ARI1BackgroundWorkKind kind,
+    final Callable<T> task,
+    final ARI1BackgroundReceiverType<T> receiver)
+  {
+    Objects.requireNonNull(kind, "kind");
+    Objects.requireNonNull(task, "task");
+    Objects.requireNonNull(receiver, "receiver");
+
+    final var handle = new Handle<>(receiver);
+    this.pending.add(handle);
+
+    try {
+      handle.future = this.background.submit(kind, () -> {
+        this.run(handle, task);
+        return null;
+      });
+    } catch (final RejectedExecutionException e) {
+      this.completed.add(new Completion<>(handle, null, e));
+    }
+    return handle;
+  }
+
+  private <T> void run(
+    final Handle<T> handle,
+    final Callable<T> task)
+  {
+    if (handle.cancelled) {
+      return;
+    }
+
+    try {
+      this.completed.add(new Completion<>(handle, task.call(), null));
+    } catch (final Exception e) {
+      this.completed.add(new Completion<>(handle, null, e));
+    }
+
+    /*
+     * The mailbox may have been closed whilst the task was running, in which
+     * case nothing will ever deliver the result.
+     */
+
+    if (this.closed) {
+      this.discardCompleted();
+    }
+  }
+
+  private void discardCompleted()
+  {
+    while (true) {
+      final var completion = this.completed.poll();
+      if (completion == null) {
+        return;
+      }
+      this.pending.remove(completion.handle());
+      discard(completion.result());
+    }
+  }
+
+  private static void discard(
+    final Object result)
+  {
+    if (result instanceof final AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (final Exception e) {
+        LOG.error("failed to close discarded background result: ", e);
+      }
+    }
+  }
+
+  /**
+   * Deliver all completed results to their receivers. This must be called
+   * by the host on the audio thread at the start of each period, before
+   * the instrument is processed. Results of cancelled tasks are discarded.
+   *
+   * @return The number of results delivered
+   */
+
+  public int deliver()
+  {
+    var count = 0;
+    while (true) {
+      final var completion = this.completed.poll();
+      if (completion == null) {
+        return count;
+      }
+
+      final var handle = completion.handle();
+      this.pending.remove(handle);
+      if (handle.cancelled) {
+        discard(completion.result());
+        continue;
+      }
+
+      handle.delivered = true;
+      try {
+        completion.deliver();
+      } catch (final Exception e) {
+        LOG.error("background receiver raised an exception: ", e);
+      }
+      ++count;
+    }
+  }
+
+  /**
+   * @return The number of tasks submitted whose results have not yet been
+   * delivered
+   */
+
+  public int pendingCount()
+  {
+    return this.pending.size();
+  }
+
+  /**
+   * Cancel all pending tasks and discard any undelivered results.
+   */
+
+  @Override
+  public void close()
+  {
+    this.closed = true;
+    for (final var handle : this.pending) {
+      handle.cancel();
+    }
+    this.pending.clear();
+    this.discardCompleted();
+  }
+}
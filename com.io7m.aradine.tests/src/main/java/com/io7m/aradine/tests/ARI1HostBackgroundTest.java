@@ -0,0 +1,266 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundReceiverType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentServiceBackgroundType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind.BACKGROUND_COMPUTE;
+import static com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind.BACKGROUND_IO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1HostBackgroundTest
+{
+  private ARI1HostBackground background;
+  private ARI1HostBackgroundMailbox mailbox;
+  private Thread audioThread;
+
+  private final class Receiver<T> implements ARI1BackgroundReceiverType<T>
+  {
+    private final List<T> results = new ArrayList<>();
+    private final List<Exception> failures = new ArrayList<>();
+
+    @Override
+    public void onBackgroundSucceeded(
+      final T result)
+    {
+      assertEquals(ARI1HostBackgroundTest.this.audioThread, Thread.currentThread());
+      this.results.add(result);
+    }
+
+    @Override
+    public void onBackgroundFailed(
+      final Exception exception)
+    {
+      assertEquals(ARI1HostBackgroundTest.this.audioThread, Thread.currentThread());
+      this.failures.add(exception);
+    }
+  }
+
+  @BeforeEach
+  public void setup()
+  {
+    this.background = ARI1HostBackground.create(2);
+    this.mailbox = new ARI1HostBackgroundMailbox(this.background);
+    this.audioThread = Thread.currentThread();
+  }
+
+  @AfterEach
+  public void tearDown()
+  {
+    this.mailbox.close();
+    this.background.close();
+  }
+
+  private void deliverUntilIdle()
+    throws InterruptedException
+  {
+    final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10L);
+    while (this.mailbox.pendingCount() > 0) {
+      assertTrue(System.nanoTime() < deadline, "Tasks completed in time");
+      this.mailbox.deliver();
+      Thread.sleep(1L);
+    }
+  }
+
+  /**
+   * Results are delivered on the thread that calls deliver, and are never
+   * delivered before deliver is called.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testDeliveredOnDeliver()
+    throws Exception
+  {
+    final var receiver = new Receiver<Integer>();
+    final var io =
+      this.mailbox.submit(BACKGROUND_IO, () -> Integer.valueOf(23), receiver);
+    final var cpu =
+      this.mailbox.submit(BACKGROUND_COMPUTE, () -> Integer.valueOf(42), receiver);
+
+    Thread.sleep(50L);
+    assertEquals(0, receiver.results.size());
+    assertFalse(io.isCompleted());
+    assertFalse(cpu.isCompleted());
+
+    this.deliverUntilIdle();
+    assertEquals(2, receiver.results.size());
+    assertTrue(receiver.results.contains(Integer.valueOf(23)));
+    assertTrue(receiver.results.contains(Integer.valueOf(42)));
+    assertTrue(io.isCompleted());
+    assertTrue(cpu.isCompleted());
+  }
+
+  /**
+   * Failures are delivered to the receiver.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testFailureDelivered()
+    throws Exception
+  {
+    final var receiver = new Receiver<Integer>();
+    this.mailbox.submit(BACKGROUND_IO, () -> {
+      throw new IOException("Missing!");
+    }, receiver);
+
+    this.deliverUntilIdle();
+    assertEquals(0, receiver.results.size());
+    assertEquals(1, receiver.failures.size());
+    assertTrue(receiver.failures.get(0) instanceof IOException);
+  }
+
+  /**
+   * Services that do not override submission execute work immediately on
+   * the calling thread.
+   */
+
+  @Test
+  public void testDefaultSubmitImmediate()
+  {
+    final var services = new ARI1InstrumentServiceBackgroundType()
+    {
+
+    };
+
+    final var receiver = new Receiver<Integer>();
+    final var h0 =
+      services.backgroundSubmit(BACKGROUND_COMPUTE, () -> 23, receiver);
+    final var h1 =
+      services.backgroundSubmit(BACKGROUND_IO, () -> {
+        throw new IOException("Missing!");
+      }, receiver);
+
+    assertTrue(h0.isCompleted());
+    assertTrue(h1.isCompleted());
+    assertEquals(List.of(Integer.valueOf(23)), receiver.results);
+    assertEquals(1, receiver.failures.size());
+    assertTrue(receiver.failures.get(0) instanceof IOException);
+  }
+
+  /**
+   * Cancelled tasks are never delivered.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCancelled()
+    throws Exception
+  {
+    final var latch = new CountDownLatch(1);
+    final var receiver = new Receiver<Integer>();
+    final var handle =
+      this.mailbox.submit(BACKGROUND_COMPUTE, () -> {
+        latch.await();
+        return Integer.valueOf(23);
+      }, receiver);
+
+    handle.cancel();
+    latch.countDown();
+    assertTrue(handle.isCompleted());
+
+    this.deliverUntilIdle();
+    assertEquals(0, receiver.results.size());
+    assertEquals(0, receiver.failures.size());
+  }
+
+  /**
+   * Tasks rejected by the bounded compute queue are delivered as failures.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRejected()
+    throws Exception
+  {
+    final var latch = new CountDownLatch(1);
+    final var receiver = new Receiver<Integer>();
+    final var total = ARI1HostBackground.COMPUTE_QUEUE_CAPACITY + 3;
+    for (int index = 0; index < total; ++index) {
+      this.mailbox.submit(BACKGROUND_COMPUTE, () -> {
+        latch.await();
+        return Integer.valueOf(1);
+      }, receiver);
+    }
+
+    this.mailbox.deliver();
+    assertEquals(1, receiver.failures.size());
+
+    latch.countDown();
+    this.deliverUntilIdle();
+    assertEquals(total - 1, receiver.results.size());
+  }
+
+  /**
+   * Results that are never delivered, either because their tasks were
+   * cancelled after completing or because the mailbox was closed, are closed
+   * if they are closeable.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testUndeliveredClosed()
+    throws Exception
+  {
+    final var receiver = new Receiver<Resource>();
+    final var cancelled = new Resource();
+    final var handle =
+      this.mailbox.submit(BACKGROUND_COMPUTE, () -> cancelled, receiver);
+    Thread.sleep(50L);
+    handle.cancel();
+
+    this.mailbox.deliver();
+    assertEquals(0, receiver.results.size());
+    assertTrue(cancelled.closed.await(10L, TimeUnit.SECONDS));
+
+    final var abandoned = new Resource();
+    this.mailbox.submit(BACKGROUND_COMPUTE, () -> abandoned, receiver);
+    Thread.sleep(50L);
+    this.mailbox.close();
+    assertEquals(0, receiver.results.size());
+    assertTrue(abandoned.closed.await(10L, TimeUnit.SECONDS));
+  }
+
+  private static final class Resource implements AutoCloseable
+  {
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    @Override
+    public void close()
+    {
+      this.closed.countDown();
+    }
+  }
+}
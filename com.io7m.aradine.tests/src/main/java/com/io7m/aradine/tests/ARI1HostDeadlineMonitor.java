@@ -0,0 +1,215 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>Measures the wall-clock time taken to process each period against the
+ * period budget (the duration of one buffer at the current sample rate).</p>
+ *
+ * <p>The {@link #begin()} and {@link #end(long)} methods are called on the
+ * audio thread and never allocate or block. Everything else may be called
+ * from any thread.</p>
+ */
+
+public final class ARI1HostDeadlineMonitor
+  implements ARI1HostDeadlineMonitorMXBean
+{
+  private final String name;
+  private final ARI1HostLatencyHistogram histogram;
+  private final AtomicLong periods;
+  private final AtomicLong overruns;
+  private final AtomicLong xruns;
+  private volatile long budgetNanoseconds;
+
+  public ARI1HostDeadlineMonitor(
+    final String inName,
+    final int bufferSize,
+    final int sampleRate)
+  {
+    this.name =
+      Objects.requireNonNull(inName, "name");
+    this.histogram =
+      new ARI1HostLatencyHistogram();
+    this.periods =
+      new AtomicLong(0L);
+    this.overruns =
+      new AtomicLong(0L);
+    this.xruns =
+      new AtomicLong(0L);
+
+    this.setPeriod(bufferSize, sampleRate);
+  }
+
+  /**
+   * Calculate the duration of a period in nanoseconds.
+   *
+   * @param bufferSize The buffer size in frames
+   * @param sampleRate The sample rate in frames per second
+   *
+   * @return The duration of one period
+   */
+
+  public static long periodNanoseconds(
+    final int bufferSize,
+    final int sampleRate)
+  {
+    if (sampleRate <= 0) {
+      return 0L;
+    }
+    return ((long) bufferSize * 1_000_000_000L) / (long) sampleRate;
+  }
+
+  /**
+   * Set the period parameters from which the budget is derived.
+   *
+   * @param bufferSize The buffer size in frames
+   * @param sampleRate The sample rate in frames per second
+   */
+
+  public void setPeriod(
+    final int bufferSize,
+    final int sampleRate)
+  {
+    this.budgetNanoseconds = periodNanoseconds(bufferSize, sampleRate);
+  }
+
+  /**
+   * Start measuring a period.
+   *
+   * @return The start time, to be passed to {@link #end(long)}
+   */
+
+  public long begin()
+  {
+    return System.nanoTime();
+  }
+
+  /**
+   * Finish measuring a period.
+   *
+   * @param startTime The value returned by {@link #begin()}
+   *
+   * @return The time taken by the period in nanoseconds
+   */
+
+  public long end(
+    final long startTime)
+  {
+    final var elapsed = System.nanoTime() - startTime;
+    this.record(elapsed);
+    return elapsed;
+  }
+
+  /**
+   * Record the duration of a period directly.
+   *
+   * @param elapsed The time taken by the period in nanoseconds
+   */
+
+  public void record(
+    final long elapsed)
+  {
+    this.histogram.record(elapsed);
+    this.periods.setRelease(this.periods.getPlain() + 1L);
+    if (elapsed > this.budgetNanoseconds) {
+      this.overruns.setRelease(this.overruns.getPlain() + 1L);
+    }
+  }
+
+  /**
+   * Indicate that the audio driver reported an xrun. This may be called
+   * from any thread.
+   */
+
+  public void xrun()
+  {
+    this.xruns.incrementAndGet();
+  }
+
+  /**
+   * @return A snapshot of the current statistics
+   */
+
+  public ARI1HostDeadlineSnapshot snapshot()
+  {
+    return new ARI1HostDeadlineSnapshot(
+      this.name,
+      this.budgetNanoseconds,
+      this.periods.getAcquire(),
+      this.overruns.getAcquire(),
+      this.xruns.get(),
+      this.histogram.snapshot()
+    );
+  }
+
+  @Override
+  public String getName()
+  {
+    return this.name;
+  }
+
+  @Override
+  public long getBudgetNanoseconds()
+  {
+    return this.budgetNanoseconds;
+  }
+
+  @Override
+  public long getPeriods()
+  {
+    return this.periods.getAcquire();
+  }
+
+  @Override
+  public long getOverruns()
+  {
+    return this.overruns.getAcquire();
+  }
+
+  @Override
+  public long getXruns()
+  {
+    return this.xruns.get();
+  }
+
+  @Override
+  public long getLatencyP50Nanoseconds()
+  {
+    return this.histogram.snapshot().valueAtPercentile(50.0);
+  }
+
+  @Override
+  public long getLatencyP99Nanoseconds()
+  {
+    return this.histogram.snapshot().valueAtPercentile(99.0);
+  }
+
+  @Override
+  public long getLatencyMaxNanoseconds()
+  {
+    return this.histogram.maximum();
+  }
+
+  @Override
+  public double getLoadP99()
+  {
+    return this.snapshot().loadP99();
+  }
+}
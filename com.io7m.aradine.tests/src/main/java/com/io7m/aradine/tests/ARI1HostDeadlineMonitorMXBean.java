@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * The JMX view of a deadline monitor. All durations are in nanoseconds.
+ */
+
+public interface ARI1HostDeadlineMonitorMXBean
+{
+  /**
+   * @return The name of the monitored instance or graph
+   */
+
+  String getName();
+
+  /**
+   * @return The time available to process one period
+   */
+
+  long getBudgetNanoseconds();
+
+  /**
+   * @return The number of periods measured
+   */
+
+  long getPeriods();
+
+  /**
+   * @return The number of periods that took longer than the budget
+   */
+
+  long getOverruns();
+
+  /**
+   * @return The number of xruns reported by the audio driver
+   */
+
+  long getXruns();
+
+  /**
+   * @return The median processing time
+   */
+
+  long getLatencyP50Nanoseconds();
+
+  /**
+   * @return The 99th percentile processing time
+   */
+
+  long getLatencyP99Nanoseconds();
+
+  /**
+   * @return The largest processing time
+   */
+
+  long getLatencyMaxNanoseconds();
+
+  /**
+   * @return The 99th percentile processing time as a fraction of the budget
+   */
+
+  double getLoadP99();
+}
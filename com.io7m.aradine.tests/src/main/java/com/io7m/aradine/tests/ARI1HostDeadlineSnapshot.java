@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import java.util.Objects;
+
+/**
+ * A snapshot of the deadline statistics of a single instrument instance or
+ * processing graph. All durations are in nanoseconds.
+ *
+ * @param name              The name of the monitored instance or graph
+ * @param budgetNanoseconds The time available to process one period
+ * @param periods           The number of periods measured
+ * @param overruns          The number of periods that exceeded the budget
+ * @param xruns             The number of xruns reported by the driver
+ * @param histogram         The distribution of processing times
+ */
+
+public record ARI1HostDeadlineSnapshot(
+  String name,
+  long budgetNanoseconds,
+  long periods,
+  long overruns,
+  long xruns,
+  ARI1HostLatencyHistogramSnapshot histogram)
+{
+  public ARI1HostDeadlineSnapshot
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(histogram, "histogram");
+  }
+
+  /**
+   * @return The median processing time
+   */
+
+  public long latencyP50()
+  {
+    return this.histogram.valueAtPercentile(50.0);
+  }
+
+  /**
+   * @return The 99th percentile processing time
+   */
+
+  public long latencyP99()
+  {
+    return this.histogram.valueAtPercentile(99.0);
+  }
+
+  /**
+   * @return The largest processing time
+   */
+
+  public long latencyMax()
+  {
+    return this.histogram.maximum();
+  }
+
+  /**
+   * @return The 99th percentile processing time as a fraction of the budget
+   */
+
+  public double loadP99()
+  {
+    if (this.budgetNanoseconds == 0L) {
+      return 0.0;
+    }
+    return (double) this.latencyP99() / (double) this.budgetNanoseconds;
+  }
+
+  /**
+   * Subtract an earlier snapshot of the same monitor from this snapshot,
+   * yielding the statistics for the interval between the two snapshots.
+   *
+   * @param earlier The earlier snapshot
+   *
+   * @return The statistics for the interval
+   */
+
+  public ARI1HostDeadlineSnapshot minus(
+    final ARI1HostDeadlineSnapshot earlier)
+  {
+    return new ARI1HostDeadlineSnapshot(
+      this.name,
+      this.budgetNanoseconds,
+      this.periods - earlier.periods,
+      this.overruns - earlier.overruns,
+      this.xruns - earlier.xruns,
+      this.histogram.minus(earlier.histogram)
+    );
+  }
+
+  @Override
+  public String toString()
+  {
+    return String.format(
+      "[%s] periods %d overruns %d xruns %d p50 %.3fms p99 %.3fms max %.3fms (budget %.3fms, p99 load %.1f%%)",
+      this.name,
+      Long.valueOf(this.periods),
+      Long.valueOf(this.overruns),
+      Long.valueOf(this.xruns),
+      Double.valueOf((double) this.latencyP50() / 1_000_000.0),
+      Double.valueOf((double) this.latencyP99() / 1_000_000.0),
+      Double.valueOf((double) this.latencyMax() / 1_000_000.0),
+      Double.valueOf((double) this.budgetNanoseconds / 1_000_000.0),
+      Double.valueOf(this.loadP99() * 100.0)
+    );
+  }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * <p>The deadline monitors for a host: one monitor for the whole processing
+ * graph, and one monitor per instrument instance.</p>
+ *
+ * <p>Monitors are created up front (never on the audio thread), are
+ * published through JMX, and can be sampled periodically through
+ * {@link #startReporting(Duration, Consumer)}.</p>
+ */
+
+public final class ARI1HostDeadlines implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1HostDeadlines.class);
+
+  private static final String JMX_DOMAIN =
+    "com.io7m.aradine";
+
+  private final String hostName;
+  private final ARI1HostDeadlineMonitor graph;
+  private final Map<String, ARI1HostDeadlineMonitor> instances;
+  private final List<ObjectName> registered;
+  private final List<ScheduledExecutorService> reporters;
+  private final MBeanServer server;
+  private int bufferSize;
+  private int sampleRate;
+
+  private ARI1HostDeadlines(
+    final String inHostName,
+    final int inBufferSize,
+    final int inSampleRate)
+  {
+    this.hostName =
+      Objects.requireNonNull(inHostName, "hostName");
+    this.bufferSize =
+      inBufferSize;
+    this.sampleRate =
+      inSampleRate;
+    this.graph =
+      new ARI1HostDeadlineMonitor("graph", inBufferSize, inSampleRate);
+    this.instances =
+      new HashMap<>();
+    this.registered =
+      new CopyOnWriteArrayList<>();
+    this.reporters =
+      new CopyOnWriteArrayList<>();
+    this.server =
+      ManagementFactory.getPlatformMBeanServer();
+  }
+
+  /**
+   * Create a set of deadline monitors, registering the graph monitor with
+   * the platform MBean server.
+   *
+   * @param hostName   The host name used to qualify JMX object names
+   * @param bufferSize The initial buffer size
+   * @param sampleRate The initial sample rate
+   *
+   * @return The monitors
+   */
+
+  public static ARI1HostDeadlines create(
+    final String hostName,
+    final int bufferSize,
+    final int sampleRate)
+  {
+    final var deadlines =
+      new ARI1HostDeadlines(hostName, bufferSize, sampleRate);
+    deadlines.register(deadlines.graph);
+    return deadlines;
+  }
+
+  /**
+   * @return The monitor for the whole processing graph
+   */
+
+  public ARI1HostDeadlineMonitor graph()
+  {
+    return this.graph;
+  }
+
+  /**
+   * Create (or retrieve) the monitor for an instrument instance. This must
+   * not be called on the audio thread.
+   *
+   * @param name The instance name
+   *
+   * @return The monitor
+   */
+
+  public ARI1HostDeadlineMonitor instance(
+    final String name)
+  {
+    Objects.requireNonNull(name, "name");
+
+    synchronized (this.instances) {
+      final var existing = this.instances.get(name);
+      if (existing != null) {
+        return existing;
+      }
+
+      final var monitor =
+        new ARI1HostDeadlineMonitor(name, this.bufferSize, this.sampleRate);
+      this.instances.put(name, monitor);
+      this.register(monitor);
+      return monitor;
+    }
+  }
+
+  /**
+   * Update the period parameters of all monitors.
+   *
+   * @param newBufferSize The buffer size
+   * @param newSampleRate The sample rate
+   */
+
+  public void setPeriod(
+    final int newBufferSize,
+    final int newSampleRate)
+  {
+    synchronized (this.instances) {
+      this.bufferSize = newBufferSize;
+      this.sampleRate = newSampleRate;
+      this.graph.setPeriod(newBufferSize, newSampleRate);
+      for (final var monitor : this.instances.values()) {
+        monitor.setPeriod(newBufferSize, newSampleRate);
+      }
+    }
+  }
+
+  /**
+   * Indicate that the audio driver reported an xrun.
+   */
+
+  public void xrun()
+  {
+    this.graph.xrun();
+  }
+
+  /**
+   * @return A snapshot of every monitor, graph first
+   */
+
+  public List<ARI1HostDeadlineSnapshot> snapshots()
+  {
+    final var results = new ArrayList<ARI1HostDeadlineSnapshot>();
+    results.add(this.graph.snapshot());
+    synchronized (this.instances) {
+      for (final var monitor : this.instances.values()) {
+        results.add(monitor.snapshot());
+      }
+    }
+    return List.copyOf(results);
+  }
+
+  /**
+   * Start delivering periodic snapshots to the given receiver. Each delivered
+   * snapshot describes only the interval since the previous delivery. The
+   * receiver is called on a dedicated (non-audio) thread.
+   *
+   * @param interval The interval between deliveries
+   * @param receiver The receiver
+   *
+   * @return A handle that stops the reporting when closed
+   */
+
+  public AutoCloseable startReporting(
+    final Duration interval,
+    final Consumer<List<ARI1HostDeadlineSnapshot>> receiver)
+  {
+    Objects.requireNonNull(interval, "interval");
+    Objects.requireNonNull(receiver, "receiver");
+
+    final var executor =
+      Executors.newSingleThreadScheduledExecutor(r -> {
+        final var thread = new Thread(r);
+        thread.setName("com.io7m.aradine.deadlines.reporter");
+        thread.setDaemon(true);
+        return thread;
+      });
+
+    final var previous = new HashMap<String, ARI1HostDeadlineSnapshot>();
+    final var millis = Math.max(1L, interval.toMillis());
+    executor.scheduleAtFixedRate(() -> {
+      try {
+        final var current = this.snapshots();
+        final var intervals =
+          new ArrayList<ARI1HostDeadlineSnapshot>(current.size());
+        for (final var snapshot : current) {
+          final var before = previous.get(snapshot.name());
+          if (before == null) {
+            intervals.add(snapshot);
+          } else {
+            intervals.add(snapshot.minus(before));
+          }
+          previous.put(snapshot.name(), snapshot);
+        }
+        receiver.accept(List.copyOf(intervals));
+      } catch (final Exception e) {
+        LOG.error("deadline reporter: ", e);
+      }
+    }, millis, millis, TimeUnit.MILLISECONDS);
+
+    this.reporters.add(executor);
+    return () -> {
+      this.reporters.remove(executor);
+      executor.shutdownNow();
+    };
+  }
+
+  private void register(
+    final ARI1HostDeadlineMonitor monitor)
+  {
+    try {
+      final var name =
+        new ObjectName(
+          "%s:type=Deadlines,host=%s,name=%s".formatted(
+            JMX_DOMAIN,
+            ObjectName.quote(this.hostName),
+            ObjectName.quote(monitor.getName())
+          )
+        );
+
+      if (this.server.isRegistered(name)) {
+        this.server.unregisterMBean(name);
+      }
+      this.server.registerMBean(monitor, name);
+      this.registered.add(name);
+    } catch (final JMException e) {
+      LOG.warn("unable to register deadline monitor with JMX: ", e);
+    }
+  }
+
+  @Override
+  public void close()
+  {
+    for (final var executor : this.reporters) {
+      executor.shutdownNow();
+    }
+    this.reporters.clear();
+
+    for (final var name : this.registered) {
+      try {
+        this.server.unregisterMBean(name);
+      } catch (final JMException e) {
+        LOG.warn("unable to unregister deadline monitor: ", e);
+      }
+    }
+    this.registered.clear();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the duration of every garbage collection reported by the JVM,
+ * per collector.
+ */
+
+public final class ARI1HostGCPauses
+  implements NotificationListener, AutoCloseable
+{
+  private final ConcurrentHashMap<String, ARI1HostLatencyHistogram> byCollector;
+  private final List<NotificationEmitter> emitters;
+
+  private ARI1HostGCPauses()
+  {
+    this.byCollector = new ConcurrentHashMap<>();
+    this.emitters = new ArrayList<>();
+  }
+
+  /**
+   * Start recording garbage collections.
+   *
+   * @return The recorder
+   */
+
+  public static ARI1HostGCPauses start()
+  {
+    final var pauses = new ARI1HostGCPauses();
+    for (final var bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (bean instanceof NotificationEmitter emitter) {
+        emitter.addNotificationListener(pauses, null, null);
+        pauses.emitters.add(emitter);
+      }
+    }
+    return pauses;
+  }
+
+  @Override
+  public void handleNotification(
+    final Notification notification,
+    final Object handback)
+  {
+    final var type =
+      GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION;
+    if (!type.equals(notification.getType())) {
+      return;
+    }
+
+    final var info =
+      GarbageCollectionNotificationInfo.from(
+        (CompositeData) notification.getUserData());
+
+    /*
+     * Notifications are delivered on a single JVM service thread, so each
+     * histogram has a single writer.
+     */
+
+    this.byCollector.computeIfAbsent(
+      info.getGcName(),
+      k -> new ARI1HostLatencyHistogram()
+    ).record(info.getGcInfo().getDuration() * 1_000_000L);
+  }
+
+  /**
+   * @return A snapshot of the recorded durations (in nanoseconds, at
+   * millisecond precision) per collector
+   */
+
+  public Map<String, ARI1HostLatencyHistogramSnapshot> snapshot()
+  {
+    final var results =
+      new TreeMap<String, ARI1HostLatencyHistogramSnapshot>();
+    for (final var entry : this.byCollector.entrySet()) {
+      results.put(entry.getKey(), entry.getValue().snapshot());
+    }
+    return results;
+  }
+
+  @Override
+  public void close()
+  {
+    for (final var emitter : this.emitters) {
+      try {
+        emitter.removeNotificationListener(this);
+      } catch (final ListenerNotFoundException e) {
+        // Ignored
+      }
+    }
+    this.emitters.clear();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
+
+/**
+ * A single instrument instance running inside a host.
+ */
+
+public interface ARI1HostInstanceType
+{
+  /**
+   * @return The instance name
+   */
+
+  String name();
+
+  /**
+   * @return The instrument services of the instance
+   */
+
+  ARI1MiniInstrumentServices services();
+
+  /**
+   * Send an event to the instrument at the start of the next period.
+   *
+   * @param event The event
+   */
+
+  default void sendEvent(
+    final ARI1EventConfigurationType event)
+  {
+    this.sendEvent(event, () -> {
+
+    });
+  }
+
+  /**
+   * Send an event to the instrument at the start of the next period,
+   * running {@code action} on the audio thread immediately beforehand.
+   *
+   * @param event  The event
+   * @param action The action
+   */
+
+  void sendEvent(
+    ARI1EventConfigurationType event,
+    Runnable action);
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A lock-free, allocation-free histogram of durations in nanoseconds.</p>
+ *
+ * <p>Values are counted in logarithmic buckets: each power of two is split
+ * into eight linear sub-buckets, so any recorded value is reported with a
+ * relative error of at most 12.5%. The histogram expects a single writer
+ * (the audio thread) and any number of concurrent readers. Recording a value
+ * never allocates and never blocks.</p>
+ */
+
+public final class ARI1HostLatencyHistogram
+{
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+
+  /**
+   * The number of buckets required to cover all non-negative {@code long}
+   * values.
+   */
+
+  static final int BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong count;
+  private final AtomicLong maximum;
+
+  public ARI1HostLatencyHistogram()
+  {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new AtomicLong(0L);
+    this.maximum = new AtomicLong(0L);
+  }
+
+  static int bucketIndexOf(
+    final long value)
+  {
+    final var v = Math.max(0L, value);
+    if (v < SUB_BUCKETS) {
+      return (int) v;
+    }
+
+    final var exponent = 63 - Long.numberOfLeadingZeros(v);
+    final var shift = exponent - SUB_BUCKET_BITS;
+    final var sub = (int) ((v >>> shift) & SUB_BUCKET_MASK);
+    return ((shift + 1) * SUB_BUCKETS) + sub;
+  }
+
+  static long bucketLowerOf(
+    final int index)
+  {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    final var shift = (index / SUB_BUCKETS) - 1;
+    final var sub = (long) (index % SUB_BUCKETS);
+    return (SUB_BUCKETS + sub) << shift;
+  }
+
+  static long bucketUpperOf(
+    final int index)
+  {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    final var shift = (index / SUB_BUCKETS) - 1;
+    return bucketLowerOf(index) + ((1L << shift) - 1L);
+  }
+
+  /**
+   * Record a value. This method must only be called by a single thread at
+   * any given time.
+   *
+   * @param nanoseconds The value
+   */
+
+  public void record(
+    final long nanoseconds)
+  {
+    final var index = bucketIndexOf(nanoseconds);
+
+    /*
+     * There is exactly one writer, so plain increments published with
+     * release semantics are sufficient; no read-modify-write instructions
+     * are required on the audio thread.
+     */
+
+    this.counts.setRelease(index, this.counts.getPlain(index) + 1L);
+    this.count.setRelease(this.count.getPlain() + 1L);
+
+    if (nanoseconds > this.maximum.getPlain()) {
+      this.maximum.setRelease(nanoseconds);
+    }
+  }
+
+  /**
+   * @return The number of recorded values
+   */
+
+  public long count()
+  {
+    return this.count.getAcquire();
+  }
+
+  /**
+   * @return The largest recorded value
+   */
+
+  public long maximum()
+  {
+    return this.maximum.getAcquire();
+  }
+
+  /**
+   * Take a snapshot of the histogram. This method allocates and should not
+   * be called on the audio thread.
+   *
+   * @return A snapshot of the current state of the histogram
+   */
+
+  public ARI1HostLatencyHistogramSnapshot snapshot()
+  {
+    final var maximumNow = this.maximum.getAcquire();
+    final var copy = new long[BUCKETS];
+    var total = 0L;
+    for (int index = 0; index < BUCKETS; ++index) {
+      final var c = this.counts.getAcquire(index);
+      copy[index] = c;
+      total += c;
+    }
+    return new ARI1HostLatencyHistogramSnapshot(copy, total, maximumNow);
+  }
+}
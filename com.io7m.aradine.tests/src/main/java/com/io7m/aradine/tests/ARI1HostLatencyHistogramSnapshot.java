@@ -0,0 +1,136 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import java.util.Objects;
+
+/**
+ * An immutable snapshot of a latency histogram.
+ *
+ * @param counts  The per-bucket counts
+ * @param count   The total number of values
+ * @param maximum The largest value seen
+ */
+
+public record ARI1HostLatencyHistogramSnapshot(
+  long[] counts,
+  long count,
+  long maximum)
+{
+  public ARI1HostLatencyHistogramSnapshot
+  {
+    Objects.requireNonNull(counts, "counts");
+    if (counts.length != ARI1HostLatencyHistogram.BUCKETS) {
+      throw new IllegalArgumentException(
+        "Histogram snapshots must have %d buckets"
+          .formatted(Integer.valueOf(ARI1HostLatencyHistogram.BUCKETS))
+      );
+    }
+  }
+
+  /**
+   * @return An empty snapshot
+   */
+
+  public static ARI1HostLatencyHistogramSnapshot empty()
+  {
+    return new ARI1HostLatencyHistogramSnapshot(
+      new long[ARI1HostLatencyHistogram.BUCKETS],
+      0L,
+      0L
+    );
+  }
+
+  /**
+   * Estimate the value at the given percentile. The estimate is the upper
+   * bound of the bucket containing the percentile, clamped to the largest
+   * value seen.
+   *
+   * @param percentile The percentile in the range {@code [0, 100]}
+   *
+   * @return The estimated value, or {@code 0} if the snapshot is empty
+   */
+
+  public long valueAtPercentile(
+    final double percentile)
+  {
+    if (this.count == 0L) {
+      return 0L;
+    }
+
+    final var clamped =
+      Math.min(100.0, Math.max(0.0, percentile));
+    final var target =
+      Math.max(1L, (long) Math.ceil((clamped / 100.0) * (double) this.count));
+
+    var seen = 0L;
+    for (int index = 0; index < this.counts.length; ++index) {
+      seen += this.counts[index];
+      if (seen >= target) {
+        return Math.min(
+          ARI1HostLatencyHistogram.bucketUpperOf(index),
+          this.maximum
+        );
+      }
+    }
+    return this.maximum;
+  }
+
+  /**
+   * Subtract an earlier snapshot of the same histogram from this snapshot,
+   * yielding the distribution of values recorded between the two snapshots.
+   * The maximum of the result is the maximum of this snapshot if it changed
+   * since {@code earlier}, and otherwise the upper bound of the highest
+   * non-empty bucket of the difference.
+   *
+   * @param earlier The earlier snapshot
+   *
+   * @return The difference
+   */
+
+  public ARI1HostLatencyHistogramSnapshot minus(
+    final ARI1HostLatencyHistogramSnapshot earlier)
+  {
+    Objects.requireNonNull(earlier, "earlier");
+
+    final var diff = new long[this.counts.length];
+    var total = 0L;
+    var highest = -1;
+    for (int index = 0; index < diff.length; ++index) {
+      final var c = Math.max(0L, this.counts[index] - earlier.counts[index]);
+      diff[index] = c;
+      total += c;
+      if (c > 0L) {
+        highest = index;
+      }
+    }
+
+    final long max;
+    if (highest == -1) {
+      max = 0L;
+    } else if (this.maximum != earlier.maximum) {
+      max = this.maximum;
+    } else {
+      max = Math.min(
+        ARI1HostLatencyHistogram.bucketUpperOf(highest),
+        this.maximum
+      );
+    }
+
+    return new ARI1HostLatencyHistogramSnapshot(diff, total, max);
+  }
+}
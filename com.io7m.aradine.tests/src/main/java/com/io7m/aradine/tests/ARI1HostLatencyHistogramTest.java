@@ -0,0 +1,122 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1HostLatencyHistogramTest
+{
+  @Test
+  public void testBucketsContainValues()
+  {
+    for (long value = 0L; value < 100_000L; ++value) {
+      final var index = ARI1HostLatencyHistogram.bucketIndexOf(value);
+      assertTrue(ARI1HostLatencyHistogram.bucketLowerOf(index) <= value);
+      assertTrue(ARI1HostLatencyHistogram.bucketUpperOf(index) >= value);
+    }
+
+    final var last =
+      ARI1HostLatencyHistogram.bucketIndexOf(Long.MAX_VALUE);
+    assertTrue(last < ARI1HostLatencyHistogram.BUCKETS);
+    assertEquals(
+      Long.MAX_VALUE,
+      ARI1HostLatencyHistogram.bucketUpperOf(last)
+    );
+  }
+
+  @Test
+  public void testBucketsContiguous()
+  {
+    for (int index = 1; index < ARI1HostLatencyHistogram.BUCKETS; ++index) {
+      assertEquals(
+        ARI1HostLatencyHistogram.bucketUpperOf(index - 1) + 1L,
+        ARI1HostLatencyHistogram.bucketLowerOf(index)
+      );
+    }
+  }
+
+  @Test
+  public void testPercentiles()
+  {
+    final var histogram = new ARI1HostLatencyHistogram();
+    for (long value = 1L; value <= 1000L; ++value) {
+      histogram.record(value * 1000L);
+    }
+
+    final var snapshot = histogram.snapshot();
+    assertEquals(1000L, snapshot.count());
+    assertEquals(1_000_000L, snapshot.maximum());
+
+    final var p50 = snapshot.valueAtPercentile(50.0);
+    final var p99 = snapshot.valueAtPercentile(99.0);
+    assertTrue(p50 >= 500_000L && p50 <= 500_000L * 9L / 8L, "p50 " + p50);
+    assertTrue(p99 >= 990_000L && p99 <= 1_000_000L, "p99 " + p99);
+    assertEquals(1_000_000L, snapshot.valueAtPercentile(100.0));
+  }
+
+  @Test
+  public void testMinus()
+  {
+    final var histogram = new ARI1HostLatencyHistogram();
+    for (int index = 0; index < 100; ++index) {
+      histogram.record(2000L);
+    }
+    final var before = histogram.snapshot();
+    for (int index = 0; index < 10; ++index) {
+      histogram.record(100L);
+    }
+    final var after = histogram.snapshot();
+
+    final var diff = after.minus(before);
+    assertEquals(10L, diff.count());
+    assertTrue(diff.valueAtPercentile(100.0) <= 100L * 9L / 8L);
+    assertEquals(
+      0L,
+      ARI1HostLatencyHistogramSnapshot.empty().valueAtPercentile(50.0)
+    );
+  }
+
+  @Test
+  public void testMonitorOverruns()
+  {
+    final var monitor =
+      new ARI1HostDeadlineMonitor("x", 480, 48000);
+
+    assertEquals(10_000_000L, monitor.getBudgetNanoseconds());
+
+    monitor.record(1_000_000L);
+    monitor.record(9_000_000L);
+    monitor.record(11_000_000L);
+    monitor.xrun();
+
+    final var snapshot = monitor.snapshot();
+    assertEquals(3L, snapshot.periods());
+    assertEquals(1L, snapshot.overruns());
+    assertEquals(1L, snapshot.xruns());
+    assertEquals(11_000_000L, snapshot.latencyMax());
+    assertTrue(snapshot.loadP99() > 1.0);
+
+    monitor.record(1_000_000L);
+    final var interval = monitor.snapshot().minus(snapshot);
+    assertEquals(1L, interval.periods());
+    assertEquals(0L, interval.overruns());
+    assertEquals(0L, interval.xruns());
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteOff;
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteOn;
+import com.io7m.aradine.instrument.spi1.ARI1EventNotePitchBend;
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteType;
+
+/**
+ * Functions to decode raw MIDI messages.
+ */
+
+public final class ARI1HostMIDI
+{
+  private ARI1HostMIDI()
+  {
+
+  }
+
+  /**
+   * @param data The message data
+   * @param size The message size
+   *
+   * @return The channel of a channel message, or {@code -1} if the message
+   * is not a channel message
+   */
+
+  public static int channel(
+    final byte[] data,
+    final int size)
+  {
+    if (size > 0) {
+      final var status = data[0] & 0xff;
+      if (status >= 0x80 && status < 0xf0) {
+        return status & 0b00001111;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Parse a note event from a raw MIDI message.
+   *
+   * @param data The message data
+   * @param size The message size
+   * @param time The offset in frames of the message within the period
+   *
+   * @return A note event, or {@code null} if the message is not a note event
+   */
+
+  public static ARI1EventNoteType parseEvent(
+    final byte[] data,
+    final int size,
+    final int time)
+  {
+    if (size >= 3) {
+      final var status = (data[0] & 0b11110000) >>> 4;
+
+      if (status == 9) {
+        final var note = (int) data[1] & 0xff;
+        final var velo = (int) data[2] & 0xff;
+        final var velF = (double) velo / 127.0;
+        return new ARI1EventNoteOn(time, note, velF);
+      }
+
+      if (status == 8) {
+        final var note = (int) data[1] & 0xff;
+        final var velo = (int) data[2] & 0xff;
+        final var velF = (double) velo / 127.0;
+        return new ARI1EventNoteOff(time, note, velF);
+      }
+
+      if (status == 14) {
+        final var lsb = (int) data[1];
+        final var msb = (int) data[2];
+        final var val = (msb << 8) | lsb;
+        final var valD = ((double) val) / 32768.0;
+        final var valS = (valD * 2.0) - 1.0;
+        return new ARI1EventNotePitchBend(time, valS);
+      }
+    }
+
+    return null;
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.grain_sampler_m0.ARIGM0SamplerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>A headless soak test of the mini host. The host is driven either by a
+ * simulated wall-clock driver ({@code simulated}) or by a file-backed driver
+ * that renders as fast as possible ({@code file}), with a repeating pattern
+ * of notes as input. At the end of the run, the scheduling jitter of the
+ * driver, the garbage collection pauses, and the deadline statistics are
+ * logged.</p>
+ *
+ * <p>Usage: {@code ARI1HostSoak [simulated|file] [seconds] [buffer-size]
+ * [sample-rate] [output-file]}</p>
+ */
+
+public final class ARI1HostSoak
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1HostSoak.class);
+
+  private static final int[] NOTES = {62, 64, 65, 66};
+
+  private ARI1HostSoak()
+  {
+
+  }
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    final var mode =
+      args.length > 0 ? args[0] : "simulated";
+    final var duration =
+      Duration.ofSeconds(args.length > 1 ? Long.parseLong(args[1]) : 60L);
+    final var bufferSize =
+      args.length > 2 ? Integer.parseInt(args[2]) : 256;
+    final var sampleRate =
+      args.length > 3 ? Integer.parseInt(args[3]) : 48000;
+    final var output =
+      Paths.get(args.length > 4 ? args[4] : "soak.wav");
+
+    final var periodsPerNote =
+      Math.max(1L, (sampleRate / 4L) / bufferSize);
+
+    final ARI1AudioDriverMIDISourceType notes = (period, frames, midi) -> {
+      if (period % periodsPerNote == 0L) {
+        final var step = (int) (period / periodsPerNote);
+        final var note = NOTES[step % NOTES.length];
+        final var previous = NOTES[(step + NOTES.length - 1) % NOTES.length];
+        midi.add3(0, 0x80, previous, 0);
+        midi.add3(0, 0x90, note, 100);
+      }
+    };
+
+    try (var gc = ARI1HostGCPauses.start()) {
+      switch (mode) {
+        case "file" -> {
+          final var frames = duration.toSeconds() * sampleRate;
+          final var driver =
+            ARI1AudioDriverFile.create(
+              "soak", output, bufferSize, sampleRate, 2, frames, notes);
+
+          final var timeThen = System.nanoTime();
+          try (var host = createHost(driver)) {
+            host.start(Duration.ofSeconds(10L));
+            driver.awaitCompletion(Long.MAX_VALUE, TimeUnit.DAYS);
+            report(host);
+          }
+          final var elapsed = System.nanoTime() - timeThen;
+          LOG.info(
+            "rendered {} frames to {} in {}ms ({}x real time)",
+            Long.valueOf(frames),
+            output,
+            Long.valueOf(TimeUnit.NANOSECONDS.toMillis(elapsed)),
+            String.format(
+              "%.2f",
+              Double.valueOf(
+                (double) duration.toNanos() / (double) elapsed))
+          );
+        }
+
+        case "simulated" -> {
+          final var driver =
+            ARI1AudioDriverSimulated.create(
+              "soak", bufferSize, sampleRate, 2, notes);
+
+          try (var host = createHost(driver)) {
+            host.start(Duration.ofSeconds(10L));
+            Thread.sleep(duration.toMillis());
+            driver.close();
+            report(host);
+
+            final var jitter = driver.jitter().snapshot();
+            LOG.info(
+              "driver jitter: periods {} p50 {}us p99 {}us max {}us, missed periods {}",
+              Long.valueOf(jitter.count()),
+              Long.valueOf(jitter.valueAtPercentile(50.0) / 1000L),
+              Long.valueOf(jitter.valueAtPercentile(99.0) / 1000L),
+              Long.valueOf(jitter.maximum() / 1000L),
+              Long.valueOf(driver.periodsMissed())
+            );
+          }
+        }
+
+        default -> {
+          throw new IllegalArgumentException(
+            "Unrecognized driver: %s (must be 'simulated' or 'file')"
+              .formatted(mode)
+          );
+        }
+      }
+
+      for (final var entry : gc.snapshot().entrySet()) {
+        final var pauses = entry.getValue();
+        LOG.info(
+          "gc {}: count {} p99 {}ms max {}ms",
+          entry.getKey(),
+          Long.valueOf(pauses.count()),
+          Long.valueOf(pauses.valueAtPercentile(99.0) / 1_000_000L),
+          Long.valueOf(pauses.maximum() / 1_000_000L)
+        );
+      }
+    }
+  }
+
+  private static ARI1MiniHost createHost(
+    final ARI1AudioDriverType driver)
+    throws Exception
+  {
+    final var host =
+      ARI1MiniHost.create("sampler0", driver, new ARIGM0SamplerFactory());
+    ARI1MiniJackHost.configureGrainSampler(host);
+    return host;
+  }
+
+  private static void report(
+    final ARI1MiniHost host)
+  {
+    for (final var snapshot : host.deadlines().snapshots()) {
+      LOG.info("total: {}", snapshot);
+    }
+  }
+}
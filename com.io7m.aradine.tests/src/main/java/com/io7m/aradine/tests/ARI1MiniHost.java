@@ -0,0 +1,299 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.jfr1.ARJ1EventProcess;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationSampleRateChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentFactoryType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A minimal host for a single instrument instance, independent of the audio
+ * driver that calls it.
+ */
+
+public final class ARI1MiniHost
+  implements ARI1AudioDriverCallbacksType, ARI1HostInstanceType, AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1MiniHost.class);
+
+  private final String name;
+  private final ARI1AudioDriverType driver;
+  private final ARI1MiniInstrumentServices services;
+  private final ARI1InstrumentType instrument;
+  private final ARI1HostDeadlines deadlines;
+  private final ARI1HostDeadlineMonitor deadlinesGraph;
+  private final ARI1HostDeadlineMonitor deadlinesInstrument;
+  private final ConcurrentLinkedQueue<Message> messages;
+  private final List<ARI1PortOutputAudio> outputs;
+  private final ARI1PortInputNote noteInput;
+  private final byte[] eventData;
+  private AutoCloseable reporting;
+
+  private record Message(
+    ARI1EventConfigurationType event,
+    Runnable action)
+  {
+
+  }
+
+  private ARI1MiniHost(
+    final String inName,
+    final ARI1AudioDriverType inDriver,
+    final ARI1MiniInstrumentServices inServices,
+    final ARI1InstrumentType inInstrument,
+    final ARI1HostDeadlines inDeadlines,
+    final List<ARI1PortOutputAudio> inOutputs,
+    final ARI1PortInputNote inNoteInput)
+  {
+    this.name =
+      Objects.requireNonNull(inName, "name");
+    this.driver =
+      Objects.requireNonNull(inDriver, "driver");
+    this.services =
+      Objects.requireNonNull(inServices, "services");
+    this.instrument =
+      Objects.requireNonNull(inInstrument, "instrument");
+    this.deadlines =
+      Objects.requireNonNull(inDeadlines, "deadlines");
+    this.outputs =
+      Objects.requireNonNull(inOutputs, "outputs");
+    this.noteInput =
+      inNoteInput;
+    this.deadlinesGraph =
+      inDeadlines.graph();
+    this.deadlinesInstrument =
+      inDeadlines.instance(inName);
+    this.messages =
+      new ConcurrentLinkedQueue<>();
+    this.eventData =
+      new byte[ARI1AudioDriverMIDIBuffer.MESSAGE_SIZE_MAXIMUM];
+  }
+
+  /**
+   * Create a host for a single instance of the given instrument.
+   *
+   * @param name    The instance name
+   * @param driver  The audio driver
+   * @param factory The instrument factory
+   *
+   * @return A host
+   *
+   * @throws Exception On errors
+   */
+
+  public static ARI1MiniHost create(
+    final String name,
+    final ARI1AudioDriverType driver,
+    final ARI1InstrumentFactoryType factory)
+    throws Exception
+  {
+    final var services =
+      ARI1MiniInstrumentServices.create(
+        factory,
+        driver.sampleRate(),
+        driver.bufferSize()
+      );
+
+    final var instrument =
+      factory.createInstrument(services);
+
+    final var outputs = new ArrayList<ARI1PortOutputAudio>();
+    ARI1PortInputNote noteInput = null;
+    for (final var port : new TreeMap<>(services.declaredPorts()).values()) {
+      if (port instanceof ARI1PortOutputAudio output) {
+        outputs.add(output);
+        continue;
+      }
+      if (port instanceof ARI1PortInputNote input && noteInput == null) {
+        noteInput = input;
+      }
+    }
+
+    final var deadlines =
+      ARI1HostDeadlines.create(
+        driver.name(),
+        driver.bufferSize(),
+        driver.sampleRate()
+      );
+
+    return new ARI1MiniHost(
+      name,
+      driver,
+      services,
+      instrument,
+      deadlines,
+      List.copyOf(outputs),
+      noteInput
+    );
+  }
+
+  @Override
+  public String name()
+  {
+    return this.name;
+  }
+
+  @Override
+  public ARI1MiniInstrumentServices services()
+  {
+    return this.services;
+  }
+
+  /**
+   * @return The deadline monitors
+   */
+
+  public ARI1HostDeadlines deadlines()
+  {
+    return this.deadlines;
+  }
+
+  @Override
+  public void sendEvent(
+    final ARI1EventConfigurationType event,
+    final Runnable action)
+  {
+    this.messages.add(new Message(
+      Objects.requireNonNull(event, "event"),
+      Objects.requireNonNull(action, "action")
+    ));
+  }
+
+  /**
+   * Start the driver, logging deadline statistics periodically.
+   *
+   * @param reportInterval The interval between deadline reports
+   *
+   * @throws Exception On errors
+   */
+
+  public void start(
+    final Duration reportInterval)
+    throws Exception
+  {
+    this.reporting =
+      this.deadlines.startReporting(
+        reportInterval,
+        snapshots -> {
+          for (final var snapshot : snapshots) {
+            LOG.info("{}", snapshot);
+          }
+        }
+      );
+
+    this.driver.start(this);
+  }
+
+  @Override
+  public void onBufferSizeChanged(
+    final int bufferSize)
+  {
+    this.services.setBufferSize(bufferSize);
+    this.deadlines.setPeriod(bufferSize, this.services.statusCurrentSampleRate());
+    this.sendEvent(new ARI1EventConfigurationBufferSizeChanged());
+  }
+
+  @Override
+  public void onSampleRateChanged(
+    final int sampleRate)
+  {
+    this.services.setSampleRate(sampleRate);
+    this.deadlines.setPeriod(this.services.statusCurrentBufferSize(), sampleRate);
+    this.sendEvent(new ARI1EventConfigurationSampleRateChanged());
+  }
+
+  @Override
+  public void onXrun()
+  {
+    this.deadlines.xrun();
+  }
+
+  @Override
+  public boolean onProcess(
+    final ARI1AudioDriverPeriod period)
+  {
+    final var timeGraph = this.deadlinesGraph.begin();
+
+    while (!this.messages.isEmpty()) {
+      final var message = this.messages.poll();
+      message.action().run();
+      this.instrument.receiveEvent(this.services, message.event());
+    }
+
+    this.services.parametersClearChanges();
+    this.services.backgroundDeliver();
+
+    if (this.noteInput != null) {
+      final var midi = period.midiInput();
+      final var eventCount = midi.count();
+      for (var index = 0; index < eventCount; ++index) {
+        final var size = midi.read(index, this.eventData);
+        final var parsedEvent =
+          ARI1HostMIDI.parseEvent(this.eventData, size, midi.time(index));
+        if (parsedEvent == null) {
+          continue;
+        }
+        this.noteInput.eventAdd(parsedEvent);
+      }
+    }
+
+    final var timeInstrument = this.deadlinesInstrument.begin();
+    final var processEvent = ARJ1EventProcess.start();
+    this.instrument.process(this.services);
+    ARJ1EventProcess.finish(processEvent, this.name, period.frames());
+    this.deadlinesInstrument.end(timeInstrument);
+
+    final var frames = period.frames();
+    final var channels = Math.min(period.outputChannels(), this.outputs.size());
+    for (int channel = 0; channel < channels; ++channel) {
+      final var target = period.output(channel);
+      final var source = this.outputs.get(channel).buffer();
+      for (int index = 0; index < frames; ++index) {
+        target.put(index, (float) source.get(index));
+      }
+    }
+
+    this.deadlinesGraph.end(timeGraph);
+    return true;
+  }
+
+  @Override
+  public void close()
+    throws Exception
+  {
+    this.driver.close();
+    if (this.reporting != null) {
+      this.reporting.close();
+    }
+    this.deadlines.close();
+    this.instrument.close();
+    this.services.close();
+  }
+}
@@ -19,6 +19,9 @@ package com.io7m.aradine.tests;
 
 import com.io7m.aradine.annotations.ARTimeFrames;
 import com.io7m.aradine.annotations.ARTimeMilliseconds;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundHandleType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundReceiverType;
+import com.io7m.aradine.instrument.spi1.ARI1BackgroundWorkKind;
 import com.io7m.aradine.instrument.spi1.ARI1EventBufferType;
 import com.io7m.aradine.instrument.spi1.ARI1EventType;
 import com.io7m.aradine.instrument.spi1.ARI1InstrumentDescriptionType;
@@ -51,7 +54,7 @@ import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 
 public final class ARI1MiniInstrumentServices
   implements ARI1InstrumentServicesType, AutoCloseable
@@ -66,8 +69,9 @@ public final class ARI1MiniInstrumentServices
   private final CloseableCollectionType<ClosingResourceFailedException> closeables;
   private final Map<ARI1ParameterId, ARI1ParameterType> parameters;
   private final Map<ARI1PortId, ARI1PortType> ports;
-  private final ConcurrentHashMap<URI, ARI1SampleMapType> sampleMaps;
+  private final ARI1SampleMapRegistry sampleMaps;
   private final AttributeSubscriptionType sampleRateSubscription;
+  private final ARI1HostBackgroundMailbox background;
   private double millisecondsPerFrame;
 
   private ARI1MiniInstrumentServices(
@@ -76,7 +80,9 @@ public final class ARI1MiniInstrumentServices
     final AttributeType<Integer> inSampleRate,
     final AttributeType<Integer> inBufferSize,
     final Map<ARI1ParameterId, ARI1ParameterType> inParameters,
-    final Map<ARI1PortId, ARI1PortType> inPorts)
+    final Map<ARI1PortId, ARI1PortType> inPorts,
+    final ARI1SampleMapRegistry inSampleMaps,
+    final ARI1HostBackgroundMailbox inBackground)
   {
     this.closeables =
       Objects.requireNonNull(inCloseables, "closeables");
@@ -91,7 +97,10 @@ public final class ARI1MiniInstrumentServices
     this.emptyMap =
       new ARI1SampleMapEmpty();
     this.sampleMaps =
-      new ConcurrentHashMap<>();
+      Objects.requireNonNull(inSampleMaps, "inSampleMaps");
+    this.background =
+      this.closeables.add(
+        Objects.requireNonNull(inBackground, "inBackground"));
     this.parameters =
       Map.copyOf(inParameters);
     this.ports =
@@ -113,6 +122,41 @@ public final class ARI1MiniInstrumentServices
     final int sampleRate,
     final int bufferSize)
     throws Exception
+  {
+    return create(
+      instrumentFactory,
+      sampleRate,
+      bufferSize,
+      new ARI1SampleMapRegistry()
+    );
+  }
+
+  public static ARI1MiniInstrumentServices create(
+    final ARI1InstrumentFactoryType instrumentFactory,
+    final int sampleRate,
+    final int bufferSize,
+    final ARI1SampleMapRegistry sampleMaps)
+    throws Exception
+  {
+    final var background = ARI1HostBackground.create();
+    try {
+      final var services =
+        create(instrumentFactory, sampleRate, bufferSize, sampleMaps, background);
+      services.closeables.add(background);
+      return services;
+    } catch (final Exception e) {
+      background.close();
+      throw e;
+    }
+  }
+
+  public static ARI1MiniInstrumentServices create(
+    final ARI1InstrumentFactoryType instrumentFactory,
+    final int sampleRate,
+    final int bufferSize,
+    final ARI1SampleMapRegistry sampleMaps,
+    final ARI1HostBackground background)
+    throws Exception
   {
     final var attributes =
       Attributes.create(ex -> LOG.error("exception: ", ex));
@@ -145,7 +189,9 @@ public final class ARI1MiniInstrumentServices
       sampleRateAttribute,
       bufferSizeAttribute,
       parameters,
-      ports
+      ports,
+      sampleMaps,
+      new ARI1HostBackgroundMailbox(background)
     );
   }
 
@@ -254,7 +300,7 @@ public final class ARI1MiniInstrumentServices
     final URI uri,
     final ARI1SampleMapType sampleMap)
   {
-    this.sampleMaps.put(uri, sampleMap);
+    this.sampleMaps.register(uri, sampleMap);
   }
 
   @Override
@@ -275,6 +321,50 @@ public final class ARI1MiniInstrumentServices
     return map;
   }
 
+  /**
+   * Clear the parameter changes of the previous period. This must be called
+   * by the host at the start of each period. This method is package-private
+   * so that instruments, which are given this object, cannot observe it.
+   */
+
+  void parametersClearChanges()
+  {
+    for (final var parameter : this.parameters.values()) {
+      if (parameter instanceof ARI1ParameterInteger p) {
+        p.valueChangesClear();
+        continue;
+      }
+      if (parameter instanceof ARI1ParameterReal r) {
+        r.valueChangesClear();
+        continue;
+      }
+      if (parameter instanceof ARI1ParameterSampleMap s) {
+        s.valueChangesClear();
+        continue;
+      }
+    }
+  }
+
+  /**
+   * Deliver the results of completed background work to the instrument.
+   * This must be called by the host on the audio thread at the start of
+   * each period.
+   */
+
+  void backgroundDeliver()
+  {
+    this.background.deliver();
+  }
+
+  @Override
+  public <T> ARI1BackgroundHandleType backgroundSubmit(
+    final ARI1BackgroundWorkKind kind,
+    final Callable<T> task,
+    final ARI1BackgroundReceiverType<T> receiver)
+  {
+    return this.background.submit(kind, task, receiver);
+  }
+
   @Override
   public ARI1SampleMapType sampleMapEmpty()
   {
@@ -0,0 +1,426 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.jfr1.ARJ1EventProcess;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationBufferSizeChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationSampleRateChanged;
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentFactoryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * <p>A multi-timbral host: each of the 16 channels of each MIDI input port
+ * of the driver can be routed to an independent instrument instance. All
+ * instances share a single sample map registry and a single set of
+ * background work executors, and the outputs of all
+ * instances are summed into a single mixdown delivered to the driver.</p>
+ *
+ * <p>Instances must be assigned before the host is started.</p>
+ */
+
+public final class ARI1MultiHost
+  implements ARI1AudioDriverCallbacksType, AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1MultiHost.class);
+
+  /**
+   * The number of channels on a single MIDI port.
+   */
+
+  public static final int MIDI_CHANNELS = 16;
+
+  private final ARI1AudioDriverType driver;
+  private final ARI1SampleMapRegistry sampleMaps;
+  private final ARI1HostBackground background;
+  private final ARI1HostDeadlines deadlines;
+  private final ARI1HostDeadlineMonitor deadlinesGraph;
+  private final ConcurrentLinkedQueue<Message> messages;
+  private final ARI1MultiHostInstance[][] routes;
+  private final List<ARI1MultiHostInstance> instanceList;
+  private final byte[] eventData;
+  private ARI1MultiHostInstance[] instances;
+  private double[][] mix;
+  private AutoCloseable reporting;
+  private boolean started;
+
+  private record Message(
+    ARI1MultiHostInstance instance,
+    ARI1EventConfigurationType event,
+    Runnable action)
+  {
+
+  }
+
+  private ARI1MultiHost(
+    final ARI1AudioDriverType inDriver,
+    final ARI1SampleMapRegistry inSampleMaps,
+    final int midiPorts,
+    final int outputChannels)
+  {
+    this.driver =
+      Objects.requireNonNull(inDriver, "driver");
+    this.sampleMaps =
+      Objects.requireNonNull(inSampleMaps, "sampleMaps");
+    this.background =
+      ARI1HostBackground.create();
+    this.deadlines =
+      ARI1HostDeadlines.create(
+        inDriver.name(),
+        inDriver.bufferSize(),
+        inDriver.sampleRate()
+      );
+    this.deadlinesGraph =
+      this.deadlines.graph();
+    this.messages =
+      new ConcurrentLinkedQueue<>();
+    this.routes =
+      new ARI1MultiHostInstance[midiPorts][MIDI_CHANNELS];
+    this.instanceList =
+      new ArrayList<>();
+    this.instances =
+      new ARI1MultiHostInstance[0];
+    this.mix =
+      new double[outputChannels][inDriver.bufferSize()];
+    this.eventData =
+      new byte[ARI1AudioDriverMIDIBuffer.MESSAGE_SIZE_MAXIMUM];
+  }
+
+  /**
+   * Create a multi-timbral host.
+   *
+   * @param driver         The audio driver
+   * @param midiPorts      The number of MIDI input ports provided by the driver
+   * @param outputChannels The number of output channels provided by the driver
+   *
+   * @return A host
+   */
+
+  public static ARI1MultiHost create(
+    final ARI1AudioDriverType driver,
+    final int midiPorts,
+    final int outputChannels)
+  {
+    return new ARI1MultiHost(
+      driver,
+      new ARI1SampleMapRegistry(),
+      midiPorts,
+      outputChannels
+    );
+  }
+
+  /**
+   * @return The sample map registry shared by all instances
+   */
+
+  public ARI1SampleMapRegistry sampleMaps()
+  {
+    return this.sampleMaps;
+  }
+
+  /**
+   * @return The deadline monitors
+   */
+
+  public ARI1HostDeadlines deadlines()
+  {
+    return this.deadlines;
+  }
+
+  /**
+   * Create a new instrument instance and route the given MIDI port and
+   * channel to it.
+   *
+   * @param name    The instance name
+   * @param port    The MIDI input port
+   * @param channel The MIDI channel in the range {@code [0, 15]}
+   * @param factory The instrument factory
+   *
+   * @return The new instance
+   *
+   * @throws Exception On errors
+   */
+
+  public ARI1MultiHostInstance assign(
+    final String name,
+    final int port,
+    final int channel,
+    final ARI1InstrumentFactoryType factory)
+    throws Exception
+  {
+    Objects.requireNonNull(name, "name");
+    Objects.requireNonNull(factory, "factory");
+
+    if (this.started) {
+      throw new IllegalStateException(
+        "Instances cannot be assigned after the host is started");
+    }
+    if (port < 0 || port >= this.routes.length) {
+      throw new IllegalArgumentException(
+        "MIDI port %d must be in the range [0, %d]".formatted(
+          Integer.valueOf(port),
+          Integer.valueOf(this.routes.length - 1)
+        )
+      );
+    }
+    if (channel < 0 || channel >= MIDI_CHANNELS) {
+      throw new IllegalArgumentException(
+        "MIDI channel %d must be in the range [0, %d]".formatted(
+          Integer.valueOf(channel),
+          Integer.valueOf(MIDI_CHANNELS - 1)
+        )
+      );
+    }
+    if (this.routes[port][channel] != null) {
+      throw new IllegalArgumentException(
+        "MIDI port %d channel %d is already assigned to %s".formatted(
+          Integer.valueOf(port),
+          Integer.valueOf(channel),
+          this.routes[port][channel].name()
+        )
+      );
+    }
+
+    final var services =
+      ARI1MiniInstrumentServices.create(
+        factory,
+        this.driver.sampleRate(),
+        this.driver.bufferSize(),
+        this.sampleMaps,
+        this.background
+      );
+
+    final var instrument =
+      factory.createInstrument(services);
+
+    final var outputs = new ArrayList<ARI1PortOutputAudio>();
+    ARI1PortInputNote noteInput = null;
+    for (final var p : new TreeMap<>(services.declaredPorts()).values()) {
+      if (p instanceof ARI1PortOutputAudio output) {
+        outputs.add(output);
+        continue;
+      }
+      if (p instanceof ARI1PortInputNote input && noteInput == null) {
+        noteInput = input;
+      }
+    }
+
+    final var instance =
+      new ARI1MultiHostInstance(
+        this,
+        name,
+        services,
+        instrument,
+        List.copyOf(outputs),
+        noteInput,
+        this.deadlines.instance(name)
+      );
+
+    this.routes[port][channel] = instance;
+    this.instanceList.add(instance);
+    return instance;
+  }
+
+  void sendEvent(
+    final ARI1MultiHostInstance instance,
+    final ARI1EventConfigurationType event,
+    final Runnable action)
+  {
+    this.messages.add(new Message(
+      Objects.requireNonNull(instance, "instance"),
+      Objects.requireNonNull(event, "event"),
+      Objects.requireNonNull(action, "action")
+    ));
+  }
+
+  /**
+   * Start the driver, logging deadline statistics periodically.
+   *
+   * @param reportInterval The interval between deadline reports
+   *
+   * @throws Exception On errors
+   */
+
+  public void start(
+    final Duration reportInterval)
+    throws Exception
+  {
+    this.started = true;
+    this.instances =
+      this.instanceList.toArray(new ARI1MultiHostInstance[0]);
+
+    this.reporting =
+      this.deadlines.startReporting(
+        reportInterval,
+        snapshots -> {
+          for (final var snapshot : snapshots) {
+            LOG.info("{}", snapshot);
+          }
+        }
+      );
+
+    this.driver.start(this);
+  }
+
+  @Override
+  public void onBufferSizeChanged(
+    final int bufferSize)
+  {
+    this.mix = new double[this.mix.length][bufferSize];
+
+    for (final var instance : this.instances) {
+      final var services = instance.services();
+      services.setBufferSize(bufferSize);
+      instance.sendEvent(new ARI1EventConfigurationBufferSizeChanged());
+    }
+    this.deadlines.setPeriod(bufferSize, this.driver.sampleRate());
+  }
+
+  @Override
+  public void onSampleRateChanged(
+    final int sampleRate)
+  {
+    for (final var instance : this.instances) {
+      final var services = instance.services();
+      services.setSampleRate(sampleRate);
+      instance.sendEvent(new ARI1EventConfigurationSampleRateChanged());
+    }
+    this.deadlines.setPeriod(this.driver.bufferSize(), sampleRate);
+  }
+
+  @Override
+  public void onXrun()
+  {
+    this.deadlines.xrun();
+  }
+
+  @Override
+  public boolean onProcess(
+    final ARI1AudioDriverPeriod period)
+  {
+    final var timeGraph = this.deadlinesGraph.begin();
+
+    while (!this.messages.isEmpty()) {
+      final var message = this.messages.poll();
+      message.action().run();
+      message.instance()
+        .instrument()
+        .receiveEvent(message.instance().services(), message.event());
+    }
+
+    for (final var instance : this.instances) {
+      final var services = instance.services();
+      services.parametersClearChanges();
+      services.backgroundDeliver();
+    }
+
+    this.routeMIDI(period);
+
+    final var frames = period.frames();
+    final var mixNow = this.mix;
+    for (final var channel : mixNow) {
+      Arrays.fill(channel, 0, frames, 0.0);
+    }
+
+    for (final var instance : this.instances) {
+      final var monitor = instance.deadlines();
+      final var timeInstance = monitor.begin();
+      final var processEvent = ARJ1EventProcess.start();
+      instance.instrument().process(instance.services());
+      ARJ1EventProcess.finish(processEvent, instance.name(), frames);
+      monitor.end(timeInstance);
+
+      final var outputs = instance.outputs();
+      final var channels = Math.min(mixNow.length, outputs.size());
+      for (int channel = 0; channel < channels; ++channel) {
+        final var target = mixNow[channel];
+        final var source = outputs.get(channel).buffer();
+        for (int index = 0; index < frames; ++index) {
+          target[index] += source.get(index);
+        }
+      }
+    }
+
+    final var channels = Math.min(period.outputChannels(), mixNow.length);
+    for (int channel = 0; channel < channels; ++channel) {
+      final var target = period.output(channel);
+      final var source = mixNow[channel];
+      for (int index = 0; index < frames; ++index) {
+        target.put(index, (float) source[index]);
+      }
+    }
+
+    this.deadlinesGraph.end(timeGraph);
+    return true;
+  }
+
+  private void routeMIDI(
+    final ARI1AudioDriverPeriod period)
+  {
+    final var ports = Math.min(period.midiInputPorts(), this.routes.length);
+    for (int port = 0; port < ports; ++port) {
+      final var midi = period.midiInput(port);
+      final var routesForPort = this.routes[port];
+      final var eventCount = midi.count();
+      for (var index = 0; index < eventCount; ++index) {
+        final var size = midi.read(index, this.eventData);
+        final var channel = ARI1HostMIDI.channel(this.eventData, size);
+        if (channel == -1) {
+          continue;
+        }
+
+        final var instance = routesForPort[channel];
+        if (instance == null || instance.noteInput() == null) {
+          continue;
+        }
+
+        final var parsedEvent =
+          ARI1HostMIDI.parseEvent(this.eventData, size, midi.time(index));
+        if (parsedEvent == null) {
+          continue;
+        }
+        instance.noteInput().eventAdd(parsedEvent);
+      }
+    }
+  }
+
+  @Override
+  public void close()
+    throws Exception
+  {
+    this.driver.close();
+    if (this.reporting != null) {
+      this.reporting.close();
+    }
+    this.deadlines.close();
+    for (final var instance : this.instanceList) {
+      instance.instrument().close();
+      instance.services().close();
+    }
+    this.background.close();
+  }
+}
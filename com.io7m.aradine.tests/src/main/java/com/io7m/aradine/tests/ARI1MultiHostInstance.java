@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An instrument instance running inside a multi-timbral host.
+ */
+
+public final class ARI1MultiHostInstance implements ARI1HostInstanceType
+{
+  private final ARI1MultiHost host;
+  private final String name;
+  private final ARI1MiniInstrumentServices services;
+  private final ARI1InstrumentType instrument;
+  private final List<ARI1PortOutputAudio> outputs;
+  private final ARI1PortInputNote noteInput;
+  private final ARI1HostDeadlineMonitor deadlines;
+
+  ARI1MultiHostInstance(
+    final ARI1MultiHost inHost,
+    final String inName,
+    final ARI1MiniInstrumentServices inServices,
+    final ARI1InstrumentType inInstrument,
+    final List<ARI1PortOutputAudio> inOutputs,
+    final ARI1PortInputNote inNoteInput,
+    final ARI1HostDeadlineMonitor inDeadlines)
+  {
+    this.host =
+      Objects.requireNonNull(inHost, "host");
+    this.name =
+      Objects.requireNonNull(inName, "name");
+    this.services =
+      Objects.requireNonNull(inServices, "services");
+    this.instrument =
+      Objects.requireNonNull(inInstrument, "instrument");
+    this.outputs =
+      Objects.requireNonNull(inOutputs, "outputs");
+    this.noteInput =
+      inNoteInput;
+    this.deadlines =
+      Objects.requireNonNull(inDeadlines, "deadlines");
+  }
+
+  @Override
+  public String name()
+  {
+    return this.name;
+  }
+
+  @Override
+  public ARI1MiniInstrumentServices services()
+  {
+    return this.services;
+  }
+
+  @Override
+  public void sendEvent(
+    final ARI1EventConfigurationType event,
+    final Runnable action)
+  {
+    this.host.sendEvent(this, event, action);
+  }
+
+  ARI1InstrumentType instrument()
+  {
+    return this.instrument;
+  }
+
+  List<ARI1PortOutputAudio> outputs()
+  {
+    return this.outputs;
+  }
+
+  ARI1PortInputNote noteInput()
+  {
+    return this.noteInput;
+  }
+
+  ARI1HostDeadlineMonitor deadlines()
+  {
+    return this.deadlines;
+  }
+}
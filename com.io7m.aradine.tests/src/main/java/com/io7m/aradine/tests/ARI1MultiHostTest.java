@@ -0,0 +1,308 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1EventConfigurationType;
+import com.io7m.aradine.instrument.spi1.ARI1EventNoteOn;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentFactoryType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentServicesType;
+import com.io7m.aradine.instrument.spi1.ARI1InstrumentType;
+import com.io7m.aradine.instrument.spi1.ARI1PortId;
+import com.io7m.aradine.instrument.spi1.ARI1PortInputNoteType;
+import com.io7m.aradine.instrument.spi1.ARI1PortOutputAudioType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1MultiHostTest
+{
+  private static final String DESCRIPTION = """
+    <?xml version="1.0" encoding="UTF-8" ?>
+    <Instrument xmlns="urn:com.io7m.aradine:instrument:1"
+                Identifier="com.io7m.aradine.tests.constant">
+      <Version Major="0" Minor="0" Patch="0"/>
+      <Metadata>
+        <Meta Name="dc.title">Constant</Meta>
+      </Metadata>
+      <Parameters/>
+      <Ports>
+        <PortOutputAudio ID="0" Label="Output L">
+          <Documentation><Paragraph>Left.</Paragraph></Documentation>
+        </PortOutputAudio>
+        <PortOutputAudio ID="1" Label="Output R">
+          <Documentation><Paragraph>Right.</Paragraph></Documentation>
+        </PortOutputAudio>
+        <PortInputNote ID="2" Label="Note Input">
+          <Documentation><Paragraph>Notes.</Paragraph></Documentation>
+        </PortInputNote>
+      </Ports>
+    </Instrument>
+    """.strip();
+
+  private ARI1MultiHost host;
+  private Driver driver;
+
+  /**
+   * An instrument that writes a constant level to its outputs and counts
+   * the note-on events it receives, and the number of times it is closed.
+   */
+
+  private static final class Constant
+    implements ARI1InstrumentFactoryType, ARI1InstrumentType
+  {
+    private final double level;
+    private final AtomicInteger notes;
+    private final AtomicInteger closes;
+
+    Constant(
+      final double inLevel)
+    {
+      this.level = inLevel;
+      this.notes = new AtomicInteger();
+      this.closes = new AtomicInteger();
+    }
+
+    @Override
+    public InputStream openInstrumentDescription()
+    {
+      return new ByteArrayInputStream(
+        DESCRIPTION.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ARI1InstrumentType createInstrument(
+      final ARI1InstrumentServicesType services)
+    {
+      return this;
+    }
+
+    @Override
+    public void process(
+      final ARI1InstrumentServicesType context)
+    {
+      final var outputL =
+        context.declaredPort(new ARI1PortId(0), ARI1PortOutputAudioType.class);
+      final var outputR =
+        context.declaredPort(new ARI1PortId(1), ARI1PortOutputAudioType.class);
+      final var input =
+        context.declaredPort(new ARI1PortId(2), ARI1PortInputNoteType.class);
+
+      final var frames = context.statusCurrentBufferSize();
+      for (int frame = 0; frame < frames; ++frame) {
+        for (final var event : input.eventsTake(frame)) {
+          if (event instanceof ARI1EventNoteOn) {
+            this.notes.incrementAndGet();
+          }
+        }
+        outputL.write(frame, this.level);
+        outputR.write(frame, -this.level);
+      }
+    }
+
+    @Override
+    public void receiveEvent(
+      final ARI1InstrumentServicesType context,
+      final ARI1EventConfigurationType event)
+    {
+
+    }
+
+    @Override
+    public void close()
+    {
+      this.closes.incrementAndGet();
+    }
+  }
+
+  private static final class Driver implements ARI1AudioDriverType
+  {
+    private ARI1AudioDriverCallbacksType callbacks;
+
+    @Override
+    public String name()
+    {
+      return "multi";
+    }
+
+    @Override
+    public int bufferSize()
+    {
+      return 64;
+    }
+
+    @Override
+    public int sampleRate()
+    {
+      return 48000;
+    }
+
+    @Override
+    public void start(
+      final ARI1AudioDriverCallbacksType inCallbacks)
+    {
+      this.callbacks = inCallbacks;
+    }
+
+    @Override
+    public void close()
+    {
+
+    }
+  }
+
+  @BeforeEach
+  public void setup()
+  {
+    this.driver = new Driver();
+    this.host = ARI1MultiHost.create(this.driver, 2, 2);
+  }
+
+  @AfterEach
+  public void tearDown()
+    throws Exception
+  {
+    if (this.host != null) {
+      this.host.close();
+    }
+  }
+
+  /**
+   * Closing the host closes every instrument instance exactly once.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testCloseInstruments()
+    throws Exception
+  {
+    final var a = new Constant(0.25);
+    final var b = new Constant(0.5);
+
+    this.host.assign("a", 0, 0, a);
+    this.host.assign("b", 1, 9, b);
+    assertEquals(0, a.closes.get());
+    assertEquals(0, b.closes.get());
+
+    this.host.close();
+    this.host = null;
+    assertEquals(1, a.closes.get());
+    assertEquals(1, b.closes.get());
+  }
+
+  /**
+   * Notes are routed by port and channel, and the outputs of all instances
+   * are summed.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testRoutingMixdown()
+    throws Exception
+  {
+    final var a = new Constant(0.25);
+    final var b = new Constant(0.5);
+
+    this.host.assign("a", 0, 0, a);
+    this.host.assign("b", 1, 9, b);
+    this.host.start(Duration.ofHours(1L));
+
+    final var period = new ARI1AudioDriverPeriod(2, 2, 16);
+    period.allocateOutputs(64);
+    period.begin(0L, 64);
+
+    period.midiInput(0).add3(0, 0x90, 60, 100);
+    period.midiInput(0).add3(1, 0x90, 61, 100);
+    period.midiInput(0).add3(2, 0x91, 62, 100);
+    period.midiInput(1).add3(3, 0x99, 63, 100);
+    period.midiInput(1).add3(4, 0x90, 64, 100);
+
+    this.driver.callbacks.onProcess(period);
+
+    assertEquals(2, a.notes.get());
+    assertEquals(1, b.notes.get());
+
+    for (int index = 0; index < 64; ++index) {
+      assertEquals(0.75f, period.output(0).get(index));
+      assertEquals(-0.75f, period.output(1).get(index));
+    }
+  }
+
+  /**
+   * A port and channel can only be assigned once.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testAssignTwice()
+    throws Exception
+  {
+    this.host.assign("a", 0, 3, new Constant(1.0));
+    assertThrows(IllegalArgumentException.class, () -> {
+      this.host.assign("b", 0, 3, new Constant(1.0));
+    });
+  }
+
+  /**
+   * Ports and channels outside the available ranges are rejected.
+   */
+
+  @Test
+  public void testAssignOutOfRange()
+  {
+    for (final var route : List.of(
+      new int[]{-1, 0},
+      new int[]{2, 0},
+      new int[]{0, -1},
+      new int[]{0, 16})) {
+      final var ex = assertThrows(IllegalArgumentException.class, () -> {
+        this.host.assign("a", route[0], route[1], new Constant(1.0));
+      });
+      assertTrue(ex.getMessage().contains("must be in the range"));
+    }
+  }
+
+  /**
+   * Only channel messages have channels.
+   */
+
+  @Test
+  public void testMIDIChannel()
+  {
+    assertEquals(
+      5, ARI1HostMIDI.channel(new byte[]{(byte) 0x95, 60, 100}, 3));
+    assertEquals(
+      15, ARI1HostMIDI.channel(new byte[]{(byte) 0xEF, 0, 64}, 3));
+    assertEquals(
+      -1, ARI1HostMIDI.channel(new byte[]{(byte) 0xF8}, 1));
+    assertEquals(
+      -1, ARI1HostMIDI.channel(new byte[0], 0));
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.grain_sampler_m0.ARIGM0SamplerFactory;
+
+import java.time.Duration;
+
+/**
+ * A multi-timbral JACK host: one grain sampler instance per MIDI channel on
+ * the first of two MIDI ports, all sharing a single sample map.
+ */
+
+public final class ARI1MultiJackHost
+{
+  private ARI1MultiJackHost()
+  {
+
+  }
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    final var instanceCount =
+      args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+    final var driver =
+      ARI1AudioDriverJack.open("aradine", 2);
+    final var host =
+      ARI1MultiHost.create(driver, 2, 2);
+
+    final var instances = new ARI1MultiHostInstance[instanceCount];
+    for (int channel = 0; channel < instanceCount; ++channel) {
+      instances[channel] =
+        host.assign(
+          "sampler" + channel,
+          0,
+          channel,
+          new ARIGM0SamplerFactory()
+        );
+    }
+
+    final var sampleMap =
+      ARI1MiniJackHost.loadGrainSampleMap(instances[0].services());
+    for (final var instance : instances) {
+      ARI1MiniJackHost.configureGrainSampler(instance, sampleMap);
+    }
+
+    host.start(Duration.ofSeconds(10L));
+
+    while (true) {
+      try {
+        Thread.sleep(1000L);
+      } catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -17,6 +17,7 @@
 
 package com.io7m.aradine.tests;
 
+import com.io7m.aradine.instrument.jfr1.ARJ1EventParameterChange;
 import com.io7m.aradine.instrument.spi1.ARI1ParameterDescriptionIntegerType;
 import com.io7m.aradine.instrument.spi1.ARI1ParameterId;
 import com.io7m.aradine.instrument.spi1.ARI1ParameterIntegerType;
@@ -74,6 +75,8 @@ public final class ARI1ParameterInteger
     final int time,
     final long value)
   {
+    ARJ1EventParameterChange.record(this.id().value(), time, value);
+
     this.valueByTime.put(time, value);
     if (time >= this.valueLatestTime) {
       this.valueLatestTime = time;
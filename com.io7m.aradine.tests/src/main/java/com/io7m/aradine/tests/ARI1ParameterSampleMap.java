@@ -17,6 +17,7 @@
 
 package com.io7m.aradine.tests;
 
+import com.io7m.aradine.instrument.jfr1.ARJ1EventParameterChange;
 import com.io7m.aradine.instrument.spi1.ARI1ParameterDescriptionSampleMapType;
 import com.io7m.aradine.instrument.spi1.ARI1ParameterId;
 import com.io7m.aradine.instrument.spi1.ARI1ParameterSampleMapType;
@@ -77,6 +78,8 @@ public final class ARI1ParameterSampleMap
     final int time,
     final URI value)
   {
+    ARJ1EventParameterChange.record(this.id().value(), time, value);
+
     this.valueByTime.put(time, value);
     if (time >= this.valueLatestTime) {
       this.valueLatestTime = time;
@@ -53,6 +53,14 @@ public final class ARI1PortInputNote
     return this.eventBuffer.eventsTake(frameIndex);
   }
 
+  @Override
+  public int eventsNext(
+    final int frameIndex,
+    final int frameLimit)
+  {
+    return this.eventBuffer.eventsNext(frameIndex, frameLimit);
+  }
+
   public void eventAdd(
     final ARI1EventNoteType event)
   {
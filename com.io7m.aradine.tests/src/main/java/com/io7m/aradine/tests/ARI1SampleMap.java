@@ -1,5 +1,5 @@
 /*
- * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
  *
  * Permission to use, copy, modify, and/or distribute this software for any
  * purpose with or without fee is hereby granted, provided that the above
@@ -20,52 +20,219 @@ import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapType;
 import com.io7m.jsamplebuffer.api.SampleBufferType;
 import com.io7m.jsamplebuffer.vanilla.SampleBufferDouble;
-import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMaps;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 
-public final class ARI1SampleMap implements ARI1SampleMapType
+/**
+ * <p>A compiled sample map.</p>
+ *
+ * <p>Every (velocity layer, note) pair is a cell in a flat
+ * {@code layers × 128} grid. Each cell refers to a contiguous run of
+ * round-robin alternatives in a single flat array of entries, and has its
+ * own round-robin counter. Velocities are quantized to 128 steps and mapped
+ * to layers through a precomputed table, so a lookup is a handful of array
+ * reads and never allocates.</p>
+ *
+ * <p>Round-robin counters are plain fields. A map shared between instruments
+ * running on different threads remains safe to use, but the order in which
+ * alternatives are returned is then unspecified.</p>
+ *
+ * <p>A map may optionally have a {@link ARI1SampleRenderCache}, in which
+ * case lookups of entries played at rates other than {@code 1.0} return
+ * pre-resampled entries wherever the cache holds them.</p>
+ */
+
+public final class ARI1SampleMap implements ARI1SampleMapType, AutoCloseable
 {
+  /**
+   * The number of notes in every layer.
+   */
+
+  public static final int NOTES = 128;
+
+  private static final int VELOCITY_STEPS = 128;
+
   private static final SampleBufferType EMPTY_SAMPLE =
     SampleBufferDouble.createWithHeapBuffer(2, 1L, 44100.0);
 
   private static final ARI1SampleMapEntry EMPTY_ENTRY =
-    new ARI1SampleMapEntry(EMPTY_SAMPLE, 1.0);
+    ARI1SampleMapEntry.create(EMPTY_SAMPLE, 1.0);
 
-  private static final ARI1SampleMapType EMPTY_MAP =
-    new ARI1SampleMap(
-      Int2ObjectSortedMaps.emptyMap(),
-      ARI1SampleMapDescription.empty()
-    );
+  private static final ARI1SampleMap EMPTY_MAP =
+    new ARI1SampleMap(List.of(), ARI1SampleMapDescription.empty());
 
-  private final Int2ObjectSortedMap<ARI1SampleMapEntryType> samples;
   private final ARI1SampleMapDescription description;
+  private final int layerCount;
+  private final int[] layerForVelocity;
+  private final int[] cellOffsets;
+  private final int[] cellSizes;
+  private final int[] cellCounters;
+  private final ARI1SampleMapEntryType[] entries;
+  private final ARI1SampleRenderCache renderCache;
 
   public ARI1SampleMap(
-    final Int2ObjectSortedMap<ARI1SampleMapEntryType> inSamples,
+    final List<ARI1SampleMapLayer> inLayers,
     final ARI1SampleMapDescription inDescription)
   {
-    this.samples =
-      Objects.requireNonNull(inSamples, "samples");
+    this(inLayers, inDescription, Optional.empty());
+  }
+
+  public ARI1SampleMap(
+    final List<ARI1SampleMapLayer> inLayers,
+    final ARI1SampleMapDescription inDescription,
+    final Optional<ARI1SampleRenderCacheConfiguration> inRenderCache)
+  {
+    Objects.requireNonNull(inRenderCache, "renderCache");
+    Objects.requireNonNull(inLayers, "layers");
     this.description =
       Objects.requireNonNull(inDescription, "description");
 
-    if (!inSamples.isEmpty()) {
-      if (inSamples.size() != 128) {
+    final var layers = new ArrayList<>(inLayers);
+    layers.sort(
+      Comparator.comparingDouble(ARI1SampleMapLayer::velocityMaximum));
+
+    var entryCount = 0;
+    for (final var layer : layers) {
+      final var byNote = layer.entriesByNote();
+      if (!byNote.isEmpty() && byNote.size() != NOTES) {
         throw new IllegalArgumentException("Must map all 128 notes to samples.");
       }
+      for (final var alternatives : byNote.values()) {
+        entryCount += alternatives.size();
+      }
     }
+
+    this.layerCount = layers.size();
+    this.cellOffsets = new int[this.layerCount * NOTES];
+    this.cellSizes = new int[this.layerCount * NOTES];
+    this.cellCounters = new int[this.layerCount * NOTES];
+    this.entries = new ARI1SampleMapEntryType[entryCount];
+
+    var offset = 0;
+    for (int layerIndex = 0; layerIndex < this.layerCount; ++layerIndex) {
+      final var byNote = layers.get(layerIndex).entriesByNote();
+      for (int note = 0; note < NOTES; ++note) {
+        final var cell = (layerIndex * NOTES) + note;
+        final var alternatives = byNote.get(note);
+        this.cellOffsets[cell] = offset;
+        if (alternatives == null) {
+          continue;
+        }
+        for (final var entry : alternatives) {
+          this.entries[offset++] = Objects.requireNonNull(entry, "entry");
+        }
+        this.cellSizes[cell] = alternatives.size();
+      }
+    }
+
+    this.layerForVelocity = new int[VELOCITY_STEPS];
+    for (int step = 0; step < VELOCITY_STEPS; ++step) {
+      final var velocity = (double) step / (double) (VELOCITY_STEPS - 1);
+      var selected = Math.max(0, this.layerCount - 1);
+      for (int layerIndex = 0; layerIndex < this.layerCount; ++layerIndex) {
+        if (velocity <= layers.get(layerIndex).velocityMaximum()) {
+          selected = layerIndex;
+          break;
+        }
+      }
+      this.layerForVelocity[step] = selected;
+    }
+
+    this.renderCache =
+      inRenderCache.map(c -> ARI1SampleRenderCache.create(this.entries, c))
+        .orElse(null);
   }
 
-  public static ARI1SampleMapType empty()
+  public static ARI1SampleMap empty()
   {
     return EMPTY_MAP;
   }
 
+  /**
+   * @return The description from which the map was loaded
+   */
+
+  public ARI1SampleMapDescription description()
+  {
+    return this.description;
+  }
+
+  /**
+   * @return The render cache, if the map has one
+   */
+
+  public Optional<ARI1SampleRenderCache> renderCache()
+  {
+    return Optional.ofNullable(this.renderCache);
+  }
+
+  /**
+   * @return The number of velocity layers
+   */
+
+  public int layerCount()
+  {
+    return this.layerCount;
+  }
+
+  /**
+   * @param velocity The velocity in the range {@code [0, 1]}
+   *
+   * @return The index of the layer selected by the given velocity
+   */
+
+  public int layerForVelocity(
+    final double velocity)
+  {
+    final var clamped = Math.min(1.0, Math.max(0.0, velocity));
+    final var step = (int) Math.round(clamped * (double) (VELOCITY_STEPS - 1));
+    return this.layerForVelocity[step];
+  }
+
+  @Override
+  public ARI1SampleMapEntryType forNote(
+    final int note)
+  {
+    return this.forNoteVelocity(note, 1.0);
+  }
+
   @Override
-  public ARI1SampleMapEntryType forNote(final int note)
+  public ARI1SampleMapEntryType forNoteVelocity(
+    final int note,
+    final double velocity)
   {
-    return this.samples.getOrDefault(note, EMPTY_ENTRY);
+    if (this.layerCount == 0 || note < 0 || note >= NOTES) {
+      return EMPTY_ENTRY;
+    }
+
+    final var cell = (this.layerForVelocity(velocity) * NOTES) + note;
+    final var size = this.cellSizes[cell];
+    if (size == 0) {
+      return EMPTY_ENTRY;
+    }
+
+    final var current = this.cellCounters[cell];
+    final var next = current + 1;
+    this.cellCounters[cell] = next == size ? 0 : next;
+
+    final var index = this.cellOffsets[cell] + current;
+    final var entry = this.entries[index];
+    final var cache = this.renderCache;
+    if (cache != null) {
+      return cache.resolve(index, entry);
+    }
+    return entry;
+  }
+
+  @Override
+  public void close()
+  {
+    if (this.renderCache != null) {
+      this.renderCache.close();
+    }
   }
 }
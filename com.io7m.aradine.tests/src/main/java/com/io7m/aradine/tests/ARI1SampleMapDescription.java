@@ -16,6 +16,8 @@
 
 package com.io7m.aradine.tests;
 
+import com.io7m.aradine.instrument.jfr1.ARJ1EventRateConversion;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventSampleMapLoad;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapType;
 import com.io7m.jsamplebuffer.api.SampleBufferException;
@@ -25,14 +27,29 @@ import com.io7m.jsamplebuffer.vanilla.SampleBufferDouble;
 import com.io7m.jsamplebuffer.xmedia.SXMSampleBuffers;
 import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
 import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
-import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMaps;
 
 import javax.sound.sampled.UnsupportedAudioFileException;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * A description of a sample map: a set of velocity layers, each of which maps
+ * notes to one or more round-robin alternative sample files. Notes that are
+ * not mapped in a layer play the nearest mapped sample in that layer at a
+ * suitably scaled playback rate.
+ *
+ * @param layers The velocity layers
+ */
 
 public record ARI1SampleMapDescription(
-  Int2ObjectSortedMap<Path> filesByNote)
+  List<ARI1SampleMapDescriptionLayer> layers)
 {
   /**
    * For a given frequency {@code f}, multiply {@code f} by this value to yield
@@ -48,89 +65,320 @@ public record ARI1SampleMapDescription(
 
   private static final double ONE_SEMITONE_DOWN = 0.9438743126810656;
 
+  /**
+   * The storage format used by {@link #load(SampleBufferRateConverterType,
+   * int)}. 32-bit floating point storage is lossless for 16-bit and 24-bit
+   * sources, and half the size of the decoded 64-bit buffers.
+   */
+
+  public static final ARI1SampleStorageFormat STORAGE_FORMAT_DEFAULT =
+    ARI1SampleStorageFormat.FLOAT32;
+
+  public ARI1SampleMapDescription
+  {
+    layers = List.copyOf(Objects.requireNonNull(layers, "layers"));
+  }
+
+  /**
+   * A description with a single velocity layer and a single file per mapped
+   * note.
+   *
+   * @param filesByNote The file for each mapped note
+   */
+
+  public ARI1SampleMapDescription(
+    final Int2ObjectSortedMap<Path> filesByNote)
+  {
+    this(singleLayer(filesByNote));
+  }
+
+  private static List<ARI1SampleMapDescriptionLayer> singleLayer(
+    final Int2ObjectSortedMap<Path> filesByNote)
+  {
+    final var files = new Int2ObjectRBTreeMap<List<Path>>();
+    for (final var entry : filesByNote.int2ObjectEntrySet()) {
+      files.put(entry.getIntKey(), List.of(entry.getValue()));
+    }
+    return List.of(new ARI1SampleMapDescriptionLayer(1.0, files));
+  }
+
   public static ARI1SampleMapDescription empty()
   {
-    return new ARI1SampleMapDescription(Int2ObjectSortedMaps.emptyMap());
+    return new ARI1SampleMapDescription(List.of());
   }
 
+  /**
+   * Load the described sample map, holding samples in the default storage
+   * format.
+   *
+   * @param converter  The rate converter
+   * @param sampleRate The sample rate to which samples are converted
+   *
+   * @return The loaded map
+   *
+   * @throws SampleBufferException On errors
+   * @see #STORAGE_FORMAT_DEFAULT
+   */
+
   public ARI1SampleMapType load(
     final SampleBufferRateConverterType converter,
     final int sampleRate)
     throws SampleBufferException
   {
+    return this.load(converter, sampleRate, STORAGE_FORMAT_DEFAULT);
+  }
+
+  /**
+   * Load the described sample map. Each file is decoded and rate converted
+   * at full precision, and then encoded into the given storage format; the
+   * full precision buffers are discarded once loading completes.
+   *
+   * @param converter  The rate converter
+   * @param sampleRate The sample rate to which samples are converted
+   * @param format     The storage format
+   *
+   * @return The loaded map
+   *
+   * @throws SampleBufferException On errors
+   */
+
+  public ARI1SampleMapType load(
+    final SampleBufferRateConverterType converter,
+    final int sampleRate,
+    final ARI1SampleStorageFormat format)
+    throws SampleBufferException
+  {
+    return this.load(
+      converter,
+      sampleRate,
+      ARI1SampleMapLoadOptions.ofFormat(format)
+    );
+  }
+
+  /**
+   * Load the described sample map with a render cache. Entries that play a
+   * neighbouring note's sample at a scaled rate are pre-resampled in the
+   * background, within the given memory budget.
+   *
+   * @param converter    The rate converter
+   * @param sampleRate   The sample rate to which samples are converted
+   * @param format       The storage format
+   * @param budgetOctets The render cache budget in octets
+   *
+   * @return The loaded map
+   *
+   * @throws SampleBufferException On errors
+   * @see ARI1SampleRenderCache
+   */
+
+  public ARI1SampleMap loadWithRenderCache(
+    final SampleBufferRateConverterType converter,
+    final int sampleRate,
+    final ARI1SampleStorageFormat format,
+    final long budgetOctets)
+    throws SampleBufferException
+  {
+    return this.load(
+      converter,
+      sampleRate,
+      new ARI1SampleMapLoadOptions(format, 1, OptionalLong.of(budgetOctets))
+    );
+  }
+
+  /**
+   * Load the described sample map with the given options. Each file is
+   * decoded and rate converted at full precision, and then encoded into the
+   * storage format given in the options; mipmaps, if requested, are
+   * generated from the encoded sample.
+   *
+   * @param converter  The rate converter
+   * @param sampleRate The sample rate to which samples are converted
+   * @param options    The load options
+   *
+   * @return The loaded map
+   *
+   * @throws SampleBufferException On errors
+   */
+
+  public ARI1SampleMap load(
+    final SampleBufferRateConverterType converter,
+    final int sampleRate,
+    final ARI1SampleMapLoadOptions options)
+    throws SampleBufferException
+  {
+    Objects.requireNonNull(options, "options");
+
+    final var budget = options.renderCacheBudgetOctets();
+    Optional<ARI1SampleRenderCacheConfiguration> renderCache = Optional.empty();
+    if (budget.isPresent()) {
+      renderCache = Optional.of(
+        new ARI1SampleRenderCacheConfiguration(budget.getAsLong(), sampleRate)
+      );
+    }
+
+    final var loadEvent = ARJ1EventSampleMapLoad.start();
+    final var loadedByFile = new HashMap<Path, ARI1SampleMipmap>();
+    var framesTotal = 0L;
+    Throwable failure = null;
+
     try {
-      if (this.filesByNote.isEmpty()) {
+      if (this.layers.stream().allMatch(l -> l.filesByNote().isEmpty())) {
         return ARI1SampleMap.empty();
       }
 
-      final var sampleBuffersByNote =
-        new Int2ObjectRBTreeMap<SampleBufferType>();
-
-      for (final var entry : this.filesByNote.int2ObjectEntrySet()) {
-        final var sampleBuffer =
-          SXMSampleBuffers.readSampleBufferFromFile(
-            entry.getValue(),
-            SampleBufferDouble::createWithHeapBuffer
-          );
-
-        final SampleBufferType outputBuffer;
-        final var currentRate = (int) sampleBuffer.sampleRate();
-        if (currentRate != sampleRate) {
-          outputBuffer = converter.convert(
-            SampleBufferDouble::createWithHeapBuffer,
-            sampleBuffer,
-            sampleRate
-          );
-        } else {
-          outputBuffer = sampleBuffer;
+      /*
+       * Each distinct file is loaded (and encoded) exactly once, even
+       * if it appears in several layers or as several alternatives.
+       */
+
+      for (final var layer : this.layers) {
+        for (final var files : layer.filesByNote().values()) {
+          for (final var file : files) {
+            if (!loadedByFile.containsKey(file)) {
+              loadedByFile.put(
+                file,
+                loadFile(converter, sampleRate, options, file)
+              );
+            }
+          }
         }
+      }
 
-        sampleBuffersByNote.put(entry.getIntKey(), outputBuffer);
+      for (final var loaded : loadedByFile.values()) {
+        framesTotal += loaded.base().frames();
       }
 
-      final var sampleEntriesByNote =
-        new Int2ObjectRBTreeMap<ARI1SampleMapEntryType>();
+      final var mapLayers = new ArrayList<ARI1SampleMapLayer>();
+      for (final var layer : this.layers) {
+        mapLayers.add(
+          new ARI1SampleMapLayer(
+            layer.velocityMaximum(),
+            compileLayer(layer, loadedByFile)
+          )
+        );
+      }
 
-      for (final var entry : sampleBuffersByNote.int2ObjectEntrySet()) {
-        final var note = entry.getIntKey();
-        final var sample = entry.getValue();
+      return new ARI1SampleMap(mapLayers, this, renderCache);
+    } catch (final IOException
+                   | UnsupportedAudioFileException
+                   | SampleBufferException e) {
+      failure = e;
+      throw new SampleBufferException(e);
+    } catch (final RuntimeException e) {
+      failure = e;
+      throw e;
+    } finally {
+      ARJ1EventSampleMapLoad.finish(
+        loadEvent,
+        this.layers.toString(),
+        loadedByFile.size(),
+        framesTotal,
+        failure
+      );
+    }
+  }
 
-        sampleEntriesByNote.put(note, new ARI1SampleMapEntry(sample, 1.0));
+  private static ARI1SampleMipmap loadFile(
+    final SampleBufferRateConverterType converter,
+    final int sampleRate,
+    final ARI1SampleMapLoadOptions options,
+    final Path file)
+    throws IOException, UnsupportedAudioFileException, SampleBufferException
+  {
+    final var sampleBuffer =
+      SXMSampleBuffers.readSampleBufferFromFile(
+        file,
+        SampleBufferDouble::createWithHeapBuffer
+      );
 
-        {
-          var rate = 1.0;
-          for (int noteBefore = note - 1; noteBefore >= 0; --noteBefore) {
-            final var previous = sampleBuffersByNote.get(noteBefore);
-            if (previous != null) {
-              break;
-            }
-            rate = rate * ONE_SEMITONE_DOWN;
-            sampleEntriesByNote.put(
-              noteBefore,
-              new ARI1SampleMapEntry(sample, rate));
+    final SampleBufferType outputBuffer;
+    final var currentRate = (int) sampleBuffer.sampleRate();
+    if (currentRate != sampleRate) {
+      final var rateEvent = ARJ1EventRateConversion.start();
+      Throwable failure = null;
+      try {
+        outputBuffer = converter.convert(
+          SampleBufferDouble::createWithHeapBuffer,
+          sampleBuffer,
+          sampleRate
+        );
+      } catch (final SampleBufferException | RuntimeException e) {
+        failure = e;
+        throw e;
+      } finally {
+        ARJ1EventRateConversion.finish(
+          rateEvent,
+          file.toString(),
+          currentRate,
+          sampleRate,
+          sampleBuffer.frames(),
+          failure
+        );
+      }
+    } else {
+      outputBuffer = sampleBuffer;
+    }
+
+    return ARI1SampleMipmap.create(
+      options.format().encode(outputBuffer),
+      options.mipmapLevels(),
+      sampleRate
+    );
+  }
+
+  private static List<ARI1SampleMapEntryType> entriesAtRate(
+    final List<ARI1SampleMipmap> alternatives,
+    final double rate)
+  {
+    final var results =
+      new ArrayList<ARI1SampleMapEntryType>(alternatives.size());
+    for (final var loaded : alternatives) {
+      results.add(new ARI1SampleMapEntry(loaded, rate));
+    }
+    return List.copyOf(results);
+  }
+
+  private static Int2ObjectSortedMap<List<ARI1SampleMapEntryType>> compileLayer(
+    final ARI1SampleMapDescriptionLayer layer,
+    final Map<Path, ARI1SampleMipmap> loadedByFile)
+  {
+    final var filesByNote =
+      layer.filesByNote();
+    final var entriesByNote =
+      new Int2ObjectRBTreeMap<List<ARI1SampleMapEntryType>>();
+
+    for (final var entry : filesByNote.int2ObjectEntrySet()) {
+      final var note = entry.getIntKey();
+      final var alternatives = new ArrayList<ARI1SampleMipmap>();
+      for (final var file : entry.getValue()) {
+        alternatives.add(loadedByFile.get(file));
+      }
+
+      entriesByNote.put(note, entriesAtRate(alternatives, 1.0));
+
+      {
+        var rate = 1.0;
+        for (int noteBefore = note - 1; noteBefore >= 0; --noteBefore) {
+          if (filesByNote.containsKey(noteBefore)) {
+            break;
           }
+          rate = rate * ONE_SEMITONE_DOWN;
+          entriesByNote.put(noteBefore, entriesAtRate(alternatives, rate));
         }
+      }
 
-        {
-          var rate = 1.0;
-          for (int noteAfter = note + 1; noteAfter <= 127; ++noteAfter) {
-            final var next = sampleBuffersByNote.get(noteAfter);
-            if (next != null) {
-              break;
-            }
-            rate = rate * ONE_SEMITONE_UP;
-            sampleEntriesByNote.put(
-              noteAfter,
-              new ARI1SampleMapEntry(sample, rate));
+      {
+        var rate = 1.0;
+        for (int noteAfter = note + 1; noteAfter <= 127; ++noteAfter) {
+          if (filesByNote.containsKey(noteAfter)) {
+            break;
           }
+          rate = rate * ONE_SEMITONE_UP;
+          entriesByNote.put(noteAfter, entriesAtRate(alternatives, rate));
         }
       }
-
-      return new ARI1SampleMap(sampleEntriesByNote, this);
-    } catch (final IOException
-                   | UnsupportedAudioFileException
-                   | SampleBufferException e) {
-      throw new SampleBufferException(e);
     }
+
+    return entriesByNote;
   }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A velocity layer of a sample map description.
+ *
+ * @param velocityMaximum The largest velocity (inclusive) that selects this
+ *                        layer; the smallest is just above the maximum of the
+ *                        previous layer
+ * @param filesByNote     The round-robin alternatives for each mapped note
+ */
+
+public record ARI1SampleMapDescriptionLayer(
+  double velocityMaximum,
+  Int2ObjectSortedMap<List<Path>> filesByNote)
+{
+  public ARI1SampleMapDescriptionLayer
+  {
+    Objects.requireNonNull(filesByNote, "filesByNote");
+    checkVelocity(velocityMaximum);
+
+    for (final var entry : filesByNote.int2ObjectEntrySet()) {
+      final var note = entry.getIntKey();
+      if (note < 0 || note >= ARI1SampleMap.NOTES) {
+        throw new IllegalArgumentException(
+          "Note %d must be in the range [0, %d)"
+            .formatted(
+              Integer.valueOf(note),
+              Integer.valueOf(ARI1SampleMap.NOTES))
+        );
+      }
+      if (entry.getValue().isEmpty()) {
+        throw new IllegalArgumentException(
+          "Note %d must have at least one file"
+            .formatted(Integer.valueOf(note))
+        );
+      }
+    }
+  }
+
+  static void checkVelocity(
+    final double velocityMaximum)
+  {
+    if (!(velocityMaximum >= 0.0 && velocityMaximum <= 1.0)) {
+      throw new IllegalArgumentException(
+        "Velocity maximum %f must be in the range [0, 1]"
+          .formatted(Double.valueOf(velocityMaximum))
+      );
+    }
+  }
+}
@@ -68,5 +68,13 @@ public final class ARI1SampleMapEmpty
     {
       Arrays.fill(output, 0.0);
     }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return 0.0;
+    }
   }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright © 2022 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
  *
  * Permission to use, copy, modify, and/or distribute this software for any
  * purpose with or without fee is hereby granted, provided that the above
@@ -17,23 +17,98 @@
 package com.io7m.aradine.tests;
 
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
-import com.io7m.jsamplebuffer.api.SampleBufferType;
+import com.io7m.jsamplebuffer.api.SampleBufferReadableType;
+
+import java.util.Objects;
+
+/**
+ * A sample map entry backed by deinterleaved sample storage and, optionally,
+ * mipmaps of that storage. Samples are decoded to {@code double} values as
+ * they are read; the storage may be shared between entries that use the
+ * same sample at different playback rates.
+ *
+ * @param mipmap       The sample storage and its mipmaps
+ * @param playbackRate The playback rate
+ */
 
 public record ARI1SampleMapEntry(
-  SampleBufferType sample,
+  ARI1SampleMipmap mipmap,
   double playbackRate)
   implements ARI1SampleMapEntryType
 {
+  public ARI1SampleMapEntry
+  {
+    Objects.requireNonNull(mipmap, "mipmap");
+  }
+
+  /**
+   * A sample map entry without mipmaps.
+   *
+   * @param storage      The sample storage
+   * @param playbackRate The playback rate
+   */
+
+  public ARI1SampleMapEntry(
+    final ARI1SampleStorageType storage,
+    final double playbackRate)
+  {
+    this(ARI1SampleMipmap.of(storage), playbackRate);
+  }
+
+  /**
+   * Create an entry, encoding the given buffer with 64-bit floating point
+   * storage.
+   *
+   * @param sample       The sample buffer
+   * @param playbackRate The playback rate
+   *
+   * @return An entry
+   */
+
+  public static ARI1SampleMapEntry create(
+    final SampleBufferReadableType sample,
+    final double playbackRate)
+  {
+    return create(sample, ARI1SampleStorageFormat.FLOAT64, playbackRate);
+  }
+
+  /**
+   * Create an entry, encoding the given buffer in the given format.
+   *
+   * @param sample       The sample buffer
+   * @param format       The storage format
+   * @param playbackRate The playback rate
+   *
+   * @return An entry
+   */
+
+  public static ARI1SampleMapEntry create(
+    final SampleBufferReadableType sample,
+    final ARI1SampleStorageFormat format,
+    final double playbackRate)
+  {
+    return new ARI1SampleMapEntry(format.encode(sample), playbackRate);
+  }
+
+  /**
+   * @return The sample storage (mipmap level {@code 0})
+   */
+
+  public ARI1SampleStorageType storage()
+  {
+    return this.mipmap.base();
+  }
+
   @Override
   public long frames()
   {
-    return this.sample.frames();
+    return this.mipmap.base().frames();
   }
 
   @Override
   public int channels()
   {
-    return this.sample.channels();
+    return this.mipmap.base().channels();
   }
 
   @Override
@@ -42,6 +117,55 @@ public record ARI1SampleMapEntry(
     final double velocity,
     final double[] output)
   {
-    this.sample.frameGetExact(frameIndex, output);
+    final var storage = this.mipmap.base();
+    final var channels = storage.channels();
+    if (frameIndex < 0L || frameIndex >= (long) storage.frames()) {
+      for (int channel = 0; channel < channels; ++channel) {
+        output[channel] = 0.0;
+      }
+      return;
+    }
+
+    final var index = (int) frameIndex;
+    for (int channel = 0; channel < channels; ++channel) {
+      output[channel] = storage.sample(channel, index);
+    }
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final long frameIndex)
+  {
+    return sampleOf(this.mipmap.base(), channel, frameIndex);
+  }
+
+  @Override
+  public int mipmapLevels()
+  {
+    return this.mipmap.levelCount();
+  }
+
+  @Override
+  public double sampleAtLevel(
+    final int level,
+    final int channel,
+    final long frameIndex)
+  {
+    return sampleOf(this.mipmap.level(level), channel, frameIndex);
+  }
+
+  private static double sampleOf(
+    final ARI1SampleStorageType storage,
+    final int channel,
+    final long frameIndex)
+  {
+    if (channel < 0 || channel >= storage.channels()) {
+      return 0.0;
+    }
+    if (frameIndex < 0L || frameIndex >= (long) storage.frames()) {
+      return 0.0;
+    }
+    return storage.sample(channel, (int) frameIndex);
   }
 }
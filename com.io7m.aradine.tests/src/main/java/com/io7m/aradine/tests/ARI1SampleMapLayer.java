@@ -0,0 +1,43 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import it.unimi.dsi.fastutil.ints.Int2ObjectSortedMap;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A velocity layer of a loaded sample map.
+ *
+ * @param velocityMaximum The largest velocity (inclusive) that selects this
+ *                        layer; the smallest is just above the maximum of the
+ *                        previous layer
+ * @param entriesByNote   The round-robin alternatives for each note
+ */
+
+public record ARI1SampleMapLayer(
+  double velocityMaximum,
+  Int2ObjectSortedMap<List<ARI1SampleMapEntryType>> entriesByNote)
+{
+  public ARI1SampleMapLayer
+  {
+    Objects.requireNonNull(entriesByNote, "entriesByNote");
+    ARI1SampleMapDescriptionLayer.checkVelocity(velocityMaximum);
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import java.util.Objects;
+import java.util.OptionalLong;
+
+/**
+ * Options that control how a sample map is loaded.
+ *
+ * @param format                  The storage format for samples
+ * @param mipmapLevels            The number of mipmap levels generated for
+ *                                each sample, including the sample itself;
+ *                                {@code 1} generates no mipmaps
+ * @param renderCacheBudgetOctets The render cache budget, if a render cache
+ *                                is to be used
+ *
+ * @see ARI1SampleStorageFormat
+ * @see ARI1SampleMipmap
+ * @see ARI1SampleRenderCache
+ */
+
+public record ARI1SampleMapLoadOptions(
+  ARI1SampleStorageFormat format,
+  int mipmapLevels,
+  OptionalLong renderCacheBudgetOctets)
+{
+  public ARI1SampleMapLoadOptions
+  {
+    Objects.requireNonNull(format, "format");
+    Objects.requireNonNull(renderCacheBudgetOctets, "renderCacheBudgetOctets");
+
+    if (mipmapLevels < 1 || mipmapLevels > ARI1SampleMipmap.LEVELS_MAXIMUM) {
+      throw new IllegalArgumentException(
+        "Mipmap levels must be in the range [1, %d]"
+          .formatted(Integer.valueOf(ARI1SampleMipmap.LEVELS_MAXIMUM))
+      );
+    }
+  }
+
+  /**
+   * @param format The storage format for samples
+   *
+   * @return Options using the given format, with no mipmaps and no render
+   * cache
+   */
+
+  public static ARI1SampleMapLoadOptions ofFormat(
+    final ARI1SampleStorageFormat format)
+  {
+    return new ARI1SampleMapLoadOptions(format, 1, OptionalLong.empty());
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapType;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of loaded sample maps. A single registry may be shared between
+ * any number of instrument instances so that each sample map is loaded
+ * exactly once per host.
+ */
+
+public final class ARI1SampleMapRegistry
+{
+  private final ConcurrentHashMap<URI, ARI1SampleMapType> sampleMaps;
+
+  public ARI1SampleMapRegistry()
+  {
+    this.sampleMaps = new ConcurrentHashMap<>();
+  }
+
+  /**
+   * Register a sample map.
+   *
+   * @param uri       The sample map URI
+   * @param sampleMap The sample map
+   */
+
+  public void register(
+    final URI uri,
+    final ARI1SampleMapType sampleMap)
+  {
+    this.sampleMaps.put(
+      Objects.requireNonNull(uri, "uri"),
+      Objects.requireNonNull(sampleMap, "sampleMap")
+    );
+  }
+
+  /**
+   * @param uri The sample map URI
+   *
+   * @return The sample map, or {@code null} if no such map is registered
+   */
+
+  public ARI1SampleMapType get(
+    final URI uri)
+  {
+    return this.sampleMaps.get(uri);
+  }
+}
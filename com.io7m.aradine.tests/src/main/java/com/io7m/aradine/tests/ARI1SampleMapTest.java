@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import it.unimi.dsi.fastutil.ints.Int2ObjectRBTreeMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class ARI1SampleMapTest
+{
+  private record Entry(String name) implements ARI1SampleMapEntryType
+  {
+    @Override
+    public long frames()
+    {
+      return 1L;
+    }
+
+    @Override
+    public int channels()
+    {
+      return 1;
+    }
+
+    @Override
+    public double playbackRate()
+    {
+      return 1.0;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      output[0] = 0.0;
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return 0.0;
+    }
+  }
+
+  private static List<List<ARI1SampleMapEntryType>> alternatives(
+    final String prefix,
+    final int count)
+  {
+    final var results = new ArrayList<List<ARI1SampleMapEntryType>>();
+    for (int note = 0; note < ARI1SampleMap.NOTES; ++note) {
+      final var entries = new ArrayList<ARI1SampleMapEntryType>();
+      for (int index = 0; index < count; ++index) {
+        entries.add(new Entry("%s-%d-%d".formatted(
+          prefix,
+          Integer.valueOf(note),
+          Integer.valueOf(index))
+        ));
+      }
+      results.add(List.copyOf(entries));
+    }
+    return results;
+  }
+
+  private static ARI1SampleMapLayer layer(
+    final double velocityMaximum,
+    final List<List<ARI1SampleMapEntryType>> alternatives)
+  {
+    final var byNote =
+      new Int2ObjectRBTreeMap<List<ARI1SampleMapEntryType>>();
+    for (int note = 0; note < alternatives.size(); ++note) {
+      byNote.put(note, alternatives.get(note));
+    }
+    return new ARI1SampleMapLayer(velocityMaximum, byNote);
+  }
+
+  /**
+   * Velocities select the layer with the smallest maximum that is at least
+   * the velocity, regardless of the order in which layers are given.
+   */
+
+  @Test
+  public void testVelocityLayers()
+  {
+    final var soft = alternatives("soft", 1);
+    final var loud = alternatives("loud", 1);
+    final var map =
+      new ARI1SampleMap(
+        List.of(layer(1.0, loud), layer(0.5, soft)),
+        ARI1SampleMapDescription.empty()
+      );
+
+    assertEquals(2, map.layerCount());
+    assertEquals(0, map.layerForVelocity(0.0));
+    assertEquals(0, map.layerForVelocity(0.45));
+    assertEquals(1, map.layerForVelocity(0.6));
+    assertEquals(1, map.layerForVelocity(1.0));
+    assertEquals(1, map.layerForVelocity(2.0));
+
+    assertSame(soft.get(60).get(0), map.forNoteVelocity(60, 0.25));
+    assertSame(loud.get(60).get(0), map.forNoteVelocity(60, 0.75));
+    assertSame(loud.get(60).get(0), map.forNote(60));
+  }
+
+  /**
+   * Each cell cycles through its alternatives independently.
+   */
+
+  @Test
+  public void testRoundRobin()
+  {
+    final var notes = alternatives("rr", 3);
+    final var map =
+      new ARI1SampleMap(
+        List.of(layer(1.0, notes)),
+        ARI1SampleMapDescription.empty()
+      );
+
+    for (int cycle = 0; cycle < 3; ++cycle) {
+      for (int index = 0; index < 3; ++index) {
+        assertSame(notes.get(10).get(index), map.forNoteVelocity(10, 1.0));
+      }
+      assertSame(notes.get(11).get(cycle), map.forNoteVelocity(11, 1.0));
+    }
+  }
+
+  /**
+   * Out-of-range notes and empty maps yield the silent entry.
+   */
+
+  @Test
+  public void testEmpty()
+  {
+    final var map =
+      new ARI1SampleMap(
+        List.of(layer(1.0, alternatives("x", 1))),
+        ARI1SampleMapDescription.empty()
+      );
+
+    final var silent = ARI1SampleMap.empty().forNote(60);
+    assertEquals(1L, silent.frames());
+    assertSame(silent, map.forNote(-1));
+    assertSame(silent, map.forNote(128));
+    assertSame(silent, ARI1SampleMap.empty().forNoteVelocity(0, 0.0));
+  }
+
+  /**
+   * Layers must map every note.
+   */
+
+  @Test
+  public void testIncompleteLayer()
+  {
+    final var byNote =
+      new Int2ObjectRBTreeMap<List<ARI1SampleMapEntryType>>();
+    byNote.put(60, List.of(new Entry("x")));
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      new ARI1SampleMap(
+        List.of(new ARI1SampleMapLayer(1.0, byNote)),
+        ARI1SampleMapDescription.empty()
+      );
+    });
+  }
+}
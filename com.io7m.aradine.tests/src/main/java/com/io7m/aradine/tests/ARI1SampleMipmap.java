@@ -0,0 +1,242 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SincTable;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
+
+import java.util.Objects;
+
+/**
+ * <p>A sample and its mipmaps.</p>
+ *
+ * <p>Level {@code 0} is the sample itself, and each subsequent level is the
+ * previous level low-pass filtered to half of its bandwidth and decimated
+ * by two. All levels use the storage format of the sample, so the mipmaps
+ * of a sample occupy at most as much memory again as the sample itself.
+ * Mipmaps are immutable.</p>
+ */
+
+public final class ARI1SampleMipmap
+{
+  /**
+   * The largest number of levels that will be generated.
+   */
+
+  public static final int LEVELS_MAXIMUM = 8;
+
+  /**
+   * The decimation filter: a 32-tap Kaiser-windowed sinc with a cutoff just
+   * below half of the Nyquist frequency. Decimating by two always reads at
+   * exact frame positions, so a single phase suffices.
+   */
+
+  private static final ARRS1SincTable HALF_BAND =
+    new ARRS1SincTable(16, 1, 0.45, 9.0);
+
+  private final ARI1SampleStorageType[] levels;
+
+  private ARI1SampleMipmap(
+    final ARI1SampleStorageType[] inLevels)
+  {
+    this.levels = Objects.requireNonNull(inLevels, "levels");
+  }
+
+  /**
+   * @param storage The sample
+   *
+   * @return A mipmap with a single level
+   */
+
+  public static ARI1SampleMipmap of(
+    final ARI1SampleStorageType storage)
+  {
+    return new ARI1SampleMipmap(new ARI1SampleStorageType[]{
+      Objects.requireNonNull(storage, "storage"),
+    });
+  }
+
+  /**
+   * Generate mipmaps for the given sample. Generation stops early if a
+   * level would contain fewer than two frames.
+   *
+   * @param storage    The sample
+   * @param levelCount The requested number of levels, including level
+   *                   {@code 0}, in the range {@code [1, LEVELS_MAXIMUM]}
+   * @param sampleRate The sample rate
+   *
+   * @return The mipmap
+   */
+
+  public static ARI1SampleMipmap create(
+    final ARI1SampleStorageType storage,
+    final int levelCount,
+    final double sampleRate)
+  {
+    Objects.requireNonNull(storage, "storage");
+
+    final var count = Math.min(Math.max(1, levelCount), LEVELS_MAXIMUM);
+    final var results = new ARI1SampleStorageType[count];
+    results[0] = storage;
+
+    var generated = 1;
+    while (generated < count) {
+      final var previous = results[generated - 1];
+      if (previous.frames() < 4) {
+        break;
+      }
+      results[generated] = decimate(previous, sampleRate);
+      ++generated;
+    }
+
+    if (generated == count) {
+      return new ARI1SampleMipmap(results);
+    }
+
+    final var trimmed = new ARI1SampleStorageType[generated];
+    System.arraycopy(results, 0, trimmed, 0, generated);
+    return new ARI1SampleMipmap(trimmed);
+  }
+
+  private static ARI1SampleStorageType decimate(
+    final ARI1SampleStorageType storage,
+    final double sampleRate)
+  {
+    final var channels = storage.channels();
+    final var frames = (storage.frames() + 1) / 2;
+    final var source = new StorageSource(storage);
+    final var output = new double[channels][frames];
+
+    for (int channel = 0; channel < channels; ++channel) {
+      ARRS1Resampler.renderSinc(
+        HALF_BAND,
+        source,
+        channel,
+        0L,
+        2L * ARRS1Phase.ONE,
+        output[channel],
+        0,
+        frames
+      );
+    }
+
+    return storage.format().encodeChannels(output, sampleRate);
+  }
+
+  /**
+   * Calculate the total size of the mipmaps that would be generated for a
+   * sample, without generating them.
+   *
+   * @param format     The storage format
+   * @param channels   The number of channels
+   * @param frames     The number of frames at level {@code 0}
+   * @param levelCount The requested number of levels
+   *
+   * @return The total size in octets of all levels, including level 0
+   */
+
+  public static long sizeOctetsOf(
+    final ARI1SampleStorageFormat format,
+    final int channels,
+    final long frames,
+    final int levelCount)
+  {
+    final var count = Math.min(Math.max(1, levelCount), LEVELS_MAXIMUM);
+    final var perFrame = (long) channels * (long) format.octetsPerSample();
+
+    var total = frames * perFrame;
+    var levelFrames = frames;
+    for (int level = 1; level < count && levelFrames >= 4L; ++level) {
+      levelFrames = (levelFrames + 1L) / 2L;
+      total += levelFrames * perFrame;
+    }
+    return total;
+  }
+
+  /**
+   * @return The sample (level {@code 0})
+   */
+
+  public ARI1SampleStorageType base()
+  {
+    return this.levels[0];
+  }
+
+  /**
+   * @return The number of levels
+   */
+
+  public int levelCount()
+  {
+    return this.levels.length;
+  }
+
+  /**
+   * @param level The level in the range {@code [0, levelCount())}
+   *
+   * @return The storage for the given level
+   */
+
+  public ARI1SampleStorageType level(
+    final int level)
+  {
+    return this.levels[level];
+  }
+
+  /**
+   * @return The total size in octets of all levels
+   */
+
+  public long sizeOctets()
+  {
+    var total = 0L;
+    for (final var level : this.levels) {
+      total += level.sizeOctets();
+    }
+    return total;
+  }
+
+  private static final class StorageSource implements ARRS1SourceType
+  {
+    private final ARI1SampleStorageType storage;
+
+    StorageSource(
+      final ARI1SampleStorageType inStorage)
+    {
+      this.storage = inStorage;
+    }
+
+    @Override
+    public long frames()
+    {
+      return this.storage.frames();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (frameIndex < 0L || frameIndex >= (long) this.storage.frames()) {
+        return 0.0;
+      }
+      return this.storage.sample(channel, (int) frameIndex);
+    }
+  }
+}
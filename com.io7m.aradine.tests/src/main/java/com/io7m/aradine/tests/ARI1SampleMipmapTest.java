@@ -0,0 +1,146 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1SampleMipmapTest
+{
+  private static ARI1SampleStorageType sine(
+    final int frames,
+    final double period)
+  {
+    final var data = new double[1][frames];
+    for (int index = 0; index < frames; ++index) {
+      data[0][index] = Math.sin((2.0 * Math.PI * (double) index) / period);
+    }
+    return ARI1SampleStorageFormat.FLOAT64.encodeChannels(data, 48000.0);
+  }
+
+  private static double peak(
+    final ARI1SampleStorageType storage,
+    final int from,
+    final int to)
+  {
+    var max = 0.0;
+    for (int index = from; index < to; ++index) {
+      max = Math.max(max, Math.abs(storage.sample(0, index)));
+    }
+    return max;
+  }
+
+  /**
+   * Each level halves the number of frames, and the predicted size matches
+   * the generated size.
+   */
+
+  @Test
+  public void testLevels()
+  {
+    final var mipmap =
+      ARI1SampleMipmap.create(sine(1001, 50.0), 4, 48000.0);
+
+    assertEquals(4, mipmap.levelCount());
+    assertEquals(1001, mipmap.level(0).frames());
+    assertEquals(501, mipmap.level(1).frames());
+    assertEquals(251, mipmap.level(2).frames());
+    assertEquals(126, mipmap.level(3).frames());
+    assertEquals(
+      ARI1SampleMipmap.sizeOctetsOf(
+        ARI1SampleStorageFormat.FLOAT64, 1, 1001L, 4),
+      mipmap.sizeOctets()
+    );
+  }
+
+  /**
+   * Generation stops when levels become too short.
+   */
+
+  @Test
+  public void testShort()
+  {
+    final var mipmap =
+      ARI1SampleMipmap.create(sine(10, 5.0), 8, 48000.0);
+
+    assertEquals(3, mipmap.levelCount());
+    assertEquals(
+      ARI1SampleMipmap.sizeOctetsOf(
+        ARI1SampleStorageFormat.FLOAT64, 1, 10L, 8),
+      mipmap.sizeOctets()
+    );
+  }
+
+  /**
+   * Content well below the cutoff of a level survives decimation at the
+   * correct (halved) period.
+   */
+
+  @Test
+  public void testPassband()
+  {
+    final var mipmap =
+      ARI1SampleMipmap.create(sine(4000, 64.0), 2, 48000.0);
+    final var level = mipmap.level(1);
+
+    for (int index = 64; index < level.frames() - 64; ++index) {
+      final var expected =
+        Math.sin((2.0 * Math.PI * (double) index) / 32.0);
+      assertEquals(expected, level.sample(0, index), 1.0e-2);
+    }
+  }
+
+  /**
+   * Content above the Nyquist frequency of a level is removed rather than
+   * folded back down.
+   */
+
+  @Test
+  public void testStopband()
+  {
+    final var mipmap =
+      ARI1SampleMipmap.create(sine(4000, 2.5), 2, 48000.0);
+    final var level = mipmap.level(1);
+
+    assertTrue(peak(mipmap.level(0), 100, 3900) > 0.9);
+    assertTrue(peak(level, 64, level.frames() - 64) < 1.0e-2);
+  }
+
+  /**
+   * Entries expose their mipmaps and read silence outside of each level.
+   */
+
+  @Test
+  public void testEntry()
+  {
+    final var entry =
+      new ARI1SampleMapEntry(
+        ARI1SampleMipmap.create(sine(1000, 50.0), 3, 48000.0),
+        1.0
+      );
+
+    assertEquals(3, entry.mipmapLevels());
+    assertEquals(0.0, entry.sampleAtLevel(2, 0, 250L));
+    assertEquals(0.0, entry.sampleAtLevel(1, 1, 0L));
+    assertEquals(
+      entry.mipmap().level(1).sample(0, 10),
+      entry.sampleAtLevel(1, 0, 10L)
+    );
+  }
+}
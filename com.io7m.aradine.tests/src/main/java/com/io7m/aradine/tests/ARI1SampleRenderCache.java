@@ -0,0 +1,410 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SincTable;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <p>A cache of pre-resampled sample map entries.</p>
+ *
+ * <p>Notes that do not have a sample of their own play a neighbouring
+ * note's sample at a rate other than {@code 1.0}, and so every voice
+ * playing such a note must resample in real time. The cache renders each
+ * such entry, using a long windowed-sinc kernel, into a new entry with a
+ * playback rate of exactly {@code 1.0}; an unbent voice playing the rendered
+ * entry then copies frames without interpolating.</p>
+ *
+ * <p>Rendering happens on a background thread, and the total size of the
+ * rendered entries is bounded by a memory budget. Lookups that find no
+ * rendered entry (because the entry has not yet been rendered, or has been
+ * evicted) return the original entry, which is resampled in real time as
+ * before, and request that the entry be rendered. When the budget is
+ * exhausted, entries requested by playback evict the least recently used
+ * rendered entries. Lookups never allocate or block. An evicted entry
+ * remains valid for any voices that are still playing it.</p>
+ */
+
+public final class ARI1SampleRenderCache implements AutoCloseable
+{
+  private static final Logger LOG =
+    LoggerFactory.getLogger(ARI1SampleRenderCache.class);
+
+  private static final long POLL_INTERVAL =
+    TimeUnit.MILLISECONDS.toNanos(10L);
+
+  private static final int REQUEST_NONE = 0;
+  private static final int REQUEST_PENDING = 1;
+  private static final int REQUEST_REJECTED = 2;
+
+  private final ARI1SampleRenderCacheConfiguration configuration;
+  private final ARI1SampleMapEntry[] sources;
+  private final AtomicReferenceArray<ARI1SampleMapEntry> rendered;
+  private final AtomicIntegerArray requests;
+  private final AtomicLongArray lastUsed;
+  private volatile boolean requested;
+  private volatile boolean closed;
+  private volatile long sizeOctets;
+  private long clock;
+  private Thread worker;
+
+  private ARI1SampleRenderCache(
+    final ARI1SampleMapEntryType[] entries,
+    final ARI1SampleRenderCacheConfiguration inConfiguration)
+  {
+    Objects.requireNonNull(entries, "entries");
+
+    this.configuration =
+      Objects.requireNonNull(inConfiguration, "configuration");
+    this.sources =
+      new ARI1SampleMapEntry[entries.length];
+    this.rendered =
+      new AtomicReferenceArray<>(entries.length);
+    this.requests =
+      new AtomicIntegerArray(entries.length);
+    this.lastUsed =
+      new AtomicLongArray(entries.length);
+
+    /*
+     * Every derived entry is requested up front, so that the cache is
+     * filled in the background as soon as the map is loaded.
+     */
+
+    for (int index = 0; index < entries.length; ++index) {
+      if (entries[index] instanceof final ARI1SampleMapEntry entry) {
+        if (entry.playbackRate() != 1.0) {
+          this.sources[index] = entry;
+          this.requests.set(index, REQUEST_PENDING);
+          this.requested = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Create a cache for the given entries, and start rendering them on a
+   * background thread.
+   *
+   * @param entries       The entries, indexed by entry index
+   * @param configuration The configuration
+   *
+   * @return A cache
+   */
+
+  public static ARI1SampleRenderCache create(
+    final ARI1SampleMapEntryType[] entries,
+    final ARI1SampleRenderCacheConfiguration configuration)
+  {
+    final var cache = createManual(entries, configuration);
+    final var thread = new Thread(cache::run);
+    thread.setName("com.io7m.aradine.sample_render_cache");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    cache.worker = thread;
+    thread.start();
+    return cache;
+  }
+
+  /**
+   * Create a cache for the given entries without a background thread;
+   * entries are only rendered by calls to {@link #renderPending()}.
+   *
+   * @param entries       The entries, indexed by entry index
+   * @param configuration The configuration
+   *
+   * @return A cache
+   */
+
+  static ARI1SampleRenderCache createManual(
+    final ARI1SampleMapEntryType[] entries,
+    final ARI1SampleRenderCacheConfiguration configuration)
+  {
+    return new ARI1SampleRenderCache(entries, configuration);
+  }
+
+  /**
+   * @return The cache configuration
+   */
+
+  public ARI1SampleRenderCacheConfiguration configuration()
+  {
+    return this.configuration;
+  }
+
+  /**
+   * @return The number of octets of rendered sample data currently held
+   */
+
+  public long sizeOctets()
+  {
+    return this.sizeOctets;
+  }
+
+  /**
+   * @param index The entry index
+   *
+   * @return {@code true} if the entry at {@code index} is currently rendered
+   */
+
+  public boolean isRendered(
+    final int index)
+  {
+    return this.rendered.getAcquire(index) != null;
+  }
+
+  /**
+   * Resolve the entry at the given index. This is called on the audio
+   * thread, and does not allocate or block.
+   *
+   * @param index    The entry index
+   * @param original The original entry at the index
+   *
+   * @return The rendered entry, if one is available, or {@code original}
+   */
+
+  public ARI1SampleMapEntryType resolve(
+    final int index,
+    final ARI1SampleMapEntryType original)
+  {
+    if (this.sources[index] == null) {
+      return original;
+    }
+
+    this.lastUsed.setOpaque(index, ++this.clock);
+
+    final var entry = this.rendered.getAcquire(index);
+    if (entry != null) {
+      return entry;
+    }
+
+    if (this.requests.getOpaque(index) == REQUEST_NONE) {
+      this.requests.setRelease(index, REQUEST_PENDING);
+      this.requested = true;
+    }
+    return original;
+  }
+
+  private void run()
+  {
+    while (!this.closed) {
+      try {
+        this.renderPending();
+      } catch (final Exception e) {
+        LOG.error("sample render cache: ", e);
+      }
+      LockSupport.parkNanos(POLL_INTERVAL);
+    }
+  }
+
+  /**
+   * Render every entry that has been requested and that fits within the
+   * budget.
+   *
+   * @return The number of entries rendered
+   */
+
+  int renderPending()
+  {
+    if (!this.requested) {
+      return 0;
+    }
+    this.requested = false;
+
+    var count = 0;
+    for (int index = 0; index < this.sources.length; ++index) {
+      if (this.closed) {
+        break;
+      }
+      if (this.requests.getAcquire(index) != REQUEST_PENDING) {
+        continue;
+      }
+      if (this.rendered.getAcquire(index) != null) {
+        this.requests.setRelease(index, REQUEST_NONE);
+        continue;
+      }
+
+      final var source = this.sources[index];
+      final var size = renderedSizeOf(source);
+      if (size > this.configuration.budgetOctets()) {
+        this.requests.setRelease(index, REQUEST_REJECTED);
+        continue;
+      }
+      if (!this.makeRoom(index, size)) {
+        this.requests.setRelease(index, REQUEST_NONE);
+        continue;
+      }
+
+      this.rendered.setRelease(index, render(source, this.configuration));
+      this.sizeOctets += size;
+      this.requests.setRelease(index, REQUEST_NONE);
+      ++count;
+    }
+    return count;
+  }
+
+  /**
+   * Evict least recently used entries until an entry of the given size fits
+   * within the budget. Only entries that were used less recently than the
+   * requested entry are evicted; entries requested up front (and never used)
+   * therefore never evict anything.
+   */
+
+  private boolean makeRoom(
+    final int index,
+    final long size)
+  {
+    final var budget = this.configuration.budgetOctets();
+    final var used = this.lastUsed.getOpaque(index);
+    while (this.sizeOctets + size > budget) {
+      var victim = -1;
+      var victimUsed = used;
+      for (int other = 0; other < this.sources.length; ++other) {
+        if (this.rendered.getAcquire(other) == null) {
+          continue;
+        }
+        final var otherUsed = this.lastUsed.getOpaque(other);
+        if (otherUsed < victimUsed) {
+          victim = other;
+          victimUsed = otherUsed;
+        }
+      }
+
+      if (victim == -1) {
+        return false;
+      }
+
+      this.rendered.setRelease(victim, null);
+      this.sizeOctets -= renderedSizeOf(this.sources[victim]);
+    }
+    return true;
+  }
+
+  private static int renderedFramesOf(
+    final ARI1SampleMapEntry source)
+  {
+    final var frames =
+      (long) Math.ceil((double) source.frames() / source.playbackRate());
+    return (int) Math.min((long) (Integer.MAX_VALUE / 8), frames);
+  }
+
+  private static long renderedSizeOf(
+    final ARI1SampleMapEntry source)
+  {
+    return ARI1SampleMipmap.sizeOctetsOf(
+      source.storage().format(),
+      source.channels(),
+      renderedFramesOf(source),
+      source.mipmapLevels()
+    );
+  }
+
+  /**
+   * Render the given entry at its playback rate, yielding an entry with the
+   * same storage format, the same number of mipmap levels, and a playback
+   * rate of {@code 1.0}.
+   *
+   * @param source        The source entry
+   * @param configuration The cache configuration
+   *
+   * @return The rendered entry
+   */
+
+  static ARI1SampleMapEntry render(
+    final ARI1SampleMapEntry source,
+    final ARI1SampleRenderCacheConfiguration configuration)
+  {
+    final var rate = source.playbackRate();
+    final var channels = source.channels();
+    final var frames = renderedFramesOf(source);
+
+    /*
+     * Reading the source faster than its own rate shifts its content
+     * upwards, so the kernel's cutoff is lowered in proportion to avoid
+     * folding anything above the output Nyquist frequency back down.
+     */
+
+    final var table =
+      new ARRS1SincTable(32, 256, Math.min(0.95, 0.95 / rate), 9.0);
+    final var increment =
+      ARRS1Phase.ofFrames(rate);
+    final var reader =
+      new EntrySource(source);
+
+    final var output = new double[channels][frames];
+    for (int channel = 0; channel < channels; ++channel) {
+      ARRS1Resampler.renderSinc(
+        table, reader, channel, 0L, increment, output[channel], 0, frames);
+    }
+
+    final var sampleRate =
+      (double) configuration.sampleRate();
+    final var storage =
+      source.storage().format().encodeChannels(output, sampleRate);
+
+    return new ARI1SampleMapEntry(
+      ARI1SampleMipmap.create(storage, source.mipmapLevels(), sampleRate),
+      1.0
+    );
+  }
+
+  @Override
+  public void close()
+  {
+    this.closed = true;
+    final var thread = this.worker;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private static final class EntrySource implements ARRS1SourceType
+  {
+    private final ARI1SampleMapEntry entry;
+
+    EntrySource(
+      final ARI1SampleMapEntry inEntry)
+    {
+      this.entry = inEntry;
+    }
+
+    @Override
+    public long frames()
+    {
+      return this.entry.frames();
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return this.entry.sample(channel, frameIndex);
+    }
+  }
+}
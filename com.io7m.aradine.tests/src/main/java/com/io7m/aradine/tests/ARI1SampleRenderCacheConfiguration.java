@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * The configuration of a sample render cache.
+ *
+ * @param budgetOctets The maximum number of octets of pre-rendered sample
+ *                     data held at any one time
+ * @param sampleRate   The sample rate of the sample map
+ *
+ * @see ARI1SampleRenderCache
+ */
+
+public record ARI1SampleRenderCacheConfiguration(
+  long budgetOctets,
+  int sampleRate)
+{
+  public ARI1SampleRenderCacheConfiguration
+  {
+    if (budgetOctets < 0L) {
+      throw new IllegalArgumentException("Budget must be non-negative.");
+    }
+    if (sampleRate <= 0) {
+      throw new IllegalArgumentException("Sample rate must be positive.");
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.jsamplebuffer.vanilla.SampleBufferDouble;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1SampleRenderCacheTest
+{
+  private static final double PERIOD = 100.0;
+  private static final double SEMITONE_UP = 1.059462351977181;
+
+  private static ARI1SampleMapEntry sine(
+    final int frames,
+    final double rate)
+  {
+    final var buffer =
+      SampleBufferDouble.createWithHeapBuffer(1, frames, 48000.0);
+    for (int index = 0; index < frames; ++index) {
+      buffer.frameSetExact(
+        index,
+        Math.sin((2.0 * Math.PI * (double) index) / PERIOD)
+      );
+    }
+    return ARI1SampleMapEntry.create(
+      buffer,
+      ARI1SampleStorageFormat.FLOAT64,
+      rate
+    );
+  }
+
+  /**
+   * A rendered entry plays at rate 1.0 and holds the source as it would
+   * have sounded at the source's playback rate.
+   */
+
+  @Test
+  public void testRenderAccuracy()
+  {
+    final var source = sine(2000, SEMITONE_UP);
+    final var rendered =
+      ARI1SampleRenderCache.render(
+        source,
+        new ARI1SampleRenderCacheConfiguration(1_000_000L, 48000)
+      );
+
+    assertEquals(1.0, rendered.playbackRate());
+    assertEquals(
+      (long) Math.ceil(2000.0 / SEMITONE_UP),
+      rendered.frames()
+    );
+
+    for (int index = 64; index < rendered.frames() - 64; ++index) {
+      final var expected =
+        Math.sin((2.0 * Math.PI * (double) index * SEMITONE_UP) / PERIOD);
+      assertEquals(expected, rendered.sample(0, index), 1.0e-3);
+    }
+  }
+
+  /**
+   * Entries at rate 1.0 are never cached; everything else is rendered up
+   * front until the budget is exhausted.
+   */
+
+  @Test
+  public void testPrefillWithinBudget()
+  {
+    final var unity = sine(1000, 1.0);
+    final var entries = new ARI1SampleMapEntryType[]{
+      unity,
+      sine(1000, 2.0),
+      sine(1000, 2.0),
+      sine(1000, 2.0),
+    };
+
+    final var size = 500L * 8L;
+    final var cache =
+      ARI1SampleRenderCache.createManual(
+        entries,
+        new ARI1SampleRenderCacheConfiguration(size * 2L, 48000)
+      );
+
+    assertEquals(2, cache.renderPending());
+    assertEquals(size * 2L, cache.sizeOctets());
+    assertSame(unity, cache.resolve(0, unity));
+    assertTrue(cache.isRendered(1));
+    assertTrue(cache.isRendered(2));
+    assertFalse(cache.isRendered(3));
+
+    final var rendered = cache.resolve(1, entries[1]);
+    assertNotSame(entries[1], rendered);
+    assertEquals(1.0, rendered.playbackRate());
+  }
+
+  /**
+   * Entries requested by playback evict the least recently used entries;
+   * until they are rendered, lookups return the original entries.
+   */
+
+  @Test
+  public void testEviction()
+  {
+    final var entries = new ARI1SampleMapEntryType[]{
+      sine(1000, 2.0),
+      sine(1000, 2.0),
+      sine(1000, 2.0),
+    };
+
+    final var size = 500L * 8L;
+    final var cache =
+      ARI1SampleRenderCache.createManual(
+        entries,
+        new ARI1SampleRenderCacheConfiguration(size * 2L, 48000)
+      );
+
+    assertEquals(2, cache.renderPending());
+    assertEquals(0, cache.renderPending());
+
+    cache.resolve(1, entries[1]);
+    assertSame(entries[2], cache.resolve(2, entries[2]));
+    assertEquals(1, cache.renderPending());
+
+    assertFalse(cache.isRendered(0));
+    assertTrue(cache.isRendered(1));
+    assertTrue(cache.isRendered(2));
+    assertEquals(size * 2L, cache.sizeOctets());
+    assertNotSame(entries[2], cache.resolve(2, entries[2]));
+    assertSame(entries[0], cache.resolve(0, entries[0]));
+  }
+
+  /**
+   * Entries larger than the whole budget are never rendered.
+   */
+
+  @Test
+  public void testTooLarge()
+  {
+    final var entries = new ARI1SampleMapEntryType[]{
+      sine(1000, 2.0),
+    };
+
+    final var cache =
+      ARI1SampleRenderCache.createManual(
+        entries,
+        new ARI1SampleRenderCacheConfiguration(100L, 48000)
+      );
+
+    assertEquals(0, cache.renderPending());
+    assertSame(entries[0], cache.resolve(0, entries[0]));
+    assertEquals(0, cache.renderPending());
+    assertFalse(cache.isRendered(0));
+  }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.jsamplebuffer.api.SampleBufferReadableType;
+
+import java.util.Objects;
+
+/**
+ * Sample storage holding 32-bit floating point samples.
+ */
+
+public final class ARI1SampleStorageFloat32 implements ARI1SampleStorageType
+{
+  private final float[][] data;
+  private final int frames;
+
+  private ARI1SampleStorageFloat32(
+    final float[][] inData,
+    final int inFrames)
+  {
+    this.data = Objects.requireNonNull(inData, "data");
+    this.frames = inFrames;
+  }
+
+  /**
+   * Encode the given sample buffer.
+   *
+   * @param sample The sample buffer
+   *
+   * @return The encoded storage
+   */
+
+  public static ARI1SampleStorageFloat32 encode(
+    final SampleBufferReadableType sample)
+  {
+    final var frames =
+      ARI1SampleStorageFormat.checkFrames(sample, 4);
+    final var channels =
+      sample.channels();
+    final var data =
+      new float[channels][frames];
+    final var frame =
+      new double[channels];
+
+    for (int index = 0; index < frames; ++index) {
+      sample.frameGetExact(index, frame);
+      for (int channel = 0; channel < channels; ++channel) {
+        data[channel][index] = (float) frame[channel];
+      }
+    }
+    return new ARI1SampleStorageFloat32(data, frames);
+  }
+
+  @Override
+  public ARI1SampleStorageFormat format()
+  {
+    return ARI1SampleStorageFormat.FLOAT32;
+  }
+
+  @Override
+  public int channels()
+  {
+    return this.data.length;
+  }
+
+  @Override
+  public int frames()
+  {
+    return this.frames;
+  }
+
+  @Override
+  public double sample(
+    final int channel,
+    final int frameIndex)
+  {
+    return (double) this.data[channel][frameIndex];
+  }
+}
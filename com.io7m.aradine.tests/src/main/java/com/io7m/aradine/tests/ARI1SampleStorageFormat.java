@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.jsamplebuffer.api.SampleBufferReadableType;
+import com.io7m.jsamplebuffer.vanilla.SampleBufferDouble;
+
+/**
+ * The formats in which decoded sample data may be held in memory. Samples
+ * are always decoded to {@code double} values as they are read, so the
+ * choice of format trades precision against memory use (and, consequently,
+ * cache hit rates during playback).
+ */
+
+public enum ARI1SampleStorageFormat
+{
+  /**
+   * Signed 16-bit integer samples. Lossless for 16-bit sources.
+   */
+
+  INT16(2) {
+    @Override
+    public ARI1SampleStorageType encode(
+      final SampleBufferReadableType sample)
+    {
+      return ARI1SampleStorageInt16.encode(sample);
+    }
+  },
+
+  /**
+   * Signed 24-bit integer samples, packed into three octets. Lossless for
+   * 16-bit and 24-bit sources.
+   */
+
+  INT24(3) {
+    @Override
+    public ARI1SampleStorageType encode(
+      final SampleBufferReadableType sample)
+    {
+      return ARI1SampleStorageInt24.encode(sample);
+    }
+  },
+
+  /**
+   * 32-bit floating point samples. Lossless for 16-bit and 24-bit sources.
+   */
+
+  FLOAT32(4) {
+    @Override
+    public ARI1SampleStorageType encode(
+      final SampleBufferReadableType sample)
+    {
+      return ARI1SampleStorageFloat32.encode(sample);
+    }
+  },
+
+  /**
+   * 64-bit floating point samples.
+   */
+
+  FLOAT64(8) {
+    @Override
+    public ARI1SampleStorageType encode(
+      final SampleBufferReadableType sample)
+    {
+      return ARI1SampleStorageFloat64.encode(sample);
+    }
+  };
+
+  private final int octetsPerSample;
+
+  ARI1SampleStorageFormat(
+    final int inOctetsPerSample)
+  {
+    this.octetsPerSample = inOctetsPerSample;
+  }
+
+  /**
+   * @return The number of octets used to store a single sample
+   */
+
+  public int octetsPerSample()
+  {
+    return this.octetsPerSample;
+  }
+
+  /**
+   * Encode the given sample buffer into this format. Values outside of the
+   * range {@code [-1, 1]} are clamped by the integer formats.
+   *
+   * @param sample The sample buffer
+   *
+   * @return The encoded storage
+   */
+
+  public abstract ARI1SampleStorageType encode(
+    SampleBufferReadableType sample);
+
+  /**
+   * Encode the given deinterleaved channels into this format.
+   *
+   * @param channels   The channels, each of the same length
+   * @param sampleRate The sample rate
+   *
+   * @return The encoded storage
+   */
+
+  public ARI1SampleStorageType encodeChannels(
+    final double[][] channels,
+    final double sampleRate)
+  {
+    final var count = channels.length;
+    final var frames = count == 0 ? 0 : channels[0].length;
+    final var buffer =
+      SampleBufferDouble.createWithHeapBuffer(count, frames, sampleRate);
+
+    final var frame = new double[count];
+    for (int index = 0; index < frames; ++index) {
+      for (int channel = 0; channel < count; ++channel) {
+        frame[channel] = channels[channel][index];
+      }
+      buffer.frameSetExact(index, frame);
+    }
+    return this.encode(buffer);
+  }
+
+  static int checkFrames(
+    final SampleBufferReadableType sample,
+    final int octetsPerSample)
+  {
+    final var frames = sample.frames();
+    final var limit = (long) (Integer.MAX_VALUE / octetsPerSample);
+    if (frames > limit) {
+      throw new IllegalArgumentException(
+        "Sample buffers must have at most %d frames"
+          .formatted(Long.valueOf(limit))
+      );
+    }
+    return (int) frames;
+  }
+}
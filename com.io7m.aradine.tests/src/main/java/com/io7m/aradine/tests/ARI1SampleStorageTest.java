@@ -0,0 +1,139 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.jsamplebuffer.api.SampleBufferType;
+import com.io7m.jsamplebuffer.vanilla.SampleBufferDouble;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class ARI1SampleStorageTest
+{
+  private static final int FRAMES = 1000;
+
+  private static SampleBufferType ramp()
+  {
+    final var buffer =
+      SampleBufferDouble.createWithHeapBuffer(2, FRAMES, 48000.0);
+    final var frame = new double[2];
+    for (int index = 0; index < FRAMES; ++index) {
+      final var x = ((double) index / (double) (FRAMES - 1)) * 2.0 - 1.0;
+      frame[0] = x;
+      frame[1] = -x * 0.5;
+      buffer.frameSetExact(index, frame);
+    }
+    return buffer;
+  }
+
+  private static double toleranceOf(
+    final ARI1SampleStorageFormat format)
+  {
+    return switch (format) {
+      case INT16 -> 1.0 / 32767.0;
+      case INT24 -> 1.0 / 8388607.0;
+      case FLOAT32 -> 1.0e-7;
+      case FLOAT64 -> 0.0;
+    };
+  }
+
+  /**
+   * Every format reproduces the source within its precision.
+   *
+   * @param format The format
+   */
+
+  @ParameterizedTest
+  @EnumSource(ARI1SampleStorageFormat.class)
+  public void testRoundTrip(
+    final ARI1SampleStorageFormat format)
+  {
+    final var source = ramp();
+    final var storage = format.encode(source);
+    final var frame = new double[2];
+
+    assertEquals(format, storage.format());
+    assertEquals(2, storage.channels());
+    assertEquals(FRAMES, storage.frames());
+    assertEquals(
+      2L * FRAMES * format.octetsPerSample(),
+      storage.sizeOctets()
+    );
+
+    final var tolerance = toleranceOf(format);
+    for (int index = 0; index < FRAMES; ++index) {
+      source.frameGetExact(index, frame);
+      assertEquals(frame[0], storage.sample(0, index), tolerance);
+      assertEquals(frame[1], storage.sample(1, index), tolerance);
+    }
+  }
+
+  /**
+   * Integer formats clamp out-of-range values and preserve signs.
+   */
+
+  @Test
+  public void testIntegerExtremes()
+  {
+    final var source =
+      SampleBufferDouble.createWithHeapBuffer(1, 4, 48000.0);
+    source.frameSetExact(0, 2.0);
+    source.frameSetExact(1, -2.0);
+    source.frameSetExact(2, -1.0 / 8388607.0);
+    source.frameSetExact(3, 0.0);
+
+    for (final var format : new ARI1SampleStorageFormat[]{
+      ARI1SampleStorageFormat.INT16,
+      ARI1SampleStorageFormat.INT24,
+    }) {
+      final var storage = format.encode(source);
+      assertEquals(1.0, storage.sample(0, 0));
+      assertEquals(-1.0, storage.sample(0, 1));
+      assertEquals(0.0, storage.sample(0, 3));
+    }
+
+    final var int24 = ARI1SampleStorageFormat.INT24.encode(source);
+    assertEquals(-1.0 / 8388607.0, int24.sample(0, 2), 1.0e-15);
+  }
+
+  /**
+   * Entries return silence outside of the stored range.
+   */
+
+  @Test
+  public void testEntryBounds()
+  {
+    final var entry =
+      ARI1SampleMapEntry.create(ramp(), ARI1SampleStorageFormat.INT16, 1.0);
+    final var frame = new double[]{1.0, 1.0};
+
+    assertEquals(0.0, entry.sample(0, -1L));
+    assertEquals(0.0, entry.sample(0, FRAMES));
+    assertEquals(0.0, entry.sample(2, 0L));
+    assertEquals(-1.0, entry.sample(0, 0L));
+
+    entry.evaluate(FRAMES, 1.0, frame);
+    assertEquals(0.0, frame[0]);
+    assertEquals(0.0, frame[1]);
+
+    entry.evaluate(FRAMES - 1, 1.0, frame);
+    assertEquals(1.0, frame[0]);
+    assertEquals(-0.5, frame[1], 1.0 / 32767.0);
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+/**
+ * Deinterleaved sample data held in memory in one of the
+ * {@link ARI1SampleStorageFormat} formats, decoded to {@code double} on
+ * access. Storage is immutable once created and may be shared between any
+ * number of sample map entries.
+ */
+
+public sealed interface ARI1SampleStorageType
+  permits ARI1SampleStorageFloat32,
+  ARI1SampleStorageFloat64,
+  ARI1SampleStorageInt16,
+  ARI1SampleStorageInt24
+{
+  /**
+   * @return The storage format
+   */
+
+  ARI1SampleStorageFormat format();
+
+  /**
+   * @return The number of channels
+   */
+
+  int channels();
+
+  /**
+   * @return The number of frames
+   */
+
+  int frames();
+
+  /**
+   * @return The number of octets of sample data held
+   */
+
+  default long sizeOctets()
+  {
+    return (long) this.channels()
+      * (long) this.frames()
+      * (long) this.format().octetsPerSample();
+  }
+
+  /**
+   * Decode a single sample. The channel and frame index must be in range;
+   * callers are responsible for bounds checks.
+   *
+   * @param channel    The channel
+   * @param frameIndex The frame index
+   *
+   * @return The decoded sample
+   */
+
+  double sample(
+    int channel,
+    int frameIndex);
+}
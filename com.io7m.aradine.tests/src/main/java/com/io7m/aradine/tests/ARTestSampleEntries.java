@@ -0,0 +1,338 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests;
+
+import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+
+/**
+ * Synthetic sample map entries shared between the sampler tests.
+ */
+
+public final class ARTestSampleEntries
+{
+  private ARTestSampleEntries()
+  {
+
+  }
+
+  /**
+   * An entry that yields a constant value on each of its channels within
+   * {@code [0, frames)}, and silence everywhere else.
+   *
+   * @param frames   The number of frames
+   * @param channels The number of channels
+   * @param value    The sample value
+   */
+
+  public record ConstantEntry(
+    long frames,
+    int channels,
+    double value)
+    implements ARI1SampleMapEntryType
+  {
+    /**
+     * A stereo constant entry.
+     *
+     * @param frames The number of frames
+     * @param value  The sample value
+     */
+
+    public ConstantEntry(
+      final long frames,
+      final double value)
+    {
+      this(frames, 2, value);
+    }
+
+    @Override
+    public double playbackRate()
+    {
+      return 1.0;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      for (int channel = 0; channel < this.channels; ++channel) {
+        output[channel] = this.sample(channel, frameIndex);
+      }
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (channel >= this.channels) {
+        return 0.0;
+      }
+      if (frameIndex < 0L || frameIndex >= this.frames) {
+        return 0.0;
+      }
+      return this.value;
+    }
+  }
+
+  /**
+   * A stereo entry that yields {@code sin} on the left channel and
+   * {@code cos} on the right channel within {@code [0, frames)}.
+   *
+   * @param frames       The number of frames
+   * @param frequency    The phase increment per frame
+   * @param playbackRate The playback rate
+   */
+
+  public record SineEntry(
+    long frames,
+    double frequency,
+    double playbackRate)
+    implements ARI1SampleMapEntryType
+  {
+    /**
+     * A sine entry played back at the original rate.
+     *
+     * @param frames    The number of frames
+     * @param frequency The phase increment per frame
+     */
+
+    public SineEntry(
+      final long frames,
+      final double frequency)
+    {
+      this(frames, frequency, 1.0);
+    }
+
+    @Override
+    public int channels()
+    {
+      return 2;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      output[0] = this.sample(0, frameIndex);
+      output[1] = this.sample(1, frameIndex);
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (frameIndex < 0L || frameIndex >= this.frames) {
+        return 0.0;
+      }
+      final var phase = (double) frameIndex * this.frequency;
+      return channel == 0 ? Math.sin(phase) : Math.cos(phase);
+    }
+  }
+
+  /**
+   * A stereo entry whose samples are equal to their frame index.
+   *
+   * @param frames The number of frames
+   */
+
+  public record RampEntry(
+    long frames)
+    implements ARI1SampleMapEntryType
+  {
+    @Override
+    public int channels()
+    {
+      return 2;
+    }
+
+    @Override
+    public double playbackRate()
+    {
+      return 1.0;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      output[0] = this.sample(0, frameIndex);
+      output[1] = this.sample(1, frameIndex);
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return (double) frameIndex;
+    }
+  }
+
+  /**
+   * A mono entry whose mipmap level {@code n} yields {@code 1 + n} within
+   * {@code [0, frames >> n)}.
+   *
+   * @param frames       The number of frames
+   * @param mipmapLevels The number of mipmap levels
+   */
+
+  public record LevelEntry(
+    long frames,
+    int mipmapLevels)
+    implements ARI1SampleMapEntryType
+  {
+    @Override
+    public int channels()
+    {
+      return 1;
+    }
+
+    @Override
+    public double playbackRate()
+    {
+      return 1.0;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      output[0] = this.sample(0, frameIndex);
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      return this.sampleAtLevel(0, channel, frameIndex);
+    }
+
+    @Override
+    public double sampleAtLevel(
+      final int level,
+      final int channel,
+      final long frameIndex)
+    {
+      if (frameIndex < 0L || frameIndex >= (this.frames >> level)) {
+        return 0.0;
+      }
+      return 1.0 + (double) level;
+    }
+  }
+
+  /**
+   * A mono entry that is silent for {@code silentFrames} frames and then
+   * yields {@code 1.0} until {@code frames}.
+   *
+   * @param silentFrames The number of leading silent frames
+   * @param frames       The number of frames
+   */
+
+  public record LeadingSilenceEntry(
+    long silentFrames,
+    long frames)
+    implements ARI1SampleMapEntryType
+  {
+    @Override
+    public int channels()
+    {
+      return 1;
+    }
+
+    @Override
+    public double playbackRate()
+    {
+      return 1.0;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      output[0] = this.sample(0, frameIndex);
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (frameIndex < this.silentFrames || frameIndex >= this.frames) {
+        return 0.0;
+      }
+      return 1.0;
+    }
+  }
+
+  /**
+   * A mono entry that yields {@code 1.0} for {@code audibleFrames} frames
+   * and is then silent until {@code frames}.
+   *
+   * @param audibleFrames The number of leading audible frames
+   * @param frames        The number of frames
+   */
+
+  public record TrailingSilenceEntry(
+    long audibleFrames,
+    long frames)
+    implements ARI1SampleMapEntryType
+  {
+    @Override
+    public int channels()
+    {
+      return 1;
+    }
+
+    @Override
+    public double playbackRate()
+    {
+      return 1.0;
+    }
+
+    @Override
+    public void evaluate(
+      final long frameIndex,
+      final double velocity,
+      final double[] output)
+    {
+      output[0] = this.sample(0, frameIndex);
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (frameIndex < 0L || frameIndex >= this.audibleFrames) {
+        return 0.0;
+      }
+      return 1.0;
+    }
+  }
+}
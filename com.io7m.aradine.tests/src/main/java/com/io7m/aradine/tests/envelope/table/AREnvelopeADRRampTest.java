@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.envelope.table;
+
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.envelope.table1.AREnvelopeADRRamp;
+import org.junit.jupiter.api.Test;
+
+import static com.io7m.aradine.envelope.table1.AREnvelopeADRState.STATE_RELEASE;
+import static com.io7m.aradine.envelope.table1.AREnvelopeADRState.STATE_SUSTAIN;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class AREnvelopeADRRampTest
+{
+  /**
+   * A release envelope holds at 1.0 until released, and then falls linearly
+   * to 0.0 over the release time.
+   */
+
+  @Test
+  public void testRelease()
+  {
+    final var env = AREnvelopeADR.createRelease(1000L, 100.0);
+    final var ramp = new AREnvelopeADRRamp(env, 32);
+
+    for (int index = 0; index < 1000; ++index) {
+      assertEquals(1.0, ramp.next());
+    }
+    assertEquals(STATE_SUSTAIN, ramp.state());
+    assertFalse(ramp.isReleasing());
+
+    ramp.beginRelease();
+    assertTrue(ramp.isReleasing());
+    assertEquals(STATE_RELEASE, ramp.state());
+
+    for (int index = 0; index < 100; ++index) {
+      assertFalse(ramp.isFinished());
+      final var expected = 1.0 - ((double) index / 100.0);
+      assertEquals(expected, ramp.next(), 1.0e-9);
+    }
+    assertTrue(ramp.isFinished());
+    assertEquals(0.0, ramp.next(), 1.0e-9);
+
+    ramp.reset();
+    assertFalse(ramp.isReleasing());
+    assertFalse(ramp.isFinished());
+    assertEquals(1.0, ramp.next());
+  }
+
+  /**
+   * A zero-length release is finished immediately.
+   */
+
+  @Test
+  public void testReleaseZero()
+  {
+    final var env = AREnvelopeADR.createRelease(48000L, 0.0);
+    final var ramp = new AREnvelopeADRRamp(env, 32);
+
+    ramp.beginRelease();
+    assertTrue(ramp.isFinished());
+    assertEquals(0.0, ramp.next());
+  }
+
+  /**
+   * Changing the release time replaces the release state entirely.
+   */
+
+  @Test
+  public void testReleaseChanged()
+  {
+    final var env = AREnvelopeADR.createRelease(1000L, 100.0);
+    env.setReleaseLinear(10.0);
+    assertEquals(10L, env.release().endFrames());
+    env.setSampleRate(2000L);
+    assertEquals(20L, env.release().endFrames());
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.filter.biquad1;
+
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBankScalar;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBankType;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBanks;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadQs;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadResponse;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadWithQType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class ARBQ1BiquadBankTest
+{
+  private static final int FRAMES = 500;
+
+  private static ARBQ1BiquadWithQType stageOf(
+    final ARBQ1BiquadResponse response)
+  {
+    return switch (response) {
+      case LOW_PASS -> new ARBQ1BiquadLPFO2();
+      case HIGH_PASS -> new ARBQ1BiquadHPFO2();
+      case BAND_PASS -> new ARBQ1BiquadBPFO2();
+      case BAND_REJECT -> new ARBQ1BiquadBRFO2();
+    };
+  }
+
+  private static double cutoffOf(
+    final int channel)
+  {
+    return 0.01 + (0.02 * (double) channel);
+  }
+
+  private static double[] noise(
+    final int channels)
+  {
+    final var rng = new Random(0x5eedL);
+    final var input = new double[FRAMES * channels];
+    for (int index = 0; index < input.length; ++index) {
+      input[index] = (rng.nextDouble() * 2.0) - 1.0;
+    }
+    return input;
+  }
+
+  /*
+   * Filter each channel separately with a cascade of individual order-2
+   * filters.
+   */
+
+  private static double[] reference(
+    final ARBQ1BiquadResponse response,
+    final int channels,
+    final int order,
+    final double[] input)
+  {
+    final var qs = ARBQ1BiquadQs.butterworthStyleCascadedQValues(order);
+    final var output = new double[input.length];
+
+    for (int channel = 0; channel < channels; ++channel) {
+      final var stages = new ARBQ1BiquadWithQType[qs.length];
+      for (int stage = 0; stage < qs.length; ++stage) {
+        stages[stage] = stageOf(response);
+        stages[stage].setQ(qs[stage]);
+        stages[stage].setCutoff(cutoffOf(channel));
+      }
+
+      for (int frame = 0; frame < FRAMES; ++frame) {
+        final var index = (frame * channels) + channel;
+        var x = input[index];
+        for (final var stage : stages) {
+          x = stage.processOneFrame(x);
+        }
+        output[index] = x;
+      }
+    }
+    return output;
+  }
+
+  private static double[] run(
+    final ARBQ1BiquadBankType bank,
+    final double[] input)
+  {
+    for (int channel = 0; channel < bank.channels(); ++channel) {
+      bank.setCutoff(channel, cutoffOf(channel));
+    }
+
+    final var channels = bank.channels();
+    final var output = new double[input.length];
+    bank.processBlock(input, 0, output, 0, 123);
+    bank.processBlock(
+      input, 123 * channels, output, 123 * channels, FRAMES - 123);
+    return output;
+  }
+
+  /**
+   * Every channel of a bank, in every implementation, produces exactly the
+   * same output as an individual filter.
+   */
+
+  @Test
+  public void testBanksMatchFilters()
+  {
+    for (final var response : ARBQ1BiquadResponse.values()) {
+      for (final var channels : new int[]{1, 2, 3, 5, 16}) {
+        for (final var order : new int[]{2, 4, 6, 8}) {
+          final var input = noise(channels);
+          final var expected = reference(response, channels, order, input);
+
+          assertArrayEquals(
+            expected,
+            run(new ARBQ1BiquadBankScalar(response, channels, order), input)
+          );
+          assertArrayEquals(
+            expected,
+            run(ARBQ1BiquadBanks.create(response, channels, order), input)
+          );
+        }
+      }
+    }
+  }
+
+  /**
+   * Banks can filter in place, and resetting a bank clears its state.
+   */
+
+  @Test
+  public void testInPlaceReset()
+  {
+    final var bank =
+      ARBQ1BiquadBanks.create(ARBQ1BiquadResponse.LOW_PASS, 3, 4);
+    final var input = noise(3);
+    final var expected = run(bank, input);
+
+    bank.reset();
+    final var buffer = input.clone();
+    bank.processBlock(buffer, 0, buffer, 0, FRAMES);
+    assertArrayEquals(expected, buffer);
+  }
+
+  /**
+   * Invalid banks and blocks are rejected.
+   */
+
+  @Test
+  public void testInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      ARBQ1BiquadBanks.create(ARBQ1BiquadResponse.LOW_PASS, 0, 4);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      ARBQ1BiquadBanks.create(ARBQ1BiquadResponse.LOW_PASS, 2, 3);
+    });
+
+    final var bank =
+      ARBQ1BiquadBanks.create(ARBQ1BiquadResponse.LOW_PASS, 2, 4);
+    assertThrows(IndexOutOfBoundsException.class, () -> {
+      bank.setCutoff(2, 0.1);
+    });
+    assertThrows(IndexOutOfBoundsException.class, () -> {
+      bank.processBlock(new double[8], 0, new double[8], 0, 5);
+    });
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.filter.biquad1;
+
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class ARBQ1BiquadBlockTest
+{
+  private static final int FRAMES = 1000;
+
+  private static final List<Supplier<ARBQ1BiquadType>> FILTERS =
+    List.of(
+      ARBQ1BiquadLPFO2::new,
+      ARBQ1BiquadLPFBWO4::new,
+      ARBQ1BiquadLPFBWO8::new,
+      ARBQ1BiquadHPFO2::new,
+      ARBQ1BiquadHPFBWO4::new,
+      ARBQ1BiquadHPFBWO8::new,
+      ARBQ1BiquadBPFO2::new,
+      ARBQ1BiquadBPFBWO4::new,
+      ARBQ1BiquadBPFBWO8::new,
+      ARBQ1BiquadBRFO2::new,
+      ARBQ1BiquadBRFBWO4::new,
+      ARBQ1BiquadBRFBWO8::new
+    );
+
+  private static double[] noise()
+  {
+    final var rng = new Random(0x5eedL);
+    final var input = new double[FRAMES];
+    for (int index = 0; index < FRAMES; ++index) {
+      input[index] = (rng.nextDouble() * 2.0) - 1.0;
+    }
+    return input;
+  }
+
+  private static ARBQ1BiquadType create(
+    final Supplier<ARBQ1BiquadType> supplier)
+  {
+    final var filter = supplier.get();
+    filter.setCutoff(0.03125);
+    return filter;
+  }
+
+  private static double[] reference(
+    final Supplier<ARBQ1BiquadType> supplier,
+    final double[] input)
+  {
+    final var filter = create(supplier);
+    final var output = new double[input.length];
+    for (int index = 0; index < input.length; ++index) {
+      output[index] = filter.processOneFrame(input[index]);
+    }
+    return output;
+  }
+
+  /**
+   * Processing arrays in blocks, with offsets, gives exactly the same output
+   * as processing one frame at a time.
+   */
+
+  @Test
+  public void testArrayOutOfPlace()
+  {
+    final var input = noise();
+    for (final var supplier : FILTERS) {
+      final var expected = reference(supplier, input);
+      final var filter = create(supplier);
+      final var output = new double[FRAMES + 7];
+
+      var offset = 0;
+      var size = 1;
+      while (offset < FRAMES) {
+        final var count = Math.min(size, FRAMES - offset);
+        filter.processBlock(input, offset, output, offset + 7, count);
+        offset += count;
+        size = (size * 3) + 1;
+      }
+
+      final var received = new double[FRAMES];
+      System.arraycopy(output, 7, received, 0, FRAMES);
+      assertArrayEquals(expected, received);
+    }
+  }
+
+  /**
+   * Processing an array in-place gives exactly the same output as
+   * processing one frame at a time.
+   */
+
+  @Test
+  public void testArrayInPlace()
+  {
+    final var input = noise();
+    for (final var supplier : FILTERS) {
+      final var expected = reference(supplier, input);
+      final var filter = create(supplier);
+      final var buffer = input.clone();
+
+      filter.processBlock(buffer, 0, 300);
+      filter.processBlock(buffer, 300, FRAMES - 300);
+      assertArrayEquals(expected, buffer);
+    }
+  }
+
+  /**
+   * Processing heap and direct buffers gives exactly the same output as
+   * processing one frame at a time, and leaves the buffer positions alone.
+   */
+
+  @Test
+  public void testBuffers()
+  {
+    final var input = noise();
+    for (final var supplier : FILTERS) {
+      final var expected = reference(supplier, input);
+
+      final var heapFilter = create(supplier);
+      final var heapOutput = DoubleBuffer.allocate(FRAMES);
+      heapFilter.processBlock(
+        DoubleBuffer.wrap(input), 0, heapOutput, 0, FRAMES);
+
+      final var directFilter = create(supplier);
+      final var directInput =
+        ByteBuffer.allocateDirect(FRAMES * Double.BYTES).asDoubleBuffer();
+      final var directOutput =
+        ByteBuffer.allocateDirect(FRAMES * Double.BYTES).asDoubleBuffer();
+      directInput.put(0, input);
+      directFilter.processBlock(directInput, 0, directOutput, 0, FRAMES);
+
+      final var heapReceived = new double[FRAMES];
+      final var directReceived = new double[FRAMES];
+      heapOutput.get(0, heapReceived);
+      directOutput.get(0, directReceived);
+      assertArrayEquals(expected, heapReceived);
+      assertArrayEquals(expected, directReceived);
+      assertEquals(0, heapOutput.position());
+      assertEquals(0, directOutput.position());
+    }
+  }
+
+  /**
+   * Out-of-range blocks are rejected.
+   */
+
+  @Test
+  public void testBounds()
+  {
+    final var filter = new ARBQ1BiquadLPFBWO4();
+    final var buffer = new double[16];
+
+    assertThrows(IndexOutOfBoundsException.class, () -> {
+      filter.processBlock(buffer, 8, 9);
+    });
+    assertThrows(IndexOutOfBoundsException.class, () -> {
+      filter.processBlock(buffer, 0, new double[4], 0, 8);
+    });
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.filter.biquad1;
+
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadCascade;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadDesigns;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFBWO4;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFBWO8;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadResponse;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadSection;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARBQ1BiquadCascadeTest
+{
+  private static final int FRAMES = 1000;
+  private static final double CUTOFF = 0.03125;
+
+  private static double[] noise()
+  {
+    final var rng = new Random(0x5eedL);
+    final var input = new double[FRAMES];
+    for (int index = 0; index < FRAMES; ++index) {
+      input[index] = (rng.nextDouble() * 2.0) - 1.0;
+    }
+    return input;
+  }
+
+  private static double[] perFrame(
+    final ARBQ1BiquadType filter,
+    final double[] input)
+  {
+    final var output = new double[input.length];
+    for (int index = 0; index < input.length; ++index) {
+      output[index] = filter.processOneFrame(input[index]);
+    }
+    return output;
+  }
+
+  private static ARBQ1BiquadCascade cascade(
+    final ARBQ1BiquadResponse response,
+    final List<ARBQ1BiquadSection> sections)
+  {
+    final var filter = new ARBQ1BiquadCascade(response, sections);
+    filter.setCutoff(CUTOFF);
+    return filter;
+  }
+
+  /*
+   * Measure the steady-state gain of a filter for a sine wave of the given
+   * normalized frequency by correlating the output with a sine and cosine
+   * over a whole number of periods.
+   */
+
+  private static double gainAt(
+    final ARBQ1BiquadType filter,
+    final double frequency)
+  {
+    final var settle = 20000;
+    final var measure = 4000;
+    var sumSin = 0.0;
+    var sumCos = 0.0;
+    for (int index = 0; index < settle + measure; ++index) {
+      final var phase = 2.0 * Math.PI * frequency * (double) index;
+      final var y = filter.processOneFrame(Math.sin(phase));
+      if (index >= settle) {
+        sumSin += y * Math.sin(phase);
+        sumCos += y * Math.cos(phase);
+      }
+    }
+    return (2.0 / (double) measure) * Math.hypot(sumSin, sumCos);
+  }
+
+  /**
+   * Butterworth cascades are identical to the fixed-order filters.
+   */
+
+  @Test
+  public void testButterworthMatchesFixedOrders()
+  {
+    final var input = noise();
+
+    final List<Supplier<ARBQ1BiquadType>> fixed4 = List.of(
+      ARBQ1BiquadLPFBWO4::new,
+      ARBQ1BiquadHPFBWO4::new,
+      ARBQ1BiquadBPFBWO4::new,
+      ARBQ1BiquadBRFBWO4::new
+    );
+    final List<Supplier<ARBQ1BiquadType>> fixed8 = List.of(
+      ARBQ1BiquadLPFBWO8::new,
+      ARBQ1BiquadHPFBWO8::new,
+      ARBQ1BiquadBPFBWO8::new,
+      ARBQ1BiquadBRFBWO8::new
+    );
+
+    final var responses = ARBQ1BiquadResponse.values();
+    for (int index = 0; index < responses.length; ++index) {
+      final var response = responses[index];
+      checkMatches(input, response, 4, fixed4.get(index));
+      checkMatches(input, response, 8, fixed8.get(index));
+    }
+  }
+
+  private static void checkMatches(
+    final double[] input,
+    final ARBQ1BiquadResponse response,
+    final int order,
+    final Supplier<ARBQ1BiquadType> fixed)
+  {
+    final var reference = fixed.get();
+    reference.setCutoff(CUTOFF);
+    final var expected = perFrame(reference, input);
+
+    final var sections = ARBQ1BiquadDesigns.butterworth(order);
+    final var frames = perFrame(cascade(response, sections), input);
+    final var block = new double[FRAMES];
+    cascade(response, sections).processBlock(input, 0, block, 0, FRAMES);
+
+    assertArrayEquals(expected, frames, response.toString());
+    assertArrayEquals(expected, block, response.toString());
+  }
+
+  /**
+   * Block processing is identical to per-frame processing for odd and even
+   * numbers of sections, and in place.
+   */
+
+  @Test
+  public void testBlockMatchesPerFrame()
+  {
+    final var input = noise();
+    final var designs = List.of(
+      ARBQ1BiquadDesigns.butterworth(2),
+      ARBQ1BiquadDesigns.butterworth(6),
+      ARBQ1BiquadDesigns.butterworth(10),
+      ARBQ1BiquadDesigns.linkwitzRiley(4),
+      ARBQ1BiquadDesigns.linkwitzRiley(8),
+      ARBQ1BiquadDesigns.chebyshev1(6, 0.5)
+    );
+
+    for (final var response : ARBQ1BiquadResponse.values()) {
+      for (final var sections : designs) {
+        if (!scalable(response) && !unitScale(sections)) {
+          continue;
+        }
+
+        final var expected =
+          perFrame(cascade(response, sections), input);
+
+        final var filter = cascade(response, sections);
+        final var block = new double[FRAMES];
+        filter.processBlock(input, 0, block, 0, 333);
+        filter.processBlock(input, 333, block, 333, 1);
+        filter.processBlock(input, 334, block, 334, FRAMES - 334);
+        assertArrayEquals(expected, block);
+
+        final var inPlace = input.clone();
+        cascade(response, sections).processBlock(inPlace, 0, FRAMES);
+        assertArrayEquals(expected, inPlace);
+      }
+    }
+  }
+
+  private static boolean scalable(
+    final ARBQ1BiquadResponse response)
+  {
+    return response == ARBQ1BiquadResponse.LOW_PASS
+           || response == ARBQ1BiquadResponse.HIGH_PASS;
+  }
+
+  private static boolean unitScale(
+    final List<ARBQ1BiquadSection> sections)
+  {
+    return sections.stream().allMatch(x -> x.frequencyScale() == 1.0);
+  }
+
+  /**
+   * Linkwitz-Riley filters are 6dB down at the cutoff, and the low-pass and
+   * high-pass outputs sum to a flat magnitude response.
+   */
+
+  @Test
+  public void testLinkwitzRiley()
+  {
+    final var sections = ARBQ1BiquadDesigns.linkwitzRiley(4);
+    final var lpf = cascade(ARBQ1BiquadResponse.LOW_PASS, sections);
+    assertEquals(0.5, gainAt(lpf, CUTOFF), 1.0e-3);
+
+    for (final var frequency : new double[]{0.005, CUTOFF, 0.1, 0.3}) {
+      final var sum = new ARBQ1BiquadType()
+      {
+        private final ARBQ1BiquadCascade low =
+          cascade(ARBQ1BiquadResponse.LOW_PASS, sections);
+        private final ARBQ1BiquadCascade high =
+          cascade(ARBQ1BiquadResponse.HIGH_PASS, sections);
+
+        @Override
+        public void setCutoff(
+          final double newCutoff)
+        {
+
+        }
+
+        @Override
+        public double processOneFrame(
+          final double input)
+        {
+          return this.low.processOneFrame(input)
+                 + this.high.processOneFrame(input);
+        }
+      };
+      assertEquals(1.0, gainAt(sum, frequency), 1.0e-3);
+    }
+  }
+
+  /**
+   * Chebyshev filters ripple within the specified bounds in the passband,
+   * and return to unity gain at the cutoff.
+   */
+
+  @Test
+  public void testChebyshev()
+  {
+    final var ripple = 1.0;
+    final var limit = Math.pow(10.0, ripple / 20.0);
+    final var sections = ARBQ1BiquadDesigns.chebyshev1(4, ripple);
+
+    final var atCutoff =
+      gainAt(cascade(ARBQ1BiquadResponse.LOW_PASS, sections), CUTOFF);
+    assertEquals(1.0, atCutoff, 1.0e-2);
+
+    for (int index = 1; index < 8; ++index) {
+      final var frequency = (CUTOFF * (double) index) / 8.0;
+      final var gain =
+        gainAt(cascade(ARBQ1BiquadResponse.LOW_PASS, sections), frequency);
+      assertTrue(gain >= 1.0 - 1.0e-2, () -> "Gain %f".formatted(gain));
+      assertTrue(gain <= limit + 1.0e-2, () -> "Gain %f".formatted(gain));
+    }
+
+    final var stop =
+      gainAt(cascade(ARBQ1BiquadResponse.LOW_PASS, sections), CUTOFF * 4.0);
+    assertTrue(stop < 0.01, () -> "Gain %f".formatted(stop));
+  }
+
+  /**
+   * Invalid designs are rejected.
+   */
+
+  @Test
+  public void testInvalid()
+  {
+    assertThrows(IllegalArgumentException.class, () -> {
+      ARBQ1BiquadDesigns.linkwitzRiley(6);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      ARBQ1BiquadDesigns.chebyshev1(3, 1.0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      ARBQ1BiquadDesigns.chebyshev1(4, 0.0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new ARBQ1BiquadSection(0.0, 1.0);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new ARBQ1BiquadCascade(ARBQ1BiquadResponse.LOW_PASS, List.of());
+    });
+
+    final var chebyshev = ARBQ1BiquadDesigns.chebyshev1(4, 1.0);
+    new ARBQ1BiquadCascade(ARBQ1BiquadResponse.HIGH_PASS, chebyshev);
+    assertThrows(IllegalArgumentException.class, () -> {
+      new ARBQ1BiquadCascade(ARBQ1BiquadResponse.BAND_PASS, chebyshev);
+    });
+    assertThrows(IllegalArgumentException.class, () -> {
+      new ARBQ1BiquadCascade(ARBQ1BiquadResponse.BAND_REJECT, chebyshev);
+    });
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.filter.biquad1;
+
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadBRFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadCoefficientTable;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadHPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadLPFO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadModulatedO2;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadResponse;
+import com.io7m.aradine.filter.biquad1.ARBQ1BiquadType;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARBQ1BiquadModulatedTest
+{
+  private static final int FRAMES = 1000;
+
+  private static final List<Supplier<ARBQ1BiquadType>> EXACT =
+    List.of(
+      ARBQ1BiquadLPFO2::new,
+      ARBQ1BiquadHPFO2::new,
+      ARBQ1BiquadBPFO2::new,
+      ARBQ1BiquadBRFO2::new
+    );
+
+  private static double[] noise()
+  {
+    final var rng = new Random(0x5eedL);
+    final var input = new double[FRAMES];
+    for (int index = 0; index < FRAMES; ++index) {
+      input[index] = (rng.nextDouble() * 2.0) - 1.0;
+    }
+    return input;
+  }
+
+  private static double[] perFrame(
+    final ARBQ1BiquadType filter,
+    final double[] input)
+  {
+    final var output = new double[input.length];
+    for (int index = 0; index < input.length; ++index) {
+      output[index] = filter.processOneFrame(input[index]);
+    }
+    return output;
+  }
+
+  /**
+   * At the cutoffs sampled by the table, the output is identical to that of
+   * the individual filters, and elsewhere it is very close.
+   */
+
+  @Test
+  public void testMatchesExact()
+  {
+    final var input = noise();
+    final var responses = ARBQ1BiquadResponse.values();
+    final var sampled =
+      (double) 256 / (double) (ARBQ1BiquadCoefficientTable.INTERVALS * 2);
+
+    for (int index = 0; index < responses.length; ++index) {
+      for (final var cutoff : new double[]{sampled, 0.0301}) {
+        final var exact = EXACT.get(index).get();
+        exact.setCutoff(cutoff);
+        final var expected = perFrame(exact, input);
+
+        final var filter = new ARBQ1BiquadModulatedO2(responses[index]);
+        filter.setCutoff(cutoff);
+        final var received = perFrame(filter, input);
+
+        if (cutoff == sampled) {
+          assertArrayEquals(expected, received);
+        } else {
+          assertArrayEquals(expected, received, 1.0e-5);
+        }
+      }
+    }
+  }
+
+  /**
+   * Constant modulation is identical to a fixed cutoff, and the filter is
+   * left at the last cutoff.
+   */
+
+  @Test
+  public void testModulatedConstant()
+  {
+    final var input = noise();
+    final var cutoffs = new double[FRAMES];
+    Arrays.fill(cutoffs, 0.0301);
+
+    for (final var response : ARBQ1BiquadResponse.values()) {
+      final var fixed = new ARBQ1BiquadModulatedO2(response);
+      fixed.setCutoff(0.0301);
+      final var expected = perFrame(fixed, input);
+
+      final var filter = new ARBQ1BiquadModulatedO2(response);
+      final var output = new double[FRAMES];
+      filter.processBlockModulated(input, 0, cutoffs, 0, output, 0, 500);
+      assertEquals(0.0301, filter.cutoff(), 0.0);
+      filter.processBlock(input, 500, output, 500, FRAMES - 500);
+      assertArrayEquals(expected, output);
+    }
+  }
+
+  /**
+   * Per-frame modulation tracks the exact filter with the coefficients
+   * recalculated on every frame.
+   */
+
+  @Test
+  public void testModulatedSweep()
+  {
+    final var input = noise();
+    final var cutoffs = new double[FRAMES];
+    for (int index = 0; index < FRAMES; ++index) {
+      cutoffs[index] =
+        0.1 + (0.09 * Math.sin((2.0 * Math.PI * index) / 250.0));
+    }
+
+    final var responses = ARBQ1BiquadResponse.values();
+    for (int index = 0; index < responses.length; ++index) {
+      final var exact = EXACT.get(index).get();
+      final var expected = new double[FRAMES];
+      for (int frame = 0; frame < FRAMES; ++frame) {
+        exact.setCutoff(cutoffs[frame]);
+        expected[frame] = exact.processOneFrame(input[frame]);
+      }
+
+      final var filter = new ARBQ1BiquadModulatedO2(responses[index]);
+      final var output = input.clone();
+      filter.processBlockModulated(output, 0, cutoffs, 0, output, 0, FRAMES);
+      assertArrayEquals(expected, output, 1.0e-5);
+    }
+  }
+
+  /**
+   * Ramping towards the current cutoff is identical to not ramping, and
+   * ramping leaves the filter at the target cutoff.
+   */
+
+  @Test
+  public void testTowards()
+  {
+    final var input = noise();
+
+    for (final var response : ARBQ1BiquadResponse.values()) {
+      final var fixed = new ARBQ1BiquadModulatedO2(response);
+      fixed.setCutoff(0.05);
+      final var expected = new double[FRAMES];
+      fixed.processBlock(input, 0, expected, 0, FRAMES);
+
+      final var filter = new ARBQ1BiquadModulatedO2(response);
+      filter.setCutoff(0.05);
+      final var output = new double[FRAMES];
+      filter.processBlockTowards(input, 0, output, 0, FRAMES, 0.05);
+      assertArrayEquals(expected, output);
+
+      final var ramped = new ARBQ1BiquadModulatedO2(response);
+      ramped.setCutoff(0.2);
+      for (int block = 0; block < FRAMES; block += 100) {
+        final var target = 0.2 - ((0.15 * (block + 100)) / FRAMES);
+        ramped.processBlockTowards(input, block, output, block, 100, target);
+        assertEquals(target, ramped.cutoff(), 0.0);
+      }
+      for (final var x : output) {
+        assertTrue(Double.isFinite(x));
+        assertTrue(Math.abs(x) < 10.0);
+      }
+    }
+  }
+
+  /**
+   * Tables are shared between filters.
+   */
+
+  @Test
+  public void testTablesShared()
+  {
+    final var f0 = new ARBQ1BiquadModulatedO2(ARBQ1BiquadResponse.LOW_PASS);
+    final var f1 = new ARBQ1BiquadModulatedO2(ARBQ1BiquadResponse.LOW_PASS);
+    assertSame(f0.table(), f1.table());
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      ARBQ1BiquadCoefficientTable.of(ARBQ1BiquadResponse.LOW_PASS, 0.0);
+    });
+    assertThrows(IndexOutOfBoundsException.class, () -> {
+      f0.processBlockModulated(
+        new double[4], 0, new double[3], 0, new double[4], 0, 4);
+    });
+  }
+
+  /**
+   * Tables that are no longer used by any filter can be collected.
+   *
+   * @throws Exception On errors
+   */
+
+  @Test
+  public void testTablesCollectable()
+    throws Exception
+  {
+    final var table =
+      new WeakReference<>(
+        ARBQ1BiquadCoefficientTable.of(ARBQ1BiquadResponse.HIGH_PASS, 3.125)
+      );
+
+    for (int attempt = 0; attempt < 100 && table.get() != null; ++attempt) {
+      System.gc();
+      Thread.sleep(10L);
+    }
+    assertNull(table.get());
+  }
+}
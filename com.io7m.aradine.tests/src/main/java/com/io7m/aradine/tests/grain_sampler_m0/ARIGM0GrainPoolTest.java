@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.grain_sampler_m0;
+
+import com.io7m.aradine.instrument.grain_sampler_m0.internal.ARIGM0GrainPool;
+import com.io7m.aradine.instrument.grain_sampler_m0.internal.ARIGM0SampleState;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowShape;
+import com.io7m.aradine.instrument.grain_sampler_m0.window.ARIGM0WindowTables;
+import com.io7m.aradine.instrument.spi1.ARI1RNGDeterministicType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.tests.ARTestSampleEntries.ConstantEntry;
+import com.io7m.aradine.tests.ARTestSampleEntries.RampEntry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARIGM0GrainPoolTest
+{
+  private static final class CountingRNG
+    implements ARI1RNGDeterministicType
+  {
+    private int state;
+
+    @Override
+    public void reset()
+    {
+      this.state = 0;
+    }
+
+    @Override
+    public double random()
+    {
+      this.state = (this.state + 1) % 7;
+      return (double) this.state / 6.0;
+    }
+  }
+
+  /**
+   * Grains advancing by half a frame are read at fractional positions using
+   * the pool's interpolation. Dividing the output for a ramp by the output
+   * for a constant removes the window and leaves the position that was
+   * read.
+   */
+
+  @Test
+  public void testInterpolation()
+  {
+    checkInterpolation(ARRS1Interpolation.NEAREST, 0.5);
+    checkInterpolation(ARRS1Interpolation.LINEAR, 0.0);
+    checkInterpolation(ARRS1Interpolation.HERMITE4, 0.0);
+  }
+
+  private static void checkInterpolation(
+    final ARRS1Interpolation interpolation,
+    final double roundingError)
+  {
+    final var ramp = new ARIGM0GrainPool(1, 2);
+    final var constant = new ARIGM0GrainPool(1, 2);
+    ramp.setInterpolation(interpolation);
+    constant.setInterpolation(interpolation);
+    assertEquals(interpolation, ramp.interpolation());
+
+    ramp.trigger(new RampEntry(1000L), 1.0, 100L, 50L);
+    constant.trigger(new ConstantEntry(1000L, 1.0), 1.0, 100L, 50L);
+
+    final var increment = ARRS1Phase.ONE >> 1;
+    final var rampFrame = new double[2];
+    final var constantFrame = new double[2];
+    for (int index = 1; index < 40; ++index) {
+      ramp.evaluate(increment, rampFrame);
+      constant.evaluate(increment, constantFrame);
+      if (index == 1) {
+        continue;
+      }
+
+      final var position = rampFrame[0] / constantFrame[0];
+      final var exact = 100.0 + ((double) (index - 1) * 0.5);
+      final var error = Math.abs(position - exact);
+      if (index % 2 == 1) {
+        assertEquals(0.0, error, 1.0e-9);
+      } else {
+        assertEquals(roundingError, error, 1.0e-9);
+      }
+    }
+  }
+
+  /**
+   * Grains triggered while the pool is full are dropped, and finished
+   * grains are returned to the pool for reuse.
+   */
+
+  @Test
+  public void testTriggerDropRetire()
+  {
+    final var pool = new ARIGM0GrainPool(4, 2);
+    final var entry = new ConstantEntry(1000L, 1.0);
+    final var frame = new double[2];
+
+    for (int index = 0; index < 4; ++index) {
+      assertTrue(pool.trigger(entry, 1.0, 100L + index, 10L));
+    }
+    assertFalse(pool.trigger(entry, 1.0, 200L, 10L));
+    assertEquals(4, pool.activeCount());
+    assertEquals(1L, pool.dropped());
+
+    for (int index = 0; index < 10; ++index) {
+      pool.evaluate(1L << 32, frame);
+    }
+    assertEquals(0, pool.activeCount());
+
+    for (int index = 0; index < 4; ++index) {
+      assertTrue(pool.trigger(entry, 1.0, 300L + index, 10L));
+    }
+    assertEquals(4, pool.activeCount());
+    assertEquals(1L, pool.dropped());
+  }
+
+  /**
+   * Grains that would be empty are never made active.
+   */
+
+  @Test
+  public void testTriggerEmpty()
+  {
+    final var pool = new ARIGM0GrainPool(4, 2);
+    final var entry = new ConstantEntry(100L, 1.0);
+
+    assertTrue(pool.trigger(entry, 1.0, 100L, 10L));
+    assertTrue(pool.trigger(entry, 1.0, 10L, 0L));
+    assertEquals(0, pool.activeCount());
+  }
+
+  /**
+   * A restarted sample state produces exactly the same output as the
+   * first time it was started, and never exceeds the pool capacity even
+   * with very short grains.
+   */
+
+  @Test
+  public void testRestartDeterministic()
+  {
+    final var state = new ARIGM0SampleState(1, 2);
+    final var entry = new ConstantEntry(4000L, 0.5);
+    final var rng = new CountingRNG();
+    final var frame = new double[2];
+    final var first = new double[4000];
+
+    state.start(entry, rng, 1.0, 6L);
+    state.setGrainPositionJitter(10);
+    for (int index = 0; index < first.length; ++index) {
+      state.evaluate(0.25, frame);
+      first[index] = frame[0];
+      assertTrue(state.grains().activeCount() <= 1);
+    }
+    assertTrue(state.grains().dropped() > 0L);
+
+    rng.reset();
+    state.start(entry, rng, 1.0, 6L);
+    state.setGrainPositionJitter(10);
+    for (int index = 0; index < first.length; ++index) {
+      state.evaluate(0.25, frame);
+      assertEquals(first[index], frame[0]);
+    }
+  }
+
+  /**
+   * Window table lookups are exact at table points, and close to the
+   * directly evaluated window between table points.
+   */
+
+  @Test
+  public void testWindowTables()
+  {
+    final var tables = ARIGM0WindowTables.create(480);
+    assertEquals(480, tables.resolution());
+
+    for (final var shape : ARIGM0WindowShape.values()) {
+      for (int index = 0; index <= 480; ++index) {
+        final var t = (double) index / 480.0;
+        assertEquals(shape.evaluate(t), tables.lookup(shape, t), 1.0e-12);
+      }
+      for (int index = 0; index < 1000; ++index) {
+        final var t = (double) index / 999.0;
+        assertEquals(shape.evaluate(t), tables.lookup(shape, t), 1.0e-3);
+      }
+      assertEquals(shape.evaluate(0.0), tables.lookup(shape, -1.0));
+      assertEquals(shape.evaluate(1.0), tables.lookup(shape, 2.0), 1.0e-12);
+    }
+  }
+
+  /**
+   * Every window is silent at the end of the grain, every window except the
+   * falling half-Hann window is silent at the start, and every window peaks
+   * at unity.
+   */
+
+  @Test
+  public void testWindowEdges()
+  {
+    for (final var shape : ARIGM0WindowShape.values()) {
+      assertEquals(0.0, shape.evaluate(1.0), 1.0e-12, shape.toString());
+      if (shape != ARIGM0WindowShape.HALF_HANN) {
+        assertEquals(0.0, shape.evaluate(0.0), 1.0e-12, shape.toString());
+        assertEquals(1.0, shape.evaluate(0.5), 1.0e-12, shape.toString());
+      }
+    }
+  }
+
+  /**
+   * The first grain of a note always uses the falling half of a Hann
+   * window, and later grains use the selected window.
+   */
+
+  @Test
+  public void testFirstGrainWindow()
+  {
+    final var pool = new ARIGM0GrainPool(4, 2);
+    final var entry = new ConstantEntry(1000L, 1.0);
+    pool.setWindowShape(ARIGM0WindowShape.GAUSSIAN);
+
+    pool.trigger(entry, 1.0, 0L, 10L);
+    pool.trigger(entry, 1.0, 100L, 10L);
+    assertEquals(ARIGM0WindowShape.HALF_HANN, pool.active(0).windowShape());
+    assertEquals(ARIGM0WindowShape.GAUSSIAN, pool.active(1).windowShape());
+
+    assertEquals(ARIGM0WindowShape.HANN, ARIGM0WindowShape.ofParameter(-1L));
+    assertEquals(ARIGM0WindowShape.GAUSSIAN, ARIGM0WindowShape.ofParameter(9L));
+  }
+}
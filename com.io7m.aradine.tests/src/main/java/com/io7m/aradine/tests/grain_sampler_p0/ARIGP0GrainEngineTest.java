@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.grain_sampler_p0;
+
+import com.io7m.aradine.instrument.grain_sampler_m0.internal.ARIGM0SampleState;
+import com.io7m.aradine.instrument.grain_sampler_p0.internal.ARIGP0GrainEngine;
+import com.io7m.aradine.instrument.spi1.ARI1RNGDeterministicType;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.tests.ARTestSampleEntries.SineEntry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARIGP0GrainEngineTest
+{
+  private static final class CountingRNG
+    implements ARI1RNGDeterministicType
+  {
+    private int state;
+
+    @Override
+    public void reset()
+    {
+      this.state = 0;
+    }
+
+    @Override
+    public double random()
+    {
+      this.state = (this.state + 1) % 7;
+      return (double) this.state / 6.0;
+    }
+  }
+
+  /**
+   * A single voice of the polyphonic engine produces the same output as the
+   * monophonic grain sampler.
+   */
+
+  @Test
+  public void testMatchesMonophonic()
+  {
+    for (final var interpolation : ARRS1Interpolation.values()) {
+      checkMatchesMonophonic(interpolation);
+    }
+  }
+
+  private static void checkMatchesMonophonic(
+    final ARRS1Interpolation interpolation)
+  {
+    final var entry = new SineEntry(3000L, 0.01);
+    final var frames = 4000;
+
+    final var mono = new ARIGM0SampleState(64, 2);
+    mono.grains().setInterpolation(interpolation);
+    mono.start(entry, new CountingRNG(), 1.0, 300L);
+    mono.setSpeed(0.75);
+    mono.setGrainPositionJitter(20);
+
+    final var expectedL = new double[frames];
+    final var expectedR = new double[frames];
+    final var frame = new double[2];
+    for (int index = 0; index < frames; ++index) {
+      mono.evaluate(1.5, frame);
+      expectedL[index] = frame[0];
+      expectedR[index] = frame[1];
+    }
+
+    final var engine = new ARIGP0GrainEngine(4, 64, new CountingRNG());
+    engine.setInterpolation(interpolation);
+    engine.setRateScale(1.5);
+    engine.setSpeed(0.75);
+    engine.setGrainLength(300L);
+    engine.setGrainPositionJitter(20);
+    engine.start(60, entry, 1.0);
+
+    final var receivedL = new double[frames];
+    final var receivedR = new double[frames];
+    engine.render(receivedL, receivedR, 0, 1000);
+    engine.render(receivedL, receivedR, 1000, 13);
+    engine.render(receivedL, receivedR, 1013, frames - 1013);
+
+    assertArrayEquals(expectedL, receivedL, 1.0e-12);
+    assertArrayEquals(expectedR, receivedR, 1.0e-12);
+  }
+
+  /**
+   * Rendering grains on worker threads produces the same output as rendering
+   * them on the calling thread (up to the ordering of floating point
+   * additions), and the same output every time for a given number of
+   * workers.
+   */
+
+  @Test
+  public void testWorkersMatchSerial()
+  {
+    final var frames = 2048;
+    final var expectedL = new double[frames];
+    final var expectedR = new double[frames];
+    final var receivedL = new double[frames];
+    final var receivedR = new double[frames];
+    final var repeatedL = new double[frames];
+    final var repeatedR = new double[frames];
+
+    final var serial = createDenseEngine();
+    serial.render(expectedL, expectedR, 0, frames);
+
+    final var parallel = createDenseEngine();
+    final var repeated = createDenseEngine();
+    try (var gang = new ARI1WorkerGang("test", 3)) {
+      parallel.setWorkers(gang);
+      repeated.setWorkers(gang);
+      parallel.render(receivedL, receivedR, 0, frames);
+      repeated.render(repeatedL, repeatedR, 0, frames);
+      assertTrue(
+        parallel.activeGrainCount()
+          >= ARIGP0GrainEngine.PARALLEL_GRAIN_THRESHOLD
+      );
+      assertEquals(4, parallel.workersFor());
+    }
+
+    assertArrayEquals(expectedL, receivedL, 1.0e-9);
+    assertArrayEquals(expectedR, receivedR, 1.0e-9);
+    assertArrayEquals(receivedL, repeatedL);
+    assertArrayEquals(receivedR, repeatedR);
+  }
+
+  /**
+   * Grains are split between workers by grain rather than by voice, so the
+   * grains of a single voice are spread across every worker.
+   */
+
+  @Test
+  public void testWorkersSplitSingleVoice()
+  {
+    final var frames = 2048;
+    final var expectedL = new double[frames];
+    final var expectedR = new double[frames];
+    final var receivedL = new double[frames];
+    final var receivedR = new double[frames];
+
+    final var serial = createDenseVoice();
+    serial.render(expectedL, expectedR, 0, 1536);
+    serial.render(expectedL, expectedR, 1536, 512);
+
+    final var parallel = createDenseVoice();
+    try (var gang = new ARI1WorkerGang("test", 3)) {
+      parallel.setWorkers(gang);
+      parallel.render(receivedL, receivedR, 0, 1536);
+      assertEquals(1, parallel.activeVoiceCount());
+      assertTrue(
+        parallel.activeGrainCount()
+          >= ARIGP0GrainEngine.PARALLEL_GRAIN_THRESHOLD
+      );
+      assertEquals(4, parallel.workersFor());
+      parallel.render(receivedL, receivedR, 1536, 512);
+    }
+
+    assertArrayEquals(expectedL, receivedL, 1.0e-9);
+    assertArrayEquals(expectedR, receivedR, 1.0e-9);
+  }
+
+  /**
+   * A single voice playing a slow sample with short grains, so that each
+   * grain lasts much longer than the interval between grains.
+   */
+
+  private static ARIGP0GrainEngine createDenseVoice()
+  {
+    final var engine = new ARIGP0GrainEngine(1, 512, new CountingRNG());
+    engine.setGrainLength(32L);
+    engine.start(60, new SineEntry(100_000L, 0.01, 1.0 / 64.0), 1.0);
+    return engine;
+  }
+
+  private static ARIGP0GrainEngine createDenseEngine()
+  {
+    final var engine = new ARIGP0GrainEngine(48, 512, new CountingRNG());
+    engine.setGrainLength(400L);
+    engine.setGrainPositionJitter(30);
+    for (int note = 0; note < 48; ++note) {
+      engine.start(
+        note,
+        new SineEntry(10000L, 0.001 * (double) (note + 1)),
+        (double) (note + 1) / 48.0
+      );
+    }
+    return engine;
+  }
+
+  /**
+   * Voices beyond the limit steal the oldest voice, stopping a voice
+   * releases its grains, and finished voices free their slots.
+   */
+
+  @Test
+  public void testVoiceLifecycle()
+  {
+    final var engine = new ARIGP0GrainEngine(4, 64, new CountingRNG());
+    engine.setGrainLength(100L);
+    engine.setLimit(2);
+
+    final var outL = new double[256];
+    final var outR = new double[256];
+
+    engine.start(60, new SineEntry(1000L, 0.01), 1.0);
+    engine.start(61, new SineEntry(1000L, 0.01), 1.0);
+    engine.start(62, new SineEntry(1000L, 0.01), 1.0);
+    assertEquals(2, engine.activeVoiceCount());
+
+    engine.render(outL, outR, 0, 64);
+    assertTrue(engine.activeGrainCount() > 0);
+
+    engine.stopNote(61);
+    engine.stopNote(62);
+    assertEquals(0, engine.activeVoiceCount());
+    assertEquals(0, engine.activeGrainCount());
+
+    engine.start(63, new SineEntry(10L, 0.01), 1.0);
+    engine.render(outL, outR, 0, 256);
+    assertEquals(0, engine.activeVoiceCount());
+    assertEquals(0, engine.activeGrainCount());
+  }
+}
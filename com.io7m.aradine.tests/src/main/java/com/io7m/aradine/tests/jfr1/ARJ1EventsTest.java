@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.jfr1;
+
+import com.io7m.aradine.instrument.jfr1.ARJ1EventBufferGrowth;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOff;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventNoteOn;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventParameterChange;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventProcess;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventRateConversion;
+import com.io7m.aradine.instrument.jfr1.ARJ1EventSampleMapLoad;
+import com.io7m.aradine.instrument.jfr1.ARJ1Events;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARJ1EventsTest
+{
+  private static final List<Class<? extends Event>> EVENTS =
+    List.of(
+      ARJ1EventBufferGrowth.class,
+      ARJ1EventNoteOff.class,
+      ARJ1EventNoteOn.class,
+      ARJ1EventParameterChange.class,
+      ARJ1EventProcess.class,
+      ARJ1EventRateConversion.class,
+      ARJ1EventSampleMapLoad.class
+    );
+
+  /**
+   * All events are registered under the aradine namespace and category.
+   */
+
+  @Test
+  public void testEventTypes()
+  {
+    for (final var clazz : EVENTS) {
+      final var type = EventType.getEventType(clazz);
+      assertNotNull(type);
+      assertTrue(
+        type.getName().startsWith("com.io7m.aradine."),
+        type.getName()
+      );
+      assertEquals("Aradine", type.getCategoryNames().get(0));
+    }
+  }
+
+  /**
+   * Nothing is constructed if events are disabled.
+   */
+
+  @Test
+  public void testDisabled()
+  {
+    if (ARJ1Events.ENABLED) {
+      return;
+    }
+
+    assertNull(ARJ1EventProcess.start());
+    assertNull(ARJ1EventSampleMapLoad.start());
+    assertNull(ARJ1EventRateConversion.start());
+
+    ARJ1EventProcess.finish(null, "x", 0);
+    ARJ1EventSampleMapLoad.finish(null, "x", 0, 0L, null);
+    ARJ1EventRateConversion.finish(null, "x", 0, 0, 0L, null);
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.resampler1;
+
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.resampler1.ARRS1Resampler;
+import com.io7m.aradine.resampler1.ARRS1SincTable;
+import com.io7m.aradine.resampler1.ARRS1SourceType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class ARRS1ResamplerTest
+{
+  private record ArraySource(double[] data)
+    implements ARRS1SourceType
+  {
+    @Override
+    public long frames()
+    {
+      return this.data.length;
+    }
+
+    @Override
+    public double sample(
+      final int channel,
+      final long frameIndex)
+    {
+      if (channel != 0 || frameIndex < 0L || frameIndex >= this.data.length) {
+        return 0.0;
+      }
+      return this.data[(int) frameIndex];
+    }
+  }
+
+  private static ArraySource ramp(
+    final int size)
+  {
+    final var data = new double[size];
+    for (int index = 0; index < size; ++index) {
+      data[index] = (double) index;
+    }
+    return new ArraySource(data);
+  }
+
+  private static ArraySource sine(
+    final int size,
+    final double period)
+  {
+    final var data = new double[size];
+    for (int index = 0; index < size; ++index) {
+      data[index] = Math.sin((2.0 * Math.PI * (double) index) / period);
+    }
+    return new ArraySource(data);
+  }
+
+  /**
+   * Linear and Hermite interpolation reproduce a ramp exactly away from the
+   * edges of the source.
+   */
+
+  @Test
+  public void testRampExact()
+  {
+    final var source = ramp(64);
+    for (double p = 2.0; p < 60.0; p += 0.173) {
+      assertEquals(
+        p,
+        ARRS1Resampler.interpolate(ARRS1Interpolation.LINEAR, source, 0, p),
+        1.0e-12);
+      assertEquals(
+        p,
+        ARRS1Resampler.interpolate(ARRS1Interpolation.HERMITE4, source, 0, p),
+        1.0e-12);
+    }
+  }
+
+  /**
+   * Every interpolation reproduces a slow sine closely away from the edges
+   * of the source.
+   *
+   * @param interpolation The interpolation
+   */
+
+  @ParameterizedTest
+  @EnumSource(ARRS1Interpolation.class)
+  public void testSineAccuracy(
+    final ARRS1Interpolation interpolation)
+  {
+    final var period = 64.0;
+    final var source = sine(1024, period);
+
+    final double tolerance =
+      switch (interpolation) {
+        case NEAREST -> 0.05;
+        case LINEAR -> 0.002;
+        case HERMITE4 -> 0.0002;
+        case SINC -> 0.0002;
+      };
+
+    for (double p = 32.0; p < 990.0; p += 0.37) {
+      final var expected = Math.sin((2.0 * Math.PI * p) / period);
+      final var received =
+        ARRS1Resampler.interpolate(interpolation, source, 0, p);
+      assertEquals(expected, received, tolerance);
+    }
+  }
+
+  /**
+   * Rendering a block yields the same values as interpolating each position
+   * individually, and returns the position following the block.
+   *
+   * @param interpolation The interpolation
+   */
+
+  @ParameterizedTest
+  @EnumSource(ARRS1Interpolation.class)
+  public void testRenderMatchesInterpolate(
+    final ARRS1Interpolation interpolation)
+  {
+    final var source = sine(512, 17.0);
+    final var output = new double[128];
+    final var increment = ARRS1Phase.ofFrames(1.37);
+    final var start = ARRS1Phase.ofFrames(3.25);
+
+    final var end =
+      ARRS1Resampler.render(
+        interpolation, source, 0, start, increment, output, 4, 120);
+
+    var p = start;
+    for (int index = 0; index < 120; ++index) {
+      assertEquals(
+        ARRS1Resampler.interpolate(
+          interpolation,
+          source,
+          0,
+          ARRS1Phase.index(p),
+          ARRS1Phase.fraction(p)),
+        output[4 + index],
+        1.0e-12
+      );
+      p += increment;
+    }
+    assertEquals(p, end);
+  }
+
+  /**
+   * Rendering at exactly one frame per sample from an exact frame position
+   * copies the source, whatever the interpolation.
+   *
+   * @param interpolation The interpolation
+   */
+
+  @ParameterizedTest
+  @EnumSource(ARRS1Interpolation.class)
+  public void testRenderUnityCopies(
+    final ARRS1Interpolation interpolation)
+  {
+    final var source = sine(512, 17.0);
+    final var output = new double[100];
+    final var start = ARRS1Phase.ofFrame(7L);
+
+    final var end =
+      ARRS1Resampler.render(
+        interpolation, source, 0, start, ARRS1Phase.ONE, output, 0, 100);
+
+    for (int index = 0; index < 100; ++index) {
+      assertEquals(source.data()[7 + index], output[index]);
+    }
+    assertEquals(ARRS1Phase.ofFrame(107L), end);
+  }
+
+  /**
+   * Every row of the standard sinc table has unity gain at DC.
+   */
+
+  @Test
+  public void testSincTableNormalized()
+  {
+    final var table = ARRS1SincTable.standard();
+    for (int phase = 0; phase <= table.phases(); ++phase) {
+      var sum = 0.0;
+      for (int tap = 0; tap < table.taps(); ++tap) {
+        sum += table.coefficient(phase, tap);
+      }
+      assertEquals(1.0, sum, 1.0e-12);
+    }
+  }
+
+  /**
+   * Reading outside of the source yields silence.
+   */
+
+  @Test
+  public void testOutsideSilent()
+  {
+    final var source = ramp(8);
+    for (final var interpolation : ARRS1Interpolation.values()) {
+      assertEquals(
+        0.0,
+        ARRS1Resampler.interpolate(interpolation, source, 0, -100.0));
+      assertEquals(
+        0.0,
+        ARRS1Resampler.interpolate(interpolation, source, 0, 100.0));
+    }
+  }
+
+  /**
+   * Integer parameter values map onto interpolations, clamped to the range.
+   */
+
+  @Test
+  public void testOfParameter()
+  {
+    assertEquals(ARRS1Interpolation.NEAREST, ARRS1Interpolation.ofParameter(-1L));
+    assertEquals(ARRS1Interpolation.LINEAR, ARRS1Interpolation.ofParameter(1L));
+    assertEquals(ARRS1Interpolation.HERMITE4, ARRS1Interpolation.ofParameter(2L));
+    assertEquals(ARRS1Interpolation.SINC, ARRS1Interpolation.ofParameter(99L));
+  }
+
+  /**
+   * Fixed-point phases split into an index and a fraction, including for
+   * negative phases.
+   */
+
+  @Test
+  public void testPhaseSplit()
+  {
+    final var p = ARRS1Phase.ofFrames(10.25);
+    assertEquals(10L, ARRS1Phase.index(p));
+    assertEquals(0.25, ARRS1Phase.fraction(p));
+    assertEquals(10L, ARRS1Phase.nearest(p));
+    assertEquals(11L, ARRS1Phase.nearest(ARRS1Phase.ofFrames(10.5)));
+
+    final var n = ARRS1Phase.ofFrames(-0.25);
+    assertEquals(-1L, ARRS1Phase.index(n));
+    assertEquals(0.75, ARRS1Phase.fraction(n));
+    assertEquals(-0.25, ARRS1Phase.toFrames(n));
+  }
+
+  /**
+   * Octaves round down, so increments below two frames per sample are at
+   * level 0.
+   */
+
+  @Test
+  public void testPhaseOctaves()
+  {
+    assertEquals(0, ARRS1Phase.octaves(ARRS1Phase.ofFrames(0.25)));
+    assertEquals(0, ARRS1Phase.octaves(ARRS1Phase.ONE));
+    assertEquals(0, ARRS1Phase.octaves(ARRS1Phase.ofFrames(1.06)));
+    assertEquals(0, ARRS1Phase.octaves(ARRS1Phase.ofFrames(1.999)));
+    assertEquals(1, ARRS1Phase.octaves(ARRS1Phase.ofFrames(2.0)));
+    assertEquals(1, ARRS1Phase.octaves(ARRS1Phase.ofFrames(3.99)));
+    assertEquals(2, ARRS1Phase.octaves(ARRS1Phase.ofFrames(4.0)));
+    assertEquals(5, ARRS1Phase.octaves(ARRS1Phase.ofFrames(40.0)));
+  }
+
+  /**
+   * Advancing a phase does not drift, however many times it is advanced.
+   */
+
+  @Test
+  public void testPhaseNoDrift()
+  {
+    final var increment = ARRS1Phase.ofFrames(0.1);
+    var p = 0L;
+    for (int index = 0; index < 10_000_000; ++index) {
+      p += increment;
+    }
+    assertEquals(increment * 10_000_000L, p);
+    assertEquals(1_000_000.0, ARRS1Phase.toFrames(p), 1.0e-3);
+  }
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.sampler_p0;
+
+import com.io7m.aradine.instrument.sampler_p0.internal.ARIP0MixerScalar;
+import com.io7m.aradine.instrument.sampler_p0.internal.ARIP0Mixers;
+import com.io7m.aradine.instrument.sampler_p0.internal.ARIP0VoiceEngine;
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.tests.ARTestSampleEntries.ConstantEntry;
+import com.io7m.aradine.tests.ARTestSampleEntries.LeadingSilenceEntry;
+import com.io7m.aradine.tests.ARTestSampleEntries.LevelEntry;
+import com.io7m.aradine.tests.ARTestSampleEntries.TrailingSilenceEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_OLDEST;
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_QUIETEST;
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_SAME_NOTE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARIP0VoiceEngineTest
+{
+  private static Set<Integer> notesOf(
+    final ARIP0VoiceEngine engine)
+  {
+    final var notes = new HashSet<Integer>();
+    for (int index = 0; index < engine.activeCount(); ++index) {
+      notes.add(Integer.valueOf(engine.note(index)));
+    }
+    return notes;
+  }
+
+  /**
+   * The default mixer (which may use the Vector API) produces exactly the
+   * same results as the scalar mixer.
+   */
+
+  @Test
+  public void testMixersAgree()
+  {
+    final var rng = new Random(0x5eedL);
+    final var source = new double[301];
+    for (int index = 0; index < source.length; ++index) {
+      source[index] = rng.nextDouble() * 2.0 - 1.0;
+    }
+
+    final var expected = new double[310];
+    final var received = new double[310];
+    for (int index = 0; index < expected.length; ++index) {
+      expected[index] = rng.nextDouble();
+      received[index] = expected[index];
+    }
+
+    new ARIP0MixerScalar().mix(source, 0.7, expected, 3, 301);
+    ARIP0Mixers.create().mix(source, 0.7, received, 3, 301);
+    assertArrayEquals(expected, received);
+  }
+
+  /**
+   * Voices are mixed at their velocity and stop when their samples end.
+   */
+
+  @Test
+  public void testRenderAndStop()
+  {
+    final var engine = new ARIP0VoiceEngine(4, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.NEAREST);
+    engine.start(60, STEAL_OLDEST, new ConstantEntry(10L, 2, 1.0), 0.5);
+    engine.start(61, STEAL_OLDEST, new ConstantEntry(600L, 1, 1.0), 0.25);
+
+    final var outL = new double[700];
+    final var outR = new double[700];
+    engine.render(outL, outR, 0, 700);
+
+    for (int index = 0; index < 700; ++index) {
+      final var left =
+        (index < 10 ? 0.5 : 0.0) + (index < 600 ? 0.25 : 0.0);
+      final var right =
+        index < 10 ? 0.5 : 0.0;
+      assertEquals(left, outL[index], "Left " + index);
+      assertEquals(right, outR[index], "Right " + index);
+    }
+    assertEquals(0, engine.activeCount());
+  }
+
+  /**
+   * The engine never exceeds its limit, steals the oldest voice, and
+   * retriggers voices playing the same note.
+   */
+
+  @Test
+  public void testStealing()
+  {
+    final var engine = new ARIP0VoiceEngine(8, new ARIP0MixerScalar());
+    final var entry = new ConstantEntry(1000L, 2, 1.0);
+    engine.setLimit(3);
+
+    engine.start(60, STEAL_OLDEST, entry, 1.0);
+    engine.start(61, STEAL_OLDEST, entry, 1.0);
+    engine.start(62, STEAL_OLDEST, entry, 1.0);
+    engine.start(63, STEAL_OLDEST, entry, 1.0);
+    assertEquals(3, engine.activeCount());
+    assertEquals(Set.of(61, 62, 63), notesOf(engine));
+
+    engine.start(62, STEAL_SAME_NOTE, entry, 1.0);
+    assertEquals(3, engine.activeCount());
+    assertEquals(Set.of(61, 62, 63), notesOf(engine));
+
+    engine.stopNote(62);
+    assertEquals(Set.of(61, 63), notesOf(engine));
+
+    engine.setLimit(1);
+    assertEquals(Set.of(63), notesOf(engine));
+  }
+
+  /**
+   * Under the same-note policy (the sampler's default), a retriggered voice
+   * becomes the newest voice, and a full engine steals the oldest voice for
+   * a new note.
+   */
+
+  @Test
+  public void testStealingSameNote()
+  {
+    final var engine = new ARIP0VoiceEngine(8, new ARIP0MixerScalar());
+    final var entry = new ConstantEntry(1000L, 2, 1.0);
+    engine.setLimit(2);
+
+    final var first = engine.start(60, STEAL_SAME_NOTE, entry, 1.0);
+    engine.start(61, STEAL_SAME_NOTE, entry, 1.0);
+    assertEquals(first, engine.start(60, STEAL_SAME_NOTE, entry, 0.5));
+    assertEquals(2, engine.activeCount());
+    assertEquals(0.5, engine.gain(first));
+
+    engine.start(62, STEAL_SAME_NOTE, entry, 1.0);
+    assertEquals(2, engine.activeCount());
+    assertEquals(Set.of(60, 62), notesOf(engine));
+  }
+
+  /**
+   * Under the quietest policy, a full engine steals the quietest voice,
+   * breaking ties by age.
+   */
+
+  @Test
+  public void testStealingQuietest()
+  {
+    final var engine = new ARIP0VoiceEngine(8, new ARIP0MixerScalar());
+    final var entry = new ConstantEntry(1000L, 2, 1.0);
+    engine.setLimit(3);
+
+    engine.start(60, STEAL_QUIETEST, entry, 0.5);
+    engine.start(61, STEAL_QUIETEST, entry, 0.1);
+    engine.start(62, STEAL_QUIETEST, entry, 0.1);
+    engine.start(63, STEAL_QUIETEST, entry, 1.0);
+    assertEquals(3, engine.activeCount());
+    assertEquals(Set.of(60, 62, 63), notesOf(engine));
+  }
+
+  /**
+   * The loudness of a voice is its velocity until it has rendered a block,
+   * and then the peak level of its last block scaled by its velocity, so a
+   * loud note playing a quiet sample is stolen first.
+   */
+
+  @Test
+  public void testStealingQuietestLoudness()
+  {
+    final var engine = new ARIP0VoiceEngine(8, new ARIP0MixerScalar());
+    engine.setLimit(3);
+
+    engine.start(60, STEAL_QUIETEST, new ConstantEntry(1000L, 2, 0.1), 1.0);
+    engine.start(61, STEAL_QUIETEST, new ConstantEntry(1000L, 2, 1.0), 0.5);
+    engine.start(62, STEAL_QUIETEST, new ConstantEntry(1000L, 1, 1.0), 0.3);
+    assertEquals(1.0, engine.loudness(0), 1.0e-12);
+    assertEquals(0.5, engine.loudness(1), 1.0e-12);
+    assertEquals(0.3, engine.loudness(2), 1.0e-12);
+
+    final var outL = new double[64];
+    final var outR = new double[64];
+    engine.render(outL, outR, 0, 64);
+    assertEquals(0.1, engine.loudness(0), 1.0e-12);
+    assertEquals(0.5, engine.loudness(1), 1.0e-12);
+    assertEquals(0.3, engine.loudness(2), 1.0e-12);
+
+    engine.start(63, STEAL_QUIETEST, new ConstantEntry(1000L, 2, 1.0), 1.0);
+    assertEquals(Set.of(61, 62, 63), notesOf(engine));
+  }
+
+  /**
+   * The rate scale is applied to active voices.
+   */
+
+  @Test
+  public void testRateScale()
+  {
+    final var engine = new ARIP0VoiceEngine(2, new ARIP0MixerScalar());
+    final var entry = new ConstantEntry(1000L, 2, 1.0);
+    engine.start(60, STEAL_OLDEST, entry, 1.0);
+    engine.setRateScale(0.5);
+
+    final var outL = new double[100];
+    final var outR = new double[100];
+    engine.render(outL, outR, 0, 100);
+    assertEquals(ARRS1Phase.ofFrame(50L), engine.phase(0));
+  }
+
+  /**
+   * Voices read from the mipmap level that brings their increment down to
+   * less than two frames per sample, limited to the levels that exist.
+   */
+
+  @Test
+  public void testMipmapLevels()
+  {
+    final var engine = new ARIP0VoiceEngine(2, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.LINEAR);
+    engine.start(60, STEAL_OLDEST, new LevelEntry(100_000L, 3), 1.0);
+    assertEquals(0, engine.level(0));
+
+    engine.setRateScale(1.5);
+    assertEquals(0, engine.level(0));
+    engine.setRateScale(1.999);
+    assertEquals(0, engine.level(0));
+    engine.setRateScale(2.0);
+    assertEquals(1, engine.level(0));
+    engine.setRateScale(3.9);
+    assertEquals(1, engine.level(0));
+    engine.setRateScale(4.0);
+    assertEquals(2, engine.level(0));
+    engine.setRateScale(16.0);
+    assertEquals(2, engine.level(0));
+
+    final var outL = new double[10];
+    final var outR = new double[10];
+    engine.setRateScale(4.0);
+    engine.render(outL, outR, 0, 10);
+    for (final var x : outL) {
+      assertEquals(3.0, x);
+    }
+    assertEquals(ARRS1Phase.ofFrame(40L), engine.phase(0));
+
+    engine.setRateScale(0.5);
+    assertEquals(0, engine.level(0));
+  }
+
+  /**
+   * Small upward transpositions and pitch bends (here, one semitone) keep
+   * reading level 0, and so keep the full bandwidth of the sample.
+   */
+
+  @Test
+  public void testMipmapSemitone()
+  {
+    final var engine = new ARIP0VoiceEngine(2, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.LINEAR);
+    engine.start(60, STEAL_OLDEST, new LevelEntry(100_000L, 3), 1.0);
+
+    engine.setRateScale(1.0594630943592953);
+    assertEquals(0, engine.level(0));
+
+    final var outL = new double[10];
+    final var outR = new double[10];
+    engine.render(outL, outR, 0, 10);
+    for (final var x : outL) {
+      assertEquals(1.0, x);
+    }
+
+    engine.setRateScale(0.9438743126816935);
+    assertEquals(0, engine.level(0));
+  }
+
+  /**
+   * Entries without mipmaps are always read at level 0.
+   */
+
+  @Test
+  public void testMipmapAbsent()
+  {
+    final var engine = new ARIP0VoiceEngine(2, new ARIP0MixerScalar());
+    engine.start(60, STEAL_OLDEST, new ConstantEntry(1000L, 2, 1.0), 1.0);
+    engine.setRateScale(8.0);
+    assertEquals(0, engine.level(0));
+  }
+
+  /**
+   * Rendering with workers produces the same output (up to the order of
+   * floating point additions) and stops the same voices as rendering on a
+   * single thread.
+   */
+
+  @Test
+  public void testParallelMatchesSerial()
+  {
+    final var serial = new ARIP0VoiceEngine(256, new ARIP0MixerScalar());
+    final var parallel = new ARIP0VoiceEngine(256, new ARIP0MixerScalar());
+    serial.setInterpolation(ARRS1Interpolation.SINC);
+    parallel.setInterpolation(ARRS1Interpolation.SINC);
+
+    final var rng = new Random(0x5eedL);
+    for (int index = 0; index < 200; ++index) {
+      final var entry =
+        new ConstantEntry(
+          100L + (long) rng.nextInt(2000),
+          1 + rng.nextInt(2),
+          rng.nextDouble());
+      final var velocity = rng.nextDouble();
+      serial.start(index, STEAL_OLDEST, entry, velocity);
+      parallel.start(index, STEAL_OLDEST, entry, velocity);
+    }
+
+    try (var gang = new ARI1WorkerGang("test", 3)) {
+      parallel.setWorkers(gang);
+      assertEquals(4, parallel.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+
+      final var serialL = new double[3000];
+      final var serialR = new double[3000];
+      final var parallelL = new double[3000];
+      final var parallelR = new double[3000];
+      serial.render(serialL, serialR, 0, 3000);
+      parallel.render(parallelL, parallelR, 0, 3000);
+
+      for (int index = 0; index < 3000; ++index) {
+        assertEquals(serialL[index], parallelL[index], 1.0e-9);
+        assertEquals(serialR[index], parallelR[index], 1.0e-9);
+      }
+      assertEquals(0, serial.activeCount());
+      assertEquals(0, parallel.activeCount());
+      parallel.setWorkers(null);
+    }
+  }
+
+  /**
+   * Workers are only used when the estimated cost of a block is large
+   * enough, and never exceed the number of active voices.
+   */
+
+  @Test
+  public void testParallelCostModel()
+  {
+    final var engine = new ARIP0VoiceEngine(64, new ARIP0MixerScalar());
+    final var entry = new ConstantEntry(100_000L, 2, 1.0);
+    engine.setInterpolation(ARRS1Interpolation.LINEAR);
+    for (int index = 0; index < 4; ++index) {
+      engine.start(index, STEAL_OLDEST, entry, 1.0);
+    }
+    assertEquals(1, engine.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+
+    try (var gang = new ARI1WorkerGang("test", 7)) {
+      engine.setWorkers(gang);
+      assertEquals(
+        4L * 2L * 2L * 256L,
+        engine.estimateCost(ARIP0VoiceEngine.BLOCK_SIZE));
+      assertEquals(1, engine.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+
+      engine.setInterpolation(ARRS1Interpolation.SINC);
+      assertEquals(1, engine.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+
+      for (int index = 4; index < 16; ++index) {
+        engine.start(index, STEAL_OLDEST, entry, 1.0);
+      }
+      assertEquals(4, engine.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+
+      for (int index = 16; index < 64; ++index) {
+        engine.start(index, STEAL_OLDEST, entry, 1.0);
+      }
+      assertEquals(8, engine.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+      assertEquals(1, engine.workersFor(8));
+      engine.setWorkers(null);
+    }
+    assertEquals(1, engine.workersFor(ARIP0VoiceEngine.BLOCK_SIZE));
+  }
+
+  /**
+   * Released voices fade out linearly over the release time, and are then
+   * stopped.
+   */
+
+  @Test
+  public void testReleaseFades()
+  {
+    final var engine = new ARIP0VoiceEngine(2, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.NEAREST);
+    engine.setSampleRate(1000L);
+    engine.setRelease(100.0);
+    engine.start(60, STEAL_OLDEST, new ConstantEntry(100_000L, 1, 1.0), 0.5);
+
+    final var outL = new double[100];
+    final var outR = new double[100];
+    engine.render(outL, outR, 0, 50);
+    assertEquals(0.5, outL[49]);
+
+    engine.releaseNote(60);
+    assertEquals(1, engine.activeCount());
+    assertTrue(engine.isReleasing(0));
+
+    Arrays.fill(outL, 0.0);
+    engine.render(outL, outR, 0, 100);
+    for (int index = 0; index < 100; ++index) {
+      final var expected = 0.5 * (1.0 - ((double) index / 100.0));
+      assertEquals(expected, outL[index], 1.0e-9, "Frame " + index);
+    }
+    assertEquals(0, engine.activeCount());
+  }
+
+  /**
+   * With no release time, released voices stop immediately.
+   */
+
+  @Test
+  public void testReleaseImmediate()
+  {
+    final var engine = new ARIP0VoiceEngine(2, new ARIP0MixerScalar());
+    engine.start(60, STEAL_OLDEST, new ConstantEntry(1000L, 1, 1.0), 1.0);
+    engine.releaseNote(60);
+    assertEquals(0, engine.activeCount());
+  }
+
+  /**
+   * Released voices that stay below the silence threshold for the hold time
+   * are stopped, even though their release envelopes have not ended.
+   */
+
+  @Test
+  public void testSilenceStops()
+  {
+    final var engine = new ARIP0VoiceEngine(4, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.NEAREST);
+    engine.setSampleRate(1000L);
+    engine.setRelease(10_000.0);
+    engine.setSilence(0.001, 100.0);
+    final var decaying = new TrailingSilenceEntry(200L, 100_000L);
+    engine.start(60, STEAL_OLDEST, decaying, 1.0);
+    engine.start(61, STEAL_OLDEST, new ConstantEntry(100_000L, 2, 1.0), 1.0);
+
+    final var outL = new double[100];
+    final var outR = new double[100];
+    engine.render(outL, outR, 0, 100);
+    engine.render(outL, outR, 0, 100);
+    assertEquals(Set.of(60, 61), notesOf(engine));
+
+    engine.releaseNote(60);
+    engine.releaseNote(61);
+    engine.render(outL, outR, 0, 50);
+    assertEquals(Set.of(60, 61), notesOf(engine));
+    engine.render(outL, outR, 0, 50);
+    assertEquals(Set.of(61), notesOf(engine));
+    engine.render(outL, outR, 0, 100);
+    assertEquals(Set.of(61), notesOf(engine));
+  }
+
+  /**
+   * Held voices that have decayed below the silence threshold for the hold
+   * time are stopped. Voices that have never reached the threshold, such as
+   * voices played at zero velocity, are left to play.
+   */
+
+  @Test
+  public void testSilenceHeldDecayed()
+  {
+    final var engine = new ARIP0VoiceEngine(4, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.NEAREST);
+    engine.setSampleRate(1000L);
+    engine.setSilence(0.001, 100.0);
+    final var decaying = new TrailingSilenceEntry(200L, 100_000L);
+    engine.start(60, STEAL_OLDEST, decaying, 1.0);
+    engine.start(61, STEAL_OLDEST, new ConstantEntry(100_000L, 2, 1.0), 1.0);
+    engine.start(62, STEAL_OLDEST, new ConstantEntry(100_000L, 2, 1.0), 0.0);
+
+    final var outL = new double[100];
+    final var outR = new double[100];
+    engine.render(outL, outR, 0, 100);
+    engine.render(outL, outR, 0, 100);
+    assertEquals(Set.of(60, 61, 62), notesOf(engine));
+
+    engine.render(outL, outR, 0, 50);
+    assertEquals(Set.of(60, 61, 62), notesOf(engine));
+    engine.render(outL, outR, 0, 50);
+    assertEquals(Set.of(61, 62), notesOf(engine));
+
+    for (int block = 0; block < 10; ++block) {
+      engine.render(outL, outR, 0, 100);
+    }
+    assertEquals(Set.of(61, 62), notesOf(engine));
+  }
+
+  /**
+   * A held note whose sample starts with a silent section longer than the
+   * silence hold time is not stopped, and becomes audible once the silent
+   * section has passed.
+   */
+
+  @Test
+  public void testSilenceLeadingHeld()
+  {
+    final var engine = new ARIP0VoiceEngine(4, new ARIP0MixerScalar());
+    engine.setInterpolation(ARRS1Interpolation.NEAREST);
+    engine.setSampleRate(1000L);
+    engine.setSilence(0.001, 100.0);
+    final var entry = new LeadingSilenceEntry(500L, 100_000L);
+    engine.start(60, STEAL_OLDEST, entry, 1.0);
+
+    final var outL = new double[100];
+    final var outR = new double[100];
+    for (int block = 0; block < 5; ++block) {
+      Arrays.fill(outL, 0.0);
+      engine.render(outL, outR, 0, 100);
+      assertEquals(0.0, outL[99], "Block " + block);
+      assertEquals(Set.of(60), notesOf(engine), "Block " + block);
+    }
+
+    Arrays.fill(outL, 0.0);
+    engine.render(outL, outR, 0, 100);
+    assertEquals(Set.of(60), notesOf(engine));
+    assertEquals(1.0, outL[50]);
+  }
+}
@@ -17,13 +17,26 @@
 
 package com.io7m.aradine.tests.sampler_xp0;
 
+import com.io7m.aradine.envelope.table1.AREnvelopeADR;
+import com.io7m.aradine.instrument.sampler_xp0.internal.ARIXP0LoopMode;
 import com.io7m.aradine.instrument.sampler_xp0.internal.ARIXP0SampleState;
+import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
 import com.io7m.aradine.instrument.spi1.ARI1SampleMapEntryType;
+import com.io7m.aradine.resampler1.ARRS1Interpolation;
+import com.io7m.aradine.resampler1.ARRS1Phase;
+import com.io7m.aradine.tests.ARTestSampleEntries.ConstantEntry;
+import com.io7m.aradine.tests.ARTestSampleEntries.RampEntry;
+import com.io7m.aradine.tests.ARTestSampleEntries.TrailingSilenceEntry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.lenient;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,9 +54,272 @@ public final class ARIXP0SamplerTest
       new ARIXP0SampleState(entry, 1.0);
 
     final var frame = new double[2];
+    final var rate = ARI1PitchBend.pitchBendToPlaybackRate(-1.0, 24);
 
     for (int index = 0; index < 3L * 8L; ++index) {
-      state.evaluate(-1.0, frame);
+      state.evaluate(rate, frame);
+    }
+  }
+
+  /**
+   * Ping-pong looping on fixed-point phases hits the loop bounds exactly and
+   * never drifts outside them.
+   *
+   * @param entry The sample map entry
+   */
+
+  @Test
+  public void testSampleStateLoopExact(
+    final @Mock ARI1SampleMapEntryType entry)
+  {
+    final var mock = lenient();
+    mock.when(entry.frames()).thenReturn(101L);
+    mock.when(entry.playbackRate()).thenReturn(1.0);
+
+    final var state = new ARIXP0SampleState(entry, 1.0);
+    state.setLoopPoint(0.5);
+
+    final var frame = new double[2];
+    final var loopStart = ARRS1Phase.ofFrame(50L);
+    final var loopEnd = ARRS1Phase.ofFrame(100L);
+    var sawStart = false;
+    var sawEnd = false;
+
+    for (int index = 0; index < 100_000; ++index) {
+      state.evaluate(0.75, frame);
+      final var phase = state.phase();
+      if (index > 100) {
+        assertTrue(phase >= loopStart, "Phase must not precede loop start");
+      }
+      assertTrue(phase <= loopEnd, "Phase must not exceed loop end");
+      sawStart |= phase == loopStart;
+      sawEnd |= phase == loopEnd;
+    }
+
+    assertTrue(sawStart);
+    assertTrue(sawEnd);
+    assertEquals(
+      0L,
+      state.phase() % ARRS1Phase.ofFrames(0.25),
+      "Phase must remain on the quarter-frame grid"
+    );
+  }
+
+  /**
+   * A held voice whose loop has decayed below the silence threshold is
+   * finished once the hold time has elapsed, even though neither the loop
+   * nor the release envelope ever ends.
+   */
+
+  @Test
+  public void testSampleStateSilence()
+  {
+    final var state =
+      new ARIXP0SampleState(
+        new TrailingSilenceEntry(20L, 101L),
+        1.0,
+        AREnvelopeADR.createRelease(1000L, 10_000.0)
+      );
+    state.setInterpolation(ARRS1Interpolation.NEAREST);
+    state.setSilence(0.001, 256L);
+
+    /*
+     * The first window of 64 frames reaches the threshold, and the hold
+     * time is counted from the end of that window.
+     */
+
+    final var frame = new double[2];
+    for (int index = 0; index < 64 + 255; ++index) {
+      state.evaluate(1.0, frame);
+      assertFalse(state.isFinished(), "Frame " + index);
+    }
+    state.evaluate(1.0, frame);
+    assertTrue(state.isFinished());
+    assertFalse(state.isReleasing());
+  }
+
+  /**
+   * A looping voice that has never reached the silence threshold is never
+   * finished for silence while it is held.
+   */
+
+  @Test
+  public void testSampleStateSilenceInaudible()
+  {
+    final var state =
+      new ARIXP0SampleState(
+        new ConstantEntry(101L, 0.0),
+        1.0,
+        AREnvelopeADR.createRelease(1000L, 10_000.0)
+      );
+    state.setSilence(0.001, 256L);
+
+    final var frame = new double[2];
+    for (int index = 0; index < 10_000; ++index) {
+      state.evaluate(1.0, frame);
+      assertFalse(state.isFinished());
+    }
+  }
+
+  /**
+   * A released voice fades out over the release envelope and is then
+   * finished.
+   */
+
+  @Test
+  public void testSampleStateRelease()
+  {
+    final var state =
+      new ARIXP0SampleState(
+        new ConstantEntry(101L, 1.0),
+        1.0,
+        AREnvelopeADR.createRelease(1000L, 10.0)
+      );
+    state.setInterpolation(ARRS1Interpolation.NEAREST);
+
+    final var frame = new double[2];
+    state.evaluate(1.0, frame);
+    assertEquals(1.0, frame[0]);
+
+    state.release();
+    assertTrue(state.isReleasing());
+    for (int index = 0; index < 10; ++index) {
+      assertFalse(state.isFinished());
+      state.evaluate(1.0, frame);
+      assertEquals(1.0 - ((double) index / 10.0), frame[0], 1.0e-9);
+    }
+    assertTrue(state.isFinished());
+  }
+
+  /**
+   * Rendering a span mixes exactly what evaluating each frame would, and
+   * the voice is finished once its release has elapsed.
+   */
+
+  @Test
+  public void testSampleStateRenderSpan()
+  {
+    final var state =
+      new ARIXP0SampleState(
+        new ConstantEntry(101L, 1.0),
+        0.5,
+        AREnvelopeADR.createRelease(1000L, 10.0)
+      );
+    state.setInterpolation(ARRS1Interpolation.NEAREST);
+
+    final var outputL = new double[32];
+    final var outputR = new double[32];
+    outputL[0] = 3.0;
+
+    assertEquals(4, state.render(1.0, outputL, outputR, 0, 4));
+    assertEquals(3.5, outputL[0]);
+    assertEquals(0.5, outputL[3]);
+    assertEquals(0.5, outputR[3]);
+
+    state.release();
+    state.render(1.0, outputL, outputR, 4, 28);
+    assertTrue(state.isFinished());
+    for (int index = 0; index < 10; ++index) {
+      final var expected = 0.5 * (1.0 - ((double) index / 10.0));
+      assertEquals(expected, outputL[4 + index], 1.0e-9);
+    }
+    assertEquals(0.0, outputL[14], 1.0e-9);
+  }
+
+  /**
+   * Rendering ping-pong loops a segment at a time produces the same output
+   * and the same phase as evaluating one frame at a time.
+   */
+
+  @Test
+  public void testSampleStateSegmentsMatchFrames()
+  {
+    final var entry = new RampEntry(101L);
+    final var byFrame = new ARIXP0SampleState(entry, 1.0);
+    final var bySpan = new ARIXP0SampleState(entry, 1.0);
+    for (final var state : new ARIXP0SampleState[]{byFrame, bySpan}) {
+      state.setInterpolation(ARRS1Interpolation.LINEAR);
+      state.setLoopPoint(0.5);
+      state.start(entry, 1.0);
+    }
+
+    final var frame = new double[2];
+    final var outputL = new double[1000];
+    final var outputR = new double[1000];
+    for (int offset = 0; offset < 10_000; offset += 1000) {
+      Arrays.fill(outputL, 0.0);
+      Arrays.fill(outputR, 0.0);
+      bySpan.render(0.75, outputL, outputR, 0, 1000);
+
+      for (int index = 0; index < 1000; ++index) {
+        byFrame.evaluate(0.75, frame);
+        assertEquals(frame[0], outputL[index], 1.0e-9);
+        assertEquals(frame[1], outputR[index], 1.0e-9);
+      }
+      assertEquals(byFrame.phase(), bySpan.phase());
+    }
+  }
+
+  /**
+   * The loudness of a voice is its velocity until it has rendered anything,
+   * and then the peak level of its last block scaled by its velocity.
+   */
+
+  @Test
+  public void testSampleStateLoudness()
+  {
+    final var entry = new ConstantEntry(1000L, 2, 0.25);
+    final var state = new ARIXP0SampleState(entry, 0.8);
+    assertEquals(0.8, state.loudness(), 1.0e-12);
+
+    final var outputL = new double[64];
+    final var outputR = new double[64];
+    state.render(1.0, outputL, outputR, 0, 64);
+    assertEquals(0.2, state.loudness(), 1.0e-12);
+
+    state.start(entry, 0.5);
+    assertEquals(0.5, state.loudness(), 1.0e-12);
+  }
+
+  /**
+   * Forward loops wrap back to the loop point, and the crossfade leading up
+   * to the wrap keeps the output continuous.
+   */
+
+  @Test
+  public void testSampleStateForwardCrossfade()
+  {
+    final var state = new ARIXP0SampleState(new RampEntry(101L), 1.0);
+    state.setInterpolation(ARRS1Interpolation.NEAREST);
+    state.setLoopMode(ARIXP0LoopMode.FORWARD_CROSSFADE);
+    state.setLoopCrossfade(0.2);
+    state.setLoopPoint(0.5);
+
+    final var outputL = new double[1000];
+    final var outputR = new double[1000];
+    state.render(1.0, outputL, outputR, 0, 1000);
+
+    for (int index = 0; index < 90; ++index) {
+      assertEquals((double) index, outputL[index]);
+    }
+
+    /*
+     * Over the ten frames of the crossfade, the output moves from the end
+     * of the loop to the loop point in steps of -4, and then resumes from
+     * the loop point.
+     */
+
+    for (int index = 90; index < 100; ++index) {
+      assertEquals(90.0 - (4.0 * (double) (index - 90)), outputL[index]);
+    }
+    assertEquals(50.0, outputL[100]);
+    assertEquals(51.0, outputL[101]);
+
+    for (int index = 1; index < 1000; ++index) {
+      final var step = outputL[index] - outputL[index - 1];
+      assertTrue(step == 1.0 || step == -4.0, "Step " + step);
     }
+    assertTrue(state.phase() >= ARRS1Phase.ofFrame(50L));
+    assertTrue(state.phase() < ARRS1Phase.ofFrame(100L));
   }
 }
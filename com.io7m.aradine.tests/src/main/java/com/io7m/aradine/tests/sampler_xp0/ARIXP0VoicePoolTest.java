@@ -0,0 +1,113 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.sampler_xp0;
+
+import com.io7m.aradine.instrument.sampler_xp0.internal.ARIXP0VoicePool;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_OLDEST;
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_SAME_NOTE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARIXP0VoicePoolTest
+{
+  /**
+   * The pool never exceeds its limit, and steals the oldest voice.
+   */
+
+  @Test
+  public void testStealOldest()
+  {
+    final var pool = new ARIXP0VoicePool(8);
+    pool.setLimit(4);
+
+    final var v0 = pool.voiceForNote(60, STEAL_OLDEST);
+    final var v1 = pool.voiceForNote(61, STEAL_OLDEST);
+    pool.voiceForNote(62, STEAL_OLDEST);
+    pool.voiceForNote(63, STEAL_OLDEST);
+    assertEquals(4, pool.activeCount());
+
+    final var v4 = pool.voiceForNote(64, STEAL_OLDEST);
+    assertSame(v0, v4);
+    assertEquals(64, v4.note());
+    assertEquals(4, pool.activeCount());
+
+    final var v5 = pool.voiceForNote(65, STEAL_OLDEST);
+    assertSame(v1, v5);
+    assertEquals(4, pool.activeCount());
+  }
+
+  /**
+   * Same-note retriggering reuses the voice playing the note, and other
+   * policies stack voices on the same note.
+   */
+
+  @Test
+  public void testSameNote()
+  {
+    final var pool = new ARIXP0VoicePool(8);
+
+    final var v0 = pool.voiceForNote(60, STEAL_SAME_NOTE);
+    final var v1 = pool.voiceForNote(60, STEAL_SAME_NOTE);
+    assertSame(v0, v1);
+    assertEquals(1, pool.activeCount());
+
+    final var v2 = pool.voiceForNote(60, STEAL_OLDEST);
+    assertNotSame(v0, v2);
+    assertEquals(2, pool.activeCount());
+
+    pool.stopNote(60);
+    assertEquals(0, pool.activeCount());
+  }
+
+  /**
+   * Voices are reused rather than allocated, and lowering the limit stops
+   * the oldest voices.
+   */
+
+  @Test
+  public void testReuseAndLimit()
+  {
+    final var pool = new ARIXP0VoicePool(4);
+    final var seen = new HashSet<Object>();
+
+    for (int note = 0; note < 128; ++note) {
+      seen.add(pool.voiceForNote(note, STEAL_OLDEST));
+      if (note % 3 == 0) {
+        pool.stopNote(note);
+      }
+    }
+
+    assertTrue(seen.size() <= pool.capacity());
+    assertEquals(4, pool.activeCount());
+
+    pool.setLimit(2);
+    assertEquals(2, pool.activeCount());
+    assertEquals(
+      Set.of(Integer.valueOf(125), Integer.valueOf(127)),
+      Set.of(
+        Integer.valueOf(pool.active(0).note()),
+        Integer.valueOf(pool.active(1).note()))
+    );
+  }
+}
@@ -185,4 +185,40 @@ public abstract class ARI1EventBufferContract<T extends ARI1EventBufferType<ARI1
       assertEquals(List.of(), forTime);
     }
   }
+
+  /**
+   * The next frame with events is always the earliest remaining time.
+   *
+   * @param events The events
+   */
+
+  @Property
+  public void testEventsNext(
+    final @ForAll List<ARI1EventType> events)
+  {
+    final var e = this.createEventBuffer();
+
+    for (final var event : events) {
+      e.eventAdd(event);
+    }
+
+    final var times =
+      events.stream()
+        .map(event -> Integer.valueOf(event.timeOffsetInFrames()))
+        .sorted()
+        .distinct()
+        .toList();
+
+    var from = Integer.MIN_VALUE;
+    for (final var time : times) {
+      assertEquals(
+        time.intValue(),
+        e.eventsNext(from, Integer.MAX_VALUE)
+      );
+      assertTrue(e.eventsTake(time.intValue()).size() > 0);
+      from = time.intValue();
+    }
+    assertEquals(Integer.MAX_VALUE, e.eventsNext(from, Integer.MAX_VALUE));
+    assertEquals(23, e.eventsNext(0, 23));
+  }
 }
@@ -18,12 +18,14 @@
 package com.io7m.aradine.tests.spi1;
 
 import com.io7m.aradine.instrument.spi1.ARI1PitchBend;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.Properties;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public final class ARI1PitchBendTest
 {
@@ -68,4 +70,26 @@ public final class ARI1PitchBendTest
       assertEquals(expectedRate, receivedRate, 0.00000001);
     }
   }
+
+  /**
+   * Test that the table-driven approximation of 2^x stays within its error
+   * bound across the range of pitch bends.
+   */
+
+  @Test
+  public void testExp2FastAccuracy()
+  {
+    for (int index = -100_000; index <= 100_000; ++index) {
+      final var x = (double) index / 1000.0;
+      final var expected = StrictMath.pow(2.0, x);
+      final var received = ARI1PitchBend.exp2Fast(x);
+      final var error = Math.abs(received - expected) / expected;
+      assertTrue(error < 1.0e-7, "Relative error %s at %s".formatted(
+        Double.valueOf(error), Double.valueOf(x)));
+    }
+
+    assertEquals(1.0, ARI1PitchBend.pitchBendToPlaybackRateFast(0.0, 24));
+    assertEquals(4.0, ARI1PitchBend.pitchBendToPlaybackRateFast(1.0, 24));
+    assertEquals(0.5, ARI1PitchBend.pitchBendToPlaybackRateFast(-1.0, 12));
+  }
 }
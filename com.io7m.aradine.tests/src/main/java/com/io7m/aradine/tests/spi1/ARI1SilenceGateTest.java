@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.spi1;
+
+import com.io7m.aradine.instrument.spi1.ARI1SilenceGate;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public final class ARI1SilenceGateTest
+{
+  /**
+   * A gate with no threshold never reports silence.
+   */
+
+  @Test
+  public void testDisabled()
+  {
+    final var gate = new ARI1SilenceGate(4);
+    for (int index = 0; index < 10_000; ++index) {
+      assertFalse(gate.observe(0.0));
+    }
+  }
+
+  /**
+   * A voice is silent once it has been below the threshold for the hold
+   * time, and any loud window resets the hold time.
+   */
+
+  @Test
+  public void testHold()
+  {
+    final var gate = new ARI1SilenceGate(4);
+    gate.configure(0.01, 16L);
+    assertFalse(gate.observe(0.5));
+    assertFalse(gate.observe(0.0));
+    assertFalse(gate.observe(0.0));
+    assertFalse(gate.observe(0.0));
+    assertTrue(gate.isArmed());
+
+    for (int index = 0; index < 12; ++index) {
+      assertFalse(gate.observe(0.001));
+    }
+    assertFalse(gate.observe(-0.5));
+    assertFalse(gate.observe(0.0));
+    assertFalse(gate.observe(0.0));
+    assertFalse(gate.observe(0.0));
+    assertEquals(0.5, gate.peak());
+
+    for (int index = 0; index < 15; ++index) {
+      assertFalse(gate.observe(0.001), "Frame " + index);
+    }
+    assertTrue(gate.observe(0.001));
+    assertTrue(gate.isSilent());
+
+    gate.reset();
+    assertFalse(gate.isSilent());
+    assertFalse(gate.isArmed());
+  }
+
+  /**
+   * A gate never reports silence until the voice has reached the threshold,
+   * and only counts silence from that point.
+   */
+
+  @Test
+  public void testLeadingSilence()
+  {
+    final var gate = new ARI1SilenceGate(4);
+    gate.configure(0.01, 16L);
+
+    for (int index = 0; index < 10_000; ++index) {
+      assertFalse(gate.observe(0.0));
+    }
+    assertFalse(gate.isSilent());
+    assertFalse(gate.isArmed());
+    assertEquals(0.0, gate.peak());
+
+    for (int index = 0; index < 4; ++index) {
+      assertFalse(gate.observe(0.01));
+    }
+    assertTrue(gate.isArmed());
+    for (int index = 0; index < 15; ++index) {
+      assertFalse(gate.observe(0.0), "Frame " + index);
+    }
+    assertTrue(gate.observe(0.0));
+  }
+
+  /**
+   * Blocks are counted by their length.
+   */
+
+  @Test
+  public void testBlocks()
+  {
+    final var gate = new ARI1SilenceGate();
+    gate.configure(ARI1SilenceGate.decibelsToAmplitude(-60.0), 512L);
+
+    assertFalse(gate.observeBlock(0.0001, 256));
+    assertFalse(gate.observeBlock(0.0001, 256));
+    assertFalse(gate.observeBlock(0.01, 256));
+    assertFalse(gate.observeBlock(0.0001, 256));
+    assertTrue(gate.observeBlock(0.0001, 256));
+    assertFalse(gate.observeBlock(0.01, 256));
+    assertEquals(0.001, ARI1SilenceGate.decibelsToAmplitude(-60.0), 1.0e-12);
+  }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.spi1;
+
+import com.io7m.aradine.instrument.spi1.ARI1VoiceSetType;
+import com.io7m.aradine.instrument.spi1.ARI1VoiceStealing;
+import org.junit.jupiter.api.Test;
+
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_OLDEST;
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_QUIETEST;
+import static com.io7m.aradine.instrument.spi1.ARI1VoiceStealing.STEAL_SAME_NOTE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public final class ARI1VoiceStealingTest
+{
+  private record Voices(
+    int limit,
+    int[] notes,
+    long[] serials,
+    double[] loudness)
+    implements ARI1VoiceSetType
+  {
+    @Override
+    public int activeCount()
+    {
+      return this.notes.length;
+    }
+
+    @Override
+    public int note(
+      final int index)
+    {
+      return this.notes[index];
+    }
+
+    @Override
+    public long serial(
+      final int index)
+    {
+      return this.serials[index];
+    }
+
+    @Override
+    public double loudness(
+      final int index)
+    {
+      return this.loudness[index];
+    }
+  }
+
+  private static Voices full()
+  {
+    return new Voices(
+      4,
+      new int[]{60, 61, 62, 63},
+      new long[]{4L, 2L, 3L, 5L},
+      new double[]{0.5, 0.75, 0.25, 0.25}
+    );
+  }
+
+  /**
+   * Every policy activates a new voice while the set is below its limit,
+   * unless a same-note voice can be retriggered.
+   */
+
+  @Test
+  public void testBelowLimit()
+  {
+    final var voices =
+      new Voices(
+        8,
+        new int[]{60, 61},
+        new long[]{1L, 2L},
+        new double[]{1.0, 1.0}
+      );
+
+    assertEquals(2, STEAL_OLDEST.select(voices, 61));
+    assertEquals(2, STEAL_QUIETEST.select(voices, 61));
+    assertEquals(1, STEAL_SAME_NOTE.select(voices, 61));
+    assertEquals(2, STEAL_SAME_NOTE.select(voices, 62));
+
+    final var empty =
+      new Voices(1, new int[0], new long[0], new double[0]);
+    for (final var policy : ARI1VoiceStealing.values()) {
+      assertEquals(0, policy.select(empty, 60));
+    }
+  }
+
+  /**
+   * A full set steals the oldest voice.
+   */
+
+  @Test
+  public void testOldest()
+  {
+    assertEquals(1, STEAL_OLDEST.select(full(), 62));
+    assertEquals(1, ARI1VoiceStealing.findOldest(full()));
+  }
+
+  /**
+   * A full set steals the quietest voice, and the oldest of equally quiet
+   * voices.
+   */
+
+  @Test
+  public void testQuietest()
+  {
+    assertEquals(2, STEAL_QUIETEST.select(full(), 64));
+  }
+
+  /**
+   * A voice playing the same note is retriggered, even when the set is full;
+   * otherwise the oldest voice is stolen.
+   */
+
+  @Test
+  public void testSameNote()
+  {
+    assertEquals(3, STEAL_SAME_NOTE.select(full(), 63));
+    assertEquals(1, STEAL_SAME_NOTE.select(full(), 64));
+  }
+
+  /**
+   * Parameter values are clamped to the available policies.
+   */
+
+  @Test
+  public void testOfParameter()
+  {
+    assertEquals(STEAL_OLDEST, ARI1VoiceStealing.ofParameter(-1L));
+    assertEquals(STEAL_OLDEST, ARI1VoiceStealing.ofParameter(0L));
+    assertEquals(STEAL_QUIETEST, ARI1VoiceStealing.ofParameter(1L));
+    assertEquals(STEAL_SAME_NOTE, ARI1VoiceStealing.ofParameter(2L));
+    assertEquals(STEAL_SAME_NOTE, ARI1VoiceStealing.ofParameter(100L));
+  }
+}
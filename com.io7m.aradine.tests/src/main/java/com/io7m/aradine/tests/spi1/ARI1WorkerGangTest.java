@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2023 Mark Raynsford <code@io7m.com> https://www.io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.aradine.tests.spi1;
+
+import com.io7m.aradine.instrument.spi1.ARI1WorkerGang;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public final class ARI1WorkerGangTest
+{
+  /**
+   * Every worker runs its part of a task exactly once.
+   */
+
+  @Test
+  public void testExecuteAll()
+  {
+    try (var gang = new ARI1WorkerGang("test", 3)) {
+      assertEquals(3, gang.threadCount());
+      assertEquals(4, gang.workers());
+
+      final var runs = new AtomicIntegerArray(4);
+      final var counts = new AtomicIntegerArray(4);
+      for (int index = 0; index < 1000; ++index) {
+        gang.execute((worker, workers) -> {
+          runs.incrementAndGet(worker);
+          counts.set(worker, workers);
+        });
+      }
+      for (int worker = 0; worker < 4; ++worker) {
+        assertEquals(1000, runs.get(worker));
+        assertEquals(4, counts.get(worker));
+      }
+    }
+  }
+
+  /**
+   * Only the requested number of workers run a task, and workers that are
+   * not needed for one task still run their part of later tasks exactly
+   * once.
+   */
+
+  @Test
+  public void testExecutePartial()
+  {
+    try (var gang = new ARI1WorkerGang("test", 3)) {
+      final var runs = new AtomicIntegerArray(4);
+      final var expected = new int[4];
+      for (int index = 0; index < 4000; ++index) {
+        final var used = 1 + (index % 4);
+        gang.execute((worker, workers) -> {
+          assertEquals(used, workers);
+          runs.incrementAndGet(worker);
+        }, used);
+        for (int worker = 0; worker < used; ++worker) {
+          ++expected[worker];
+        }
+      }
+      for (int worker = 0; worker < 4; ++worker) {
+        assertEquals(expected[worker], runs.get(worker), "Worker " + worker);
+      }
+    }
+  }
+
+  /**
+   * Requested worker counts are clamped, and closed gangs run tasks on the
+   * calling thread.
+   */
+
+  @Test
+  public void testExecuteClamped()
+  {
+    final var gang = new ARI1WorkerGang("test", 2);
+    final var runs = new AtomicIntegerArray(3);
+    gang.execute((worker, workers) -> runs.incrementAndGet(worker), 100);
+    gang.execute((worker, workers) -> runs.incrementAndGet(worker), 0);
+    assertEquals(2, runs.get(0));
+    assertEquals(1, runs.get(1));
+    assertEquals(1, runs.get(2));
+
+    gang.close();
+    gang.execute((worker, workers) -> {
+      assertEquals(1, workers);
+      runs.incrementAndGet(worker);
+    });
+    assertEquals(3, runs.get(0));
+    assertEquals(1, runs.get(1));
+  }
+
+  /**
+   * A failure on a worker thread is rethrown on the calling thread after
+   * every worker has finished, and the gang remains usable.
+   */
+
+  @Test
+  public void testExecuteWorkerFailure()
+  {
+    try (var gang = new ARI1WorkerGang("test", 3)) {
+      final var failure = new IllegalStateException("Worker 2");
+      final var runs = new AtomicIntegerArray(4);
+      final var thrown =
+        assertThrows(IllegalStateException.class, () -> {
+          gang.execute((worker, workers) -> {
+            runs.incrementAndGet(worker);
+            if (worker == 2) {
+              throw failure;
+            }
+          });
+        });
+      assertSame(failure, thrown);
+      for (int worker = 0; worker < 4; ++worker) {
+        assertEquals(1, runs.get(worker));
+      }
+
+      gang.execute((worker, workers) -> runs.incrementAndGet(worker));
+      for (int worker = 0; worker < 4; ++worker) {
+        assertEquals(2, runs.get(worker));
+      }
+    }
+  }
+
+  /**
+   * A failure on the calling thread takes precedence over a failure on a
+   * worker thread, which is suppressed.
+   */
+
+  @Test
+  public void testExecuteCallerFailure()
+  {
+    try (var gang = new ARI1WorkerGang("test", 1)) {
+      final var failureCaller = new IllegalStateException("Worker 0");
+      final var failureWorker = new IllegalStateException("Worker 1");
+      final var thrown =
+        assertThrows(IllegalStateException.class, () -> {
+          gang.execute((worker, workers) -> {
+            if (worker == 0) {
+              throw failureCaller;
+            }
+            throw failureWorker;
+          });
+        });
+      assertSame(failureCaller, thrown);
+      assertEquals(1, thrown.getSuppressed().length);
+      assertSame(failureWorker, thrown.getSuppressed()[0]);
+
+      gang.execute((worker, workers) -> {
+
+      });
+    }
+  }
+}
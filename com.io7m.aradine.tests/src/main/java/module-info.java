@@ -27,11 +27,14 @@ open module com.io7m.aradine.tests
   requires com.io7m.aradine.filter.statevar1;
   requires com.io7m.aradine.instrument.codegen;
   requires com.io7m.aradine.instrument.grain_sampler_m0;
+  requires com.io7m.aradine.instrument.grain_sampler_p0;
+  requires com.io7m.aradine.instrument.jfr1;
   requires com.io7m.aradine.instrument.sampler_m0;
   requires com.io7m.aradine.instrument.sampler_p0;
   requires com.io7m.aradine.instrument.sampler_xp0;
   requires com.io7m.aradine.instrument.spi1;
   requires com.io7m.aradine.instrument.spi1.xml;
+  requires com.io7m.aradine.resampler1;
   requires com.io7m.aradine.tests.arbitraries;
 
   requires com.io7m.anethum.api;
@@ -44,6 +47,8 @@ open module com.io7m.aradine.tests
   requires com.io7m.jsamplebuffer.xmedia;
   requires it.unimi.dsi.fastutil.core;
   requires java.desktop;
+  requires java.management;
+  requires jdk.management;
   requires jnajack;
   requires net.bytebuddy.agent;
   requires net.bytebuddy;